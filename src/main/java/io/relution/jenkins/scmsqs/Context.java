@@ -26,19 +26,43 @@ import io.relution.jenkins.scmsqs.factories.ExecutorFactoryImpl;
 import io.relution.jenkins.scmsqs.factories.MessageParserFactoryImpl;
 import io.relution.jenkins.scmsqs.factories.SQSFactoryImpl;
 import io.relution.jenkins.scmsqs.factories.ThreadFactoryImpl;
+import io.relution.jenkins.scmsqs.interfaces.BuiltCommitCache;
+import io.relution.jenkins.scmsqs.interfaces.CredentialsProviderFactory;
+import io.relution.jenkins.scmsqs.interfaces.EventReplayer;
 import io.relution.jenkins.scmsqs.interfaces.EventTriggerMatcher;
 import io.relution.jenkins.scmsqs.interfaces.ExecutorFactory;
 import io.relution.jenkins.scmsqs.interfaces.ExecutorProvider;
+import io.relution.jenkins.scmsqs.interfaces.KeyedExecutor;
+import io.relution.jenkins.scmsqs.interfaces.MessageArchive;
+import io.relution.jenkins.scmsqs.interfaces.MessageDeduplicator;
 import io.relution.jenkins.scmsqs.interfaces.MessageParserFactory;
+import io.relution.jenkins.scmsqs.interfaces.QueueUrlCache;
+import io.relution.jenkins.scmsqs.interfaces.RateLimiter;
+import io.relution.jenkins.scmsqs.interfaces.SQSClientPool;
 import io.relution.jenkins.scmsqs.interfaces.SQSFactory;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueMonitorScheduler;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueProvider;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.interfaces.StaleEventFilter;
+import io.relution.jenkins.scmsqs.interfaces.StatisticsProvider;
+import io.relution.jenkins.scmsqs.journal.MessageArchiveImpl;
+import io.relution.jenkins.scmsqs.metrics.StatisticsProviderImpl;
+import io.relution.jenkins.scmsqs.model.BuiltCommitCacheImpl;
+import io.relution.jenkins.scmsqs.model.EventReplayerImpl;
 import io.relution.jenkins.scmsqs.model.EventTriggerMatcherImpl;
+import io.relution.jenkins.scmsqs.model.MessageDeduplicatorImpl;
+import io.relution.jenkins.scmsqs.model.QueueUrlCacheImpl;
 import io.relution.jenkins.scmsqs.model.SQSQueueProviderImpl;
+import io.relution.jenkins.scmsqs.model.SettingsProviderImpl;
+import io.relution.jenkins.scmsqs.model.StaleEventFilterImpl;
+import io.relution.jenkins.scmsqs.net.CredentialsProviderFactoryImpl;
 import io.relution.jenkins.scmsqs.net.RequestFactory;
 import io.relution.jenkins.scmsqs.net.RequestFactoryImpl;
+import io.relution.jenkins.scmsqs.net.SQSClientPoolImpl;
 import io.relution.jenkins.scmsqs.threading.ExecutorProviderImpl;
+import io.relution.jenkins.scmsqs.threading.KeyedExecutorImpl;
 import io.relution.jenkins.scmsqs.threading.SQSQueueMonitorSchedulerImpl;
+import io.relution.jenkins.scmsqs.threading.TokenBucketRateLimiter;
 
 
 public class Context extends com.google.inject.AbstractModule {
@@ -70,18 +94,42 @@ public class Context extends com.google.inject.AbstractModule {
                 .toProvider(ExecutorProvider.class)
                 .in(com.google.inject.Singleton.class);
 
+        this.bind(KeyedExecutor.class)
+                .to(KeyedExecutorImpl.class)
+                .in(com.google.inject.Singleton.class);
+
+        this.bind(RateLimiter.class)
+                .to(TokenBucketRateLimiter.class)
+                .in(com.google.inject.Singleton.class);
+
         this.bind(SQSFactory.class)
                 .to(SQSFactoryImpl.class)
                 .in(com.google.inject.Singleton.class);
 
+        this.bind(SQSClientPool.class)
+                .to(SQSClientPoolImpl.class)
+                .in(com.google.inject.Singleton.class);
+
+        this.bind(CredentialsProviderFactory.class)
+                .to(CredentialsProviderFactoryImpl.class)
+                .in(com.google.inject.Singleton.class);
+
         this.bind(RequestFactory.class)
                 .to(RequestFactoryImpl.class)
                 .in(com.google.inject.Singleton.class);
 
+        this.bind(QueueUrlCache.class)
+                .to(QueueUrlCacheImpl.class)
+                .in(com.google.inject.Singleton.class);
+
         this.bind(SQSQueueProvider.class)
                 .to(SQSQueueProviderImpl.class)
                 .in(com.google.inject.Singleton.class);
 
+        this.bind(SettingsProvider.class)
+                .to(SettingsProviderImpl.class)
+                .in(com.google.inject.Singleton.class);
+
         this.bind(SQSQueueMonitorScheduler.class)
                 .to(SQSQueueMonitorSchedulerImpl.class)
                 .in(com.google.inject.Singleton.class);
@@ -93,5 +141,29 @@ public class Context extends com.google.inject.AbstractModule {
         this.bind(EventTriggerMatcher.class)
                 .to(EventTriggerMatcherImpl.class)
                 .in(com.google.inject.Singleton.class);
+
+        this.bind(MessageDeduplicator.class)
+                .to(MessageDeduplicatorImpl.class)
+                .in(com.google.inject.Singleton.class);
+
+        this.bind(StaleEventFilter.class)
+                .to(StaleEventFilterImpl.class)
+                .in(com.google.inject.Singleton.class);
+
+        this.bind(StatisticsProvider.class)
+                .to(StatisticsProviderImpl.class)
+                .in(com.google.inject.Singleton.class);
+
+        this.bind(MessageArchive.class)
+                .to(MessageArchiveImpl.class)
+                .in(com.google.inject.Singleton.class);
+
+        this.bind(EventReplayer.class)
+                .to(EventReplayerImpl.class)
+                .in(com.google.inject.Singleton.class);
+
+        this.bind(BuiltCommitCache.class)
+                .to(BuiltCommitCacheImpl.class)
+                .in(com.google.inject.Singleton.class);
     }
 }
@@ -16,32 +16,31 @@
 
 package io.relution.jenkins.scmsqs;
 
-import com.amazonaws.services.sqs.model.Message;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 
 import net.sf.json.JSONObject;
 
-import org.apache.commons.jelly.XMLOutput;
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import hudson.DescriptorExtensionList;
 import hudson.Extension;
-import hudson.Util;
-import hudson.console.AnnotatedLargeText;
 import hudson.model.AbstractProject;
 import hudson.model.Action;
 import hudson.model.Item;
@@ -51,36 +50,55 @@ import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import hudson.util.SequentialExecutionQueue;
 import io.relution.jenkins.scmsqs.i18n.sqstrigger.Messages;
+import io.relution.jenkins.scmsqs.interfaces.BuiltCommitCache;
 import io.relution.jenkins.scmsqs.interfaces.Event;
 import io.relution.jenkins.scmsqs.interfaces.EventTriggerMatcher;
-import io.relution.jenkins.scmsqs.interfaces.MessageParser;
-import io.relution.jenkins.scmsqs.interfaces.MessageParserFactory;
+import io.relution.jenkins.scmsqs.interfaces.KeyedExecutor;
+import io.relution.jenkins.scmsqs.interfaces.QueueUrlCache;
+import io.relution.jenkins.scmsqs.interfaces.RateLimiter;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueListener;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueMonitorScheduler;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.interfaces.StaleEventFilter;
+import io.relution.jenkins.scmsqs.logging.ActivityLog;
 import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.model.EventDispatch;
+import io.relution.jenkins.scmsqs.model.TriggerRequest;
 import io.relution.jenkins.scmsqs.model.events.ConfigurationChangedEvent;
 import io.relution.jenkins.scmsqs.model.events.EventBroker;
+import io.relution.jenkins.scmsqs.threading.CoalescingGate;
+import jenkins.util.Timer;
 
 
 public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQueueListener, Runnable {
 
-    private final String                       queueUuid;
+    private final String                             queueUuid;
 
-    private transient SQSQueueMonitorScheduler scheduler;
+    private transient SQSQueueMonitorScheduler       scheduler;
 
-    private transient MessageParserFactory     messageParserFactory;
-    private transient EventTriggerMatcher      eventTriggerMatcher;
+    private transient EventTriggerMatcher            eventTriggerMatcher;
+    private transient StaleEventFilter               staleEventFilter;
+    private transient SettingsProvider               settingsProvider;
 
-    private transient ExecutorService          executor;
+    private transient KeyedExecutor                  executor;
+    private transient RateLimiter                    rateLimiter;
+    private transient BuiltCommitCache               builtCommitCache;
+
+    private transient CoalescingGate<TriggerRequest> gate;
+    private transient ActivityLog                    activityLog;
+    private transient volatile long                  lastPollTime;
 
     @DataBoundConstructor
     public SQSTrigger(final String queueUuid) {
         this.queueUuid = queueUuid;
     }
 
-    public File getLogFile() {
-        return new File(this.job.getRootDir(), "sqs-polling.log");
+    public synchronized ActivityLog getActivityLog() {
+        if (this.activityLog == null) {
+            this.activityLog = new ActivityLog(this.job.getRootDir());
+        }
+        return this.activityLog;
     }
 
     @Override
@@ -88,6 +106,11 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
         super.start(project, newInstance);
 
         final DescriptorImpl descriptor = (DescriptorImpl) this.getDescriptor();
+
+        if (descriptor.deferRegistration(this)) {
+            return;
+        }
+
         descriptor.queue.execute(new Runnable() {
 
             @Override
@@ -100,8 +123,16 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
 
     @Override
     public void run() {
-        final SQSTriggerBuilder builder = new SQSTriggerBuilder(this, this.job);
-        builder.run();
+        final List<TriggerRequest> requests = this.getGate().begin();
+        final long delay = this.reservePermits(requests);
+
+        if (delay > 0) {
+            Log.info("Rate limited, deferred poll of %s by %d ms", this.job.getFullDisplayName(), delay);
+            Timer.get().schedule(new DeferredPoll(requests, delay), delay, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        this.poll(requests, 0);
     }
 
     @Override
@@ -109,6 +140,11 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
         super.stop();
 
         final DescriptorImpl descriptor = (DescriptorImpl) this.getDescriptor();
+
+        if (descriptor.cancelRegistration(this)) {
+            return;
+        }
+
         descriptor.queue.execute(new Runnable() {
 
             @Override
@@ -125,10 +161,22 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
     }
 
     @Override
-    public void handleMessages(final List<Message> messages) {
-        for (final Message message : messages) {
-            this.handleMessage(message);
+    public EventDispatch handleEvents(final List<Event> events) {
+        final List<Event> matches = this.getEventTriggerMatcher().getMatches(events, this.job);
+
+        if (matches.isEmpty()) {
+            return EventDispatch.NONE;
+        }
+
+        final List<Event> fresh = this.getUnbuilt(this.getStaleEventFilter().getFresh(matches, this.getCoveredSince()));
+        final int stale = matches.size() - fresh.size();
+
+        if (stale > 0) {
+            Log.info("Dropped %d stale or already built SQS event(s) for %s", stale, this.job.getFullDisplayName());
         }
+
+        final boolean isPollDispatched = !fresh.isEmpty() && this.execute(fresh);
+        return new EventDispatch(matches, fresh, isPollDispatched);
     }
 
     @Override
@@ -149,54 +197,247 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
     }
 
     @Inject
-    public void setMessageParserFactory(final MessageParserFactory factory) {
-        this.messageParserFactory = factory;
+    public void setEventTriggerMatcher(final EventTriggerMatcher matcher) {
+        this.eventTriggerMatcher = matcher;
+    }
+
+    public EventTriggerMatcher getEventTriggerMatcher() {
+        if (this.eventTriggerMatcher == null) {
+            Context.injector().injectMembers(this);
+        }
+        return this.eventTriggerMatcher;
+    }
+
+    @Inject
+    public void setStaleEventFilter(final StaleEventFilter filter) {
+        this.staleEventFilter = filter;
     }
 
-    public MessageParserFactory getMessageParserFactory() {
-        if (this.messageParserFactory == null) {
+    public StaleEventFilter getStaleEventFilter() {
+        if (this.staleEventFilter == null) {
             Context.injector().injectMembers(this);
         }
-        return this.messageParserFactory;
+        return this.staleEventFilter;
     }
 
     @Inject
-    public void setEventTriggerMatcher(final EventTriggerMatcher matcher) {
-        this.eventTriggerMatcher = matcher;
+    public void setSettingsProvider(final SettingsProvider provider) {
+        this.settingsProvider = provider;
     }
 
-    public EventTriggerMatcher getEventTriggerMatcher() {
-        if (this.eventTriggerMatcher == null) {
+    public SettingsProvider getSettingsProvider() {
+        if (this.settingsProvider == null) {
             Context.injector().injectMembers(this);
         }
-        return this.eventTriggerMatcher;
+        return this.settingsProvider;
+    }
+
+    /**
+     * Records the start time of a completed poll. The poll compared every branch the job builds
+     * against the SCM, so events raised before this time no longer need to trigger a poll.
+     * @param timestamp The time, in milliseconds since the epoch, at which the poll was started.
+     */
+    public void setLastPollTime(final long timestamp) {
+        if (timestamp <= this.getCoveredSince()) {
+            return;
+        }
+
+        this.lastPollTime = timestamp;
+
+        try {
+            this.getActivityLog().setLastPollTime(timestamp);
+
+        } catch (final IOException e) {
+            Log.warning("Failed to record time of last poll of %s: %s", this.job.getFullDisplayName(), e.getMessage());
+
+        }
+    }
+
+    /**
+     * Returns the time up to which changes in the SCM have been picked up by the job. Only polls
+     * triggered by this plugin are taken into account; the start of a build is not, since a build
+     * may check out a single branch and does not cover changes of other branches.
+     * <p>
+     * The time is persisted in the activity log of the job, so it is still known after a restart.
+     * @return The time, in milliseconds since the epoch, or {@code 0} if unknown.
+     */
+    public long getCoveredSince() {
+        if (this.lastPollTime == 0) {
+            this.lastPollTime = this.getActivityLog().getLastPollTime();
+        }
+        return this.lastPollTime;
     }
 
     @Inject
-    public void setExecutorService(final ExecutorService executor) {
+    public void setPollingExecutor(final KeyedExecutor executor) {
         this.executor = executor;
     }
 
-    public ExecutorService getExecutorService() {
+    public KeyedExecutor getPollingExecutor() {
         if (this.executor == null) {
             Context.injector().injectMembers(this);
         }
         return this.executor;
     }
 
-    private void handleMessage(final Message message) {
-        final MessageParser parser = this.messageParserFactory.createParser(message);
-        final EventTriggerMatcher matcher = this.getEventTriggerMatcher();
-        final List<Event> events = parser.parseMessage(message);
+    @Inject
+    public void setRateLimiter(final RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RateLimiter getRateLimiter() {
+        if (this.rateLimiter == null) {
+            Context.injector().injectMembers(this);
+        }
+        return this.rateLimiter;
+    }
+
+    @Inject
+    public void setBuiltCommitCache(final BuiltCommitCache cache) {
+        this.builtCommitCache = cache;
+    }
+
+    public BuiltCommitCache getBuiltCommitCache() {
+        if (this.builtCommitCache == null) {
+            Context.injector().injectMembers(this);
+        }
+        return this.builtCommitCache;
+    }
+
+    /**
+     * Reserves a permit for each repository named by the specified requests.
+     * @return The time, in milliseconds, by which the poll must be deferred.
+     */
+    private long reservePermits(final List<TriggerRequest> requests) {
+        final RateLimiter rateLimiter = this.getRateLimiter();
+        final Set<String> repositories = new LinkedHashSet<>();
+        long delay = 0;
+
+        for (final TriggerRequest request : requests) {
+            for (final Event event : request.getEvents()) {
+                repositories.add(event.getHost() + event.getPath());
+            }
+        }
+
+        for (final String repository : repositories) {
+            delay = Math.max(delay, rateLimiter.reserve(repository));
+        }
+
+        return delay;
+    }
+
+    private void poll(final List<TriggerRequest> requests, final long delay) {
+        final CoalescingGate<TriggerRequest> gate = this.getGate();
+
+        try {
+            final SQSTriggerBuilder builder = new SQSTriggerBuilder(this, this.job, requests, delay);
+            builder.run();
+
+        } finally {
+            if (gate.end()) {
+                this.getPollingExecutor().execute(this.job.getFullName(), this);
+            }
+        }
+    }
+
+    private synchronized CoalescingGate<TriggerRequest> getGate() {
+        if (this.gate == null) {
+            this.gate = new CoalescingGate<>();
+        }
+        return this.gate;
+    }
+
+    /**
+     * Dispatches the specified retained events to this trigger again. Events are matched and rate
+     * limited like newly received events, but are neither coalesced nor dropped as stale, since the
+     * SCM poll determines whether a build is required.
+     * @param retained The collection of retained {@link Event}s to replay, reassembled like the
+     * events of received messages.
+     * @param repository A part of the repository URL the events must match, may be {@code null}
+     * or empty to replay events of all repositories.
+     * @return {@code true} if an SCM poll was requested; otherwise, {@code false}.
+     */
+    public boolean replay(final List<Event> retained, final String repository) {
+        final List<Event> events = new ArrayList<>();
+
+        for (final Event event : retained) {
+            if (StringUtils.isEmpty(repository) || StringUtils.contains(event.getHost() + event.getPath(), repository)) {
+                events.add(event);
+            }
+        }
+
+        final List<Event> matches = this.getEventTriggerMatcher().getMatches(events, this.job);
 
-        if (matcher.matches(events, this.job)) {
-            this.execute();
+        if (matches.isEmpty()) {
+            return false;
         }
+
+        Log.info("Replay %d SQS event(s) for %s", matches.size(), this.job.getFullDisplayName());
+        this.execute(matches);
+        return true;
+    }
+
+    /**
+     * Returns the events that do not name a commit that was the last commit built by the job for
+     * the branch of the event. Such events are dropped before they reach the gate and the rate
+     * limiter, so they do not take tokens from polls for changes that were not built yet.
+     */
+    private List<Event> getUnbuilt(final List<Event> events) {
+        final BuiltCommitCache cache = this.getBuiltCommitCache();
+        final String jobName = this.job.getFullName();
+        final List<Event> unbuilt = new ArrayList<>(events.size());
+
+        for (final Event event : events) {
+            if (!cache.isBuilt(jobName, event)) {
+                unbuilt.add(event);
+            }
+        }
+
+        return unbuilt;
     }
 
-    private void execute() {
+    /**
+     * Requests a poll of the job for the specified events.
+     * @return {@code true} if a new poll was dispatched; {@code false} if the events were merged
+     * into a poll that is still pending.
+     */
+    private boolean execute(final List<Event> events) {
+        final TriggerRequest request = new TriggerRequest(events);
+
+        if (!this.getGate().request(request)) {
+            Log.info("SQS event for %s merged into pending poll", this.job.getFullDisplayName());
+            return false;
+        }
+
         Log.info("SQS event triggered build of %s", this.job.getFullDisplayName());
-        this.executor.execute(this);
+        this.getPollingExecutor().execute(this.job.getFullName(), this);
+        return true;
+    }
+
+    /**
+     * A poll that was deferred by the rate limiter. The poll is handed back to the polling executor
+     * when the delay expires, so no polling thread is blocked while the poll is deferred.
+     */
+    private final class DeferredPoll implements Runnable {
+
+        private final List<TriggerRequest> requests;
+        private final long                 delay;
+
+        public DeferredPoll(final List<TriggerRequest> requests, final long delay) {
+            this.requests = requests;
+            this.delay = delay;
+        }
+
+        @Override
+        public void run() {
+            SQSTrigger.this.getPollingExecutor().execute(SQSTrigger.this.job.getFullName(), new Runnable() {
+
+                @Override
+                public void run() {
+                    SQSTrigger.this.poll(DeferredPoll.this.requests, DeferredPoll.this.delay);
+                }
+            });
+        }
     }
 
     public final class SQSTriggerPollingAction implements Action {
@@ -220,31 +461,155 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
             return "SQSActivityLog";
         }
 
-        public String getLog() throws IOException {
-            return Util.loadFile(SQSTrigger.this.getLogFile());
+        public List<ActivityLog.Entry> getEntries() {
+            return SQSTrigger.this.getActivityLog().getEntries();
         }
 
-        public void writeLogTo(final XMLOutput out) throws IOException {
-            final AnnotatedLargeText<?> log = new AnnotatedLargeText<SQSTriggerPollingAction>(
-                    SQSTrigger.this.getLogFile(),
-                    Charset.defaultCharset(),
-                    true,
-                    this);
+        public ActivityLog.Entry getEntry(final String id) {
+            return SQSTrigger.this.getActivityLog().getEntry(id);
+        }
 
-            log.writeHtmlTo(0, out.asWriter());
+        /**
+         * Returns the entry with the specified identifier, or the most recent entry if no such entry
+         * exists.
+         * @param id The identifier of the entry to return, may be {@code null}.
+         * @return The {@link ActivityLog.Entry} to display, or {@code null} if the log is empty.
+         */
+        public ActivityLog.Entry getEntryOrLatest(final String id) {
+            final ActivityLog log = SQSTrigger.this.getActivityLog();
+            final ActivityLog.Entry entry = log.getEntry(id);
+
+            if (entry != null) {
+                return entry;
+            }
+
+            return log.getLatest();
         }
     }
 
     @Extension
     public static final class DescriptorImpl extends TriggerDescriptor {
 
-        private static final String                             KEY_SQS_QUEUES = "sqsQueues";
+        private static final String                             KEY_SQS_QUEUES               = "sqsQueues";
+        private static final String                             KEY_MAX_CONCURRENT_POLLS     = "maxConcurrentPolls";
+        private static final String                             KEY_MAX_POLLS_PER_MINUTE     = "maxPollsPerMinute";
+        private static final String                             KEY_POLL_BURST               = "pollBurst";
+        private static final String                             KEY_COALESCE_WINDOW_SECONDS  = "coalesceWindowSeconds";
+        private static final String                             KEY_JOURNAL_ENABLED          = "journalEnabled";
+        private static final String                             KEY_EVENT_RETENTION_DAYS     = "eventRetentionDays";
+        private static final String                             KEY_RECEIVE_CORE_POOL_SIZE   = "receiveCorePoolSize";
+        private static final String                             KEY_RECEIVE_MAX_POOL_SIZE    = "receiveMaxPoolSize";
+        private static final String                             KEY_CALLBACK_CORE_POOL_SIZE  = "callbackCorePoolSize";
+        private static final String                             KEY_CALLBACK_MAX_POOL_SIZE   = "callbackMaxPoolSize";
+        private static final String                             KEY_DISPATCH_CORE_POOL_SIZE  = "dispatchCorePoolSize";
+        private static final String                             KEY_DISPATCH_MAX_POOL_SIZE   = "dispatchMaxPoolSize";
+        private static final String                             KEY_EXECUTOR_QUEUE_SIZE      = "executorQueueSize";
+        private static final String                             KEY_VIRTUAL_THREADS_ENABLED  = "virtualThreadsEnabled";
+        private static final String                             KEY_MAX_CONNECTIONS          = "maxConnections";
+        private static final String                             KEY_CONNECTION_TIMEOUT       = "connectionTimeoutSeconds";
+        private static final String                             KEY_SOCKET_TIMEOUT           = "socketTimeoutSeconds";
+        private static final String                             KEY_CONNECTION_TTL           = "connectionTtlSeconds";
+        private static final String                             KEY_MAX_ERROR_RETRY          = "maxErrorRetry";
+        private static final String                             KEY_TCP_KEEP_ALIVE           = "tcpKeepAlive";
+        private static final String                             KEY_GZIP_ENABLED             = "gzipEnabled";
+
+        private static final int                                MAX_CONCURRENT_POLLS_DEFAULT = 10;
+        private static final int                                MAX_CONCURRENT_POLLS_MIN     = 1;
+        private static final int                                MAX_CONCURRENT_POLLS_MAX     = 100;
+
+        private static final int                                MAX_POLLS_PER_MINUTE_DEFAULT = 0;
+        private static final int                                MAX_POLLS_PER_MINUTE_MIN     = 0;
+        private static final int                                MAX_POLLS_PER_MINUTE_MAX     = 10000;
+
+        private static final int                                POLL_BURST_DEFAULT           = 10;
+        private static final int                                POLL_BURST_MIN               = 1;
+        private static final int                                POLL_BURST_MAX               = 1000;
+
+        private static final int                                COALESCE_WINDOW_DEFAULT      = 0;
+        private static final int                                COALESCE_WINDOW_MIN          = 0;
+        private static final int                                COALESCE_WINDOW_MAX          = 300;
+
+        private static final int                                EVENT_RETENTION_DEFAULT      = 0;
+        private static final int                                EVENT_RETENTION_MIN          = 0;
+        private static final int                                EVENT_RETENTION_MAX          = 30;
+
+        private static final int                                RECEIVE_CORE_DEFAULT         = 10;
+        private static final int                                RECEIVE_MAX_DEFAULT          = 50;
+
+        private static final int                                CALLBACK_CORE_DEFAULT        = 5;
+        private static final int                                CALLBACK_MAX_DEFAULT         = 20;
+
+        private static final int                                DISPATCH_CORE_DEFAULT        = 2;
+        private static final int                                DISPATCH_MAX_DEFAULT         = 10;
+
+        private static final int                                POOL_SIZE_MIN                = 1;
+        private static final int                                POOL_SIZE_MAX                = 200;
+
+        private static final int                                EXECUTOR_QUEUE_SIZE_DEFAULT  = 100;
+        private static final int                                EXECUTOR_QUEUE_SIZE_MIN      = 1;
+        private static final int                                EXECUTOR_QUEUE_SIZE_MAX      = 10000;
+
+        private static final int                                MAX_CONNECTIONS_DEFAULT      = 50;
+        private static final int                                MAX_CONNECTIONS_MIN          = 1;
+        private static final int                                MAX_CONNECTIONS_MAX          = 1000;
+
+        private static final int                                CONNECTION_TIMEOUT_DEFAULT   = 10;
+        private static final int                                CONNECTION_TIMEOUT_MIN       = 1;
+        private static final int                                CONNECTION_TIMEOUT_MAX       = 300;
+
+        /**
+         * The minimum socket timeout exceeds the maximum wait time of a long poll (20 seconds).
+         */
+        private static final int                                SOCKET_TIMEOUT_DEFAULT       = 50;
+        private static final int                                SOCKET_TIMEOUT_MIN           = 21;
+        private static final int                                SOCKET_TIMEOUT_MAX           = 600;
+
+        private static final int                                CONNECTION_TTL_DEFAULT       = 0;
+        private static final int                                CONNECTION_TTL_MIN           = 0;
+        private static final int                                CONNECTION_TTL_MAX           = 86400;
+
+        private static final int                                MAX_ERROR_RETRY_DEFAULT      = 3;
+        private static final int                                MAX_ERROR_RETRY_MIN          = 0;
+        private static final int                                MAX_ERROR_RETRY_MAX          = 20;
+
         private volatile List<SQSTriggerQueue>                  sqsQueues;
+        private volatile Integer                                maxConcurrentPolls;
+        private volatile Integer                                maxPollsPerMinute;
+        private volatile Integer                                pollBurst;
+        private volatile Integer                                coalesceWindowSeconds;
+        private volatile boolean                                journalEnabled;
+        private volatile Integer                                eventRetentionDays;
+        private volatile Integer                                receiveCorePoolSize;
+        private volatile Integer                                receiveMaxPoolSize;
+        private volatile Integer                                callbackCorePoolSize;
+        private volatile Integer                                callbackMaxPoolSize;
+        private volatile Integer                                dispatchCorePoolSize;
+        private volatile Integer                                dispatchMaxPoolSize;
+        private volatile Integer                                executorQueueSize;
+        private volatile boolean                                virtualThreadsEnabled;
+        private volatile Integer                                maxConnections;
+        private volatile Integer                                connectionTimeoutSeconds;
+        private volatile Integer                                socketTimeoutSeconds;
+        private volatile Integer                                connectionTtlSeconds;
+        private volatile Integer                                maxErrorRetry;
+        private volatile boolean                                tcpKeepAlive;
+        private volatile boolean                                gzipEnabled;
+
+        /**
+         * The URLs of queues that were configured by name, see {@link QueueUrlCache}.
+         */
+        private volatile Map<String, String>                    queueUrls;
 
         private volatile transient Map<String, SQSTriggerQueue> sqsQueueMap;
         private transient boolean                               isLoaded;
 
-        private transient final SequentialExecutionQueue        queue          = new SequentialExecutionQueue(Executors.newSingleThreadExecutor());
+        private transient final SequentialExecutionQueue        queue                        = new SequentialExecutionQueue(Executors.newSingleThreadExecutor());
+
+        /**
+         * Triggers started while Jenkins is loading jobs, registered in bulk once all jobs are
+         * loaded. {@code null} once the bulk registration completed.
+         */
+        private transient List<SQSTrigger>                      deferredTriggers             = new ArrayList<>();
 
         public static DescriptorImpl get() {
             final DescriptorExtensionList<Trigger<?>, TriggerDescriptor> triggers = Trigger.all();
@@ -255,6 +620,114 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
             super(SQSTrigger.class);
         }
 
+        /**
+         * Defers the registration of the specified trigger until all jobs are loaded, see
+         * {@link #completeStartup()}.
+         * @param trigger The trigger that was started.
+         * @return {@code true} if the registration of the trigger was deferred; {@code false} if
+         * startup is complete, in which case the trigger must be registered by the caller.
+         */
+        synchronized boolean deferRegistration(final SQSTrigger trigger) {
+            if (this.deferredTriggers == null) {
+                return false;
+            }
+
+            this.deferredTriggers.add(trigger);
+            return true;
+        }
+
+        /**
+         * Cancels the deferred registration of the specified trigger.
+         * @param trigger The trigger that was stopped.
+         * @return {@code true} if the registration of the trigger was deferred and is now
+         * cancelled; {@code false} if the trigger must be unregistered by the caller.
+         */
+        synchronized boolean cancelRegistration(final SQSTrigger trigger) {
+            if (this.deferredTriggers == null) {
+                return false;
+            }
+
+            this.deferredTriggers.remove(trigger);
+            return true;
+        }
+
+        /**
+         * Registers the triggers whose registration was deferred in bulk. Registration runs on the
+         * queue used to register triggers individually, so it does not block startup. Triggers
+         * started or stopped while the bulk registration is running are still deferred and are
+         * registered or unregistered individually once it completed.
+         */
+        void completeStartup() {
+            this.queue.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    DescriptorImpl.this.registerDeferred();
+                }
+            });
+        }
+
+        private void registerDeferred() {
+            final List<SQSTrigger> triggers;
+
+            synchronized (this) {
+                if (this.deferredTriggers == null) {
+                    return;
+                }
+                triggers = new ArrayList<>(this.deferredTriggers);
+            }
+
+            final SQSQueueMonitorScheduler scheduler = Context.injector().getInstance(SQSQueueMonitorScheduler.class);
+
+            for (final SQSTrigger trigger : triggers) {
+                trigger.setScheduler(scheduler);
+            }
+
+            try {
+                final int count = scheduler.registerAll(triggers);
+                Log.info("Registered %d of %d trigger(s)", count, triggers.size());
+
+            } catch (final InterruptedException e) {
+                Log.warning("Bulk registration of triggers interrupted, register individually");
+                Thread.currentThread().interrupt();
+                this.registerEach(scheduler, triggers);
+
+            } catch (final RuntimeException e) {
+                Log.severe(e, "Bulk registration of triggers failed, register individually");
+                this.registerEach(scheduler, triggers);
+
+            }
+
+            final List<SQSTrigger> started;
+            final List<SQSTrigger> stopped = new ArrayList<>(triggers);
+
+            synchronized (this) {
+                started = new ArrayList<>(this.deferredTriggers);
+                started.removeAll(triggers);
+                stopped.removeAll(this.deferredTriggers);
+                this.deferredTriggers = null;
+            }
+
+            this.registerEach(scheduler, started);
+
+            for (final SQSTrigger trigger : stopped) {
+                scheduler.unregister(trigger);
+            }
+        }
+
+        private void registerEach(final SQSQueueMonitorScheduler scheduler, final List<SQSTrigger> triggers) {
+            for (final SQSTrigger trigger : triggers) {
+                try {
+                    trigger.setScheduler(scheduler);
+                    scheduler.register(trigger);
+
+                } catch (final RuntimeException e) {
+                    Log.severe(e, "Failed to register trigger for %s", trigger.job);
+
+                }
+            }
+        }
+
         @Override
         public synchronized void load() {
             super.load();
@@ -272,6 +745,28 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
             return Messages.displayName();
         }
 
+        /**
+         * Returns a description of the state of the reconfiguration that is performed in the
+         * background after the configuration was saved.
+         * @return A description of the state, or {@code null} if the configuration was not saved
+         * since Jenkins was started.
+         */
+        public String getReconfigurationStatus() {
+            final EventBroker broker = EventBroker.getInstance();
+
+            if (broker.isDelivering()) {
+                return Messages.infoReconfigurationRunning();
+            }
+
+            final long delivered = broker.getLastDelivered();
+
+            if (delivered == 0) {
+                return null;
+            }
+
+            return Messages.infoReconfigurationCompleted(new Date(delivered), broker.getLastDuration());
+        }
+
         public ListBoxModel doFillQueueUuidItems() {
             final List<SQSTriggerQueue> queues = this.getSqsQueues();
             final ListBoxModel items = new ListBoxModel();
@@ -303,11 +798,122 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
 
         @Override
         public boolean configure(final StaplerRequest req, final JSONObject json) throws FormException {
+            this.checkPoolSizes(json, KEY_RECEIVE_CORE_POOL_SIZE, KEY_RECEIVE_MAX_POOL_SIZE, RECEIVE_CORE_DEFAULT, RECEIVE_MAX_DEFAULT);
+            this.checkPoolSizes(json, KEY_CALLBACK_CORE_POOL_SIZE, KEY_CALLBACK_MAX_POOL_SIZE, CALLBACK_CORE_DEFAULT, CALLBACK_MAX_DEFAULT);
+            this.checkPoolSizes(json, KEY_DISPATCH_CORE_POOL_SIZE, KEY_DISPATCH_MAX_POOL_SIZE, DISPATCH_CORE_DEFAULT, DISPATCH_MAX_DEFAULT);
+
             final Object sqsQueues = json.get(KEY_SQS_QUEUES);
 
             this.sqsQueues = req.bindJSONToList(SQSTriggerQueue.class, sqsQueues);
+            this.maxConcurrentPolls = this.getInt(
+                    json,
+                    KEY_MAX_CONCURRENT_POLLS,
+                    MAX_CONCURRENT_POLLS_MIN,
+                    MAX_CONCURRENT_POLLS_MAX,
+                    MAX_CONCURRENT_POLLS_DEFAULT);
+            this.maxPollsPerMinute = this.getInt(
+                    json,
+                    KEY_MAX_POLLS_PER_MINUTE,
+                    MAX_POLLS_PER_MINUTE_MIN,
+                    MAX_POLLS_PER_MINUTE_MAX,
+                    MAX_POLLS_PER_MINUTE_DEFAULT);
+            this.pollBurst = this.getInt(
+                    json,
+                    KEY_POLL_BURST,
+                    POLL_BURST_MIN,
+                    POLL_BURST_MAX,
+                    POLL_BURST_DEFAULT);
+            this.coalesceWindowSeconds = this.getInt(
+                    json,
+                    KEY_COALESCE_WINDOW_SECONDS,
+                    COALESCE_WINDOW_MIN,
+                    COALESCE_WINDOW_MAX,
+                    COALESCE_WINDOW_DEFAULT);
+            this.journalEnabled = json.optBoolean(KEY_JOURNAL_ENABLED, false);
+            this.eventRetentionDays = this.getInt(
+                    json,
+                    KEY_EVENT_RETENTION_DAYS,
+                    EVENT_RETENTION_MIN,
+                    EVENT_RETENTION_MAX,
+                    EVENT_RETENTION_DEFAULT);
+            this.receiveCorePoolSize = this.getInt(
+                    json,
+                    KEY_RECEIVE_CORE_POOL_SIZE,
+                    POOL_SIZE_MIN,
+                    POOL_SIZE_MAX,
+                    RECEIVE_CORE_DEFAULT);
+            this.receiveMaxPoolSize = this.getInt(
+                    json,
+                    KEY_RECEIVE_MAX_POOL_SIZE,
+                    POOL_SIZE_MIN,
+                    POOL_SIZE_MAX,
+                    RECEIVE_MAX_DEFAULT);
+            this.callbackCorePoolSize = this.getInt(
+                    json,
+                    KEY_CALLBACK_CORE_POOL_SIZE,
+                    POOL_SIZE_MIN,
+                    POOL_SIZE_MAX,
+                    CALLBACK_CORE_DEFAULT);
+            this.callbackMaxPoolSize = this.getInt(
+                    json,
+                    KEY_CALLBACK_MAX_POOL_SIZE,
+                    POOL_SIZE_MIN,
+                    POOL_SIZE_MAX,
+                    CALLBACK_MAX_DEFAULT);
+            this.dispatchCorePoolSize = this.getInt(
+                    json,
+                    KEY_DISPATCH_CORE_POOL_SIZE,
+                    POOL_SIZE_MIN,
+                    POOL_SIZE_MAX,
+                    DISPATCH_CORE_DEFAULT);
+            this.dispatchMaxPoolSize = this.getInt(
+                    json,
+                    KEY_DISPATCH_MAX_POOL_SIZE,
+                    POOL_SIZE_MIN,
+                    POOL_SIZE_MAX,
+                    DISPATCH_MAX_DEFAULT);
+            this.executorQueueSize = this.getInt(
+                    json,
+                    KEY_EXECUTOR_QUEUE_SIZE,
+                    EXECUTOR_QUEUE_SIZE_MIN,
+                    EXECUTOR_QUEUE_SIZE_MAX,
+                    EXECUTOR_QUEUE_SIZE_DEFAULT);
+            this.virtualThreadsEnabled = json.optBoolean(KEY_VIRTUAL_THREADS_ENABLED, false);
+            this.maxConnections = this.getInt(
+                    json,
+                    KEY_MAX_CONNECTIONS,
+                    MAX_CONNECTIONS_MIN,
+                    MAX_CONNECTIONS_MAX,
+                    MAX_CONNECTIONS_DEFAULT);
+            this.connectionTimeoutSeconds = this.getInt(
+                    json,
+                    KEY_CONNECTION_TIMEOUT,
+                    CONNECTION_TIMEOUT_MIN,
+                    CONNECTION_TIMEOUT_MAX,
+                    CONNECTION_TIMEOUT_DEFAULT);
+            this.socketTimeoutSeconds = this.getInt(
+                    json,
+                    KEY_SOCKET_TIMEOUT,
+                    SOCKET_TIMEOUT_MIN,
+                    SOCKET_TIMEOUT_MAX,
+                    SOCKET_TIMEOUT_DEFAULT);
+            this.connectionTtlSeconds = this.getInt(
+                    json,
+                    KEY_CONNECTION_TTL,
+                    CONNECTION_TTL_MIN,
+                    CONNECTION_TTL_MAX,
+                    CONNECTION_TTL_DEFAULT);
+            this.maxErrorRetry = this.getInt(
+                    json,
+                    KEY_MAX_ERROR_RETRY,
+                    MAX_ERROR_RETRY_MIN,
+                    MAX_ERROR_RETRY_MAX,
+                    MAX_ERROR_RETRY_DEFAULT);
+            this.tcpKeepAlive = json.optBoolean(KEY_TCP_KEEP_ALIVE, false);
+            this.gzipEnabled = json.optBoolean(KEY_GZIP_ENABLED, false);
             this.initQueueMap();
             this.save();
+            this.prefetchQueueUrls();
 
             EventBroker.getInstance().post(new ConfigurationChangedEvent());
             return true;
@@ -323,6 +929,277 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
             return this.sqsQueues;
         }
 
+        public int getMaxConcurrentPolls() {
+            if (this.maxConcurrentPolls == null) {
+                return MAX_CONCURRENT_POLLS_DEFAULT;
+            }
+            return this.maxConcurrentPolls;
+        }
+
+        public int getMaxPollsPerMinute() {
+            if (this.maxPollsPerMinute == null) {
+                return MAX_POLLS_PER_MINUTE_DEFAULT;
+            }
+            return this.maxPollsPerMinute;
+        }
+
+        public int getPollBurst() {
+            if (this.pollBurst == null) {
+                return POLL_BURST_DEFAULT;
+            }
+            return this.pollBurst;
+        }
+
+        public int getCoalesceWindowSeconds() {
+            if (this.coalesceWindowSeconds == null) {
+                return COALESCE_WINDOW_DEFAULT;
+            }
+            return this.coalesceWindowSeconds;
+        }
+
+        public boolean isJournalEnabled() {
+            return this.journalEnabled;
+        }
+
+        public int getEventRetentionDays() {
+            if (this.eventRetentionDays == null) {
+                return EVENT_RETENTION_DEFAULT;
+            }
+            return this.eventRetentionDays;
+        }
+
+        public int getReceiveCorePoolSize() {
+            if (this.receiveCorePoolSize == null) {
+                return RECEIVE_CORE_DEFAULT;
+            }
+            return this.receiveCorePoolSize;
+        }
+
+        public int getReceiveMaxPoolSize() {
+            if (this.receiveMaxPoolSize == null) {
+                return RECEIVE_MAX_DEFAULT;
+            }
+            return this.receiveMaxPoolSize;
+        }
+
+        public int getCallbackCorePoolSize() {
+            if (this.callbackCorePoolSize == null) {
+                return CALLBACK_CORE_DEFAULT;
+            }
+            return this.callbackCorePoolSize;
+        }
+
+        public int getCallbackMaxPoolSize() {
+            if (this.callbackMaxPoolSize == null) {
+                return CALLBACK_MAX_DEFAULT;
+            }
+            return this.callbackMaxPoolSize;
+        }
+
+        public int getDispatchCorePoolSize() {
+            if (this.dispatchCorePoolSize == null) {
+                return DISPATCH_CORE_DEFAULT;
+            }
+            return this.dispatchCorePoolSize;
+        }
+
+        public int getDispatchMaxPoolSize() {
+            if (this.dispatchMaxPoolSize == null) {
+                return DISPATCH_MAX_DEFAULT;
+            }
+            return this.dispatchMaxPoolSize;
+        }
+
+        public int getExecutorQueueSize() {
+            if (this.executorQueueSize == null) {
+                return EXECUTOR_QUEUE_SIZE_DEFAULT;
+            }
+            return this.executorQueueSize;
+        }
+
+        public boolean isVirtualThreadsEnabled() {
+            return this.virtualThreadsEnabled;
+        }
+
+        public int getMaxConnections() {
+            if (this.maxConnections == null) {
+                return MAX_CONNECTIONS_DEFAULT;
+            }
+            return this.maxConnections;
+        }
+
+        public int getConnectionTimeoutSeconds() {
+            if (this.connectionTimeoutSeconds == null) {
+                return CONNECTION_TIMEOUT_DEFAULT;
+            }
+            return this.connectionTimeoutSeconds;
+        }
+
+        public int getSocketTimeoutSeconds() {
+            if (this.socketTimeoutSeconds == null) {
+                return SOCKET_TIMEOUT_DEFAULT;
+            }
+            return this.socketTimeoutSeconds;
+        }
+
+        public int getConnectionTtlSeconds() {
+            if (this.connectionTtlSeconds == null) {
+                return CONNECTION_TTL_DEFAULT;
+            }
+            return this.connectionTtlSeconds;
+        }
+
+        public int getMaxErrorRetry() {
+            if (this.maxErrorRetry == null) {
+                return MAX_ERROR_RETRY_DEFAULT;
+            }
+            return this.maxErrorRetry;
+        }
+
+        public boolean isTcpKeepAlive() {
+            return this.tcpKeepAlive;
+        }
+
+        public boolean isGzipEnabled() {
+            return this.gzipEnabled;
+        }
+
+        public FormValidation doCheckMaxConcurrentPolls(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    MAX_CONCURRENT_POLLS_MIN,
+                    MAX_CONCURRENT_POLLS_MAX,
+                    Messages.errorMaxConcurrentPolls());
+        }
+
+        public FormValidation doCheckMaxPollsPerMinute(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    MAX_POLLS_PER_MINUTE_MIN,
+                    MAX_POLLS_PER_MINUTE_MAX,
+                    Messages.errorMaxPollsPerMinute());
+        }
+
+        public FormValidation doCheckPollBurst(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    POLL_BURST_MIN,
+                    POLL_BURST_MAX,
+                    Messages.errorPollBurst());
+        }
+
+        public FormValidation doCheckCoalesceWindowSeconds(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    COALESCE_WINDOW_MIN,
+                    COALESCE_WINDOW_MAX,
+                    Messages.errorCoalesceWindowSeconds());
+        }
+
+        public FormValidation doCheckEventRetentionDays(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    EVENT_RETENTION_MIN,
+                    EVENT_RETENTION_MAX,
+                    Messages.errorEventRetentionDays());
+        }
+
+        public FormValidation doCheckReceiveCorePoolSize(
+                @QueryParameter final String value,
+                @QueryParameter final String receiveMaxPoolSize) {
+            return this.validatePoolSize(value, value, receiveMaxPoolSize);
+        }
+
+        public FormValidation doCheckReceiveMaxPoolSize(
+                @QueryParameter final String value,
+                @QueryParameter final String receiveCorePoolSize) {
+            return this.validatePoolSize(value, receiveCorePoolSize, value);
+        }
+
+        public FormValidation doCheckCallbackCorePoolSize(
+                @QueryParameter final String value,
+                @QueryParameter final String callbackMaxPoolSize) {
+            return this.validatePoolSize(value, value, callbackMaxPoolSize);
+        }
+
+        public FormValidation doCheckCallbackMaxPoolSize(
+                @QueryParameter final String value,
+                @QueryParameter final String callbackCorePoolSize) {
+            return this.validatePoolSize(value, callbackCorePoolSize, value);
+        }
+
+        public FormValidation doCheckDispatchCorePoolSize(
+                @QueryParameter final String value,
+                @QueryParameter final String dispatchMaxPoolSize) {
+            return this.validatePoolSize(value, value, dispatchMaxPoolSize);
+        }
+
+        public FormValidation doCheckDispatchMaxPoolSize(
+                @QueryParameter final String value,
+                @QueryParameter final String dispatchCorePoolSize) {
+            return this.validatePoolSize(value, dispatchCorePoolSize, value);
+        }
+
+        public FormValidation doCheckExecutorQueueSize(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    EXECUTOR_QUEUE_SIZE_MIN,
+                    EXECUTOR_QUEUE_SIZE_MAX,
+                    Messages.errorExecutorQueueSize());
+        }
+
+        public FormValidation doCheckMaxConnections(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    MAX_CONNECTIONS_MIN,
+                    MAX_CONNECTIONS_MAX,
+                    Messages.errorMaxConnections());
+        }
+
+        public FormValidation doCheckConnectionTimeoutSeconds(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    CONNECTION_TIMEOUT_MIN,
+                    CONNECTION_TIMEOUT_MAX,
+                    Messages.errorConnectionTimeout());
+        }
+
+        public FormValidation doCheckSocketTimeoutSeconds(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    SOCKET_TIMEOUT_MIN,
+                    SOCKET_TIMEOUT_MAX,
+                    Messages.errorSocketTimeout());
+        }
+
+        public FormValidation doCheckConnectionTtlSeconds(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    CONNECTION_TTL_MIN,
+                    CONNECTION_TTL_MAX,
+                    Messages.errorConnectionTtl());
+        }
+
+        public FormValidation doCheckMaxErrorRetry(@QueryParameter final String value) {
+            return this.validateNumber(
+                    value,
+                    MAX_ERROR_RETRY_MIN,
+                    MAX_ERROR_RETRY_MAX,
+                    Messages.errorMaxErrorRetry());
+        }
+
+        public Map<String, String> getQueueUrls() {
+            if (this.queueUrls == null) {
+                return Collections.emptyMap();
+            }
+            return Collections.unmodifiableMap(this.queueUrls);
+        }
+
+        public void saveQueueUrls(final Map<String, String> urls) {
+            this.queueUrls = new TreeMap<>(urls);
+            this.save();
+        }
+
         public SQSQueue getSqsQueue(final String uuid) {
             if (!this.isLoaded) {
                 this.load();
@@ -333,6 +1210,66 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
             return this.sqsQueueMap.get(uuid);
         }
 
+        private int getInt(final JSONObject json, final String key, final int min, final int max, final int fallbackValue) {
+            final int value = json.optInt(key, fallbackValue);
+
+            if (value < min || value > max) {
+                return fallbackValue;
+            }
+            return value;
+        }
+
+        /**
+         * Rejects a configuration in which the core size of a thread pool exceeds its maximum size,
+         * which the pool would otherwise silently adjust.
+         */
+        private void checkPoolSizes(final JSONObject json, final String coreKey, final String maxKey, final int coreDefault, final int maxDefault) throws FormException {
+            final int core = this.getInt(json, coreKey, POOL_SIZE_MIN, POOL_SIZE_MAX, coreDefault);
+            final int max = this.getInt(json, maxKey, POOL_SIZE_MIN, POOL_SIZE_MAX, maxDefault);
+
+            if (core > max) {
+                throw new FormException(Messages.errorPoolSizeRange(), coreKey);
+            }
+        }
+
+        private FormValidation validatePoolSize(final String value, final String core, final String max) {
+            final FormValidation validation = this.validateNumber(value, POOL_SIZE_MIN, POOL_SIZE_MAX, Messages.errorPoolSize());
+
+            if (validation.kind != FormValidation.Kind.OK) {
+                return validation;
+            }
+
+            try {
+                if (Integer.parseInt(StringUtils.trim(core)) > Integer.parseInt(StringUtils.trim(max))) {
+                    return FormValidation.error(Messages.errorPoolSizeRange());
+                }
+
+            } catch (final NumberFormatException e) {
+                // The other field reports the invalid number
+
+            }
+            return validation;
+        }
+
+        private FormValidation validateNumber(final String value, final int min, final int max, final String message) {
+            try {
+                if (StringUtils.isBlank(value)) {
+                    return FormValidation.error(message);
+                }
+
+                final int number = Integer.parseInt(value);
+
+                if (number < min || number > max) {
+                    return FormValidation.error(message);
+                }
+
+                return FormValidation.ok();
+
+            } catch (final NumberFormatException e) {
+                return FormValidation.error(message);
+            }
+        }
+
         private void initQueueMap() {
             if (this.sqsQueues == null) {
                 return;
@@ -344,5 +1281,15 @@ public class SQSTrigger extends Trigger<AbstractProject<?, ?>> implements SQSQue
                 this.sqsQueueMap.put(queue.getUuid(), queue);
             }
         }
+
+        private void prefetchQueueUrls() {
+            if (this.sqsQueues == null) {
+                return;
+            }
+
+            for (final SQSTriggerQueue queue : this.sqsQueues) {
+                queue.prefetchUrl();
+            }
+        }
     }
 }
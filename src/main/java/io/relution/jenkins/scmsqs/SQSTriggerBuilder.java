@@ -16,38 +16,67 @@
 
 package io.relution.jenkins.scmsqs;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.text.DateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import hudson.Util;
 import hudson.model.AbstractProject;
 import hudson.model.Cause;
 import hudson.util.StreamTaskListener;
+import io.relution.jenkins.scmsqs.interfaces.BuiltCommitCache;
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.logging.ActivityLog;
 import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.model.TriggerRequest;
 
 
 public class SQSTriggerBuilder implements Runnable {
 
     private final SQSTrigger            trigger;
     private final AbstractProject<?, ?> job;
+    private final List<TriggerRequest>  requests;
+    private final long                  delay;
 
     private final DateFormat            formatter = DateFormat.getDateTimeInstance();
 
     public SQSTriggerBuilder(final SQSTrigger trigger, final AbstractProject<?, ?> job) {
+        this(trigger, job, Collections.<TriggerRequest> emptyList(), 0);
+    }
+
+    /**
+     * Creates a new builder for the specified job.
+     * @param trigger The {@link SQSTrigger} that triggered the build.
+     * @param job The {@link AbstractProject} to poll and build.
+     * @param requests The collection of {@link TriggerRequest}s that were merged into this poll.
+     * @param delay The time, in milliseconds, by which the poll was deferred by the rate limiter.
+     */
+    public SQSTriggerBuilder(final SQSTrigger trigger, final AbstractProject<?, ?> job, final List<TriggerRequest> requests, final long delay) {
         this.trigger = trigger;
         this.job = job;
+        this.requests = requests;
+        this.delay = delay;
     }
 
     @Override
     public void run() {
-        final File log = this.trigger.getLogFile();
+        final ActivityLog activityLog = this.trigger.getActivityLog();
+
+        try {
+            final ActivityLog.Entry entry = activityLog.create();
+
+            try (final StreamTaskListener listener = new StreamTaskListener(entry.getFile())) {
+                this.buildIfChanged(listener);
 
-        try (final StreamTaskListener listener = new StreamTaskListener(log)) {
-            this.buildIfChanged(listener);
+            } finally {
+                activityLog.complete(entry);
 
+            }
         } catch (final IOException e) {
             Log.severe(e, "Failed to record SCM polling");
 
@@ -58,9 +87,22 @@ public class SQSTriggerBuilder implements Runnable {
         final PrintStream logger = listener.getLogger();
         final long now = System.currentTimeMillis();
 
-        logger.format("Started on %s", this.toDateTime(now));
+        logger.format("Started on %s%n", this.toDateTime(now));
+        this.logRequests(logger, now);
+
+        if (this.isAlreadyBuilt()) {
+            logger.println("All events name commits that have already been built, poll skipped");
+            return;
+        }
+
+        if (this.delay > 0) {
+            logger.format("Rate limited, deferred by %s%n", Util.getTimeSpanString(this.delay));
+        }
+
+        final long pollStart = System.currentTimeMillis();
         final boolean hasChanges = this.job.poll(listener).hasChanges();
         logger.println("Done. Took " + this.toTimeSpan(now));
+        this.trigger.setLastPollTime(pollStart);
 
         if (!hasChanges) {
             logger.println("No changes");
@@ -70,6 +112,54 @@ public class SQSTriggerBuilder implements Runnable {
         }
     }
 
+    private void logRequests(final PrintStream logger, final long now) {
+        if (this.requests.isEmpty()) {
+            return;
+        }
+
+        final TriggerRequest first = this.requests.get(0);
+        logger.format("Triggered on %s, waited %s%n", this.toDateTime(first.getTimestamp()), Util.getTimeSpanString(now - first.getTimestamp()));
+
+        if (this.requests.size() > 1) {
+            logger.format("Merged %d additional trigger(s) into this poll%n", this.requests.size() - 1);
+        }
+
+        final Set<String> events = new LinkedHashSet<>();
+
+        for (final TriggerRequest request : this.requests) {
+            for (final Event event : request.getEvents()) {
+                events.add(String.format("%s%s (%s)", event.getHost(), event.getPath(), event.getBranch()));
+            }
+        }
+
+        logger.format("Matching event(s):%n");
+
+        for (final String event : events) {
+            logger.format("  %s%n", event);
+        }
+    }
+
+    /**
+     * Returns a value indicating whether all events that requested this poll name a commit that
+     * was the last commit built by the job for the branch of the event.
+     */
+    private boolean isAlreadyBuilt() {
+        final BuiltCommitCache cache = this.trigger.getBuiltCommitCache();
+        final String jobName = this.job.getFullName();
+        int count = 0;
+
+        for (final TriggerRequest request : this.requests) {
+            for (final Event event : request.getEvents()) {
+                if (!cache.isBuilt(jobName, event)) {
+                    return false;
+                }
+                count++;
+            }
+        }
+
+        return count > 0;
+    }
+
     private void build(final PrintStream logger, final long now) {
         final String note = "SQS poll initiated on " + this.toDateTime(now);
         final Cause cause = new Cause.RemoteCause("SQS trigger", note);
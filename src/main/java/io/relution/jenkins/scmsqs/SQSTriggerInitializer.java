@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+
+
+/**
+ * Starts the bulk registration of all triggers once Jenkins has loaded all jobs. Triggers started
+ * while jobs are loaded are collected by the {@link SQSTrigger.DescriptorImpl}, which registers
+ * them in the background; triggers started after the bulk registration completed are registered
+ * individually.
+ */
+public final class SQSTriggerInitializer {
+
+    private SQSTriggerInitializer() {
+    }
+
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void registerTriggers() {
+        SQSTrigger.DescriptorImpl.get().completeStartup();
+    }
+}
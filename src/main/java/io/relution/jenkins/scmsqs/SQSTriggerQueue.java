@@ -16,16 +16,24 @@
 
 package io.relution.jenkins.scmsqs;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import com.google.inject.Inject;
 
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.interceptor.RequirePOST;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -33,47 +41,58 @@ import java.util.regex.Pattern;
 import hudson.Extension;
 import hudson.model.AbstractDescribableImpl;
 import hudson.model.Descriptor;
+import hudson.security.ACL;
 import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
 import hudson.util.Secret;
 import io.relution.jenkins.scmsqs.i18n.sqstriggerqueue.Messages;
-import io.relution.jenkins.scmsqs.interfaces.SQSFactory;
+import io.relution.jenkins.scmsqs.interfaces.QueueUrlCache;
+import io.relution.jenkins.scmsqs.interfaces.SQSClientPool;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
 import io.relution.jenkins.scmsqs.logging.Log;
+import jenkins.model.Jenkins;
 
 
 public class SQSTriggerQueue extends AbstractDescribableImpl<SQSTriggerQueue> implements SQSQueue {
 
-    public static final Pattern  SQS_URL_PATTERN                = Pattern
+    public static final Pattern     SQS_URL_PATTERN                = Pattern
             .compile("^(?:http(?:s)?://)?(?<endpoint>sqs\\..+?\\.amazonaws\\.com)/(?<id>.+?)/(?<name>.*)$");
 
-    public static final Pattern  CODECOMMIT_URL_PATTERN         = Pattern
+    public static final Pattern     CODECOMMIT_URL_PATTERN         = Pattern
             .compile("^(?:http(?:s)?://)?git-codecommit\\.(?<region>.+?)\\.amazonaws\\.com/v1/repos/(?<name>.*)$");
 
-    private static final int     WAIT_TIME_SECONDS_DEFAULT      = 20;
-    private static final int     WAIT_TIME_SECONDS_MIN          = 1;
-    private static final int     WAIT_TIME_SECONDS_MAX          = 20;
+    public static final Pattern     ROLE_ARN_PATTERN               = Pattern
+            .compile("^arn:aws[a-z-]*:iam::\\d{12}:role/.+$");
 
-    private static final int     MAX_NUMBER_OF_MESSAGES_DEFAULT = 10;
-    private static final int     MAX_NUMBER_OF_MESSAGES_MIN     = 1;
-    private static final int     MAX_NUMBER_OF_MESSAGES_MAX     = 10;
+    private static final int        WAIT_TIME_SECONDS_DEFAULT      = 20;
+    private static final int        WAIT_TIME_SECONDS_MIN          = 1;
+    private static final int        WAIT_TIME_SECONDS_MAX          = 20;
 
-    private final String         uuid;
+    private static final int        MAX_NUMBER_OF_MESSAGES_DEFAULT = 10;
+    private static final int        MAX_NUMBER_OF_MESSAGES_MIN     = 1;
+    private static final int        MAX_NUMBER_OF_MESSAGES_MAX     = 10;
 
-    private final String         nameOrUrl;
-    private final String         accessKey;
-    private final Secret         secretKey;
+    private final String            uuid;
 
-    private final Integer        waitTimeSeconds;
-    private final Integer        maxNumberOfMessages;
+    private final String            nameOrUrl;
+    private final String            accessKey;
+    private final Secret            secretKey;
 
-    private String               url;
-    private final String         name;
-    private final String         endpoint;
+    private String                  credentialsId;
+    private String                  roleArn;
+    private String                  externalId;
 
-    private transient SQSFactory factory;
-    private transient AmazonSQS  sqs;
+    private final Integer           waitTimeSeconds;
+    private final Integer           maxNumberOfMessages;
 
-    private transient String     s;
+    private final String            url;
+    private final String            name;
+    private final String            endpoint;
+
+    private transient SQSClientPool clientPool;
+    private transient QueueUrlCache urlCache;
+
+    private transient String        s;
 
     @DataBoundConstructor
     public SQSTriggerQueue(
@@ -108,6 +127,7 @@ public class SQSTriggerQueue extends AbstractDescribableImpl<SQSTriggerQueue> im
             this.endpoint = sqsUrlMatcher.group("endpoint");
 
         } else {
+            this.url = null;
             this.name = nameOrUrl;
             this.endpoint = null;
 
@@ -116,23 +136,43 @@ public class SQSTriggerQueue extends AbstractDescribableImpl<SQSTriggerQueue> im
         Log.info("Create new SQSTriggerQueue(%s, %s, %s)", this.uuid, nameOrUrl, accessKey);
     }
 
-    public AmazonSQS getSQSClient() {
-        if (this.sqs == null) {
-            this.sqs = this.getFactory().createSQSAsync(this);
+    @Inject
+    public void setUrlCache(final QueueUrlCache urlCache) {
+        this.urlCache = urlCache;
+    }
+
+    public QueueUrlCache getUrlCache() {
+        if (this.urlCache == null) {
+            Context.injector().injectMembers(this);
         }
-        return this.sqs;
+        return this.urlCache;
+    }
+
+    @DataBoundSetter
+    public void setCredentialsId(final String credentialsId) {
+        this.credentialsId = StringUtils.trimToNull(credentialsId);
+    }
+
+    @DataBoundSetter
+    public void setRoleArn(final String roleArn) {
+        this.roleArn = StringUtils.trimToNull(roleArn);
+    }
+
+    @DataBoundSetter
+    public void setExternalId(final String externalId) {
+        this.externalId = StringUtils.trimToNull(externalId);
     }
 
     @Inject
-    public void setFactory(final SQSFactory factory) {
-        this.factory = factory;
+    public void setClientPool(final SQSClientPool clientPool) {
+        this.clientPool = clientPool;
     }
 
-    public SQSFactory getFactory() {
-        if (this.factory == null) {
+    public SQSClientPool getClientPool() {
+        if (this.clientPool == null) {
             Context.injector().injectMembers(this);
         }
-        return this.factory;
+        return this.clientPool;
     }
 
     @Override
@@ -152,6 +192,21 @@ public class SQSTriggerQueue extends AbstractDescribableImpl<SQSTriggerQueue> im
         return this.secretKey;
     }
 
+    @Override
+    public String getCredentialsId() {
+        return this.credentialsId;
+    }
+
+    @Override
+    public String getRoleArn() {
+        return this.roleArn;
+    }
+
+    @Override
+    public String getExternalId() {
+        return this.externalId;
+    }
+
     @Override
     public int getWaitTimeSeconds() {
         if (this.waitTimeSeconds == null) {
@@ -171,13 +226,31 @@ public class SQSTriggerQueue extends AbstractDescribableImpl<SQSTriggerQueue> im
     @Override
     public String getUrl() {
         if (this.url == null) {
-            final AmazonSQS client = this.getSQSClient();
-            final GetQueueUrlResult result = client.getQueueUrl(this.name);
-            this.url = result.getQueueUrl();
+            return this.getUrlCache().getUrl(this);
         }
         return this.url;
     }
 
+    @Override
+    public String getAddress() {
+        if (this.url != null) {
+            return this.url;
+        }
+
+        final String url = this.getUrlCache().getCachedUrl(this);
+        return url != null ? url : this.name;
+    }
+
+    /**
+     * Resolves the URL of the queue in the background, if the queue was configured by name and
+     * its URL is not cached yet.
+     */
+    public void prefetchUrl() {
+        if (this.url == null && !StringUtils.isBlank(this.name)) {
+            this.getUrlCache().prefetch(this);
+        }
+    }
+
     @Override
     public String getName() {
         return this.name;
@@ -206,10 +279,7 @@ public class SQSTriggerQueue extends AbstractDescribableImpl<SQSTriggerQueue> im
         if (StringUtils.isBlank(this.getName())) {
             return false;
         }
-        if (StringUtils.isEmpty(this.getAWSAccessKeyId())) {
-            return false;
-        }
-        if (StringUtils.isEmpty(this.getAWSSecretKey())) {
+        if (!StringUtils.isEmpty(this.getAWSAccessKeyId()) && StringUtils.isEmpty(this.getAWSSecretKey())) {
             return false;
         }
         return true;
@@ -300,6 +370,32 @@ public class SQSTriggerQueue extends AbstractDescribableImpl<SQSTriggerQueue> im
             return FormValidation.ok();
         }
 
+        public ListBoxModel doFillCredentialsIdItems() {
+            if (!Jenkins.getInstance().hasPermission(Jenkins.ADMINISTER)) {
+                return new ListBoxModel();
+            }
+
+            return new StandardListBoxModel()
+                    .withEmptySelection()
+                    .withAll(CredentialsProvider.lookupCredentials(
+                            StandardUsernamePasswordCredentials.class,
+                            Jenkins.getInstance(),
+                            ACL.SYSTEM,
+                            Collections.<DomainRequirement> emptyList()));
+        }
+
+        public FormValidation doCheckRoleArn(@QueryParameter final String value) {
+            if (StringUtils.isBlank(value)) {
+                return FormValidation.ok();
+            }
+
+            if (!ROLE_ARN_PATTERN.matcher(value.trim()).matches()) {
+                return FormValidation.error(Messages.errorRoleArn());
+            }
+
+            return FormValidation.ok();
+        }
+
         public FormValidation doCheckWaitTimeSeconds(@QueryParameter final String value) {
             return this.validateNumber(
                     value,
@@ -316,45 +412,56 @@ public class SQSTriggerQueue extends AbstractDescribableImpl<SQSTriggerQueue> im
                     Messages.errorMaxNumberOfMessages());
         }
 
+        @RequirePOST
         public FormValidation doValidate(
                 @QueryParameter final String uuid,
                 @QueryParameter final String nameOrUrl,
                 @QueryParameter final String accessKey,
-                @QueryParameter final Secret secretKey) throws IOException {
+                @QueryParameter final Secret secretKey,
+                @QueryParameter final String credentialsId,
+                @QueryParameter final String roleArn,
+                @QueryParameter final String externalId) throws IOException {
+            Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+
             try {
                 final SQSTriggerQueue queue = new SQSTriggerQueue(uuid, nameOrUrl, accessKey, secretKey, 0, 0);
+                queue.setCredentialsId(credentialsId);
+                queue.setRoleArn(roleArn);
+                queue.setExternalId(externalId);
 
                 if (StringUtils.isBlank(queue.getName())) {
                     return FormValidation.warning("Name or URL of the queue must be set.");
                 }
 
-                if (StringUtils.isEmpty(queue.getAWSAccessKeyId())) {
-                    return FormValidation.warning("AWS access key ID must be set.");
-                }
-
-                if (StringUtils.isEmpty(queue.getAWSSecretKey())) {
+                if (!StringUtils.isEmpty(queue.getAWSAccessKeyId()) && StringUtils.isEmpty(queue.getAWSSecretKey())) {
                     return FormValidation.warning("AWS secret key must be set.");
                 }
 
-                final AmazonSQS client = queue.getSQSClient();
+                final SQSClientPool pool = queue.getClientPool();
+                final AmazonSQS client = pool.acquire(queue);
 
-                if (client == null) {
-                    return FormValidation.error("Failed to create SQS client");
-                }
+                try {
+                    final String queueName = queue.getName();
+                    final GetQueueUrlResult result = client.getQueueUrl(queueName);
 
-                final String queueName = queue.getName();
-                final GetQueueUrlResult result = client.getQueueUrl(queueName);
+                    if (result == null) {
+                        return FormValidation.error("Failed to get SQS client queue URL");
+                    }
 
-                if (result == null) {
-                    return FormValidation.error("Failed to get SQS client queue URL");
-                }
+                    final String url = result.getQueueUrl();
+                    return FormValidation.ok("Access to %s successful\n(%s)", queue.getName(), url);
 
-                final String url = result.getQueueUrl();
-                return FormValidation.ok("Access to %s successful\n(%s)", queue.getName(), url);
+                } finally {
+                    pool.release(client);
+
+                }
 
             } catch (final AmazonServiceException ase) {
                 return FormValidation.error(ase, ase.getMessage());
 
+            } catch (final AmazonClientException ace) {
+                return FormValidation.error(ace, ace.getMessage());
+
             } catch (final RuntimeException ex) {
                 return FormValidation.error(ex, "Error validating SQS access");
             }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs;
+
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.git.Branch;
+import hudson.plugins.git.Revision;
+import hudson.plugins.git.util.BuildData;
+import io.relution.jenkins.scmsqs.interfaces.BuiltCommitCache;
+
+
+/**
+ * Records the commits built by jobs that use the {@link SQSTrigger}, so that events which name a
+ * commit that was already built do not cause an SCM poll. Only builds that succeeded or are
+ * unstable are recorded, so a commit whose build failed or was aborted is built again when an
+ * event names it. Requires the Git plugin.
+ */
+@Extension(optional = true)
+public class SQSTriggerRunListener extends RunListener<Run<?, ?>> {
+
+    @Override
+    public void onCompleted(final Run<?, ?> run, final TaskListener listener) {
+        final Job<?, ?> job = run.getParent();
+
+        if (!(job instanceof AbstractProject) || ((AbstractProject<?, ?>) job).getTrigger(SQSTrigger.class) == null) {
+            return;
+        }
+
+        final Result result = run.getResult();
+
+        if (result == null || result.isWorseThan(Result.UNSTABLE)) {
+            return;
+        }
+
+        final BuiltCommitCache cache = Context.injector().getInstance(BuiltCommitCache.class);
+
+        for (final BuildData data : run.getActions(BuildData.class)) {
+            final Revision revision = data.getLastBuiltRevision();
+
+            if (revision == null) {
+                continue;
+            }
+
+            for (final Branch branch : revision.getBranches()) {
+                cache.setBuilt(job.getFullName(), branch.getName(), revision.getSha1String());
+            }
+        }
+    }
+
+    /**
+     * Removes the commits recorded for jobs that are deleted or renamed.
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+
+        @Override
+        public void onDeleted(final Item item) {
+            this.remove(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(final Item item, final String oldFullName, final String newFullName) {
+            this.remove(oldFullName);
+        }
+
+        private void remove(final String fullName) {
+            final BuiltCommitCache cache = Context.injector().getInstance(BuiltCommitCache.class);
+            cache.remove(fullName);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs;
+
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import io.relution.jenkins.scmsqs.i18n.sqstrigger.Messages;
+import io.relution.jenkins.scmsqs.interfaces.EventReplayer;
+import io.relution.jenkins.scmsqs.interfaces.ExecutorProvider;
+import io.relution.jenkins.scmsqs.interfaces.KeyedExecutor;
+import io.relution.jenkins.scmsqs.interfaces.StatisticsProvider;
+import io.relution.jenkins.scmsqs.metrics.ExecutorStatistics;
+import io.relution.jenkins.scmsqs.metrics.QueueStatistics;
+import io.relution.jenkins.scmsqs.util.Timestamps;
+import jenkins.model.Jenkins;
+
+
+/**
+ * Provides a page on the "Manage Jenkins" page that lists the statistics collected for each of the
+ * configured Amazon SQS queues and for the thread pools of the plugin, and allows to replay
+ * retained events.
+ */
+@Extension
+public class SQSTriggerStatisticsLink extends ManagementLink {
+
+    @Override
+    public String getIconFileName() {
+        return "graph.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "SQS Trigger Statistics";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Statistics about the messages received from Amazon SQS queues";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "sqs-trigger-statistics";
+    }
+
+    public List<SQSTriggerQueue> getQueues() {
+        return SQSTrigger.DescriptorImpl.get().getSqsQueues();
+    }
+
+    public QueueStatistics getStatistics(final String queueUuid) {
+        final StatisticsProvider provider = Context.injector().getInstance(StatisticsProvider.class);
+        return provider.getQueueStatistics(queueUuid);
+    }
+
+    public List<ExecutorStatistics> getExecutorStatistics() {
+        final ExecutorProvider provider = Context.injector().getInstance(ExecutorProvider.class);
+        final KeyedExecutor pollingExecutor = Context.injector().getInstance(KeyedExecutor.class);
+
+        final List<ExecutorStatistics> statistics = new ArrayList<>(provider.getStatistics());
+        statistics.add(pollingExecutor.getStatistics());
+        return statistics;
+    }
+
+    public String formatPercent(final double value) {
+        return String.format("%.1f%%", value);
+    }
+
+    public String formatDecimal(final double value) {
+        return String.format("%.2f", value);
+    }
+
+    public String formatMillis(final double value) {
+        return String.format("%.1f ms", value);
+    }
+
+    /**
+     * Replays the retained events received within the time range specified by the request.
+     * @param req The request, which contains the parameters {@code from}, {@code to},
+     * {@code repository} and {@code job}.
+     * @param rsp The response, which redirects back to the statistics page, or reports an error if
+     * the time range is invalid. The end of the time range defaults to the current time.
+     * @throws IOException The response could not be sent.
+     */
+    @RequirePOST
+    public void doReplay(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+
+        final String toText = req.getParameter("to");
+        final long from = Timestamps.parseDateTime(req.getParameter("from"));
+        final long to = StringUtils.isBlank(toText) ? System.currentTimeMillis() : Timestamps.parseDateTime(toText);
+
+        if (from == 0) {
+            rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, Messages.errorReplayFrom());
+            return;
+        }
+
+        if (to == 0) {
+            rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, Messages.errorReplayTo());
+            return;
+        }
+
+        if (from > to) {
+            rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, Messages.errorReplayRange());
+            return;
+        }
+
+        final String repository = StringUtils.trimToNull(req.getParameter("repository"));
+        final String job = StringUtils.trimToNull(req.getParameter("job"));
+
+        final EventReplayer replayer = Context.injector().getInstance(EventReplayer.class);
+        final int count = replayer.replay(from, to, repository, job);
+
+        rsp.sendRedirect("./?replayed=" + count);
+    }
+}
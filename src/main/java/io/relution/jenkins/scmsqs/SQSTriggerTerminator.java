@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs;
+
+import java.util.concurrent.TimeUnit;
+
+import hudson.init.Terminator;
+import io.relution.jenkins.scmsqs.interfaces.SQSQueueMonitorScheduler;
+import io.relution.jenkins.scmsqs.logging.Log;
+
+
+/**
+ * Stops all queue monitors when Jenkins shuts down. Messages received by requests that are in
+ * flight are not handed off, since the builds they would trigger cannot run anymore; they are
+ * released back to their queues instead of becoming visible again only after their visibility
+ * timeout expired. The same applies to messages whose events are held back by the monitors, e.g.
+ * to coalesce events for the same branch.
+ */
+public final class SQSTriggerTerminator {
+
+    private static final long     SHUTDOWN_TIMEOUT = 30;
+    private static final TimeUnit SHUTDOWN_UNIT    = TimeUnit.SECONDS;
+
+    private SQSTriggerTerminator() {
+    }
+
+    @Terminator
+    public static void shutDownMonitors() throws InterruptedException {
+        final SQSQueueMonitorScheduler scheduler = Context.injector().getInstance(SQSQueueMonitorScheduler.class);
+        scheduler.flush();
+
+        if (!scheduler.shutDown(SHUTDOWN_TIMEOUT, SHUTDOWN_UNIT)) {
+            Log.warning("Not all monitors stopped within %d seconds", SHUTDOWN_TIMEOUT);
+        }
+    }
+}
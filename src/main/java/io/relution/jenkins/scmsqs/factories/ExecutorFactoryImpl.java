@@ -18,26 +18,37 @@ package io.relution.jenkins.scmsqs.factories;
 
 import com.google.inject.Inject;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import io.relution.jenkins.scmsqs.interfaces.ExecutorFactory;
+import io.relution.jenkins.scmsqs.threading.DeferredExecutionHandler;
+import io.relution.jenkins.scmsqs.threading.VirtualThreads;
+import jenkins.util.Timer;
 
 
 public class ExecutorFactoryImpl implements ExecutorFactory {
 
+    private final static int      KEEP_ALIVE_TIME      = 5;
+    private final static TimeUnit KEEP_ALIVE_TIME_UNIT = TimeUnit.MINUTES;
+
     /**
-     * The number of threads to start by default. Cannot exceed the maximum number of threads.
-     * Beware: If you reduce this number and do not place a limit on the queue no additional
-     * threads will ever be started.
+     * The number of SCM polls that can be queued before further polls are deferred.
      */
-    private final static int      CORE_POOL_SIZE       = 10;
-    private final static int      MAXIMUM_POOL_SIZE    = 50;
+    private final static int      POLLING_QUEUE_SIZE   = 100;
 
-    private final static int      KEEP_ALIVE_TIME      = 5;
-    private final static TimeUnit KEEP_ALIVE_TIME_UNIT = TimeUnit.MINUTES;
+    /**
+     * The time for which an idle virtual thread is kept for reuse.
+     */
+    private final static int      VIRTUAL_IDLE_TIME    = 10;
+    private final static TimeUnit VIRTUAL_IDLE_UNIT    = TimeUnit.SECONDS;
+
+    private final static int      DEFER_DELAY          = 1;
+    private final static TimeUnit DEFER_DELAY_UNIT     = TimeUnit.SECONDS;
 
     final ThreadFactory           threadFactory;
 
@@ -47,16 +58,43 @@ public class ExecutorFactoryImpl implements ExecutorFactory {
     }
 
     @Override
-    public ThreadPoolExecutor createExecutor() {
+    public ThreadPoolExecutor createExecutor(final int corePoolSize, final int maximumPoolSize, final int queueSize) {
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(
-                CORE_POOL_SIZE,
-                MAXIMUM_POOL_SIZE,
+                corePoolSize,
+                Math.max(corePoolSize, maximumPoolSize),
                 KEEP_ALIVE_TIME,
                 KEEP_ALIVE_TIME_UNIT,
-                new LinkedBlockingQueue<Runnable>(),
-                this.threadFactory);
+                new LinkedBlockingQueue<Runnable>(queueSize),
+                this.threadFactory,
+                new DeferredExecutionHandler(Timer.get(), DEFER_DELAY, DEFER_DELAY_UNIT));
 
         executor.allowCoreThreadTimeOut(false);
         return executor;
     }
+
+    @Override
+    public ThreadPoolExecutor createVirtualExecutor() {
+        return new ThreadPoolExecutor(
+                0,
+                Integer.MAX_VALUE,
+                VIRTUAL_IDLE_TIME,
+                VIRTUAL_IDLE_UNIT,
+                new SynchronousQueue<Runnable>(),
+                VirtualThreads.getFactory());
+    }
+
+    @Override
+    public ThreadPoolExecutor createPollingExecutor(final int poolSize) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                KEEP_ALIVE_TIME,
+                KEEP_ALIVE_TIME_UNIT,
+                new ArrayBlockingQueue<Runnable>(POLLING_QUEUE_SIZE),
+                this.threadFactory,
+                new DeferredExecutionHandler(Timer.get(), DEFER_DELAY, DEFER_DELAY_UNIT));
+
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 }
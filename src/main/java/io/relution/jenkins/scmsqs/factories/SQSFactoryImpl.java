@@ -17,6 +17,7 @@
 package io.relution.jenkins.scmsqs.factories;
 
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.AmazonSQSAsync;
 import com.amazonaws.services.sqs.AmazonSQSAsyncClient;
@@ -25,32 +26,86 @@ import com.amazonaws.services.sqs.buffered.AmazonSQSBufferedAsyncClient;
 import com.amazonaws.services.sqs.buffered.QueueBufferConfig;
 import com.google.inject.Inject;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
+import io.relution.jenkins.scmsqs.interfaces.CredentialsProviderFactory;
+import io.relution.jenkins.scmsqs.interfaces.ExecutorProvider;
+import io.relution.jenkins.scmsqs.interfaces.MessageArchive;
+import io.relution.jenkins.scmsqs.interfaces.MessageDeduplicator;
+import io.relution.jenkins.scmsqs.interfaces.MessageJournal;
+import io.relution.jenkins.scmsqs.interfaces.MessageParserFactory;
+import io.relution.jenkins.scmsqs.interfaces.SQSClientPool;
 import io.relution.jenkins.scmsqs.interfaces.SQSFactory;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueMonitor;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.interfaces.StatisticsProvider;
+import io.relution.jenkins.scmsqs.journal.SegmentedMessageJournal;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.net.ClientSettings;
 import io.relution.jenkins.scmsqs.net.RequestFactory;
 import io.relution.jenkins.scmsqs.net.SQSChannel;
 import io.relution.jenkins.scmsqs.net.SQSChannelImpl;
+import io.relution.jenkins.scmsqs.threading.EventPipeline;
+import io.relution.jenkins.scmsqs.threading.ExecutorRole;
 import io.relution.jenkins.scmsqs.threading.SQSQueueMonitorImpl;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
 
 
 public class SQSFactoryImpl implements SQSFactory {
 
-    private final ExecutorService executor;
-    private final RequestFactory  factory;
+    private static final String               JOURNAL_DIRECTORY = "sqs-journal";
+
+    private final ExecutorProvider            executors;
+    private final SQSClientPool               clients;
+    private final CredentialsProviderFactory  credentials;
+    private final RequestFactory              factory;
+    private final MessageParserFactory        parsers;
+    private final MessageDeduplicator         deduplicator;
+    private final MessageArchive              archive;
+    private final SettingsProvider            settings;
+    private final StatisticsProvider          statistics;
+
+    private final Map<String, MessageJournal> journals          = new HashMap<>();
 
     @Inject
-    public SQSFactoryImpl(final ExecutorService executor, final RequestFactory factory) {
-        this.executor = executor;
+    public SQSFactoryImpl(final ExecutorProvider executors,
+            final SQSClientPool clients,
+            final CredentialsProviderFactory credentials,
+            final RequestFactory factory,
+            final MessageParserFactory parsers,
+            final MessageDeduplicator deduplicator,
+            final MessageArchive archive,
+            final SettingsProvider settings,
+            final StatisticsProvider statistics) {
+        this.executors = executors;
+        this.clients = clients;
+        this.credentials = credentials;
         this.factory = factory;
+        this.parsers = parsers;
+        this.deduplicator = deduplicator;
+        this.archive = archive;
+        this.settings = settings;
+        this.statistics = statistics;
     }
 
     @Override
     public AmazonSQS createSQS(final SQSQueue queue) {
+        final AWSCredentialsProvider provider = this.credentials.getProvider(queue);
         final ClientConfiguration clientConfiguration = this.getClientConfiguration(queue);
-        final AmazonSQS sqs = new AmazonSQSClient(queue, clientConfiguration);
+        final AmazonSQS sqs = new AmazonSQSClient(provider, clientConfiguration) {
+
+            @Override
+            public void shutdown() {
+                super.shutdown();
+                SQSFactoryImpl.this.credentials.release(provider);
+            }
+        };
 
         if (queue.getEndpoint() != null) {
             sqs.setEndpoint(queue.getEndpoint());
@@ -61,8 +116,16 @@ public class SQSFactoryImpl implements SQSFactory {
 
     @Override
     public AmazonSQSAsync createSQSAsync(final SQSQueue queue) {
+        final AWSCredentialsProvider provider = this.credentials.getProvider(queue);
         final ClientConfiguration clientConfiguration = this.getClientConfiguration(queue);
-        final AmazonSQSAsyncClient sqsAsync = new AmazonSQSAsyncClient(queue, clientConfiguration, this.executor);
+        final AmazonSQSAsyncClient sqsAsync = new AmazonSQSAsyncClient(provider, clientConfiguration, this.executors.get(ExecutorRole.CALLBACK)) {
+
+            @Override
+            public void shutdown() {
+                super.shutdown();
+                SQSFactoryImpl.this.credentials.release(provider);
+            }
+        };
 
         if (queue.getEndpoint() != null) {
             sqsAsync.setEndpoint(queue.getEndpoint());
@@ -76,14 +139,16 @@ public class SQSFactoryImpl implements SQSFactory {
 
     @Override
     public SQSChannel createChannel(final SQSQueue queue) {
-        final AmazonSQS sqs = this.createSQS(queue);
-        return new SQSChannelImpl(sqs, queue, this.factory);
+        return new SQSChannelImpl(this.clients, queue, this.factory, this.statistics.getQueueStatistics(queue.getUuid()));
     }
 
     @Override
     public SQSQueueMonitor createMonitor(final ExecutorService executor, final SQSQueue queue) {
         final SQSChannel channel = this.createChannel(queue);
-        return new SQSQueueMonitorImpl(executor, queue, channel);
+        final MessageJournal journal = this.getJournal(queue);
+        final ExecutorService dispatchExecutor = this.executors.get(ExecutorRole.DISPATCH);
+        final EventPipeline pipeline = new EventPipeline(Timer.get(), this.settings, this.statistics.getQueueStatistics(queue.getUuid()));
+        return new SQSQueueMonitorImpl(executor, dispatchExecutor, queue, channel, this.settings, this.parsers, pipeline, this.deduplicator, journal, this.archive);
     }
 
     @Override
@@ -92,12 +157,46 @@ public class SQSFactoryImpl implements SQSFactory {
         return monitor.clone(queue, channel);
     }
 
-    private ClientConfiguration getClientConfiguration(final SQSQueue queue) {
-        final ClientConfiguration config = new ClientConfiguration();
+    @Override
+    public synchronized void release(final SQSQueue queue) {
+        final MessageJournal journal = this.journals.remove(queue.getUuid());
 
-        // TODO Add support for proxy
+        if (journal != null) {
+            Log.info("Close journal of %s", queue);
+            journal.close();
+        }
 
-        return config;
+        this.statistics.remove(queue.getUuid());
+    }
+
+    /**
+     * Returns the journal of the specified queue. A journal is opened for each queue, even if
+     * journaling is disabled, so messages journaled before journaling was disabled are dispatched.
+     * The monitor reads the setting for each request to decide whether to journal new messages.
+     */
+    private synchronized MessageJournal getJournal(final SQSQueue queue) {
+        MessageJournal journal = this.journals.get(queue.getUuid());
+
+        if (journal != null) {
+            return journal;
+        }
+
+        try {
+            final File directory = new File(new File(Jenkins.getInstance().getRootDir(), JOURNAL_DIRECTORY), queue.getUuid());
+            journal = new SegmentedMessageJournal(directory);
+            this.journals.put(queue.getUuid(), journal);
+            return journal;
+
+        } catch (final IOException e) {
+            Log.severe(e, "Failed to open journal for %s, messages are not journaled", queue);
+            return null;
+
+        }
+    }
+
+    private ClientConfiguration getClientConfiguration(final SQSQueue queue) {
+        final ClientSettings settings = ClientSettings.create(this.settings, queue);
+        return settings.toClientConfiguration(this.settings);
     }
 
     private QueueBufferConfig getQueueBufferConfig(final SQSQueue queue) {
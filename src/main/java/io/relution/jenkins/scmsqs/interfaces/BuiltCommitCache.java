@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+
+/**
+ * Interface definition for classes that remember the commit last built by a job for each branch,
+ * so that events which name a commit that was already built do not cause an SCM poll.
+ */
+public interface BuiltCommitCache {
+
+    /**
+     * Returns a value indicating whether the commit named by the specified event was the last
+     * commit built by the specified job for the branch of the event.
+     * @param jobName The full name of the job.
+     * @param event The {@link Event} to test.
+     * @return {@code true} if the commit was already built; {@code false} if it was not built, or
+     * if this is unknown.
+     */
+    boolean isBuilt(String jobName, Event event);
+
+    /**
+     * Records the specified commit as the last commit built by the specified job for a branch.
+     * @param jobName The full name of the job.
+     * @param branch The name of the remote tracking branch that was built, e.g.
+     * {@code origin/master}.
+     * @param commit The identifier of the commit that was built.
+     */
+    void setBuilt(String jobName, String branch, String commit);
+
+    /**
+     * Removes all commits recorded for the specified job.
+     * @param jobName The full name of the job.
+     */
+    void remove(String jobName);
+}
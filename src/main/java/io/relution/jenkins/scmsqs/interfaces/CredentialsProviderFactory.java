@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+
+
+/**
+ * Interface definition for classes that provide the credentials used to access a queue. Providers
+ * are cached, so that queues that use the same credentials share a provider, and with it the
+ * session credentials of an assumed role.
+ * <p>
+ * Providers are reference counted: each call to {@link #getProvider(SQSQueue)} must be matched by
+ * a call to {@link #release(AWSCredentialsProvider)}. A provider is removed from the cache, and
+ * stops refreshing session credentials, when it is released by its last user.
+ */
+public interface CredentialsProviderFactory {
+
+    /**
+     * Returns a provider for the credentials of the specified queue. The provider is created if no
+     * provider exists for the credentials of the queue.
+     * <p>
+     * Depending on the configuration of the queue, the provider returns the static access key of
+     * the queue, the Jenkins credentials referenced by the queue or the credentials of the
+     * instance profile. If the queue defines a role, the provider returns session credentials of
+     * the role, which are refreshed in the background before they expire.
+     * @param queue The {@link SQSQueue} for which to return a credentials provider.
+     * @return An {@link AWSCredentialsProvider} for the credentials of the specified queue.
+     */
+    AWSCredentialsProvider getProvider(SQSQueue queue);
+
+    /**
+     * Releases a provider that was previously returned by {@link #getProvider(SQSQueue)}. The
+     * provider must not be used by the caller after it was released.
+     * @param provider The {@link AWSCredentialsProvider} to release.
+     */
+    void release(AWSCredentialsProvider provider);
+}
@@ -25,6 +25,25 @@ import org.eclipse.jgit.transport.URIish;
  */
 public interface Event {
 
+    /**
+     * Returns the identifier of the change that caused the event to be raised. If the change was
+     * split into several parts, all parts have the same identifier.
+     * @return The identifier of the change, or {@code null} if the change cannot be identified.
+     */
+    String getId();
+
+    /**
+     * Returns the number of the part of the change that is described by this event.
+     * @return The one-based number of the part described by this event.
+     */
+    int getPartNumber();
+
+    /**
+     * Returns the number of parts the change that caused the event was split into.
+     * @return The total number of parts, {@code 1} if the change was not split.
+     */
+    int getTotalParts();
+
     /**
      * Returns the host of the repository that raised the event.
      * @return The name of the host.
@@ -49,6 +68,19 @@ public interface Event {
      */
     String getBranch();
 
+    /**
+     * Returns the commit the branch points to after the change that caused the event to be raised.
+     * @return The identifier of the commit, or {@code null} if unknown.
+     */
+    String getCommit();
+
+    /**
+     * Returns the time at which the event was raised.
+     * @return The time, in milliseconds since the epoch, at which the event was raised, or
+     * {@code 0} if the time is unknown.
+     */
+    long getTimestamp();
+
     /**
      * Returns a value indicating whether the specified URI matches the events host and path
      * information.
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+/**
+ * Interface definition for classes that dispatch retained events to jobs again, e.g. to recover
+ * from an outage of Jenkins or of the SCM.
+ */
+public interface EventReplayer {
+
+    /**
+     * Dispatches the retained events that match the specified criteria to the jobs that use an SQS
+     * trigger. Events are matched and rate limited like newly received events.
+     * @param from The start of the time range, in milliseconds since the epoch, inclusive.
+     * @param to The end of the time range, in milliseconds since the epoch, inclusive.
+     * @param repository A part of the repository URL the events must match, may be {@code null}
+     * or empty to replay events of all repositories.
+     * @param jobName The full name of the job to which events are dispatched, may be {@code null}
+     * or empty to dispatch events to all jobs.
+     * @return The number of jobs for which an SCM poll was requested.
+     */
+    int replay(long from, long to, String repository, String jobName);
+}
@@ -35,4 +35,13 @@ public interface EventTriggerMatcher {
      * {@code false}.
      */
     boolean matches(List<Event> events, AbstractProject<?, ?> job);
+
+    /**
+     * Returns the events that match the specified job.
+     * @param events The collection of {@link Event}s to test against the job.
+     * @param job The {@link AbstractProject} to test against.
+     * @return The collection of {@link Event}s that match the specified job. The collection is
+     * empty if none of the events matches the job.
+     */
+    List<Event> getMatches(List<Event> events, AbstractProject<?, ?> job);
 }
@@ -25,8 +25,31 @@ import java.util.concurrent.ThreadPoolExecutor;
 public interface ExecutorFactory {
 
     /**
-     * Returns a new instance of a {@link ThreadPoolExecutor}.
+     * Returns a new instance of a {@link ThreadPoolExecutor} with a bounded work queue. Threads in
+     * excess of the core number of threads are started only once the work queue is full. Tasks
+     * that cannot be queued because the executor is saturated are deferred rather than dropped.
+     * @param corePoolSize The number of threads to keep in the pool, even if they are idle.
+     * @param maximumPoolSize The maximum number of threads used to execute tasks.
+     * @param queueSize The maximum number of tasks waiting for execution.
      * @return A new {@link ThreadPoolExecutor}.
      */
-    public ThreadPoolExecutor createExecutor();
+    public ThreadPoolExecutor createExecutor(int corePoolSize, int maximumPoolSize, int queueSize);
+
+    /**
+     * Returns a new instance of an unbounded {@link ThreadPoolExecutor} that runs each task on a
+     * virtual thread. Idle virtual threads are reused for a short time, new threads are started
+     * whenever no idle thread is available.
+     * @return A new {@link ThreadPoolExecutor}.
+     * @throws UnsupportedOperationException The Java runtime does not support virtual threads.
+     */
+    public ThreadPoolExecutor createVirtualExecutor();
+
+    /**
+     * Returns a new instance of a bounded {@link ThreadPoolExecutor} suitable for executing SCM
+     * polls. Tasks that cannot be queued because the executor is saturated are deferred rather
+     * than dropped.
+     * @param poolSize The maximum number of threads used to execute tasks.
+     * @return A new {@link ThreadPoolExecutor}.
+     */
+    public ThreadPoolExecutor createPollingExecutor(int poolSize);
 }
@@ -18,29 +18,59 @@ package io.relution.jenkins.scmsqs.interfaces;
 
 import com.google.inject.Provider;
 
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 
+import io.relution.jenkins.scmsqs.metrics.ExecutorStatistics;
+import io.relution.jenkins.scmsqs.threading.ExecutorRole;
+
 
 /**
- * Interface definition for classes that provide access to an {@link ExecutorService} instance.
+ * Interface definition for classes that provide access to the {@link ExecutorService} instances
+ * used by the plugin. A separate executor is maintained for each {@link ExecutorRole}; the
+ * executor returned by {@link #get()} is the one used to receive messages.
  */
 public interface ExecutorProvider extends Provider<ExecutorService> {
 
     /**
-     * Returns the core number of threads.
+     * Returns the executor used for the specified role.
+     * @param role The {@link ExecutorRole} of the executor to return.
+     * @return The {@link ExecutorService} used for the role.
+     */
+    ExecutorService get(ExecutorRole role);
+
+    /**
+     * Returns the core number of threads of the executor used to receive messages.
      * @return The core number of threads.
      * @see #setCorePoolSize(int)
      */
     int getCorePoolSize();
 
     /**
-     * Sets the core number of threads. This overrides any value set in the constructor. If the new
-     * value is smaller than the current value, excess existing threads will be terminated when they
-     * next become idle. If larger, new threads will, if needed, be started to execute any queued
-     * tasks.
+     * Sets the core number of threads of the executor used to receive messages. This overrides any
+     * value set in the constructor. If the new value is smaller than the current value, excess
+     * existing threads will be terminated when they next become idle. If larger, new threads will,
+     * if needed, be started to execute any queued tasks.
      * @param corePoolSize The new core size to set.
      * @throws IllegalArgumentException If {@code corePoolSize} is less than zero.
      * @see #getCorePoolSize()
      */
     void setCorePoolSize(int corePoolSize) throws IllegalArgumentException;
+
+    /**
+     * Changes the number of threads of the executor used for the specified role. Tasks that are
+     * already running are not affected if the new values are smaller than the current values.
+     * @param role The {@link ExecutorRole} of the executor to change.
+     * @param corePoolSize The number of threads to keep in the pool, even if they are idle.
+     * @param maximumPoolSize The maximum number of threads used to execute tasks. Values smaller
+     * than {@code corePoolSize} are raised to {@code corePoolSize}.
+     * @throws IllegalArgumentException If {@code corePoolSize} is less than one.
+     */
+    void setPoolSize(ExecutorRole role, int corePoolSize, int maximumPoolSize) throws IllegalArgumentException;
+
+    /**
+     * Returns the metrics of the executors, in the order of their roles.
+     * @return The collection of {@link ExecutorStatistics}.
+     */
+    List<ExecutorStatistics> getStatistics();
 }
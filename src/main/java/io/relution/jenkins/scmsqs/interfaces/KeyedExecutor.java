@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+import io.relution.jenkins.scmsqs.metrics.ExecutorStatistics;
+
+
+/**
+ * Interface definition for classes that execute tasks associated with a key. Tasks with the same
+ * key are executed sequentially, in the order in which they were submitted, while tasks with
+ * different keys may be executed concurrently.
+ */
+public interface KeyedExecutor {
+
+    /**
+     * Executes the specified task at some time in the future, after all previously submitted tasks
+     * with the same key have completed.
+     * @param key The key used to serialize the execution of tasks.
+     * @param task The {@link Runnable} to execute.
+     * @throws IllegalArgumentException The specified key or task is {@code null}.
+     */
+    void execute(String key, Runnable task);
+
+    /**
+     * Returns the maximum number of tasks that are executed concurrently.
+     * @return The maximum number of threads used to execute tasks.
+     * @see #setPoolSize(int)
+     */
+    int getPoolSize();
+
+    /**
+     * Sets the maximum number of tasks that are executed concurrently. Tasks that are already
+     * running are not affected if the new value is smaller than the current value.
+     * @param poolSize The new maximum number of threads used to execute tasks.
+     * @throws IllegalArgumentException If {@code poolSize} is less than one.
+     * @see #getPoolSize()
+     */
+    void setPoolSize(int poolSize) throws IllegalArgumentException;
+
+    /**
+     * Returns the metrics of the thread pool used to execute tasks.
+     * @return The {@link ExecutorStatistics} of the thread pool.
+     */
+    ExecutorStatistics getStatistics();
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import java.util.List;
+
+
+/**
+ * Interface definition for classes that retain messages received from Amazon SQS queues for a
+ * limited time, so that the events they contain can be replayed later.
+ */
+public interface MessageArchive {
+
+    /**
+     * Adds the specified messages to the archive of the specified queue. Does nothing if retention
+     * of messages is disabled.
+     * @param queueUuid The unique identifier of the queue from which the messages were received.
+     * @param messages The collection of {@link Message}s to add.
+     */
+    void append(String queueUuid, List<Message> messages);
+
+    /**
+     * Returns the retained messages of the specified queue that were sent within the specified
+     * time range.
+     * @param queueUuid The unique identifier of the queue.
+     * @param from The start of the time range, in milliseconds since the epoch, inclusive.
+     * @param to The end of the time range, in milliseconds since the epoch, inclusive.
+     * @return The collection of {@link Message}s found, in the order in which they were received.
+     */
+    List<Message> find(String queueUuid, long from, long to);
+}
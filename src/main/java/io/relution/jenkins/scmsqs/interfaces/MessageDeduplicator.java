@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.model.ParsedMessage;
+
+
+/**
+ * Interface definition for classes that remove messages from a list of received messages that
+ * contain an event that was already processed recently.
+ * <p>
+ * Duplicates are detected in two steps: {@link #removeDuplicates(String, List)} filters a batch of
+ * messages, and {@link #markProcessed(String, List)} records the messages of the batch once they
+ * were handed off successfully. A batch that could not be handed off is therefore not dropped as a
+ * duplicate when it is redelivered.
+ */
+public interface MessageDeduplicator {
+
+    /**
+     * Returns the messages from the specified list that contain an event that was not processed
+     * recently for the same queue. Of several messages in the list that contain the same event,
+     * only the first is returned. The messages are not recorded as processed.
+     * @param queueUuid The unique identifier of the queue from which the messages were received.
+     * @param messages The collection of {@link ParsedMessage}s to filter.
+     * @return The collection of {@link ParsedMessage}s that are not duplicates.
+     */
+    List<ParsedMessage> removeDuplicates(String queueUuid, List<ParsedMessage> messages);
+
+    /**
+     * Records the specified messages as processed, so that messages that contain the same events
+     * are removed as duplicates.
+     * @param queueUuid The unique identifier of the queue from which the messages were received.
+     * @param messages The collection of {@link ParsedMessage}s that were processed.
+     */
+    void markProcessed(String queueUuid, List<ParsedMessage> messages);
+}
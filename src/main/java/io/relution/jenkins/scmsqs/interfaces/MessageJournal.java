@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import java.io.IOException;
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.threading.CoalescingGate;
+
+
+/**
+ * Interface definition for classes that durably store messages received from an Amazon SQS queue,
+ * so that the messages can be deleted from the queue before they are dispatched to listeners.
+ * <p>
+ * A journal has a single consumer, which reads messages in the order in which they were appended
+ * and commits its position once the messages read have been dispatched. Messages that were read
+ * but not committed are read again after a restart.
+ */
+public interface MessageJournal {
+
+    /**
+     * Appends the specified messages to the journal. The messages are stored durably when this
+     * method returns.
+     * @param messages The collection of {@link Message}s to append.
+     * @throws IOException The messages could not be stored.
+     */
+    void append(List<Message> messages) throws IOException;
+
+    /**
+     * Reads the next messages from the journal, starting after the messages read previously.
+     * @param maxCount The maximum number of messages to read.
+     * @return The collection of {@link Message}s read, or an empty collection if there are no more
+     * messages.
+     * @throws IOException The messages could not be read.
+     */
+    List<Message> read(int maxCount) throws IOException;
+
+    /**
+     * Commits the position of the consumer. Messages read before this call will not be read again,
+     * even after a restart.
+     * @throws IOException The position could not be stored.
+     */
+    void commit() throws IOException;
+
+    /**
+     * Resets the position of the consumer to the last commit, so the messages read since are read
+     * again, e.g. because they could not be dispatched.
+     */
+    void rollback();
+
+    /**
+     * Returns a value indicating whether the journal contains messages that were not read yet.
+     * @return {@code true} if there are messages to read; otherwise, {@code false}.
+     */
+    boolean hasPending();
+
+    /**
+     * Returns the gate through which the messages of the journal are dispatched. Monitors that
+     * share the journal, e.g. a monitor and its replacement, dispatch through the same gate, so the
+     * journal is read by a single consumer at a time.
+     * @return The {@link CoalescingGate} of the journal.
+     */
+    CoalescingGate<Void> getDispatchGate();
+
+    /**
+     * Closes the journal. Messages can no longer be appended once the journal is closed. Messages
+     * that were not committed remain stored and are read again when the journal is reopened.
+     */
+    void close();
+}
@@ -33,4 +33,16 @@ public interface MessageParser {
      * @return The collection of {@link Event} items contained in the message.
      */
     List<Event> parseMessage(Message message);
+
+    /**
+     * Returns the identifier of the SCM event represented by the specified events, which were
+     * parsed from a single message. Messages that represent the same event, or the same part of an
+     * event that was split into several parts, have the same identifier, even if they were
+     * delivered separately.
+     * @param events The collection of {@link Event}s parsed from a message by
+     * {@link #parseMessage(Message)}.
+     * @return The identifier of the event contained in the message, or {@code null} if the message
+     * does not contain an event that can be identified.
+     */
+    String getEventId(List<Event> events);
 }
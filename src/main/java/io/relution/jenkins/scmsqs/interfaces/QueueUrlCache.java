@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+
+/**
+ * Interface definition for classes that cache the URLs of queues that were configured by name.
+ * Resolved URLs are persisted, so that they remain available across reconfigurations and restarts
+ * without resolving them again.
+ */
+public interface QueueUrlCache {
+
+    /**
+     * Returns the URL of the specified queue. A cached URL is returned immediately; if it has not
+     * been verified recently, it is resolved again in the background. The URL is resolved by the
+     * calling thread only if it was never resolved before.
+     * @param queue The {@link SQSQueue} for which to return the URL.
+     * @return The URL of the specified queue.
+     * @throws com.amazonaws.AmazonClientException The URL is not cached and could not be resolved.
+     */
+    String getUrl(SQSQueue queue);
+
+    /**
+     * Returns the URL of the specified queue if it is cached. The URL is never resolved by the
+     * calling thread; if it is not cached or has not been verified recently, it is resolved in the
+     * background.
+     * @param queue The {@link SQSQueue} for which to return the URL.
+     * @return The cached URL of the specified queue, or {@code null} if the URL is not cached.
+     */
+    String getCachedUrl(SQSQueue queue);
+
+    /**
+     * Resolves the URL of the specified queue in the background, if it is not cached yet.
+     * @param queue The {@link SQSQueue} for which to resolve the URL.
+     */
+    void prefetch(SQSQueue queue);
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+/**
+ * Interface definition for classes that limit the rate at which operations associated with a key
+ * are performed. Callers that exceed the rate are delayed rather than rejected.
+ */
+public interface RateLimiter {
+
+    /**
+     * Reserves a permit for the specified key without blocking. The caller must defer the operation
+     * by the returned delay, e.g. by scheduling it for later execution.
+     * @param key The key for which to reserve a permit, e.g. the host and path of a repository.
+     * @return The time, in milliseconds, until the reserved permit becomes available, or {@code 0}
+     * if the operation can be performed immediately.
+     */
+    long reserve(String key);
+
+    /**
+     * Sets the rate at which permits are issued for each key.
+     * @param permitsPerMinute The number of permits issued per minute and key, or {@code 0} to
+     * disable rate limiting.
+     * @param burst The maximum number of permits that can be acquired without delay after a key has
+     * been idle.
+     */
+    void setRate(int permitsPerMinute, int burst);
+}
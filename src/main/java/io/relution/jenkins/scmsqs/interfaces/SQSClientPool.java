@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+
+
+/**
+ * Interface definition for classes that share Amazon SQS clients between queues. Queues that use
+ * the same credentials, endpoint and client settings share a client, and with it its connection
+ * pool.
+ * <p>
+ * Clients are reference counted: each call to {@link #acquire(SQSQueue)} must be matched by a
+ * call to {@link #release(AmazonSQS)}. A client is shut down when it is released by its last user.
+ */
+public interface SQSClientPool {
+
+    /**
+     * Returns a client that can be used to access the specified queue. The client is created if no
+     * client exists for the credentials, endpoint and client settings of the queue.
+     * @param queue The {@link SQSQueue} for which to return a client.
+     * @return An {@link AmazonSQS} client suitable for synchronous access to the specified queue.
+     */
+    AmazonSQS acquire(SQSQueue queue);
+
+    /**
+     * Releases a client that was previously returned by {@link #acquire(SQSQueue)}. The client
+     * must not be used by the caller after it was released.
+     * @param client The {@link AmazonSQS} client to release.
+     */
+    void release(AmazonSQS client);
+
+    /**
+     * Returns a value indicating whether a client returned by {@link #acquire(SQSQueue)} still
+     * matches the credentials, endpoint and client settings the pool would use for the specified
+     * queue. A client becomes outdated when the global client settings change after it was created.
+     * @param client The {@link AmazonSQS} client to check.
+     * @param queue The {@link SQSQueue} the client is used to access.
+     * @return {@code true} if the client can continue to be used for the specified queue;
+     * otherwise, {@code false}.
+     */
+    boolean isCurrent(AmazonSQS client, SQSQueue queue);
+
+    /**
+     * Returns the number of clients that are currently in use.
+     * @return The number of clients in the pool.
+     */
+    int size();
+}
@@ -35,7 +35,8 @@ public interface SQSFactory {
      * Returns a new Amazon SQS instance that can be used to access the specified queue.
      * @param queue The {@link SQSQueue} for which to create a client.
      * @return A new instance of an {@link AmazonSQS} that is suitable for synchronous access to
-     * the specified queue.
+     * the specified queue. The credentials provider used by the client is released when the client
+     * is shut down.
      */
     AmazonSQS createSQS(final SQSQueue queue);
 
@@ -49,6 +50,9 @@ public interface SQSFactory {
 
     /**
      * Returns a new channel instance that can be used to communicate with the specified queue.
+     * <p>
+     * The channel uses a client shared with other queues that have the same credentials and
+     * endpoint. It must be closed when it is no longer used, see {@link SQSChannel#close()}.
      * @param queue The {@link SQSQueue} for which to create the channel.
      * @return A new {@link SQSChannel} for the specified queue.
      */
@@ -75,4 +79,11 @@ public interface SQSFactory {
      * that has the same listeners as the specified monitor.
      */
     SQSQueueMonitor createMonitor(final SQSQueueMonitor monitor, final SQSQueue queue);
+
+    /**
+     * Releases the resources held for the specified queue, e.g. its journal and statistics. This
+     * should be used once the configuration of the queue was removed and its monitor stopped.
+     * @param queue The {@link SQSQueue} whose resources to release.
+     */
+    void release(final SQSQueue queue);
 }
@@ -16,14 +16,12 @@
 
 package io.relution.jenkins.scmsqs.interfaces;
 
-import com.amazonaws.auth.AWSCredentials;
-
 
 /**
  * Interface definition for classes that represent the necessary configuration that is required to
  * access an Amazon SQS queue.
  */
-public interface SQSQueue extends AWSCredentials {
+public interface SQSQueue {
 
     /**
      * Returns the identifier used to uniquely identify the queue configuration.
@@ -37,6 +35,14 @@ public interface SQSQueue extends AWSCredentials {
      */
     String getUrl();
 
+    /**
+     * Returns the URL of the queue if it is known without a network request, i.e. if it was
+     * configured or resolved before; otherwise, returns the name of the queue. This can be used to
+     * compare configurations without waiting for the URL of a queue to be resolved.
+     * @return The URL or the name of a queue.
+     */
+    String getAddress();
+
     /**
      * Returns the name of the queue the configuration is associated with.
      * @return The name of a queue.
@@ -49,6 +55,42 @@ public interface SQSQueue extends AWSCredentials {
      */
     String getEndpoint();
 
+    /**
+     * Returns the static AWS access key ID used to access the queue.
+     * @return The AWS access key ID, or {@code null} if the credentials are not defined by a static
+     * access key.
+     */
+    String getAWSAccessKeyId();
+
+    /**
+     * Returns the static AWS secret key used to access the queue.
+     * @return The AWS secret key, or {@code null} if the credentials are not defined by a static
+     * access key.
+     */
+    String getAWSSecretKey();
+
+    /**
+     * Returns the identifier of the Jenkins credentials used to access the queue. The user name of
+     * the credentials is the AWS access key ID, the password is the AWS secret key.
+     * @return The identifier of the Jenkins credentials, or {@code null} if the queue does not use
+     * Jenkins credentials.
+     */
+    String getCredentialsId();
+
+    /**
+     * Returns the ARN of the IAM role to assume before accessing the queue. The role is assumed
+     * using the static access key or Jenkins credentials of the queue, or the instance profile if
+     * neither is defined.
+     * @return The ARN of an IAM role, or {@code null} if no role should be assumed.
+     */
+    String getRoleArn();
+
+    /**
+     * Returns the external ID to pass when assuming the role of the queue.
+     * @return The external ID, or {@code null} if the role does not require an external ID.
+     */
+    String getExternalId();
+
     /**
      * Returns the time, in seconds, requests should wait for new messages to arrive in the queue.
      * @return The wait time, in seconds, before a receive message request should time out.
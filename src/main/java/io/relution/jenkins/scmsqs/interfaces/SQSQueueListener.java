@@ -16,14 +16,14 @@
 
 package io.relution.jenkins.scmsqs.interfaces;
 
-import com.amazonaws.services.sqs.model.Message;
-
 import java.util.List;
 
+import io.relution.jenkins.scmsqs.model.EventDispatch;
+
 
 /**
- * Interface definition for classes that listen for {@link Message}s that are returned by a request
- * to an Amazon SQS queue.
+ * Interface definition for classes that listen for the {@link Event}s contained in messages that are
+ * returned by a request to an Amazon SQS queue.
  */
 public interface SQSQueueListener {
 
@@ -35,9 +35,12 @@ public interface SQSQueueListener {
     String getQueueUuid();
 
     /**
-     * The method to be invoked when new messages arrive in the SQS queue this listener is
-     * associated with.
-     * @param messages The collection of {@link Message} instances that were posted to the queue.
+     * The method to be invoked when new events arrive in the SQS queue this listener is associated
+     * with. Events are reassembled and coalesced before they are passed to the listeners of a queue,
+     * so all listeners receive the same events.
+     * @param events The collection of {@link Event}s contained in the messages posted to the queue.
+     * @return The {@link EventDispatch} that describes how the listener handled the events, which
+     * the monitor of the queue uses to record the statistics of the queue.
      */
-    void handleMessages(List<Message> messages);
+    EventDispatch handleEvents(List<Event> events);
 }
@@ -18,6 +18,9 @@ package io.relution.jenkins.scmsqs.interfaces;
 
 import com.amazonaws.services.sqs.model.Message;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import io.relution.jenkins.scmsqs.net.SQSChannel;
 
 
@@ -29,7 +32,8 @@ public interface SQSQueueMonitor extends Runnable {
 
     /**
      * Returns a new instance for the specified queue and channel that has the same listeners as
-     * this instance.
+     * this instance. The new instance has its own copy of the listeners, so listeners added to or
+     * removed from one instance are not added to or removed from the other.
      * @param queue The {@link SQSQueue} to monitor.
      * @param channel The {@link SQSChannel} used to access the queue.
      * @return A new {@link SQSQueueMonitor} instance.
@@ -43,12 +47,13 @@ public interface SQSQueueMonitor extends Runnable {
      * <b>Note:</b> If a new listener is registered with a monitor that is already processing
      * received messages the listener may not be notified until the next time new messages arrive
      * in the queue.
+     * <p>
+     * The listener may be associated with a queue configuration other than the one of the monitor,
+     * as long as both configurations refer to the same queue.
      * @param listener The {@link SQSQueueListener} to register with the monitor.
      * @return {@code true} if the call caused monitoring to be started (i.e. the first listener was
      * registered); otherwise, {@code false}.
      * @throws IllegalArgumentException The specified listener is {@code null}
-     * @throws IllegalArgumentException The specified listener is associated with a different
-     * queue.
      */
     boolean add(SQSQueueListener listener);
 
@@ -61,14 +66,70 @@ public interface SQSQueueMonitor extends Runnable {
      */
     boolean remove(SQSQueueListener listener);
 
+    /**
+     * Returns the listeners registered with the monitor.
+     * @return A snapshot of the collection of {@link SQSQueueListener}s registered with the
+     * monitor.
+     */
+    List<SQSQueueListener> getListeners();
+
     /**
      * Stops the monitor.
      * <p>
      * Prevents the monitor from making any further requests to the associated queue. Requests that
-     * are already in flight may not necessarily be cancelled.
+     * are already in flight may not necessarily be cancelled. Messages received by a request that
+     * completes after the monitor was stopped are released back to the queue.
      */
     void shutDown();
 
+    /**
+     * Stops the monitor gracefully.
+     * <p>
+     * Prevents the monitor from making any further requests to the associated queue. Messages
+     * received by a request that is already in flight are still handed off to the listeners if the
+     * request completes before the specified timeout expires. Messages that cannot be handed off
+     * are released back to the queue, so they can be redelivered immediately.
+     * <p>
+     * This method does not block, use {@link #awaitTermination(long, TimeUnit)} to wait for the
+     * monitor to stop.
+     * @param timeout The maximum time to hand off messages received by a request in flight.
+     * @param unit The unit of the timeout argument.
+     */
+    void drain(long timeout, TimeUnit unit);
+
+    /**
+     * Stops holding back events of received messages, e.g. to coalesce events for the same branch,
+     * and discards the events that are held back. The messages of the discarded events were not
+     * deleted yet; they are released back to the queue, so they can be redelivered immediately.
+     * Events of messages received afterwards are handed off without delay.
+     * <p>
+     * This must be called before a monitor that holds back events is discarded, unless the monitor
+     * was replaced by a {@link #clone(SQSQueue, SQSChannel) clone}, which takes over the events.
+     */
+    void flush();
+
+    /**
+     * Applies the request parameters of the specified configuration to the running monitor,
+     * without interrupting it. A request in flight completes with the previous parameters, the
+     * next request uses the new parameters.
+     * <p>
+     * The configuration must refer to the same queue, endpoint and credentials as the current
+     * configuration of the monitor, see {@link io.relution.jenkins.scmsqs.model.QueueChange}.
+     * @param queue The new {@link SQSQueue} configuration.
+     */
+    void reconfigure(SQSQueue queue);
+
+    /**
+     * Blocks until the monitor has no request in flight, or the specified timeout expires,
+     * whichever happens first.
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout argument.
+     * @return {@code true} if the monitor has no request in flight; {@code false} if the timeout
+     * expired first.
+     * @throws InterruptedException The current thread was interrupted while waiting.
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+
     /**
      * Returns a value indicating whether the monitor is stopped.
      * @return {@code true} if the monitor is stopped; otherwise, {@code false}.
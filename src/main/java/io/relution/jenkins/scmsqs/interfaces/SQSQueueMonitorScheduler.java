@@ -18,6 +18,9 @@ package io.relution.jenkins.scmsqs.interfaces;
 
 import com.google.common.eventbus.Subscribe;
 
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
 import io.relution.jenkins.scmsqs.model.events.ConfigurationChangedEvent;
 
 
@@ -40,6 +43,20 @@ public interface SQSQueueMonitorScheduler {
      */
     boolean register(SQSQueueListener listener);
 
+    /**
+     * Registers the specified listeners with the scheduler. Listeners are grouped by the queue
+     * they are associated with, and the monitors for all queues are created in parallel.
+     * <p>
+     * This is intended to register all listeners at once after startup; listeners that are
+     * added later should be registered with {@link #register(SQSQueueListener)}.
+     * @param listeners The collection of {@link SQSQueueListener}s to be registered.
+     * @return The number of listeners that were registered. Listeners for which no queue
+     * configuration could be found are not registered.
+     * @throws InterruptedException The current thread was interrupted while waiting for the
+     * registration to complete.
+     */
+    int registerAll(Collection<? extends SQSQueueListener> listeners) throws InterruptedException;
+
     /**
      * Unregisters the specified listener from the scheduler. The listener will no longer
      * be notified of new messages.
@@ -56,4 +73,22 @@ public interface SQSQueueMonitorScheduler {
      */
     @Subscribe
     void onConfigurationChanged(ConfigurationChangedEvent event);
+
+    /**
+     * Flushes all monitors, so that messages whose events are held back are released back to their
+     * queues instead of being lost when Jenkins shuts down, see {@link SQSQueueMonitor#flush()}.
+     */
+    void flush();
+
+    /**
+     * Stops all monitors and waits for them to stop. Messages received by requests that are in
+     * flight are not handed off to the listeners, but released back to their queues, so they can be
+     * redelivered immediately.
+     * @param timeout The maximum time to wait for the monitors to stop.
+     * @param unit The unit of the timeout argument.
+     * @return {@code true} if all monitors stopped before the timeout expired; otherwise,
+     * {@code false}.
+     * @throws InterruptedException The current thread was interrupted while waiting.
+     */
+    boolean shutDown(long timeout, TimeUnit unit) throws InterruptedException;
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+import java.util.Map;
+
+import hudson.ProxyConfiguration;
+import io.relution.jenkins.scmsqs.threading.ExecutorRole;
+
+
+/**
+ * Interface definition for classes that provide access to the global settings of the plugin.
+ */
+public interface SettingsProvider {
+
+    /**
+     * Returns the maximum number of SCM polls that may be executed concurrently.
+     * @return The maximum number of concurrent SCM polls.
+     */
+    int getMaxConcurrentPolls();
+
+    /**
+     * Returns the maximum number of SCM polls per minute that may be triggered for a single
+     * repository.
+     * @return The maximum number of SCM polls per minute and repository, or {@code 0} if the rate
+     * of SCM polls is not limited.
+     */
+    int getMaxPollsPerMinute();
+
+    /**
+     * Returns the number of SCM polls that may be triggered for a single repository without delay
+     * after the repository has been idle.
+     * @return The maximum burst size of SCM polls per repository.
+     */
+    int getPollBurst();
+
+    /**
+     * Returns the time window within which events for the same repository and branch are collapsed
+     * into a single event.
+     * @return The coalescing window, in seconds, or {@code 0} if events are not coalesced.
+     */
+    int getCoalesceWindowSeconds();
+
+    /**
+     * Returns a value indicating whether received messages are stored in a local journal, so that
+     * they can be deleted from the queue before they are dispatched.
+     * @return {@code true} if received messages are journaled; otherwise, {@code false}.
+     */
+    boolean isJournalEnabled();
+
+    /**
+     * Returns the number of days for which received messages are retained, so that the events they
+     * contain can be replayed.
+     * @return The retention period, in days, or {@code 0} if messages are not retained.
+     */
+    int getEventRetentionDays();
+
+    /**
+     * Returns the number of threads kept in the pool used for the specified role, even if they
+     * are idle.
+     * @param role The {@link ExecutorRole} of the pool.
+     * @return The core number of threads.
+     */
+    int getCorePoolSize(ExecutorRole role);
+
+    /**
+     * Returns the maximum number of threads of the pool used for the specified role. Threads in
+     * excess of the core number of threads are started only once the work queue of the pool is
+     * full.
+     * @param role The {@link ExecutorRole} of the pool.
+     * @return The maximum number of threads.
+     */
+    int getMaximumPoolSize(ExecutorRole role);
+
+    /**
+     * Returns the maximum number of tasks waiting for execution in each pool. Tasks submitted to a
+     * pool whose work queue is full are deferred.
+     * @return The capacity of the work queue of each pool.
+     */
+    int getExecutorQueueSize();
+
+    /**
+     * Returns a value indicating whether messages are received and dispatched on virtual threads,
+     * if the Java runtime supports them.
+     * @return {@code true} if virtual threads are used where available; otherwise, {@code false}.
+     */
+    boolean isVirtualThreadsEnabled();
+
+    /**
+     * Returns the maximum number of open HTTP connections of each SQS client.
+     * @return The maximum number of connections per client.
+     */
+    int getMaxConnections();
+
+    /**
+     * Returns the time to wait for a connection to be established before giving up.
+     * @return The connection timeout, in seconds.
+     */
+    int getConnectionTimeoutSeconds();
+
+    /**
+     * Returns the time to wait for data on an established connection before giving up. Always
+     * exceeds the maximum wait time of a long poll request.
+     * @return The socket timeout, in seconds.
+     */
+    int getSocketTimeoutSeconds();
+
+    /**
+     * Returns the time after which a pooled connection is closed, even if it is still usable.
+     * @return The time to live of a connection, in seconds, or {@code 0} if connections are kept
+     * open until they become unusable.
+     */
+    int getConnectionTtlSeconds();
+
+    /**
+     * Returns the maximum number of times a failed request that can be retried is retried.
+     * @return The maximum number of retries per request.
+     */
+    int getMaxErrorRetry();
+
+    /**
+     * Returns a value indicating whether TCP keep-alive is enabled on client connections.
+     * @return {@code true} if TCP keep-alive is enabled; otherwise, {@code false}.
+     */
+    boolean isTcpKeepAlive();
+
+    /**
+     * Returns a value indicating whether responses are requested with gzip compression.
+     * @return {@code true} if gzip compression is enabled; otherwise, {@code false}.
+     */
+    boolean isGzipEnabled();
+
+    /**
+     * Returns the HTTP proxy configured for Jenkins.
+     * @return The {@link ProxyConfiguration} of Jenkins, or {@code null} if no proxy is configured.
+     */
+    ProxyConfiguration getProxy();
+
+    /**
+     * Returns the persisted URLs of queues that were configured by name.
+     * @return A map of queue keys to queue URLs, as saved by {@link #saveQueueUrls(Map)}.
+     */
+    Map<String, String> getQueueUrls();
+
+    /**
+     * Persists the URLs of queues that were configured by name.
+     * @param urls A map of queue keys to queue URLs.
+     */
+    void saveQueueUrls(Map<String, String> urls);
+}
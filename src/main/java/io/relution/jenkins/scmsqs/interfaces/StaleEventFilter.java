@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+import java.util.List;
+
+
+/**
+ * Interface definition for classes that remove events from a list of events that have already been
+ * covered by a previous SCM poll or build of a job.
+ */
+public interface StaleEventFilter {
+
+    /**
+     * Returns the events from the specified list that were raised after the specified time.
+     * @param events The collection of {@link Event}s to filter.
+     * @param coveredSince The time, in milliseconds since the epoch, up to which changes have
+     * already been picked up by the job, or {@code 0} if unknown.
+     * @return The collection of {@link Event}s that are not stale. Events without a time stamp are
+     * never considered stale.
+     */
+    List<Event> getFresh(List<Event> events, long coveredSince);
+}
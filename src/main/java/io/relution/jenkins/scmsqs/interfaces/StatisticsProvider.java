@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.interfaces;
+
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.metrics.QueueStatistics;
+
+
+/**
+ * Interface definition for classes that keep track of statistics about the messages received from
+ * Amazon SQS queues.
+ */
+public interface StatisticsProvider {
+
+    /**
+     * Returns the statistics of the queue with the specified identifier.
+     * @param queueUuid The unique identifier of the queue.
+     * @return The {@link QueueStatistics} of the queue. If no statistics have been recorded for the
+     * queue yet, a new instance is created.
+     */
+    QueueStatistics getQueueStatistics(String queueUuid);
+
+    /**
+     * Returns the statistics of all queues for which statistics have been recorded.
+     * @return The collection of {@link QueueStatistics} of all queues.
+     */
+    List<QueueStatistics> getAllQueueStatistics();
+
+    /**
+     * Removes the statistics of the queue with the specified identifier. This should be used once
+     * the configuration of the queue was removed.
+     * @param queueUuid The unique identifier of the queue.
+     */
+    void remove(String queueUuid);
+}
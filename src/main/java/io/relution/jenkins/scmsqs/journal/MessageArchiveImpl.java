@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.journal;
+
+import com.amazonaws.services.sqs.model.Message;
+import com.google.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.MessageArchive;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.model.constants.AttributeName;
+import io.relution.jenkins.scmsqs.util.Timestamps;
+import jenkins.model.Jenkins;
+
+
+/**
+ * A {@link MessageArchive} that stores messages in one file per queue and hour. Files older than
+ * the configured retention period are deleted when messages are added.
+ */
+public class MessageArchiveImpl implements MessageArchive {
+
+    private static final String     DIRECTORY = "sqs-archive";
+    private static final String     SUFFIX    = ".seg";
+
+    private static final long       HOUR      = TimeUnit.HOURS.toMillis(1);
+
+    private static final FileFilter FILTER    = new FileFilter() {
+
+        @Override
+        public boolean accept(final File file) {
+            return file.isFile() && file.getName().endsWith(SUFFIX);
+        }
+    };
+
+    private final File              directory;
+    private final SettingsProvider  settings;
+
+    private long                    prunedAt;
+
+    @Inject
+    public MessageArchiveImpl(final SettingsProvider settings) {
+        this(new File(Jenkins.getInstance().getRootDir(), DIRECTORY), settings);
+    }
+
+    MessageArchiveImpl(final File directory, final SettingsProvider settings) {
+        this.directory = directory;
+        this.settings = settings;
+    }
+
+    @Override
+    public synchronized void append(final String queueUuid, final List<Message> messages) {
+        final int retentionDays = this.settings.getEventRetentionDays();
+
+        if (retentionDays <= 0 || messages.isEmpty()) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        final File queueDirectory = new File(this.directory, queueUuid);
+
+        try {
+            if (!queueDirectory.isDirectory() && !queueDirectory.mkdirs()) {
+                throw new IOException("Failed to create directory " + queueDirectory);
+            }
+
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+            for (final Message message : messages) {
+                MessageRecords.write(buffer, message);
+            }
+
+            MessageRecords.append(this.getFile(queueDirectory, now - now % HOUR), buffer.toByteArray());
+
+        } catch (final IOException e) {
+            Log.warning("Failed to archive %d message(s) of {%s}: %s", messages.size(), queueUuid, e);
+
+        }
+
+        if (now - this.prunedAt >= HOUR) {
+            this.prune(now - TimeUnit.DAYS.toMillis(retentionDays));
+            this.prunedAt = now;
+        }
+    }
+
+    @Override
+    public synchronized List<Message> find(final String queueUuid, final long from, final long to) {
+        final File[] files = new File(this.directory, queueUuid).listFiles(FILTER);
+
+        if (files == null || files.length == 0) {
+            return Collections.emptyList();
+        }
+
+        Arrays.sort(files);
+        final List<Message> messages = new ArrayList<>();
+
+        for (final File file : files) {
+            final long hour = this.getHour(file);
+
+            // Messages are sent before they are received, so a file written before the start of
+            // the range cannot contain messages sent within the range
+            if (hour + HOUR <= from) {
+                continue;
+            }
+
+            this.read(file, hour, from, to, messages);
+        }
+
+        return messages;
+    }
+
+    private void read(final File file, final long hour, final long from, final long to, final List<Message> messages) {
+        final List<Message> records = new ArrayList<>();
+
+        try {
+            MessageRecords.read(file, 0, Integer.MAX_VALUE, records);
+
+        } catch (final IOException e) {
+            Log.warning("Failed to read archive %s: %s", file, e);
+
+        }
+
+        for (final Message message : records) {
+            final long timestamp = this.getTimestamp(message, hour);
+
+            if (timestamp >= from && timestamp <= to) {
+                messages.add(message);
+            }
+        }
+    }
+
+    private void prune(final long threshold) {
+        final File[] queueDirectories = this.directory.listFiles();
+
+        if (queueDirectories == null) {
+            return;
+        }
+
+        for (final File queueDirectory : queueDirectories) {
+            final File[] files = queueDirectory.listFiles(FILTER);
+
+            if (files == null) {
+                continue;
+            }
+
+            for (final File file : files) {
+                if (this.getHour(file) + HOUR < threshold && !file.delete()) {
+                    Log.warning("Failed to delete expired archive %s", file);
+                }
+            }
+        }
+    }
+
+    private long getTimestamp(final Message message, final long fallback) {
+        if (message.getAttributes() == null) {
+            return fallback;
+        }
+
+        final long timestamp = Timestamps.parseMillis(message.getAttributes().get(AttributeName.SENT_TIMESTAMP));
+        return timestamp > 0 ? timestamp : fallback;
+    }
+
+    private File getFile(final File queueDirectory, final long hour) {
+        return new File(queueDirectory, String.format("%020d%s", hour, SUFFIX));
+    }
+
+    private long getHour(final File file) {
+        return Timestamps.parseMillis(StringUtils.removeEnd(file.getName(), SUFFIX));
+    }
+}
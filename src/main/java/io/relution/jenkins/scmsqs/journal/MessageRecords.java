@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.journal;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+
+/**
+ * Encodes and decodes {@link Message}s stored in journal and archive files.
+ * <p>
+ * Each message is stored as a record that consists of the length of its payload, a CRC32 checksum
+ * of the payload and the payload itself. The payload contains the message identifier, the body and
+ * the attributes of the message.
+ */
+final class MessageRecords {
+
+    public static final Charset CHARSET         = Charset.forName("UTF-8");
+
+    private static final int    MAX_RECORD_SIZE = 1024 * 1024;
+    private static final int    HEADER_SIZE     = 8;
+
+    private MessageRecords() {
+    }
+
+    /**
+     * Appends the specified bytes to the specified file and forces them to the storage device.
+     * @param file The file to append to. The file is created if it does not exist.
+     * @param bytes The bytes to append.
+     * @throws IOException The bytes could not be written.
+     */
+    public static void append(final File file, final byte[] bytes) throws IOException {
+        try (final FileChannel channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Encodes the specified message as a record and writes it to the specified buffer.
+     * @param buffer The buffer to write to.
+     * @param message The {@link Message} to write.
+     * @throws IOException The message exceeds the maximum record size.
+     */
+    public static void write(final ByteArrayOutputStream buffer, final Message message) throws IOException {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+
+        try (final DataOutputStream out = new DataOutputStream(payload)) {
+            writeString(out, message.getMessageId());
+            writeString(out, message.getBody());
+
+            final Map<String, String> attributes = message.getAttributes();
+            final int count = attributes != null ? attributes.size() : 0;
+            out.writeInt(count);
+
+            if (attributes != null) {
+                for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+                    writeString(out, attribute.getKey());
+                    writeString(out, attribute.getValue());
+                }
+            }
+        }
+
+        final byte[] bytes = payload.toByteArray();
+
+        if (bytes.length > MAX_RECORD_SIZE) {
+            throw new IOException("Message " + message.getMessageId() + " exceeds maximum record size");
+        }
+
+        final DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(bytes.length);
+        out.writeInt(checksum(bytes));
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static Message readMessage(final byte[] payload) throws IOException {
+        try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            final Message message = new Message();
+            message.setMessageId(readString(in));
+            message.setBody(readString(in));
+
+            final int count = in.readInt();
+            final Map<String, String> attributes = new HashMap<>(count);
+
+            for (int i = 0; i < count; i++) {
+                attributes.put(readString(in), readString(in));
+            }
+
+            message.setAttributes(attributes);
+            return message;
+
+        } catch (final EOFException e) {
+            throw new IOException("Corrupt record", e);
+
+        }
+    }
+
+    /**
+     * Reads records from the specified file, starting at the specified position. Reading stops at
+     * the end of the file or at the first record that is incomplete or corrupt.
+     * @param segment The file to read.
+     * @param position The position of the first record to read.
+     * @param maxCount The maximum number of records to read.
+     * @param messages The collection to which the {@link Message}s read are added.
+     * @return The position after the last valid record read.
+     * @throws IOException The file could not be read.
+     */
+    public static long read(final File segment, final long position, final int maxCount, final List<Message> messages) throws IOException {
+        long current = position;
+
+        try (final RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+            final long size = file.length();
+            file.seek(position);
+
+            int count = 0;
+
+            while (count < maxCount && current + HEADER_SIZE <= size) {
+                final int length = file.readInt();
+                final int checksum = file.readInt();
+
+                if (length < 0 || length > MAX_RECORD_SIZE || current + HEADER_SIZE + length > size) {
+                    break;
+                }
+
+                final byte[] payload = new byte[length];
+                file.readFully(payload);
+
+                if (checksum(payload) != checksum) {
+                    break;
+                }
+
+                messages.add(readMessage(payload));
+                current += HEADER_SIZE + length;
+                count++;
+            }
+        }
+
+        return current;
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        final byte[] bytes = value.getBytes(CHARSET);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    private static int checksum(final byte[] bytes) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.journal;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.relution.jenkins.scmsqs.interfaces.MessageJournal;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.threading.CoalescingGate;
+
+
+/**
+ * A {@link MessageJournal} that stores messages in a directory of append-only segment files.
+ * <p>
+ * Each message is stored as a record, see {@link MessageRecords}. A position in the journal is a
+ * logical offset; each segment file is named after the offset of its first record. The position of
+ * the consumer is stored in a checkpoint file. Segments that have been consumed completely are
+ * deleted on commit.
+ * <p>
+ * A record that was only partially written, e.g. because the process was terminated, is detected
+ * by its length or checksum and truncated when the journal is opened.
+ */
+public class SegmentedMessageJournal implements MessageJournal {
+
+    private static final String        SEGMENT_SUFFIX   = ".seg";
+    private static final String        CHECKPOINT       = "checkpoint";
+
+    private static final long          MAX_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    private static final FileFilter    SEGMENT_FILTER   = new FileFilter() {
+
+        @Override
+        public boolean accept(final File file) {
+            return file.isFile() && file.getName().endsWith(SEGMENT_SUFFIX);
+        }
+    };
+
+    private final File                 directory;
+    private final CoalescingGate<Void> dispatchGate     = new CoalescingGate<>();
+
+    /**
+     * The segments of the journal, keyed by the offset of their first record.
+     */
+    private final TreeMap<Long, File>  segments         = new TreeMap<>();
+
+    private long                       endOffset;
+    private long                       readOffset;
+    private long                       committedOffset;
+    private boolean                    isClosed;
+
+    /**
+     * Opens the journal in the specified directory. The directory is created when the first
+     * message is appended, so no directory is created for a queue whose messages are not journaled.
+     * @param directory The directory that contains the segments of the journal.
+     * @throws IOException The journal could not be opened.
+     */
+    public SegmentedMessageJournal(final File directory) throws IOException {
+        this.directory = directory;
+        this.open();
+    }
+
+    @Override
+    public synchronized void append(final List<Message> messages) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        if (this.isClosed) {
+            throw new IOException("Journal " + this.directory + " is closed");
+        }
+
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IOException("Failed to create directory " + this.directory);
+        }
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        for (final Message message : messages) {
+            MessageRecords.write(buffer, message);
+        }
+
+        if (this.segments.isEmpty() || this.getSize(this.segments.lastEntry().getValue()) >= MAX_SEGMENT_SIZE) {
+            this.segments.put(this.endOffset, this.getSegmentFile(this.endOffset));
+        }
+
+        final File segment = this.segments.lastEntry().getValue();
+        MessageRecords.append(segment, buffer.toByteArray());
+
+        this.endOffset += buffer.size();
+    }
+
+    @Override
+    public synchronized List<Message> read(final int maxCount) throws IOException {
+        if (this.readOffset >= this.endOffset) {
+            return Collections.emptyList();
+        }
+
+        final List<Message> messages = new ArrayList<>();
+
+        while (messages.size() < maxCount && this.readOffset < this.endOffset) {
+            final Map.Entry<Long, File> segment = this.segments.floorEntry(this.readOffset);
+
+            if (segment == null) {
+                Log.warning("No segment for offset %d in %s, skipped", this.readOffset, this.directory);
+                this.readOffset = this.endOffset;
+                break;
+            }
+
+            final long position = this.readOffset - segment.getKey();
+            final long next = MessageRecords.read(segment.getValue(), position, maxCount - messages.size(), messages);
+            this.readOffset = segment.getKey() + next;
+
+            if (next == position && messages.size() < maxCount) {
+                Log.warning("Invalid record at %d in %s, skipped remainder of segment", next, segment.getValue());
+            }
+
+            if (next >= this.getSize(segment.getValue()) || (next == position && messages.size() < maxCount)) {
+                final Long nextKey = this.segments.higherKey(segment.getKey());
+                this.readOffset = nextKey != null ? nextKey : this.endOffset;
+            }
+        }
+
+        return messages;
+    }
+
+    @Override
+    public synchronized void commit() throws IOException {
+        if (this.committedOffset == this.readOffset) {
+            return;
+        }
+
+        final File checkpoint = new File(this.directory, CHECKPOINT);
+        final File temp = new File(this.directory, CHECKPOINT + ".tmp");
+
+        Files.write(temp.toPath(), String.valueOf(this.readOffset).getBytes(MessageRecords.CHARSET));
+        Files.move(temp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        this.committedOffset = this.readOffset;
+        this.deleteConsumedSegments();
+    }
+
+    @Override
+    public synchronized void rollback() {
+        this.readOffset = this.committedOffset;
+    }
+
+    @Override
+    public synchronized boolean hasPending() {
+        return this.readOffset < this.endOffset;
+    }
+
+    @Override
+    public CoalescingGate<Void> getDispatchGate() {
+        return this.dispatchGate;
+    }
+
+    @Override
+    public synchronized void close() {
+        this.isClosed = true;
+    }
+
+    private void open() throws IOException {
+        final File[] files = this.directory.listFiles(SEGMENT_FILTER);
+
+        if (files != null) {
+            for (final File file : files) {
+                final long offset = parseOffset(StringUtils.removeEnd(file.getName(), SEGMENT_SUFFIX));
+                this.segments.put(offset, file);
+            }
+        }
+
+        if (!this.segments.isEmpty()) {
+            final Map.Entry<Long, File> last = this.segments.lastEntry();
+            final long size = this.recover(last.getValue());
+            this.endOffset = last.getKey() + size;
+        }
+
+        final File checkpoint = new File(this.directory, CHECKPOINT);
+
+        if (checkpoint.isFile()) {
+            final String text = new String(Files.readAllBytes(checkpoint.toPath()), MessageRecords.CHARSET);
+            this.committedOffset = Math.min(parseOffset(text), this.endOffset);
+        }
+
+        if (!this.segments.isEmpty()) {
+            this.committedOffset = Math.max(this.committedOffset, this.segments.firstKey());
+        }
+
+        this.readOffset = this.committedOffset;
+        this.deleteConsumedSegments();
+    }
+
+    /**
+     * Validates the records of the specified segment and truncates the segment after the last
+     * valid record.
+     * @return The size of the segment after validation.
+     */
+    private long recover(final File segment) throws IOException {
+        final List<Message> ignored = new ArrayList<>();
+        final long valid = MessageRecords.read(segment, 0, Integer.MAX_VALUE, ignored);
+
+        if (valid < this.getSize(segment)) {
+            Log.warning("Truncated incomplete record at %d in %s", valid, segment);
+
+            try (final RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+                file.setLength(valid);
+            }
+        }
+
+        return valid;
+    }
+
+    private void deleteConsumedSegments() {
+        while (this.segments.size() > 1) {
+            final Map.Entry<Long, File> first = this.segments.firstEntry();
+            final Long nextKey = this.segments.higherKey(first.getKey());
+
+            if (nextKey > this.committedOffset) {
+                break;
+            }
+
+            if (!first.getValue().delete()) {
+                Log.warning("Failed to delete consumed segment %s", first.getValue());
+                break;
+            }
+
+            this.segments.remove(first.getKey());
+        }
+    }
+
+    private File getSegmentFile(final long offset) {
+        return new File(this.directory, String.format("%020d%s", offset, SEGMENT_SUFFIX));
+    }
+
+    private long getSize(final File segment) {
+        return segment.length();
+    }
+
+    private static long parseOffset(final String value) {
+        try {
+            return Long.parseLong(value.trim());
+
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.logging;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import hudson.console.AnnotatedLargeText;
+
+
+/**
+ * A rolling history of the SCM polls that were triggered for a job. Each poll is recorded in its
+ * own file below the job's root directory. Only the most recent entries are retained; older entries
+ * are removed once either the maximum number of entries or the maximum total size is exceeded.
+ * <p>
+ * The log also records the start time of the last completed poll, so it is known after a restart
+ * up to which time changes in the SCM have been picked up by the job.
+ */
+public class ActivityLog {
+
+    private static final String     DIRECTORY      = "sqs-activity";
+    private static final String     LEGACY_FILE    = "sqs-polling.log";
+    private static final String     EXTENSION      = ".log";
+    private static final String     LAST_POLL_FILE = "last-poll";
+
+    private static final int        MAX_ENTRIES    = 25;
+    private static final long       MAX_TOTAL_SIZE = 1024 * 1024;
+
+    private static final FileFilter LOG_FILTER     = new FileFilter() {
+
+        @Override
+        public boolean accept(final File file) {
+            final String name = file.getName();
+            return file.isFile() && name.endsWith(EXTENSION) && isId(StringUtils.removeEnd(name, EXTENSION));
+        }
+    };
+
+    private final File              directory;
+    private final File              legacyFile;
+
+    private volatile String         activeId;
+
+    public ActivityLog(final File rootDir) {
+        this.directory = new File(rootDir, DIRECTORY);
+        this.legacyFile = new File(rootDir, LEGACY_FILE);
+    }
+
+    /**
+     * Creates a new entry. The entry is considered to be in progress until {@link #complete(Entry)}
+     * is called. The log file written by previous versions is removed when the first entry is
+     * created, since its content is superseded by the entries of this log.
+     * @return The new {@link Entry}.
+     * @throws IOException The directory of the activity log could not be created.
+     */
+    public synchronized Entry create() throws IOException {
+        this.createDirectory();
+
+        long timestamp = System.currentTimeMillis();
+
+        while (this.getFile(String.valueOf(timestamp)).exists()) {
+            timestamp++;
+        }
+
+        final String id = String.valueOf(timestamp);
+        this.activeId = id;
+        return new Entry(id);
+    }
+
+    /**
+     * Marks the specified entry as completed and removes entries that exceed the retention limits.
+     * @param entry The {@link Entry} to complete.
+     */
+    public synchronized void complete(final Entry entry) {
+        if (StringUtils.equals(this.activeId, entry.getId())) {
+            this.activeId = null;
+        }
+        this.prune();
+    }
+
+    /**
+     * Returns all retained entries, most recent entry first.
+     * @return The collection of retained {@link Entry} instances.
+     */
+    public List<Entry> getEntries() {
+        final File[] files = this.directory.listFiles(LOG_FILTER);
+
+        if (files == null || files.length == 0) {
+            return Collections.emptyList();
+        }
+
+        final List<Entry> entries = new ArrayList<>(files.length);
+
+        for (final File file : files) {
+            final String id = StringUtils.removeEnd(file.getName(), EXTENSION);
+            entries.add(new Entry(id));
+        }
+
+        Collections.sort(entries, new Comparator<Entry>() {
+
+            @Override
+            public int compare(final Entry a, final Entry b) {
+                return Long.compare(b.getTimestamp(), a.getTimestamp());
+            }
+        });
+
+        return entries;
+    }
+
+    /**
+     * Returns the entry with the specified identifier.
+     * @param id The identifier of the entry to return.
+     * @return The {@link Entry} with the specified identifier, or {@code null} if no such entry
+     * exists.
+     */
+    public Entry getEntry(final String id) {
+        if (!isId(id)) {
+            return null;
+        }
+
+        final Entry entry = new Entry(id);
+
+        if (!entry.getFile().isFile()) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Returns the most recent entry.
+     * @return The most recent {@link Entry}, or {@code null} if no entries exist.
+     */
+    public Entry getLatest() {
+        final List<Entry> entries = this.getEntries();
+
+        if (entries.isEmpty()) {
+            return null;
+        }
+
+        return entries.get(0);
+    }
+
+    /**
+     * Records the start time of a completed poll.
+     * @param timestamp The time, in milliseconds since the epoch, at which the poll was started.
+     * @throws IOException The time could not be written.
+     */
+    public synchronized void setLastPollTime(final long timestamp) throws IOException {
+        this.createDirectory();
+
+        final Path target = new File(this.directory, LAST_POLL_FILE).toPath();
+        final Path temp = new File(this.directory, LAST_POLL_FILE + ".tmp").toPath();
+        Files.write(temp, String.valueOf(timestamp).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the start time of the last completed poll.
+     * @return The time, in milliseconds since the epoch, at which the poll was started, or
+     * {@code 0} if no poll was recorded.
+     */
+    public synchronized long getLastPollTime() {
+        final File file = new File(this.directory, LAST_POLL_FILE);
+
+        if (!file.isFile()) {
+            return 0;
+        }
+
+        try {
+            final String value = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            return Long.parseLong(value.trim());
+
+        } catch (final IOException | NumberFormatException e) {
+            Log.warning("Failed to read time of last poll from %s: %s", file, e.getMessage());
+
+        }
+        return 0;
+    }
+
+    private void createDirectory() throws IOException {
+        if (!this.directory.isDirectory()) {
+            if (!this.directory.mkdirs()) {
+                throw new IOException("Failed to create directory " + this.directory);
+            }
+            this.deleteLegacyFile();
+        }
+    }
+
+    private void deleteLegacyFile() {
+        if (this.legacyFile.isFile() && !this.legacyFile.delete()) {
+            Log.warning("Failed to delete legacy activity log %s", this.legacyFile);
+        }
+    }
+
+    private File getFile(final String id) {
+        return new File(this.directory, id + EXTENSION);
+    }
+
+    private void prune() {
+        final List<Entry> entries = this.getEntries();
+        long totalSize = 0;
+
+        for (int i = 0; i < entries.size(); i++) {
+            final Entry entry = entries.get(i);
+            totalSize += entry.getLength();
+
+            if (i < MAX_ENTRIES && (i == 0 || totalSize <= MAX_TOTAL_SIZE)) {
+                continue;
+            }
+
+            if (!entry.getFile().delete()) {
+                Log.warning("Failed to delete activity log entry %s", entry.getFile());
+            }
+        }
+    }
+
+    private static boolean isId(final String id) {
+        return StringUtils.isNotEmpty(id) && StringUtils.isNumeric(id) && id.length() < 19;
+    }
+
+    /**
+     * An entry of the activity log, representing a single SCM poll.
+     */
+    public final class Entry {
+
+        private final String id;
+
+        private Entry(final String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return this.id;
+        }
+
+        public File getFile() {
+            return ActivityLog.this.getFile(this.id);
+        }
+
+        public long getTimestamp() {
+            return Long.parseLong(this.id);
+        }
+
+        public long getLength() {
+            return this.getFile().length();
+        }
+
+        public String getDisplayName() {
+            final DateFormat formatter = DateFormat.getDateTimeInstance();
+            return formatter.format(new Date(this.getTimestamp()));
+        }
+
+        /**
+         * Returns a value indicating whether the poll represented by this entry has completed.
+         * @return {@code true} if the entry is complete; otherwise, {@code false}.
+         */
+        public boolean isComplete() {
+            return !StringUtils.equals(ActivityLog.this.activeId, this.id);
+        }
+
+        /**
+         * Returns the text of this entry, which supports offset based, progressive rendering.
+         * @return The {@link AnnotatedLargeText} of this entry.
+         */
+        public AnnotatedLargeText<Entry> getLogText() {
+            return new AnnotatedLargeText<>(this.getFile(), Charset.defaultCharset(), this.isComplete(), this);
+        }
+    }
+}
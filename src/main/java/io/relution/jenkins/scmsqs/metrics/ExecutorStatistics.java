@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.metrics;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Provides the metrics of a single thread pool. Gauges are read from the pool when requested, the
+ * number of rejected tasks is cumulative since Jenkins was started.
+ */
+public class ExecutorStatistics {
+
+    private final String             name;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong         rejectedTasks = new AtomicLong();
+
+    /**
+     * Creates a new instance for the specified thread pool.
+     * @param name The name of the thread pool, used for display purposes.
+     * @param executor The {@link ThreadPoolExecutor} to monitor.
+     */
+    public ExecutorStatistics(final String name, final ThreadPoolExecutor executor) {
+        this.name = name;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the name of the thread pool.
+     * @return The name of the thread pool.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the current number of threads in the pool.
+     * @return The number of threads in the pool.
+     */
+    public int getPoolSize() {
+        return this.executor.getPoolSize();
+    }
+
+    /**
+     * Returns the core number of threads of the pool.
+     * @return The core number of threads.
+     */
+    public int getCorePoolSize() {
+        return this.executor.getCorePoolSize();
+    }
+
+    /**
+     * Returns the maximum number of threads of the pool.
+     * @return The maximum number of threads.
+     */
+    public int getMaximumPoolSize() {
+        return this.executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Returns the approximate number of threads that are actively executing tasks.
+     * @return The number of active threads.
+     */
+    public int getActiveCount() {
+        return this.executor.getActiveCount();
+    }
+
+    /**
+     * Returns the number of tasks waiting in the work queue of the pool.
+     * @return The length of the work queue.
+     */
+    public int getQueueLength() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * Returns the approximate number of tasks that have completed execution.
+     * @return The number of completed tasks.
+     */
+    public long getCompletedTasks() {
+        return this.executor.getCompletedTaskCount();
+    }
+
+    /**
+     * Increments the number of tasks that were rejected because the work queue was full.
+     */
+    public void incrementRejectedTasks() {
+        this.rejectedTasks.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of tasks that were rejected because the work queue was full.
+     * @return The number of rejected tasks.
+     */
+    public long getRejectedTasks() {
+        return this.rejectedTasks.get();
+    }
+}
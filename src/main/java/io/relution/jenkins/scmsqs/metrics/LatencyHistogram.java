@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A histogram of durations with a fixed set of buckets. The upper bound of each bucket is twice the
+ * upper bound of the previous bucket, starting at one millisecond. Recording a duration does not
+ * allocate and can be done concurrently; percentiles are therefore approximated by the upper bound
+ * of the bucket they fall into.
+ */
+public class LatencyHistogram {
+
+    private static final int      BUCKET_COUNT = 18;
+
+    private final AtomicLongArray buckets      = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong      count        = new AtomicLong();
+    private final AtomicLong      totalNanos   = new AtomicLong();
+    private final AtomicLong      maxNanos     = new AtomicLong();
+
+    /**
+     * Records the specified duration.
+     * @param nanos The duration to record, in nanoseconds.
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(nanos, 0);
+
+        this.buckets.incrementAndGet(getBucket(value));
+        this.count.incrementAndGet();
+        this.totalNanos.addAndGet(value);
+
+        long max;
+
+        while (value > (max = this.maxNanos.get())) {
+            if (this.maxNanos.compareAndSet(max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of durations that were recorded.
+     * @return The number of recorded durations.
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the mean of the recorded durations.
+     * @return The mean duration, in milliseconds, or {@code 0} if no duration was recorded.
+     */
+    public double getMeanMillis() {
+        final long count = this.count.get();
+
+        if (count == 0) {
+            return 0;
+        }
+        return (double) this.totalNanos.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the longest of the recorded durations.
+     * @return The maximum duration, in milliseconds.
+     */
+    public double getMaxMillis() {
+        return (double) this.maxNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the approximate duration below which the specified percentage of the recorded
+     * durations fall.
+     * @param percentile The percentile to return, in the range from {@code 0} to {@code 100}.
+     * @return The upper bound of the bucket that contains the percentile, in milliseconds, or
+     * {@code 0} if no duration was recorded. The maximum duration is returned for the last bucket.
+     */
+    public long getPercentileMillis(final double percentile) {
+        long total = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += this.buckets.get(i);
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            seen += this.buckets.get(i);
+
+            if (seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get());
+    }
+
+    private static int getBucket(final long nanos) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        final int bucket = 64 - Long.numberOfLeadingZeros(millis);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Holds the counters associated with a single queue. All counters are cumulative since Jenkins was
+ * started and can be updated concurrently. Updating a counter does not allocate, so counters can be
+ * updated for each request sent to the queue.
+ */
+public class QueueStatistics implements QueueStatisticsMBean {
+
+    private static final long      RATE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final AtomicLong       uniqueMessages      = new AtomicLong();
+    private final AtomicLong       duplicateMessages   = new AtomicLong();
+    private final AtomicLong       staleEvents         = new AtomicLong();
+    private final AtomicLong       eventsIn            = new AtomicLong();
+    private final AtomicLong       eventsOut           = new AtomicLong();
+
+    private final AtomicLong       receiveRequests     = new AtomicLong();
+    private final AtomicLong       emptyReceives       = new AtomicLong();
+    private final AtomicLong       receiveErrors       = new AtomicLong();
+    private final AtomicLong       messagesReceived    = new AtomicLong();
+    private final LatencyHistogram receiveLatency      = new LatencyHistogram();
+
+    private final AtomicLong       deletedMessages     = new AtomicLong();
+    private final AtomicLong       deleteFailures      = new AtomicLong();
+    private final AtomicLong       parseErrors         = new AtomicLong();
+    private final AtomicLong       matcherCalls        = new AtomicLong();
+    private final AtomicLong       matcherNanos        = new AtomicLong();
+    private final AtomicLong       dispatchedPolls     = new AtomicLong();
+
+    private final Object           rateLock            = new Object();
+    private long                   rateSampleTime      = System.nanoTime();
+    private long                   rateSampleCount;
+    private double                 messagesPerSecond;
+
+    /**
+     * Increments the number of messages that were passed on to the listeners of the queue.
+     */
+    public void incrementUniqueMessages() {
+        this.uniqueMessages.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of messages that were passed on to the listeners of the queue.
+     * @return The number of unique messages received.
+     */
+    @Override
+    public long getUniqueMessages() {
+        return this.uniqueMessages.get();
+    }
+
+    /**
+     * Increments the number of messages that were dropped because an earlier message contained the
+     * same event.
+     */
+    public void incrementDuplicateMessages() {
+        this.duplicateMessages.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of messages that were dropped because an earlier message contained the
+     * same event.
+     * @return The number of duplicate messages received.
+     */
+    @Override
+    public long getDuplicateMessages() {
+        return this.duplicateMessages.get();
+    }
+
+    /**
+     * Returns the percentage of messages that were dropped as duplicates.
+     * @return The percentage of duplicate messages, in the range from {@code 0} to {@code 100}.
+     */
+    @Override
+    public double getDuplicateRate() {
+        final long duplicates = this.duplicateMessages.get();
+        final long total = duplicates + this.uniqueMessages.get();
+
+        if (total == 0) {
+            return 0;
+        }
+        return 100.0 * duplicates / total;
+    }
+
+    /**
+     * Increments the number of events that were dropped because they were already covered by a
+     * previous SCM poll or build of every job they matched.
+     * @param count The number of events to add.
+     */
+    public void addStaleEvents(final long count) {
+        this.staleEvents.addAndGet(count);
+    }
+
+    /**
+     * Returns the number of events that were dropped because they were already covered by a
+     * previous SCM poll or build.
+     * @return The number of stale events dropped.
+     */
+    @Override
+    public long getStaleEvents() {
+        return this.staleEvents.get();
+    }
+
+    /**
+     * Increments the number of events that entered the coalescing stage of the event pipeline.
+     * @param count The number of events to add.
+     */
+    public void addEventsIn(final long count) {
+        this.eventsIn.addAndGet(count);
+    }
+
+    /**
+     * Returns the number of events that entered the coalescing stage of the event pipeline.
+     * @return The number of events before coalescing.
+     */
+    @Override
+    public long getEventsIn() {
+        return this.eventsIn.get();
+    }
+
+    /**
+     * Increments the number of events that left the coalescing stage of the event pipeline.
+     * @param count The number of events to add.
+     */
+    public void addEventsOut(final long count) {
+        this.eventsOut.addAndGet(count);
+    }
+
+    /**
+     * Returns the number of events that left the coalescing stage of the event pipeline.
+     * @return The number of events after coalescing.
+     */
+    @Override
+    public long getEventsOut() {
+        return this.eventsOut.get();
+    }
+
+    /**
+     * Records a receive message request sent to the queue.
+     * @param nanos The round-trip time of the request, in nanoseconds.
+     * @param messages The number of messages returned by the request.
+     */
+    public void recordReceive(final long nanos, final int messages) {
+        this.receiveRequests.incrementAndGet();
+        this.receiveLatency.record(nanos);
+
+        if (messages == 0) {
+            this.emptyReceives.incrementAndGet();
+        } else {
+            this.messagesReceived.addAndGet(messages);
+        }
+    }
+
+    /**
+     * Increments the number of receive message requests that failed.
+     */
+    public void incrementReceiveErrors() {
+        this.receiveErrors.incrementAndGet();
+    }
+
+    @Override
+    public long getReceiveRequests() {
+        return this.receiveRequests.get();
+    }
+
+    @Override
+    public long getEmptyReceives() {
+        return this.emptyReceives.get();
+    }
+
+    /**
+     * Returns the percentage of receive message requests that returned no messages.
+     * @return The percentage of empty receives, in the range from {@code 0} to {@code 100}.
+     */
+    @Override
+    public double getEmptyReceiveRate() {
+        final long requests = this.receiveRequests.get();
+
+        if (requests == 0) {
+            return 0;
+        }
+        return 100.0 * this.emptyReceives.get() / requests;
+    }
+
+    @Override
+    public long getReceiveErrors() {
+        return this.receiveErrors.get();
+    }
+
+    @Override
+    public long getMessagesReceived() {
+        return this.messagesReceived.get();
+    }
+
+    /**
+     * Returns the number of messages received per second. The rate is sampled when it is read, at
+     * most once per minute, and covers the time since the previous sample.
+     * @return The number of messages received per second.
+     */
+    @Override
+    public double getMessagesPerSecond() {
+        synchronized (this.rateLock) {
+            final long now = System.nanoTime();
+            final long elapsed = now - this.rateSampleTime;
+
+            if (elapsed >= RATE_INTERVAL_NANOS) {
+                final long count = this.messagesReceived.get();
+                this.messagesPerSecond = (count - this.rateSampleCount) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+                this.rateSampleCount = count;
+                this.rateSampleTime = now;
+            }
+            return this.messagesPerSecond;
+        }
+    }
+
+    /**
+     * Returns the histogram of the round-trip times of receive message requests.
+     * @return The {@link LatencyHistogram} of receive message requests.
+     */
+    public LatencyHistogram getReceiveLatency() {
+        return this.receiveLatency;
+    }
+
+    @Override
+    public double getReceiveLatencyMeanMillis() {
+        return this.receiveLatency.getMeanMillis();
+    }
+
+    @Override
+    public long getReceiveLatency50thMillis() {
+        return this.receiveLatency.getPercentileMillis(50);
+    }
+
+    @Override
+    public long getReceiveLatency99thMillis() {
+        return this.receiveLatency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getReceiveLatencyMaxMillis() {
+        return this.receiveLatency.getMaxMillis();
+    }
+
+    /**
+     * Records the result of a delete message request sent to the queue.
+     * @param deleted The number of messages that were deleted.
+     * @param failed The number of messages that could not be deleted.
+     */
+    public void recordDelete(final int deleted, final int failed) {
+        this.deletedMessages.addAndGet(deleted);
+        this.deleteFailures.addAndGet(failed);
+    }
+
+    @Override
+    public long getDeletedMessages() {
+        return this.deletedMessages.get();
+    }
+
+    @Override
+    public long getDeleteFailures() {
+        return this.deleteFailures.get();
+    }
+
+    /**
+     * Increments the number of messages from which no event could be parsed.
+     */
+    public void incrementParseErrors() {
+        this.parseErrors.incrementAndGet();
+    }
+
+    @Override
+    public long getParseErrors() {
+        return this.parseErrors.get();
+    }
+
+    /**
+     * Records the time it took to match a set of events against the jobs listening on the queue.
+     * @param nanos The time spent handing the events to the jobs, in nanoseconds.
+     */
+    public void recordMatcher(final long nanos) {
+        this.matcherCalls.incrementAndGet();
+        this.matcherNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Returns the mean time it took to match a set of events against the jobs listening on the
+     * queue.
+     * @return The mean matcher time, in milliseconds.
+     */
+    @Override
+    public double getMatcherMeanMillis() {
+        final long calls = this.matcherCalls.get();
+
+        if (calls == 0) {
+            return 0;
+        }
+        return (double) this.matcherNanos.get() / calls / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Increments the number of event sets received from the queue that dispatched SCM polls for at
+     * least one job.
+     */
+    public void incrementDispatchedPolls() {
+        this.dispatchedPolls.incrementAndGet();
+    }
+
+    @Override
+    public long getDispatchedPolls() {
+        return this.dispatchedPolls.get();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.metrics;
+
+/**
+ * Management interface through which the {@link QueueStatistics} of a queue are exported via JMX.
+ */
+public interface QueueStatisticsMBean {
+
+    long getUniqueMessages();
+
+    long getDuplicateMessages();
+
+    double getDuplicateRate();
+
+    long getStaleEvents();
+
+    long getEventsIn();
+
+    long getEventsOut();
+
+    long getReceiveRequests();
+
+    long getEmptyReceives();
+
+    double getEmptyReceiveRate();
+
+    long getReceiveErrors();
+
+    long getMessagesReceived();
+
+    double getMessagesPerSecond();
+
+    double getReceiveLatencyMeanMillis();
+
+    long getReceiveLatency50thMillis();
+
+    long getReceiveLatency99thMillis();
+
+    double getReceiveLatencyMaxMillis();
+
+    long getDeletedMessages();
+
+    long getDeleteFailures();
+
+    long getParseErrors();
+
+    double getMatcherMeanMillis();
+
+    long getDispatchedPolls();
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import hudson.Extension;
+import io.relution.jenkins.scmsqs.Context;
+import io.relution.jenkins.scmsqs.interfaces.StatisticsProvider;
+import jenkins.metrics.api.MetricProvider;
+
+
+/**
+ * Exports the totals of the {@link QueueStatistics} of all queues to the Metrics plugin. The
+ * statistics of each queue remain available via JMX. Requires the Metrics plugin.
+ */
+@Extension(optional = true)
+public class SQSMetricProvider extends MetricProvider {
+
+    private static final String PREFIX = "jenkins.scmsqs.";
+
+    private final MetricSet     metrics;
+
+    public SQSMetricProvider() {
+        final Map<String, Metric> gauges = new HashMap<>();
+
+        gauges.put(PREFIX + "messages.received", new Total() {
+
+            @Override
+            protected long get(final QueueStatistics statistics) {
+                return statistics.getMessagesReceived();
+            }
+        });
+
+        gauges.put(PREFIX + "messages.duplicate", new Total() {
+
+            @Override
+            protected long get(final QueueStatistics statistics) {
+                return statistics.getDuplicateMessages();
+            }
+        });
+
+        gauges.put(PREFIX + "receive.errors", new Total() {
+
+            @Override
+            protected long get(final QueueStatistics statistics) {
+                return statistics.getReceiveErrors();
+            }
+        });
+
+        gauges.put(PREFIX + "parse.errors", new Total() {
+
+            @Override
+            protected long get(final QueueStatistics statistics) {
+                return statistics.getParseErrors();
+            }
+        });
+
+        gauges.put(PREFIX + "events.in", new Total() {
+
+            @Override
+            protected long get(final QueueStatistics statistics) {
+                return statistics.getEventsIn();
+            }
+        });
+
+        gauges.put(PREFIX + "events.out", new Total() {
+
+            @Override
+            protected long get(final QueueStatistics statistics) {
+                return statistics.getEventsOut();
+            }
+        });
+
+        gauges.put(PREFIX + "events.stale", new Total() {
+
+            @Override
+            protected long get(final QueueStatistics statistics) {
+                return statistics.getStaleEvents();
+            }
+        });
+
+        gauges.put(PREFIX + "polls.dispatched", new Total() {
+
+            @Override
+            protected long get(final QueueStatistics statistics) {
+                return statistics.getDispatchedPolls();
+            }
+        });
+
+        final Map<String, Metric> unmodifiable = Collections.unmodifiableMap(gauges);
+        this.metrics = new MetricSet() {
+
+            @Override
+            public Map<String, Metric> getMetrics() {
+                return unmodifiable;
+            }
+        };
+    }
+
+    @Override
+    public MetricSet getMetricSet() {
+        return this.metrics;
+    }
+
+    /**
+     * A gauge that returns the sum of a value over the statistics of all queues.
+     */
+    private abstract static class Total implements Gauge<Long> {
+
+        @Override
+        public Long getValue() {
+            final StatisticsProvider provider = Context.injector().getInstance(StatisticsProvider.class);
+            long total = 0;
+
+            for (final QueueStatistics statistics : provider.getAllQueueStatistics()) {
+                total += this.get(statistics);
+            }
+            return total;
+        }
+
+        protected abstract long get(QueueStatistics statistics);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import io.relution.jenkins.scmsqs.interfaces.StatisticsProvider;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+
+
+/**
+ * Provides the {@link QueueStatistics} of each queue. The statistics of a queue are registered with
+ * the platform {@link MBeanServer} when they are first requested, so they can be read via JMX, and
+ * unregistered when the queue is removed.
+ */
+public class StatisticsProviderImpl implements StatisticsProvider {
+
+    private static final String                          DOMAIN     = "io.relution.jenkins.scmsqs";
+
+    private final ConcurrentMap<String, QueueStatistics> statistics = new ConcurrentHashMap<>();
+
+    @Override
+    public QueueStatistics getQueueStatistics(final String queueUuid) {
+        ThrowIf.isNull(queueUuid, "queueUuid");
+
+        final QueueStatistics existing = this.statistics.get(queueUuid);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        final QueueStatistics created = new QueueStatistics();
+        final QueueStatistics previous = this.statistics.putIfAbsent(queueUuid, created);
+
+        if (previous != null) {
+            return previous;
+        }
+
+        this.register(queueUuid, created);
+        return created;
+    }
+
+    @Override
+    public List<QueueStatistics> getAllQueueStatistics() {
+        return new ArrayList<>(this.statistics.values());
+    }
+
+    @Override
+    public void remove(final String queueUuid) {
+        if (queueUuid == null || this.statistics.remove(queueUuid) == null) {
+            return;
+        }
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = getObjectName(queueUuid);
+
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+
+        } catch (final JMException e) {
+            Log.warning("Failed to unregister statistics of queue %s from JMX: %s", queueUuid, e.getMessage());
+
+        }
+    }
+
+    private static ObjectName getObjectName(final String queueUuid) throws JMException {
+        return new ObjectName(DOMAIN + ":type=QueueStatistics,queue=" + ObjectName.quote(queueUuid));
+    }
+
+    private void register(final String queueUuid, final QueueStatistics statistics) {
+        try {
+            final ObjectName name = getObjectName(queueUuid);
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+
+            server.registerMBean(statistics, name);
+
+        } catch (final JMException e) {
+            Log.warning("Failed to register statistics of queue %s with JMX: %s", queueUuid, e.getMessage());
+
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import com.google.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.relution.jenkins.scmsqs.interfaces.BuiltCommitCache;
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.logging.Log;
+import jenkins.model.Jenkins;
+
+
+/**
+ * A {@link BuiltCommitCache} that keeps the last built commits in memory and persists them to a
+ * properties file, so they survive a restart. The file is rewritten whenever a recorded commit
+ * changes, which happens at most once per completed build.
+ */
+public class BuiltCommitCacheImpl implements BuiltCommitCache {
+
+    private static final String       FILE_NAME      = "sqs-trigger-built-commits.properties";
+
+    private static final String       HEADS_PREFIX   = "heads/";
+    private static final String       REMOTES_PREFIX = "refs/remotes/";
+
+    private static final char         SEPARATOR      = '#';
+
+    private final File                file;
+    private final Map<String, String> commits        = new ConcurrentHashMap<>();
+
+    @Inject
+    public BuiltCommitCacheImpl() {
+        this(new File(Jenkins.getInstance().getRootDir(), FILE_NAME));
+    }
+
+    /**
+     * Creates a new cache that persists the last built commits in the specified file. Commits
+     * persisted by a previous instance are loaded immediately.
+     * @param file The file in which to persist the last built commits.
+     */
+    BuiltCommitCacheImpl(final File file) {
+        this.file = file;
+        this.load();
+    }
+
+    @Override
+    public boolean isBuilt(final String jobName, final Event event) {
+        final String branch = this.getEventBranch(event.getBranch());
+
+        if (branch == null || StringUtils.isEmpty(event.getCommit())) {
+            return false;
+        }
+
+        final String commit = this.commits.get(this.getKey(jobName, branch));
+        return StringUtils.equalsIgnoreCase(commit, event.getCommit());
+    }
+
+    @Override
+    public synchronized void setBuilt(final String jobName, final String branch, final String commit) {
+        final String name = this.getRemoteBranch(branch);
+
+        if (StringUtils.isEmpty(name) || StringUtils.isEmpty(commit)) {
+            return;
+        }
+
+        final String previous = this.commits.put(this.getKey(jobName, name), commit);
+
+        if (!commit.equals(previous)) {
+            this.save();
+        }
+    }
+
+    @Override
+    public synchronized void remove(final String jobName) {
+        final String prefix = jobName + SEPARATOR;
+        final Iterator<String> keys = this.commits.keySet().iterator();
+        boolean isChanged = false;
+
+        while (keys.hasNext()) {
+            if (keys.next().startsWith(prefix)) {
+                keys.remove();
+                isChanged = true;
+            }
+        }
+
+        if (isChanged) {
+            this.save();
+        }
+    }
+
+    private void load() {
+        if (!this.file.isFile()) {
+            return;
+        }
+
+        final Properties properties = new Properties();
+
+        try (final InputStream in = new FileInputStream(this.file)) {
+            properties.load(in);
+
+            for (final String key : properties.stringPropertyNames()) {
+                this.commits.put(key, properties.getProperty(key));
+            }
+
+            Log.fine("Loaded %d built commit(s) from %s", this.commits.size(), this.file);
+
+        } catch (final IOException e) {
+            Log.warning("Failed to read %s: %s", this.file, e);
+
+        }
+    }
+
+    private void save() {
+        final File temp = new File(this.file.getPath() + ".tmp");
+        final Properties properties = new Properties();
+        properties.putAll(this.commits);
+
+        try {
+            try (final OutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, null);
+            }
+
+            if (this.file.exists() && !this.file.delete()) {
+                throw new IOException("Failed to delete " + this.file);
+            }
+
+            if (!temp.renameTo(this.file)) {
+                throw new IOException("Failed to rename " + temp);
+            }
+
+        } catch (final IOException e) {
+            Log.warning("Failed to write %s: %s", this.file, e);
+
+        }
+    }
+
+    /**
+     * Returns the name of the branch affected by an event, e.g. {@code master} for
+     * {@code heads/master}, or {@code null} if the event does not refer to a branch.
+     */
+    private String getEventBranch(final String branch) {
+        if (!StringUtils.startsWith(branch, HEADS_PREFIX)) {
+            return null;
+        }
+        return branch.substring(HEADS_PREFIX.length());
+    }
+
+    /**
+     * Returns the name of the branch a remote tracking branch refers to, e.g. {@code master} for
+     * {@code origin/master} or {@code refs/remotes/origin/master}.
+     */
+    private String getRemoteBranch(final String branch) {
+        final String name = StringUtils.removeStart(branch, REMOTES_PREFIX);
+        final int index = StringUtils.indexOf(name, '/');
+
+        if (index < 0) {
+            return name;
+        }
+        return name.substring(index + 1);
+    }
+
+    private String getKey(final String jobName, final String branch) {
+        return jobName + SEPARATOR + branch;
+    }
+}
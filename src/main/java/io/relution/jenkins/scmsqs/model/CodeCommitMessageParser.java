@@ -24,17 +24,22 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import io.relution.jenkins.scmsqs.interfaces.Event;
 import io.relution.jenkins.scmsqs.interfaces.MessageParser;
 import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.model.constants.AttributeName;
 import io.relution.jenkins.scmsqs.model.entities.codecommit.CodeCommit;
 import io.relution.jenkins.scmsqs.model.entities.codecommit.CodeCommitEvent;
 import io.relution.jenkins.scmsqs.model.entities.codecommit.MessageBody;
 import io.relution.jenkins.scmsqs.model.entities.codecommit.Record;
 import io.relution.jenkins.scmsqs.model.entities.codecommit.Records;
 import io.relution.jenkins.scmsqs.model.entities.codecommit.Reference;
+import io.relution.jenkins.scmsqs.util.Timestamps;
 
 
 public class CodeCommitMessageParser implements MessageParser {
@@ -53,6 +58,12 @@ public class CodeCommitMessageParser implements MessageParser {
     public List<Event> parseMessage(final Message message) {
         try {
             final MessageBody body = this.gson.fromJson(message.getBody(), MessageBody.class);
+
+            if (body == null) {
+                Log.warning("Message has no body");
+                return Collections.emptyList();
+            }
+
             Log.info("Got message with subject: %s", body.getSubject());
             final String json = body.getMessage();
 
@@ -66,38 +77,81 @@ public class CodeCommitMessageParser implements MessageParser {
                 return Collections.emptyList();
             }
 
-            return this.parseRecords(json);
+            final long timestamp = this.getTimestamp(message, body);
+            return this.parseRecords(json, timestamp);
         } catch (final com.google.gson.JsonSyntaxException e) {
             Log.warning("JSON syntax exception, cannot parse message: %s", e);
         }
         return Collections.emptyList();
     }
 
-    private List<Event> parseRecords(final String json) {
+    @Override
+    public String getEventId(final List<Event> events) {
+        final Set<String> ids = new LinkedHashSet<>();
+
+        for (final Event event : events) {
+            if (StringUtils.isEmpty(event.getId())) {
+                continue;
+            }
+
+            if (event.getTotalParts() > 1) {
+                ids.add(event.getId() + '/' + event.getPartNumber());
+            } else {
+                ids.add(event.getId());
+            }
+        }
+
+        return ids.isEmpty() ? null : StringUtils.join(ids, ',');
+    }
+
+    private long getTimestamp(final Message message, final MessageBody body) {
+        final Map<String, String> attributes = message.getAttributes();
+
+        if (attributes != null) {
+            final long sentTimestamp = Timestamps.parseMillis(attributes.get(AttributeName.SENT_TIMESTAMP));
+
+            if (sentTimestamp > 0) {
+                return sentTimestamp;
+            }
+        }
+
+        return Timestamps.parseIso8601(body.getTimestamp());
+    }
+
+    private List<Event> parseRecords(final String json, final long timestamp) {
         final Records records = this.gson.fromJson(json, Records.class);
+
+        if (records == null) {
+            return Collections.emptyList();
+        }
+
         final List<Event> events = new ArrayList<>(records.size());
 
         for (final Record record : records) {
-            this.parseEvents(events, record);
+            this.parseEvents(events, record, timestamp);
         }
 
         return events;
     }
 
-    private void parseEvents(final List<Event> events, final Record record) {
+    private void parseEvents(final List<Event> events, final Record record, final long timestamp) {
         if (!this.isCodeCommitEvent(record)) {
             return;
         }
 
         final CodeCommit codeCommit = record.getCodeCommit();
 
+        if (codeCommit == null || codeCommit.getReferences() == null) {
+            return;
+        }
+
         for (final Reference reference : codeCommit.getReferences()) {
-            final Event event = new CodeCommitEvent(record, reference);
+            final Event event = new CodeCommitEvent(record, reference, timestamp);
             events.add(event);
         }
     }
 
     private boolean isCodeCommitEvent(final Record record) {
-        return StringUtils.equals(EVENT_SOURCE_CODECOMMIT, record.getEventSource());
+        return record != null && StringUtils.equals(EVENT_SOURCE_CODECOMMIT, record.getEventSource());
     }
 }
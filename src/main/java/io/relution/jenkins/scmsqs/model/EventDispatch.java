@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+
+
+/**
+ * Represents the outcome of handing events to a single listener. The monitor of a queue combines
+ * the outcomes of all its listeners, so that events handed to several jobs are only counted once
+ * in the statistics of the queue.
+ */
+public class EventDispatch {
+
+    /**
+     * The outcome of events that did not match the job of a listener.
+     */
+    public static final EventDispatch NONE = new EventDispatch(null, null, false);
+
+    private final List<Event> matches;
+    private final List<Event> fresh;
+    private final boolean     isPollDispatched;
+
+    public EventDispatch(final List<Event> matches, final List<Event> fresh, final boolean isPollDispatched) {
+        this.matches = matches == null ? Collections.<Event> emptyList() : matches;
+        this.fresh = fresh == null ? Collections.<Event> emptyList() : fresh;
+        this.isPollDispatched = isPollDispatched;
+    }
+
+    /**
+     * Returns the events that matched the job of the listener.
+     * @return The collection of {@link Event}s that matched the job.
+     */
+    public List<Event> getMatches() {
+        return this.matches;
+    }
+
+    /**
+     * Returns the events that matched the job of the listener and were not already covered by a
+     * previous SCM poll or build of the job.
+     * @return The collection of fresh {@link Event}s.
+     */
+    public List<Event> getFresh() {
+        return this.fresh;
+    }
+
+    /**
+     * Returns a value indicating whether a new SCM poll was dispatched for the events. No poll is
+     * dispatched if the events were merged into a poll that is still pending.
+     * @return {@code true} if a poll was dispatched; otherwise, {@code false}.
+     */
+    public boolean isPollDispatched() {
+        return this.isPollDispatched;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import com.amazonaws.services.sqs.model.Message;
+import com.google.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import hudson.model.AbstractProject;
+import io.relution.jenkins.scmsqs.SQSTrigger;
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.interfaces.EventReplayer;
+import io.relution.jenkins.scmsqs.interfaces.MessageArchive;
+import io.relution.jenkins.scmsqs.interfaces.MessageParserFactory;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.threading.EventAssembler;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+
+
+public class EventReplayerImpl implements EventReplayer {
+
+    private static final long          ASSEMBLY_TIMEOUT_SECONDS = 30;
+
+    private final MessageArchive       archive;
+    private final MessageParserFactory parsers;
+
+    @Inject
+    public EventReplayerImpl(final MessageArchive archive, final MessageParserFactory parsers) {
+        this.archive = archive;
+        this.parsers = parsers;
+    }
+
+    @Override
+    public int replay(final long from, final long to, final String repository, final String jobName) {
+        final Map<String, List<Event>> eventsByQueue = new HashMap<>();
+        int count = 0;
+
+        for (final AbstractProject<?, ?> job : Jenkins.getInstance().getAllItems(AbstractProject.class)) {
+            if (StringUtils.isNotEmpty(jobName) && !StringUtils.equals(jobName, job.getFullName())) {
+                continue;
+            }
+
+            final SQSTrigger trigger = job.getTrigger(SQSTrigger.class);
+
+            if (trigger == null) {
+                continue;
+            }
+
+            final List<Event> events = this.getEvents(eventsByQueue, trigger.getQueueUuid(), from, to);
+
+            if (!events.isEmpty() && trigger.replay(events, repository)) {
+                count++;
+            }
+        }
+
+        Log.info("Replayed events from %d to %d, requested poll of %d job(s)", from, to, count);
+        return count;
+    }
+
+    private List<Event> getEvents(final Map<String, List<Event>> eventsByQueue, final String queueUuid, final long from, final long to) {
+        List<Event> events = eventsByQueue.get(queueUuid);
+
+        if (events == null) {
+            events = this.assemble(this.archive.find(queueUuid, from, to));
+            eventsByQueue.put(queueUuid, events);
+        }
+
+        return events;
+    }
+
+    /**
+     * Parses the specified messages and reassembles changes that were split into several parts,
+     * like the events of received messages. Changes that are incomplete within the time range are
+     * released once all messages were added.
+     */
+    private List<Event> assemble(final List<Message> messages) {
+        final EventAssembler assembler = new EventAssembler(Timer.get(), ASSEMBLY_TIMEOUT_SECONDS, TimeUnit.SECONDS, new EventAssembler.Callback() {
+
+            @Override
+            public void onExpired(final List<Event> events) {
+                // Incomplete changes are released by flush()
+            }
+        });
+
+        final List<Event> events = new ArrayList<>();
+
+        for (final ParsedMessage message : ParsedMessage.parse(this.parsers, messages)) {
+            events.addAll(assembler.add(message.getEvents()));
+        }
+
+        events.addAll(assembler.flush());
+        return events;
+    }
+}
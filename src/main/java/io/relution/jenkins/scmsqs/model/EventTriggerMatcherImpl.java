@@ -20,6 +20,8 @@ import org.eclipse.jgit.transport.RemoteConfig;
 import org.eclipse.jgit.transport.URIish;
 import org.jenkinsci.plugins.multiplescms.MultiSCM;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import hudson.model.AbstractProject;
@@ -36,21 +38,29 @@ public class EventTriggerMatcherImpl implements EventTriggerMatcher {
 
     @Override
     public boolean matches(final List<Event> events, final AbstractProject<?, ?> job) {
+        return !this.getMatches(events, job).isEmpty();
+    }
+
+    @Override
+    public List<Event> getMatches(final List<Event> events, final AbstractProject<?, ?> job) {
         if (events == null || job == null) {
-            return false;
+            return Collections.emptyList();
         }
 
         Log.info("Test if any event matches job %s", job.getName());
+        final List<Event> matches = new ArrayList<>(events.size());
 
         for (final Event event : events) {
             if (this.matches(event, job.getScm())) {
                 Log.info("Job %s matches event %s%s (%s)", job.getName(), event.getHost(), event.getPath(), event.getBranch());
-                return true;
+                matches.add(event);
             }
         }
 
-        Log.info("Event(s) did not match job.");
-        return false;
+        if (matches.isEmpty()) {
+            Log.info("Event(s) did not match job.");
+        }
+        return matches;
     }
 
     private boolean matches(final Event event, final SCM scm) {
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import com.google.inject.Inject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.MessageDeduplicator;
+import io.relution.jenkins.scmsqs.interfaces.StatisticsProvider;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.metrics.QueueStatistics;
+import io.relution.jenkins.scmsqs.util.PersistentRotatingSet;
+import jenkins.model.Jenkins;
+
+
+public class MessageDeduplicatorImpl implements MessageDeduplicator {
+
+    private static final String         FILE_NAME      = "sqs-trigger-event-ids.log";
+
+    private static final long           WINDOW_MINUTES = 60;
+    private static final int            MAX_SIZE       = 20000;
+
+    private final StatisticsProvider    statistics;
+
+    private final PersistentRotatingSet seen;
+
+    @Inject
+    public MessageDeduplicatorImpl(final StatisticsProvider statistics) {
+        this(statistics, new File(Jenkins.getInstance().getRootDir(), FILE_NAME));
+    }
+
+    /**
+     * Creates a new deduplicator that persists the keys of processed messages in the specified
+     * file. Keys persisted by a previous instance are loaded immediately, so that messages
+     * redelivered after a restart are recognized as duplicates.
+     * @param statistics The {@link StatisticsProvider} used to record duplicates.
+     * @param file The file in which to persist the keys of processed messages.
+     */
+    MessageDeduplicatorImpl(final StatisticsProvider statistics, final File file) {
+        this.statistics = statistics;
+
+        this.seen = new PersistentRotatingSet(file, WINDOW_MINUTES, TimeUnit.MINUTES, MAX_SIZE);
+        this.seen.load();
+    }
+
+    @Override
+    public List<ParsedMessage> removeDuplicates(final String queueUuid, final List<ParsedMessage> messages) {
+        final QueueStatistics statistics = this.statistics.getQueueStatistics(queueUuid);
+        final List<ParsedMessage> unique = new ArrayList<>(messages.size());
+        final Set<String> batch = new HashSet<>();
+
+        for (final ParsedMessage message : messages) {
+            final String key = this.getKey(queueUuid, message);
+
+            if (key == null || (!this.seen.contains(key) && batch.add(key))) {
+                statistics.incrementUniqueMessages();
+                unique.add(message);
+            } else {
+                Log.fine("Dropped duplicate message %s", key);
+                statistics.incrementDuplicateMessages();
+            }
+        }
+
+        return unique;
+    }
+
+    @Override
+    public void markProcessed(final String queueUuid, final List<ParsedMessage> messages) {
+        for (final ParsedMessage message : messages) {
+            final String key = this.getKey(queueUuid, message);
+
+            if (key != null) {
+                this.seen.add(key);
+            }
+        }
+    }
+
+    private String getKey(final String queueUuid, final ParsedMessage message) {
+        final String key = message.getKey();
+
+        if (key == null) {
+            return null;
+        }
+        return queueUuid + ':' + key;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.interfaces.MessageParser;
+import io.relution.jenkins.scmsqs.interfaces.MessageParserFactory;
+
+
+/**
+ * A message received from a queue, together with the events parsed from it. Messages are parsed
+ * once when they are received, so that duplicate detection and event processing share the result.
+ */
+public class ParsedMessage {
+
+    private final Message     message;
+    private final List<Event> events;
+    private final String      key;
+
+    /**
+     * Creates a new instance for the specified message.
+     * @param message The {@link Message} that was received.
+     * @param events The collection of {@link Event}s parsed from the message.
+     * @param eventId The identifier of the event contained in the message, may be {@code null}.
+     */
+    public ParsedMessage(final Message message, final List<Event> events, final String eventId) {
+        this.message = message;
+        this.events = events;
+        this.key = StringUtils.isEmpty(eventId) ? message.getMessageId() : eventId;
+    }
+
+    /**
+     * Parses each of the specified messages.
+     * @param factory The {@link MessageParserFactory} used to create a parser for each message.
+     * @param messages The collection of {@link Message}s to parse.
+     * @return The collection of {@link ParsedMessage}s, in the order of the specified messages.
+     */
+    public static List<ParsedMessage> parse(final MessageParserFactory factory, final List<Message> messages) {
+        final List<ParsedMessage> parsed = new ArrayList<>(messages.size());
+
+        for (final Message message : messages) {
+            final MessageParser parser = factory.createParser(message);
+            final List<Event> events = parser.parseMessage(message);
+            parsed.add(new ParsedMessage(message, events, parser.getEventId(events)));
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Returns the messages of the specified parsed messages.
+     * @param messages The collection of {@link ParsedMessage}s.
+     * @return The collection of {@link Message}s, in the order of the specified messages.
+     */
+    public static List<Message> getMessages(final List<ParsedMessage> messages) {
+        final List<Message> result = new ArrayList<>(messages.size());
+
+        for (final ParsedMessage message : messages) {
+            result.add(message.getMessage());
+        }
+
+        return result;
+    }
+
+    public Message getMessage() {
+        return this.message;
+    }
+
+    public List<Event> getEvents() {
+        return this.events;
+    }
+
+    /**
+     * Returns the key used to detect duplicates of this message. This is the identifier of the
+     * event contained in the message, or the identifier of the message if the message does not
+     * contain an event that can be identified.
+     * @return The key used to detect duplicates.
+     */
+    public String getKey() {
+        return this.key;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import org.apache.commons.lang3.StringUtils;
+
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+import io.relution.jenkins.scmsqs.logging.Log;
+
+
+/**
+ * Classifies the difference between two configurations of a queue by how it must be applied to a
+ * running monitor.
+ */
+public enum QueueChange {
+
+    /**
+     * The configurations do not differ in any property used by a monitor.
+     */
+    NONE,
+
+    /**
+     * The configurations differ in request parameters only, e.g. the wait time or the maximum
+     * number of messages. The change can be applied to a running monitor, the next request uses
+     * the new parameters.
+     */
+    PARAMETERS,
+
+    /**
+     * The configurations differ in the queue, endpoint or credentials. The change requires a new
+     * connection, and therefore a new monitor.
+     */
+    CONNECTION;
+
+    /**
+     * Returns the change required to get from the current to the new configuration of a queue.
+     * @param current The {@link SQSQueue} configuration currently in use.
+     * @param queue The new {@link SQSQueue} configuration.
+     * @return The {@link QueueChange} that classifies the difference between the configurations.
+     * If the configurations cannot be compared, {@link #CONNECTION} is returned.
+     */
+    public static QueueChange between(final SQSQueue current, final SQSQueue queue) {
+        try {
+            if (isConnectionChanged(current, queue)) {
+                return CONNECTION;
+            }
+
+            if (isParameterChanged(current, queue)) {
+                return PARAMETERS;
+            }
+
+            return NONE;
+
+        } catch (final com.amazonaws.AmazonServiceException e) {
+            Log.warning("Cannot compare queues: %s", e.getMessage());
+
+        } catch (final Exception e) {
+            Log.severe(e, "Cannot compare queues, unknown error");
+
+        }
+        return CONNECTION;
+    }
+
+    private static boolean isConnectionChanged(final SQSQueue current, final SQSQueue queue) {
+        if (!StringUtils.equals(current.getAddress(), queue.getAddress())) {
+            return true;
+        }
+
+        if (!StringUtils.equals(current.getEndpoint(), queue.getEndpoint())) {
+            return true;
+        }
+
+        if (!StringUtils.equals(current.getAWSAccessKeyId(), queue.getAWSAccessKeyId())) {
+            return true;
+        }
+
+        if (!StringUtils.equals(current.getAWSSecretKey(), queue.getAWSSecretKey())) {
+            return true;
+        }
+
+        if (!StringUtils.equals(current.getCredentialsId(), queue.getCredentialsId())) {
+            return true;
+        }
+
+        if (!StringUtils.equals(current.getRoleArn(), queue.getRoleArn())) {
+            return true;
+        }
+
+        if (!StringUtils.equals(current.getExternalId(), queue.getExternalId())) {
+            return true;
+        }
+
+        return false;
+    }
+
+    private static boolean isParameterChanged(final SQSQueue current, final SQSQueue queue) {
+        if (current.getMaxNumberOfMessages() != queue.getMaxNumberOfMessages()) {
+            return true;
+        }
+
+        if (current.getWaitTimeSeconds() != queue.getWaitTimeSeconds()) {
+            return true;
+        }
+
+        return false;
+    }
+}
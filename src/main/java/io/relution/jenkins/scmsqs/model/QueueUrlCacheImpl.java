@@ -0,0 +1,231 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.google.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.QueueUrlCache;
+import io.relution.jenkins.scmsqs.interfaces.SQSClientPool;
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.logging.Log;
+import jenkins.util.Timer;
+
+
+public class QueueUrlCacheImpl implements QueueUrlCache {
+
+    private static final long                   VERIFY_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+    private final SQSClientPool                 clients;
+    private final SettingsProvider              settings;
+    private final ScheduledExecutorService      timer;
+
+    private final ConcurrentMap<String, Entry>  entries                = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> pending                = new ConcurrentHashMap<>();
+
+    private volatile boolean                    isLoaded;
+
+    @Inject
+    public QueueUrlCacheImpl(final SQSClientPool clients, final SettingsProvider settings) {
+        this(clients, settings, Timer.get());
+    }
+
+    public QueueUrlCacheImpl(final SQSClientPool clients, final SettingsProvider settings, final ScheduledExecutorService timer) {
+        this.clients = clients;
+        this.settings = settings;
+        this.timer = timer;
+    }
+
+    @Override
+    public String getUrl(final SQSQueue queue) {
+        this.load();
+
+        final String key = getKey(queue);
+        final Entry entry = this.entries.get(key);
+
+        if (entry == null) {
+            return this.resolve(queue, key);
+        }
+
+        if (entry.isStale()) {
+            this.schedule(queue, key);
+        }
+
+        return entry.url;
+    }
+
+    @Override
+    public String getCachedUrl(final SQSQueue queue) {
+        this.load();
+
+        final String key = getKey(queue);
+        final Entry entry = this.entries.get(key);
+
+        if (entry == null || entry.isStale()) {
+            this.schedule(queue, key);
+        }
+
+        return entry != null ? entry.url : null;
+    }
+
+    @Override
+    public void prefetch(final SQSQueue queue) {
+        this.load();
+
+        final String key = getKey(queue);
+
+        if (!this.entries.containsKey(key)) {
+            this.schedule(queue, key);
+        }
+    }
+
+    /**
+     * Loads the persisted URLs. Persisted URLs are used immediately, but are verified in the
+     * background on first use.
+     */
+    private void load() {
+        if (this.isLoaded) {
+            return;
+        }
+
+        synchronized (this.entries) {
+            if (this.isLoaded) {
+                return;
+            }
+
+            final Map<String, String> urls = this.settings.getQueueUrls();
+
+            if (urls != null) {
+                for (final Map.Entry<String, String> url : urls.entrySet()) {
+                    this.entries.putIfAbsent(url.getKey(), new Entry(url.getValue(), 0));
+                }
+            }
+
+            this.isLoaded = true;
+        }
+    }
+
+    private String resolve(final SQSQueue queue, final String key) {
+        final AmazonSQS client = this.clients.acquire(queue);
+
+        try {
+            Log.fine("Resolve URL of %s", queue);
+            final String url = client.getQueueUrl(queue.getName()).getQueueUrl();
+            final Entry previous = this.entries.put(key, new Entry(url, System.currentTimeMillis()));
+
+            if (previous == null || !StringUtils.equals(previous.url, url)) {
+                this.save();
+            }
+
+            return url;
+
+        } finally {
+            this.clients.release(client);
+
+        }
+    }
+
+    private void schedule(final SQSQueue queue, final String key) {
+        if (this.pending.putIfAbsent(key, key) != null) {
+            return;
+        }
+
+        this.timer.execute(new Resolve(queue, key));
+    }
+
+    private void save() {
+        final Map<String, String> urls = new HashMap<>();
+
+        for (final Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+            urls.put(entry.getKey(), entry.getValue().url);
+        }
+
+        this.settings.saveQueueUrls(urls);
+    }
+
+    /**
+     * Returns a key that identifies the account, region and name of the specified queue. The
+     * account is identified by the credentials used to access the queue.
+     */
+    private static String getKey(final SQSQueue queue) {
+        final String account;
+
+        if (!StringUtils.isBlank(queue.getRoleArn())) {
+            account = "role:" + queue.getRoleArn();
+
+        } else if (!StringUtils.isBlank(queue.getCredentialsId())) {
+            account = "credentials:" + queue.getCredentialsId();
+
+        } else {
+            account = "key:" + StringUtils.defaultString(queue.getAWSAccessKeyId());
+
+        }
+
+        return account + "|" + StringUtils.defaultString(queue.getEndpoint()) + "|" + queue.getName();
+    }
+
+    private static class Entry {
+
+        private final String url;
+        private final long   verified;
+
+        private Entry(final String url, final long verified) {
+            this.url = url;
+            this.verified = verified;
+        }
+
+        private boolean isStale() {
+            return System.currentTimeMillis() - this.verified > VERIFY_INTERVAL_MILLIS;
+        }
+    }
+
+    private class Resolve implements Runnable {
+
+        private final SQSQueue queue;
+        private final String   key;
+
+        public Resolve(final SQSQueue queue, final String key) {
+            this.queue = queue;
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            try {
+                QueueUrlCacheImpl.this.resolve(this.queue, this.key);
+
+            } catch (final AmazonClientException e) {
+                Log.warning("Failed to resolve URL of %s: %s", this.queue, e.getMessage());
+
+            } finally {
+                QueueUrlCacheImpl.this.pending.remove(this.key);
+
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import java.util.Map;
+
+import hudson.ProxyConfiguration;
+import io.relution.jenkins.scmsqs.SQSTrigger;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.threading.ExecutorRole;
+import jenkins.model.Jenkins;
+
+
+public class SettingsProviderImpl implements SettingsProvider {
+
+    @Override
+    public int getMaxConcurrentPolls() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getMaxConcurrentPolls();
+    }
+
+    @Override
+    public int getMaxPollsPerMinute() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getMaxPollsPerMinute();
+    }
+
+    @Override
+    public int getPollBurst() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getPollBurst();
+    }
+
+    @Override
+    public int getCoalesceWindowSeconds() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getCoalesceWindowSeconds();
+    }
+
+    @Override
+    public boolean isJournalEnabled() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.isJournalEnabled();
+    }
+
+    @Override
+    public int getEventRetentionDays() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getEventRetentionDays();
+    }
+
+    @Override
+    public int getCorePoolSize(final ExecutorRole role) {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+
+        switch (role) {
+            case CALLBACK:
+                return descriptor.getCallbackCorePoolSize();
+
+            case DISPATCH:
+                return descriptor.getDispatchCorePoolSize();
+
+            default:
+                return descriptor.getReceiveCorePoolSize();
+        }
+    }
+
+    @Override
+    public int getMaximumPoolSize(final ExecutorRole role) {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+
+        switch (role) {
+            case CALLBACK:
+                return descriptor.getCallbackMaxPoolSize();
+
+            case DISPATCH:
+                return descriptor.getDispatchMaxPoolSize();
+
+            default:
+                return descriptor.getReceiveMaxPoolSize();
+        }
+    }
+
+    @Override
+    public int getExecutorQueueSize() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getExecutorQueueSize();
+    }
+
+    @Override
+    public boolean isVirtualThreadsEnabled() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.isVirtualThreadsEnabled();
+    }
+
+    @Override
+    public int getMaxConnections() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getMaxConnections();
+    }
+
+    @Override
+    public int getConnectionTimeoutSeconds() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getConnectionTimeoutSeconds();
+    }
+
+    @Override
+    public int getSocketTimeoutSeconds() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getSocketTimeoutSeconds();
+    }
+
+    @Override
+    public int getConnectionTtlSeconds() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getConnectionTtlSeconds();
+    }
+
+    @Override
+    public int getMaxErrorRetry() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getMaxErrorRetry();
+    }
+
+    @Override
+    public boolean isTcpKeepAlive() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.isTcpKeepAlive();
+    }
+
+    @Override
+    public boolean isGzipEnabled() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.isGzipEnabled();
+    }
+
+    @Override
+    public ProxyConfiguration getProxy() {
+        return Jenkins.getInstance().proxy;
+    }
+
+    @Override
+    public Map<String, String> getQueueUrls() {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        return descriptor.getQueueUrls();
+    }
+
+    @Override
+    public void saveQueueUrls(final Map<String, String> urls) {
+        final SQSTrigger.DescriptorImpl descriptor = SQSTrigger.DescriptorImpl.get();
+        descriptor.saveQueueUrls(urls);
+    }
+}
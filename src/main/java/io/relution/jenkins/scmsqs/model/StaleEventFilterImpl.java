@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.interfaces.StaleEventFilter;
+
+
+public class StaleEventFilterImpl implements StaleEventFilter {
+
+    /**
+     * The time by which the clocks of Jenkins and Amazon Web Services may differ before a change
+     * could go unnoticed. Events raised less than this before a poll are always considered fresh.
+     */
+    private static final long CLOCK_SKEW_TOLERANCE = TimeUnit.MINUTES.toMillis(1);
+
+    @Override
+    public List<Event> getFresh(final List<Event> events, final long coveredSince) {
+        if (coveredSince <= 0) {
+            return events;
+        }
+
+        final long threshold = coveredSince - CLOCK_SKEW_TOLERANCE;
+        final List<Event> fresh = new ArrayList<>(events.size());
+
+        for (final Event event : events) {
+            if (event.getTimestamp() <= 0 || event.getTimestamp() >= threshold) {
+                fresh.add(event);
+            }
+        }
+
+        return fresh;
+    }
+}
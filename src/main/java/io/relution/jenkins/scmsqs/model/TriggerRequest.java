@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+
+
+/**
+ * Represents a request to poll a job, caused by one or more SCM events that matched the job.
+ */
+public class TriggerRequest {
+
+    private final long        timestamp;
+    private final List<Event> events;
+
+    public TriggerRequest(final List<Event> events) {
+        this.timestamp = System.currentTimeMillis();
+        this.events = events == null ? Collections.<Event> emptyList() : events;
+    }
+
+    /**
+     * Returns the time at which the request was made.
+     * @return The time, in milliseconds since the epoch, at which the request was made.
+     */
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * Returns the events that caused the request.
+     * @return The collection of {@link Event}s that caused the request.
+     */
+    public List<Event> getEvents() {
+        return this.events;
+    }
+}
@@ -20,6 +20,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jgit.transport.URIish;
 
 import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.util.Timestamps;
 
 
 public class CodeCommitEvent implements Event {
@@ -27,12 +28,34 @@ public class CodeCommitEvent implements Event {
     private final static String HOST = "git-codecommit.%s.amazonaws.com";
     private final static String PATH = "/v1/repos/%s";
 
+    private final String        id;
+    private final int           partNumber;
+    private final int           totalParts;
+
     private final String        host;
     private final String        path;
 
     private final String        branch;
+    private final String        commit;
+
+    private final long          timestamp;
 
     public CodeCommitEvent(final Record record, final Reference reference) {
+        this(record, reference, 0);
+    }
+
+    /**
+     * Creates a new event for the specified record and reference.
+     * @param record The {@link Record} that contains the reference.
+     * @param reference The {@link Reference} that was changed.
+     * @param fallbackTimestamp The time to use if the record does not define an event time, e.g.
+     * the time at which the message was sent to the queue.
+     */
+    public CodeCommitEvent(final Record record, final Reference reference, final long fallbackTimestamp) {
+        this.id = record.getEventId();
+        this.partNumber = Math.max(1, record.getEventPartNumber());
+        this.totalParts = Math.max(this.partNumber, record.getEventTotalParts());
+
         final String arn = record.getEventSourceARN();
         final String[] tokens = arn.split(":", 6);
 
@@ -41,6 +64,25 @@ public class CodeCommitEvent implements Event {
 
         final String name = reference.getName();
         this.branch = StringUtils.stripStart(name, "refs/");
+        this.commit = reference.getCommit();
+
+        final long eventTime = Timestamps.parseIso8601(record.getEventTime());
+        this.timestamp = eventTime > 0 ? eventTime : fallbackTimestamp;
+    }
+
+    @Override
+    public String getId() {
+        return this.id;
+    }
+
+    @Override
+    public int getPartNumber() {
+        return this.partNumber;
+    }
+
+    @Override
+    public int getTotalParts() {
+        return this.totalParts;
     }
 
     @Override
@@ -63,6 +105,16 @@ public class CodeCommitEvent implements Event {
         return this.branch;
     }
 
+    @Override
+    public String getCommit() {
+        return this.commit;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
     @Override
     public boolean isMatch(final URIish uri) {
         if (uri == null) {
@@ -19,6 +19,7 @@ package io.relution.jenkins.scmsqs.model.entities.codecommit;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -31,10 +32,13 @@ public class Records implements Iterable<Record> {
 
     @Override
     public Iterator<Record> iterator() {
+        if (this.records == null) {
+            return Collections.emptyIterator();
+        }
         return this.records.iterator();
     }
 
     public int size() {
-        return this.records.size();
+        return this.records != null ? this.records.size() : 0;
     }
 }
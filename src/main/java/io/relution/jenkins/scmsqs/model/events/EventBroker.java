@@ -1,25 +1,74 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
 
 package io.relution.jenkins.scmsqs.model.events;
 
 import com.google.common.eventbus.EventBus;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.threading.CoalescingGate;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+
 
 /**
- * Provides a single instance of {@link EventBus}.
+ * Provides a single instance of {@link EventBus}, whose events are delivered asynchronously.
+ * <p>
+ * Events are delivered one batch at a time by a dedicated thread, so posting an event never waits
+ * for its handlers. Events posted while a batch is pending are merged into the pending batch; of
+ * several events of the same type, only the most recent one is delivered.
  */
 public class EventBroker {
 
-    private static EventBroker instance;
+    private static EventBroker           instance;
 
-    private final EventBus     eventBus = new EventBus();
+    private final EventBus               eventBus = new EventBus();
+    private final Executor               executor;
+
+    private final CoalescingGate<Object> gate     = new CoalescingGate<>();
+    private final Runnable               delivery = new Delivery();
+
+    private volatile long                lastDelivered;
+    private volatile long                lastDuration;
 
     public synchronized static EventBroker getInstance() {
         if (instance == null) {
-            instance = new EventBroker();
+            instance = new EventBroker(Executors.newSingleThreadExecutor(new DeliveryThreadFactory()));
         }
         return instance;
     }
 
+    /**
+     * Creates a new broker.
+     * @param executor The {@link Executor} used to deliver events. The executor must not run more
+     * than one delivery at a time.
+     */
+    public EventBroker(final Executor executor) {
+        ThrowIf.isNull(executor, "executor");
+
+        this.executor = executor;
+    }
+
     /**
      * Registers all handler methods on {@code object} to receive events.
      * @param object The object whose handler methods should be registered.
@@ -40,12 +89,97 @@ public class EventBroker {
     }
 
     /**
-     * Posts an event to all registered handlers. This method will return successfully after the
-     * event has been posted to all handlers, and regardless of any exceptions thrown by handlers.
+     * Posts an event to all registered handlers. This method returns immediately; the event is
+     * delivered asynchronously, regardless of any exceptions thrown by handlers.
      * @param event The event to post
      * @see EventBus#post(Object)
      */
     public void post(final Object event) {
-        this.eventBus.post(event);
+        ThrowIf.isNull(event, "event");
+
+        if (this.gate.request(event)) {
+            this.executor.execute(this.delivery);
+        }
+    }
+
+    /**
+     * Returns a value indicating whether events are waiting to be delivered or are being delivered.
+     * @return {@code true} if a delivery is pending or running; otherwise, {@code false}.
+     */
+    public boolean isDelivering() {
+        return this.gate.isPending() || this.gate.isRunning();
+    }
+
+    /**
+     * Returns the time at which the last delivery completed.
+     * @return The time, in milliseconds since the epoch, at which the last delivery completed, or
+     * {@code 0} if no events were delivered yet.
+     */
+    public long getLastDelivered() {
+        return this.lastDelivered;
+    }
+
+    /**
+     * Returns the time it took to complete the last delivery.
+     * @return The duration of the last delivery, in milliseconds.
+     */
+    public long getLastDuration() {
+        return this.lastDuration;
+    }
+
+    private void deliver() {
+        final List<Object> events = merge(this.gate.begin());
+        final long start = System.currentTimeMillis();
+
+        try {
+            for (final Object event : events) {
+                this.eventBus.post(event);
+            }
+
+        } finally {
+            this.lastDuration = System.currentTimeMillis() - start;
+            this.lastDelivered = System.currentTimeMillis();
+
+            if (this.gate.end()) {
+                this.executor.execute(this.delivery);
+            }
+        }
+    }
+
+    /**
+     * Returns the most recent event of each type, in the order in which the types were first
+     * posted.
+     */
+    private static List<Object> merge(final List<Object> events) {
+        final Map<Class<?>, Object> latest = new LinkedHashMap<>();
+
+        for (final Object event : events) {
+            latest.put(event.getClass(), event);
+        }
+
+        if (latest.size() < events.size()) {
+            Log.fine("Merged %d event(s) into %d", events.size(), latest.size());
+        }
+
+        return new ArrayList<>(latest.values());
+    }
+
+    private class Delivery implements Runnable {
+
+        @Override
+        public void run() {
+            EventBroker.this.deliver();
+        }
+    }
+
+    private static class DeliveryThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "SQS event delivery");
+            thread.setDaemon(true);
+
+            return thread;
+        }
     }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.net;
+
+import com.amazonaws.ClientConfiguration;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import hudson.ProxyConfiguration;
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.util.Digests;
+
+
+/**
+ * The settings of the HTTP client used to access a queue. Queues with equal settings can share a
+ * client, see {@link io.relution.jenkins.scmsqs.interfaces.SQSClientPool}. The proxy password is
+ * only retained as a digest, so settings can be used as part of a long-lived key.
+ */
+public final class ClientSettings {
+
+    private static final String DEFAULT_ENDPOINT = "sqs.us-east-1.amazonaws.com";
+
+    private final int           maxConnections;
+    private final int           connectionTimeout;
+    private final int           socketTimeout;
+    private final long          connectionTtl;
+    private final int           maxErrorRetry;
+    private final boolean       tcpKeepAlive;
+    private final boolean       gzip;
+
+    private final String        proxyHost;
+    private final int           proxyPort;
+    private final String        proxyUserName;
+    private final String        proxyPasswordDigest;
+
+    private ClientSettings(final SettingsProvider settings, final ProxyConfiguration proxy) {
+        this.maxConnections = settings.getMaxConnections();
+        this.connectionTimeout = (int) TimeUnit.SECONDS.toMillis(settings.getConnectionTimeoutSeconds());
+        this.socketTimeout = (int) TimeUnit.SECONDS.toMillis(settings.getSocketTimeoutSeconds());
+        this.connectionTtl = settings.getConnectionTtlSeconds() > 0 ? TimeUnit.SECONDS.toMillis(settings.getConnectionTtlSeconds()) : -1;
+        this.maxErrorRetry = settings.getMaxErrorRetry();
+        this.tcpKeepAlive = settings.isTcpKeepAlive();
+        this.gzip = settings.isGzipEnabled();
+
+        if (proxy != null) {
+            this.proxyHost = proxy.name;
+            this.proxyPort = proxy.port;
+            this.proxyUserName = proxy.getUserName();
+            this.proxyPasswordDigest = Digests.sha256(proxy.getPassword());
+        } else {
+            this.proxyHost = null;
+            this.proxyPort = -1;
+            this.proxyUserName = null;
+            this.proxyPasswordDigest = null;
+        }
+    }
+
+    /**
+     * Returns the client settings for the specified queue.
+     * @param settings The {@link SettingsProvider} that provides the global client settings.
+     * @param queue The {@link SQSQueue} for which to return the client settings.
+     * @return The {@link ClientSettings} for the specified queue. The proxy is omitted if the
+     * endpoint of the queue is excluded from the proxy configuration.
+     */
+    public static ClientSettings create(final SettingsProvider settings, final SQSQueue queue) {
+        final ProxyConfiguration proxy = settings.getProxy();
+
+        if (proxy == null || StringUtils.isBlank(proxy.name) || isNoProxyHost(proxy, getHost(queue))) {
+            return new ClientSettings(settings, null);
+        }
+
+        return new ClientSettings(settings, proxy);
+    }
+
+    /**
+     * Returns a new client configuration with these settings.
+     * @param settings The {@link SettingsProvider} from which to read the proxy password.
+     * @return A new {@link ClientConfiguration}.
+     */
+    public ClientConfiguration toClientConfiguration(final SettingsProvider settings) {
+        final ClientConfiguration config = new ClientConfiguration();
+
+        config.setMaxConnections(this.maxConnections);
+        config.setConnectionTimeout(this.connectionTimeout);
+        config.setSocketTimeout(this.socketTimeout);
+        config.setConnectionTTL(this.connectionTtl);
+        config.setMaxErrorRetry(this.maxErrorRetry);
+        config.setUseTcpKeepAlive(this.tcpKeepAlive);
+        config.setUseGzip(this.gzip);
+
+        if (this.proxyHost != null) {
+            config.setProxyHost(this.proxyHost);
+            config.setProxyPort(this.proxyPort);
+            config.setProxyUsername(this.proxyUserName);
+            final ProxyConfiguration proxy = settings.getProxy();
+            config.setProxyPassword(proxy != null ? proxy.getPassword() : null);
+        }
+
+        return config;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new Object[] {
+                this.maxConnections,
+                this.connectionTimeout,
+                this.socketTimeout,
+                this.connectionTtl,
+                this.maxErrorRetry,
+                this.tcpKeepAlive,
+                this.gzip,
+                this.proxyHost,
+                this.proxyPort,
+                this.proxyUserName,
+                this.proxyPasswordDigest });
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof ClientSettings)) {
+            return false;
+        }
+        final ClientSettings other = (ClientSettings) obj;
+        return this.maxConnections == other.maxConnections
+                && this.connectionTimeout == other.connectionTimeout
+                && this.socketTimeout == other.socketTimeout
+                && this.connectionTtl == other.connectionTtl
+                && this.maxErrorRetry == other.maxErrorRetry
+                && this.tcpKeepAlive == other.tcpKeepAlive
+                && this.gzip == other.gzip
+                && StringUtils.equals(this.proxyHost, other.proxyHost)
+                && this.proxyPort == other.proxyPort
+                && StringUtils.equals(this.proxyUserName, other.proxyUserName)
+                && StringUtils.equals(this.proxyPasswordDigest, other.proxyPasswordDigest);
+    }
+
+    /**
+     * Returns the host name of the endpoint of the specified queue. The endpoint may include a
+     * scheme, port or path, which are not part of the host name matched against the no proxy
+     * hosts.
+     */
+    static String getHost(final SQSQueue queue) {
+        final String endpoint = StringUtils.trim(queue.getEndpoint());
+
+        if (StringUtils.isEmpty(endpoint)) {
+            return DEFAULT_ENDPOINT;
+        }
+
+        try {
+            final URI uri = new URI(endpoint.contains("://") ? endpoint : "https://" + endpoint);
+
+            if (uri.getHost() != null) {
+                return uri.getHost();
+            }
+
+        } catch (final URISyntaxException e) {
+            Log.warning("Invalid endpoint '%s', %s", endpoint, e.getMessage());
+
+        }
+        return endpoint;
+    }
+
+    private static boolean isNoProxyHost(final ProxyConfiguration proxy, final String host) {
+        for (final Pattern pattern : ProxyConfiguration.getNoProxyHostPatterns(proxy.noProxyHost)) {
+            if (pattern.matcher(host).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
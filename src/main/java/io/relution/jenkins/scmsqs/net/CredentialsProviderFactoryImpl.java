@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.net;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.InstanceProfileCredentialsProvider;
+import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
+import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClient;
+import com.amazonaws.services.securitytoken.model.AssumeRoleRequest;
+import com.amazonaws.services.securitytoken.model.Credentials;
+import com.google.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import io.relution.jenkins.scmsqs.interfaces.CredentialsProviderFactory;
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.util.Digests;
+import jenkins.util.Timer;
+
+
+public class CredentialsProviderFactoryImpl implements CredentialsProviderFactory {
+
+    private static final String                       ROLE_SESSION_NAME             = "jenkins-scm-sqs";
+    private static final int                          ROLE_SESSION_DURATION_SECONDS = 3600;
+
+    private final SettingsProvider                    settings;
+
+    private final Map<String, PooledProvider>         providers                     = new HashMap<>();
+    private final Map<AWSCredentialsProvider, String> keys                          = new IdentityHashMap<>();
+
+    private AWSCredentialsProvider                    instanceProfile;
+
+    @Inject
+    public CredentialsProviderFactoryImpl(final SettingsProvider settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public synchronized AWSCredentialsProvider getProvider(final SQSQueue queue) {
+        final String key = getKey(queue);
+        PooledProvider pooled = this.providers.get(key);
+
+        if (pooled == null) {
+            pooled = this.createProvider(queue);
+            this.providers.put(key, pooled);
+            this.keys.put(pooled.provider, key);
+        }
+
+        pooled.references++;
+        return pooled.provider;
+    }
+
+    @Override
+    public void release(final AWSCredentialsProvider provider) {
+        if (provider == null) {
+            return;
+        }
+
+        final PooledProvider pooled;
+
+        synchronized (this) {
+            final String key = this.keys.get(provider);
+
+            if (key == null) {
+                Log.warning("Released credentials provider that is not part of the cache");
+                return;
+            }
+
+            pooled = this.providers.get(key);
+
+            if (--pooled.references > 0) {
+                return;
+            }
+
+            this.providers.remove(key);
+            this.keys.remove(provider);
+        }
+
+        pooled.shutDown();
+    }
+
+    private PooledProvider createProvider(final SQSQueue queue) {
+        final AWSCredentialsProvider source = this.createSourceProvider(queue);
+
+        if (StringUtils.isBlank(queue.getRoleArn())) {
+            return new PooledProvider(source, null);
+        }
+
+        Log.info("Create session credentials provider for role %s", queue.getRoleArn());
+        final ClientSettings settings = ClientSettings.create(this.settings, queue);
+        final AWSSecurityTokenService sts = new AWSSecurityTokenServiceClient(source, settings.toClientConfiguration(this.settings));
+        final AssumeRoleLoader loader = new AssumeRoleLoader(sts, queue.getRoleArn(), queue.getExternalId());
+        return new PooledProvider(new RefreshingCredentialsProvider(Timer.get(), loader), sts);
+    }
+
+    private AWSCredentialsProvider createSourceProvider(final SQSQueue queue) {
+        if (!StringUtils.isBlank(queue.getCredentialsId())) {
+            return new JenkinsCredentialsProvider(queue.getCredentialsId());
+        }
+
+        if (!StringUtils.isEmpty(queue.getAWSAccessKeyId())) {
+            return new StaticProvider(new BasicAWSCredentials(queue.getAWSAccessKeyId(), queue.getAWSSecretKey()));
+        }
+
+        if (this.instanceProfile == null) {
+            Log.info("Create instance profile credentials provider");
+            this.instanceProfile = new InstanceProfileCredentialsProvider(true);
+        }
+        return this.instanceProfile;
+    }
+
+    /**
+     * Returns a key that identifies the credentials of the specified queue. The secret key is only
+     * included as a digest, so the cache does not keep decrypted secrets in memory.
+     */
+    private static String getKey(final SQSQueue queue) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(StringUtils.defaultString(queue.getRoleArn()));
+        sb.append('|');
+        sb.append(StringUtils.defaultString(queue.getExternalId()));
+        sb.append('|');
+
+        if (!StringUtils.isBlank(queue.getCredentialsId())) {
+            sb.append("credentials:").append(queue.getCredentialsId());
+
+        } else if (!StringUtils.isEmpty(queue.getAWSAccessKeyId())) {
+            sb.append("key:").append(queue.getAWSAccessKeyId());
+            sb.append(':').append(StringUtils.defaultString(Digests.sha256(queue.getAWSSecretKey())));
+
+        } else {
+            sb.append("instance-profile");
+
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A cached provider, with the security token service client used to assume a role, if any.
+     */
+    private static class PooledProvider {
+
+        private final AWSCredentialsProvider  provider;
+        private final AWSSecurityTokenService sts;
+        private int                           references;
+
+        private PooledProvider(final AWSCredentialsProvider provider, final AWSSecurityTokenService sts) {
+            this.provider = provider;
+            this.sts = sts;
+        }
+
+        private void shutDown() {
+            if (this.provider instanceof RefreshingCredentialsProvider) {
+                ((RefreshingCredentialsProvider) this.provider).shutDown();
+            }
+
+            if (this.sts != null) {
+                Log.info("Shut down unused session credentials provider");
+                this.sts.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Returns credentials that were decrypted once, when the provider was created.
+     */
+    private static class StaticProvider implements AWSCredentialsProvider {
+
+        private final AWSCredentials credentials;
+
+        private StaticProvider(final AWSCredentials credentials) {
+            this.credentials = credentials;
+        }
+
+        @Override
+        public AWSCredentials getCredentials() {
+            return this.credentials;
+        }
+
+        @Override
+        public void refresh() {
+        }
+    }
+
+    private static class AssumeRoleLoader implements RefreshingCredentialsProvider.Loader {
+
+        private final AWSSecurityTokenService sts;
+        private final String                  roleArn;
+        private final String                  externalId;
+
+        private AssumeRoleLoader(final AWSSecurityTokenService sts, final String roleArn, final String externalId) {
+            this.sts = sts;
+            this.roleArn = roleArn;
+            this.externalId = externalId;
+        }
+
+        @Override
+        public Credentials load() {
+            Log.fine("Assume role %s", this.roleArn);
+
+            final AssumeRoleRequest request = new AssumeRoleRequest()
+                    .withRoleArn(this.roleArn)
+                    .withRoleSessionName(ROLE_SESSION_NAME)
+                    .withDurationSeconds(ROLE_SESSION_DURATION_SECONDS);
+
+            if (!StringUtils.isBlank(this.externalId)) {
+                request.setExternalId(this.externalId);
+            }
+
+            return this.sts.assumeRole(request).getCredentials();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.net;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import hudson.security.ACL;
+import hudson.util.Secret;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+import jenkins.model.Jenkins;
+
+
+/**
+ * An {@link AWSCredentialsProvider} that returns the access key stored as Jenkins credentials. The
+ * user name of the credentials is the AWS access key ID, the password is the AWS secret key.
+ * <p>
+ * The credentials are looked up and decrypted at most once per minute, so that changes made to
+ * the Jenkins credentials are picked up without decrypting the secret for each request.
+ */
+public class JenkinsCredentialsProvider implements AWSCredentialsProvider {
+
+    private static final long       CACHE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final String            credentialsId;
+
+    private volatile AWSCredentials credentials;
+    private volatile long           loaded;
+
+    /**
+     * Creates a new provider for the specified Jenkins credentials.
+     * @param credentialsId The identifier of the Jenkins credentials to return.
+     */
+    public JenkinsCredentialsProvider(final String credentialsId) {
+        ThrowIf.isNull(credentialsId, "credentialsId");
+
+        this.credentialsId = credentialsId;
+    }
+
+    @Override
+    public AWSCredentials getCredentials() {
+        if (this.credentials == null || System.currentTimeMillis() - this.loaded > CACHE_MILLIS) {
+            this.refresh();
+        }
+        return this.credentials;
+    }
+
+    @Override
+    public void refresh() {
+        final StandardUsernamePasswordCredentials credentials = CredentialsMatchers.firstOrNull(
+                CredentialsProvider.lookupCredentials(
+                        StandardUsernamePasswordCredentials.class,
+                        Jenkins.getInstance(),
+                        ACL.SYSTEM,
+                        Collections.<DomainRequirement> emptyList()),
+                CredentialsMatchers.withId(this.credentialsId));
+
+        if (credentials == null) {
+            throw new AmazonClientException("Jenkins credentials " + this.credentialsId + " not found");
+        }
+
+        this.credentials = new BasicAWSCredentials(credentials.getUsername(), Secret.toString(credentials.getPassword()));
+        this.loaded = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.net;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.amazonaws.services.securitytoken.model.Credentials;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+
+
+/**
+ * An {@link AWSCredentialsProvider} that caches temporary session credentials and refreshes them
+ * in the background before they expire. Callers of {@link #getCredentials()} only wait for new
+ * credentials if none have been loaded yet, or if the credentials expired because refreshing them
+ * failed repeatedly.
+ * <p>
+ * Credentials are only refreshed in the background if they were used since they were loaded. A
+ * provider that is no longer used therefore stops issuing requests once its credentials expire.
+ */
+public class RefreshingCredentialsProvider implements AWSCredentialsProvider {
+
+    /**
+     * Interface definition for a callback to be invoked to load new session credentials.
+     */
+    public interface Loader {
+
+        /**
+         * Called to load new session credentials.
+         * @return The {@link Credentials} loaded, including their expiration time.
+         * @throws AmazonClientException The credentials could not be loaded.
+         */
+        Credentials load();
+    }
+
+    private static final long              REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long              EXPIRY_MARGIN_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long              RETRY_DELAY_MILLIS   = TimeUnit.SECONDS.toMillis(30);
+
+    private final ScheduledExecutorService timer;
+    private final Loader                   loader;
+
+    private final Object                   lock                 = new Object();
+
+    private volatile Session               session;
+    private volatile boolean               isUsed;
+
+    private ScheduledFuture<?>             future;
+    private boolean                        isShutDown;
+
+    /**
+     * Creates a new provider.
+     * @param timer The {@link ScheduledExecutorService} used to refresh the credentials.
+     * @param loader The {@link Loader} used to load new session credentials.
+     */
+    public RefreshingCredentialsProvider(final ScheduledExecutorService timer, final Loader loader) {
+        ThrowIf.isNull(timer, "timer");
+        ThrowIf.isNull(loader, "loader");
+
+        this.timer = timer;
+        this.loader = loader;
+    }
+
+    @Override
+    public AWSCredentials getCredentials() {
+        Session session = this.session;
+
+        if (session == null || session.isExpired()) {
+            synchronized (this.lock) {
+                session = this.session;
+
+                if (session == null || session.isExpired()) {
+                    session = this.load();
+                }
+            }
+        }
+
+        this.isUsed = true;
+        return session.credentials;
+    }
+
+    @Override
+    public void refresh() {
+        synchronized (this.lock) {
+            this.load();
+        }
+    }
+
+    /**
+     * Stops refreshing the credentials in the background. Credentials that were already loaded are
+     * still returned until they expire.
+     */
+    public void shutDown() {
+        synchronized (this.lock) {
+            this.isShutDown = true;
+
+            if (this.future != null) {
+                this.future.cancel(false);
+                this.future = null;
+            }
+        }
+    }
+
+    private Session load() {
+        final Session session = new Session(this.loader.load());
+        this.session = session;
+        this.isUsed = false;
+
+        final long delay = session.expiration - REFRESH_AHEAD_MILLIS - System.currentTimeMillis();
+        this.schedule(Math.max(delay, RETRY_DELAY_MILLIS));
+
+        return session;
+    }
+
+    private void schedule(final long delay) {
+        if (this.future != null) {
+            this.future.cancel(false);
+        }
+
+        if (this.isShutDown) {
+            this.future = null;
+            return;
+        }
+
+        this.future = this.timer.schedule(new Refresh(), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshInBackground() {
+        synchronized (this.lock) {
+            this.future = null;
+
+            if (this.isShutDown) {
+                return;
+            }
+
+            if (!this.isUsed) {
+                Log.fine("Credentials not used since last refresh, refresh skipped");
+                return;
+            }
+
+            try {
+                this.load();
+
+            } catch (final AmazonClientException e) {
+                Log.warning("Failed to refresh credentials, retry in %d seconds: %s",
+                        TimeUnit.MILLISECONDS.toSeconds(RETRY_DELAY_MILLIS),
+                        e.getMessage());
+                this.schedule(RETRY_DELAY_MILLIS);
+
+            }
+        }
+    }
+
+    private static class Session {
+
+        private final AWSCredentials credentials;
+        private final long           expiration;
+
+        private Session(final Credentials credentials) {
+            this.credentials = new BasicSessionCredentials(
+                    credentials.getAccessKeyId(),
+                    credentials.getSecretAccessKey(),
+                    credentials.getSessionToken());
+            this.expiration = credentials.getExpiration().getTime();
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= this.expiration - EXPIRY_MARGIN_MILLIS;
+        }
+    }
+
+    private class Refresh implements Runnable {
+
+        @Override
+        public void run() {
+            RefreshingCredentialsProvider.this.refreshInBackground();
+        }
+    }
+}
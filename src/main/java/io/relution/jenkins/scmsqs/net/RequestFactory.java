@@ -1,6 +1,7 @@
 
 package io.relution.jenkins.scmsqs.net;
 
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
 import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
@@ -32,4 +33,19 @@ public interface RequestFactory {
      * specified queue.
      */
     DeleteMessageBatchRequest createDeleteMessageBatchRequest(final SQSQueue queue, final List<Message> messages);
+
+    /**
+     * Returns a new request that can be used to change the visibility timeout of previously
+     * received messages in the specified queue.
+     * <p>
+     * The specified messages must have been received by a previous receive message request to
+     * the same queue. A visibility timeout of zero makes the messages visible to other consumers
+     * immediately.
+     * @param queue The {@link SQSQueue} that contains the specified messages.
+     * @param messages The collection of {@link Message}s for which to change the visibility timeout.
+     * @param visibilityTimeout The new visibility timeout of the messages, in seconds.
+     * @return A {@link ChangeMessageVisibilityBatchRequest} that can be used to change the
+     * visibility timeout of messages in the specified queue.
+     */
+    ChangeMessageVisibilityBatchRequest createChangeMessageVisibilityBatchRequest(final SQSQueue queue, final List<Message> messages, final int visibilityTimeout);
 }
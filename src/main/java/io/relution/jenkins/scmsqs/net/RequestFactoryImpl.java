@@ -1,15 +1,19 @@
 
 package io.relution.jenkins.scmsqs.net;
 
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
 import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
 import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+import io.relution.jenkins.scmsqs.model.constants.AttributeName;
 
 
 public class RequestFactoryImpl implements RequestFactory {
@@ -19,6 +23,7 @@ public class RequestFactoryImpl implements RequestFactory {
         final ReceiveMessageRequest request = new ReceiveMessageRequest(queue.getUrl());
         request.setMaxNumberOfMessages(queue.getMaxNumberOfMessages());
         request.setWaitTimeSeconds(queue.getWaitTimeSeconds());
+        request.setAttributeNames(Collections.singletonList(AttributeName.SENT_TIMESTAMP));
         return request;
     }
 
@@ -36,6 +41,22 @@ public class RequestFactoryImpl implements RequestFactory {
         return request;
     }
 
+    @Override
+    public ChangeMessageVisibilityBatchRequest createChangeMessageVisibilityBatchRequest(final SQSQueue queue, final List<Message> messages, final int visibilityTimeout) {
+        final List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(messages.size());
+
+        for (final Message message : messages) {
+            final ChangeMessageVisibilityBatchRequestEntry entry = new ChangeMessageVisibilityBatchRequestEntry();
+            entry.setReceiptHandle(message.getReceiptHandle());
+            entry.setId(message.getMessageId());
+            entry.setVisibilityTimeout(visibilityTimeout);
+            entries.add(entry);
+        }
+
+        final ChangeMessageVisibilityBatchRequest request = new ChangeMessageVisibilityBatchRequest(queue.getUrl(), entries);
+        return request;
+    }
+
     private DeleteMessageBatchRequestEntry createDeleteMessageBatchRequestEntry(final Message message) {
         final DeleteMessageBatchRequestEntry entry = new DeleteMessageBatchRequestEntry();
         entry.setReceiptHandle(message.getReceiptHandle());
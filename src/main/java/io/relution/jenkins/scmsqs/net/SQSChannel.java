@@ -20,6 +20,8 @@ import com.amazonaws.services.sqs.model.Message;
 
 import java.util.List;
 
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+
 
 public interface SQSChannel {
 
@@ -27,5 +29,28 @@ public interface SQSChannel {
 
     void deleteMessages(List<Message> messages);
 
+    void releaseMessages(List<Message> messages);
+
+    /**
+     * Keeps the specified messages invisible to consumers for the specified time, so they are not
+     * redelivered while they are held back before they can be deleted.
+     * @param messages The collection of {@link Message}s to hold.
+     * @param visibilityTimeout The time for which the messages remain invisible, in seconds.
+     */
+    void holdMessages(List<Message> messages, int visibilityTimeout);
+
     String getQueueUuid();
+
+    void reconfigure(SQSQueue queue);
+
+    /**
+     * Returns a value indicating whether the client used by this channel can be used to access
+     * the specified queue, with the client settings that are currently configured.
+     * @param queue The {@link SQSQueue} the channel is reconfigured for.
+     * @return {@code true} if the client of the channel is up to date; {@code false} if the channel
+     * must be replaced to apply changed client settings.
+     */
+    boolean isClientCurrent(SQSQueue queue);
+
+    void close();
 }
\ No newline at end of file
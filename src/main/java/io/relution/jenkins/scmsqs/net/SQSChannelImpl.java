@@ -17,19 +17,25 @@
 package io.relution.jenkins.scmsqs.net;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
 import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
 import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 
+import com.google.common.collect.Lists;
+
 import org.apache.commons.httpclient.HttpStatus;
 
 import java.util.Collections;
 import java.util.List;
 
+import io.relution.jenkins.scmsqs.interfaces.SQSClientPool;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
 import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.metrics.QueueStatistics;
 import io.relution.jenkins.scmsqs.model.constants.ErrorCode;
 import io.relution.jenkins.scmsqs.util.ErrorType;
 import io.relution.jenkins.scmsqs.util.ThrowIf;
@@ -37,44 +43,69 @@ import io.relution.jenkins.scmsqs.util.ThrowIf;
 
 public class SQSChannelImpl implements SQSChannel {
 
-    private final AmazonSQS      sqs;
-    private final SQSQueue       queue;
-    private final RequestFactory factory;
+    private static final int      MAX_BATCH_SIZE = 10;
 
-    /**
-     * Number of requests that were sent (for logging)
-     */
-    private int                  requestCount;
+    private final SQSClientPool   pool;
+    private final RequestFactory  factory;
+    private final QueueStatistics statistics;
+
+    private volatile SQSQueue     queue;
+    private AmazonSQS             sqs;
 
     public SQSChannelImpl(final AmazonSQS sqs, final SQSQueue queue, final RequestFactory factory) {
         ThrowIf.isNull(sqs, "sqs");
         ThrowIf.isNull(queue, "queue");
         ThrowIf.isNull(factory, "factory");
 
+        this.pool = null;
         this.sqs = sqs;
         this.queue = queue;
         this.factory = factory;
+        this.statistics = new QueueStatistics();
+    }
+
+    /**
+     * Creates a new channel that acquires a client from the specified pool when it is first used,
+     * and releases the client when the channel is closed.
+     * @param pool The {@link SQSClientPool} from which to acquire a client.
+     * @param queue The {@link SQSQueue} the channel communicates with.
+     * @param factory The {@link RequestFactory} used to create requests.
+     * @param statistics The {@link QueueStatistics} in which requests sent to the queue are
+     * recorded.
+     */
+    public SQSChannelImpl(final SQSClientPool pool, final SQSQueue queue, final RequestFactory factory, final QueueStatistics statistics) {
+        ThrowIf.isNull(pool, "pool");
+        ThrowIf.isNull(queue, "queue");
+        ThrowIf.isNull(factory, "factory");
+        ThrowIf.isNull(statistics, "statistics");
+
+        this.pool = pool;
+        this.queue = queue;
+        this.factory = factory;
+        this.statistics = statistics;
     }
 
     @Override
     public List<Message> getMessages() {
         try {
-            this.logRequestCount();
+            Log.fine("Send receive message request #%d for %s", this.statistics.getReceiveRequests() + 1, this.queue);
 
             final ReceiveMessageRequest request = this.factory.createReceiveMessageRequest(this.queue);
-            final ReceiveMessageResult result = this.sqs.receiveMessage(request);
+            final long start = System.nanoTime();
+            final ReceiveMessageResult result = this.getClient().receiveMessage(request);
+            final List<Message> messages = result != null ? result.getMessages() : Collections.<Message> emptyList();
 
-            if (result == null) {
-                return Collections.emptyList();
-            }
-
-            return result.getMessages();
+            this.statistics.recordReceive(System.nanoTime() - start, messages.size());
+            return messages;
 
         } catch (final com.amazonaws.services.sqs.model.QueueDoesNotExistException e) {
+            this.statistics.incrementReceiveErrors();
             Log.warning("Failed to send receive message request for %s, queue does not exist", this.queue);
             throw e;
 
         } catch (final com.amazonaws.AmazonServiceException e) {
+            this.statistics.incrementReceiveErrors();
+
             if (ErrorType.is(e, ErrorCode.INVALID_CLIENT_TOKEN_ID, HttpStatus.SC_FORBIDDEN)) {
                 Log.warning("Failed to send receive message request for %s, %s", this.queue, e.getMessage());
                 throw e;
@@ -91,15 +122,31 @@ public class SQSChannelImpl implements SQSChannel {
             return;
         }
 
-        final DeleteMessageBatchResult result = this.deleteMessageBatch(messages);
+        for (final List<Message> batch : Lists.partition(messages, MAX_BATCH_SIZE)) {
+            this.deleteBatch(batch);
+        }
+    }
 
-        if (result == null) {
+    @Override
+    public void releaseMessages(final List<Message> messages) {
+        if (messages == null || messages.size() == 0) {
             return;
         }
 
-        final List<?> failed = result.getFailed();
-        final List<?> success = result.getSuccessful();
-        Log.info("Deleted %d message(s) (%d failed) from %s", success.size(), failed.size(), this.queue);
+        for (final List<Message> batch : Lists.partition(messages, MAX_BATCH_SIZE)) {
+            this.changeVisibility(batch, 0, "release");
+        }
+    }
+
+    @Override
+    public void holdMessages(final List<Message> messages, final int visibilityTimeout) {
+        if (messages == null || messages.size() == 0) {
+            return;
+        }
+
+        for (final List<Message> batch : Lists.partition(messages, MAX_BATCH_SIZE)) {
+            this.changeVisibility(batch, visibilityTimeout, "hold");
+        }
     }
 
     @Override
@@ -107,21 +154,76 @@ public class SQSChannelImpl implements SQSChannel {
         return this.queue.getUuid();
     }
 
+    @Override
+    public void reconfigure(final SQSQueue queue) {
+        ThrowIf.isNull(queue, "queue");
+
+        this.queue = queue;
+    }
+
+    @Override
+    public synchronized boolean isClientCurrent(final SQSQueue queue) {
+        if (this.pool == null || this.sqs == null) {
+            return true;
+        }
+        return this.pool.isCurrent(this.sqs, queue);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.pool != null && this.sqs != null) {
+            this.pool.release(this.sqs);
+            this.sqs = null;
+        }
+    }
+
     @Override
     public String toString() {
         return this.queue.toString();
     }
 
-    private void logRequestCount() {
-        this.requestCount++;
-        Log.fine("Send receive message request #%d for %s", this.requestCount, this.queue);
+    private synchronized AmazonSQS getClient() {
+        if (this.sqs == null) {
+            this.sqs = this.pool.acquire(this.queue);
+        }
+        return this.sqs;
+    }
+
+    private void deleteBatch(final List<Message> messages) {
+        final DeleteMessageBatchResult result = this.deleteMessageBatch(messages);
+
+        if (result == null) {
+            this.statistics.recordDelete(0, messages.size());
+            return;
+        }
+
+        final List<?> failed = result.getFailed();
+        final List<?> success = result.getSuccessful();
+        this.statistics.recordDelete(success.size(), failed.size());
+        Log.info("Deleted %d message(s) (%d failed) from %s", success.size(), failed.size(), this.queue);
+    }
+
+    private void changeVisibility(final List<Message> messages, final int visibilityTimeout, final String action) {
+        try {
+            final ChangeMessageVisibilityBatchRequest request = this.factory.createChangeMessageVisibilityBatchRequest(this.queue, messages, visibilityTimeout);
+            Log.info("Send %s request for %d message(s) to %s", action, messages.size(), this.queue);
+            final ChangeMessageVisibilityBatchResult result = this.getClient().changeMessageVisibilityBatch(request);
+
+            if (result != null) {
+                Log.info("Changed visibility of %d message(s) (%d failed) in %s to %d second(s)", result.getSuccessful().size(), result.getFailed().size(), this.queue, visibilityTimeout);
+            }
+
+        } catch (final com.amazonaws.AmazonServiceException e) {
+            Log.severe(e, "Failed to %s messages in %s", action, this.queue);
+
+        }
     }
 
     private DeleteMessageBatchResult deleteMessageBatch(final List<Message> messages) {
         try {
             final DeleteMessageBatchRequest request = this.factory.createDeleteMessageBatchRequest(this.queue, messages);
             Log.info("Send delete request for %d message(s) to %s", messages.size(), this.queue);
-            return this.sqs.deleteMessageBatch(request);
+            return this.getClient().deleteMessageBatch(request);
 
         } catch (final com.amazonaws.AmazonServiceException e) {
             Log.severe(e, "Delete from %s failed", this.queue);
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.net;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import io.relution.jenkins.scmsqs.interfaces.SQSClientPool;
+import io.relution.jenkins.scmsqs.interfaces.SQSFactory;
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.util.Digests;
+
+
+public class SQSClientPoolImpl implements SQSClientPool {
+
+    private final Provider<SQSFactory>         factory;
+    private final SettingsProvider             settings;
+
+    private final Map<ClientKey, PooledClient> clients = new HashMap<>();
+    private final Map<AmazonSQS, ClientKey>    keys    = new IdentityHashMap<>();
+
+    /**
+     * Creates a new pool that uses the specified factory to create clients.
+     * @param factory The provider of the {@link SQSFactory} used to create clients. A provider is
+     * used because the factory itself depends on the pool.
+     * @param settings The {@link SettingsProvider} that provides the client settings.
+     */
+    @Inject
+    public SQSClientPoolImpl(final Provider<SQSFactory> factory, final SettingsProvider settings) {
+        this.factory = factory;
+        this.settings = settings;
+    }
+
+    @Override
+    public synchronized AmazonSQS acquire(final SQSQueue queue) {
+        final ClientKey key = new ClientKey(queue, ClientSettings.create(this.settings, queue));
+        PooledClient pooled = this.clients.get(key);
+
+        if (pooled == null) {
+            Log.info("Create SQS client for %s", queue);
+            pooled = new PooledClient(this.factory.get().createSQS(queue));
+            this.clients.put(key, pooled);
+            this.keys.put(pooled.client, key);
+        }
+
+        pooled.references++;
+        return pooled.client;
+    }
+
+    @Override
+    public void release(final AmazonSQS client) {
+        if (client == null) {
+            return;
+        }
+
+        synchronized (this) {
+            final ClientKey key = this.keys.get(client);
+
+            if (key == null) {
+                Log.warning("Released SQS client that is not part of the pool");
+                return;
+            }
+
+            final PooledClient pooled = this.clients.get(key);
+
+            if (--pooled.references > 0) {
+                return;
+            }
+
+            this.clients.remove(key);
+            this.keys.remove(client);
+        }
+
+        Log.info("Shut down unused SQS client");
+        client.shutdown();
+    }
+
+    @Override
+    public synchronized boolean isCurrent(final AmazonSQS client, final SQSQueue queue) {
+        final ClientKey key = this.keys.get(client);
+
+        if (key == null) {
+            return false;
+        }
+
+        return key.equals(new ClientKey(queue, ClientSettings.create(this.settings, queue)));
+    }
+
+    @Override
+    public synchronized int size() {
+        return this.clients.size();
+    }
+
+    private static class PooledClient {
+
+        private final AmazonSQS client;
+        private int             references;
+
+        private PooledClient(final AmazonSQS client) {
+            this.client = client;
+        }
+    }
+
+    /**
+     * Identifies the credentials, endpoint and client settings of a queue. The secret key is only
+     * retained as a digest, so the pool does not keep decrypted secrets in memory.
+     */
+    private static class ClientKey {
+
+        private final String         accessKey;
+        private final String         secretKeyDigest;
+        private final String         credentialsId;
+        private final String         roleArn;
+        private final String         externalId;
+        private final String         endpoint;
+        private final ClientSettings settings;
+
+        private ClientKey(final SQSQueue queue, final ClientSettings settings) {
+            this.accessKey = queue.getAWSAccessKeyId();
+            this.secretKeyDigest = Digests.sha256(queue.getAWSSecretKey());
+            this.credentialsId = queue.getCredentialsId();
+            this.roleArn = queue.getRoleArn();
+            this.externalId = queue.getExternalId();
+            this.endpoint = queue.getEndpoint();
+            this.settings = settings;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = StringUtils.defaultString(this.accessKey).hashCode();
+            hash = 31 * hash + StringUtils.defaultString(this.secretKeyDigest).hashCode();
+            hash = 31 * hash + StringUtils.defaultString(this.credentialsId).hashCode();
+            hash = 31 * hash + StringUtils.defaultString(this.roleArn).hashCode();
+            hash = 31 * hash + StringUtils.defaultString(this.externalId).hashCode();
+            hash = 31 * hash + StringUtils.defaultString(this.endpoint).hashCode();
+            hash = 31 * hash + this.settings.hashCode();
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof ClientKey)) {
+                return false;
+            }
+            final ClientKey other = (ClientKey) obj;
+            return StringUtils.equals(this.accessKey, other.accessKey)
+                    && StringUtils.equals(this.secretKeyDigest, other.secretKeyDigest)
+                    && StringUtils.equals(this.credentialsId, other.credentialsId)
+                    && StringUtils.equals(this.roleArn, other.roleArn)
+                    && StringUtils.equals(this.externalId, other.externalId)
+                    && StringUtils.equals(this.endpoint, other.endpoint)
+                    && this.settings.equals(other.settings);
+        }
+    }
+}
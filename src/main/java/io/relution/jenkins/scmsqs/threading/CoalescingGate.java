@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Provides single-flight semantics for a task: at most one execution of the task is running and at
+ * most one execution is pending at any time. Requests made while an execution is already pending
+ * are merged into the pending execution.
+ * <p>
+ * Callers use {@link #request(Object)} to ask for an execution, and wrap the execution itself in
+ * {@link #begin()} and {@link #end()}.
+ * @param <T> The type of the items associated with a request.
+ */
+public class CoalescingGate<T> {
+
+    private final Object lock    = new Object();
+
+    private boolean      isRunning;
+    private boolean      isPending;
+    private List<T>      pending = new ArrayList<>();
+
+    /**
+     * Requests an execution of the task.
+     * @param item The item associated with the request, which is handed to the execution the
+     * request is merged into.
+     * @return {@code true} if the caller must schedule the task for execution; {@code false} if the
+     * request was merged into an execution that is already pending, or if it will be scheduled by
+     * the execution that is currently running.
+     */
+    public boolean request(final T item) {
+        synchronized (this.lock) {
+            this.pending.add(item);
+
+            if (this.isPending) {
+                return false;
+            }
+
+            this.isPending = true;
+            return !this.isRunning;
+        }
+    }
+
+    /**
+     * Marks the start of an execution. The pending requests are consumed by this execution.
+     * @return The items of all requests that were merged into this execution, in the order in
+     * which they were requested.
+     */
+    public List<T> begin() {
+        synchronized (this.lock) {
+            final List<T> items = this.pending;
+
+            this.isRunning = true;
+            this.isPending = false;
+            this.pending = new ArrayList<>();
+
+            return items;
+        }
+    }
+
+    /**
+     * Marks the end of an execution.
+     * @return {@code true} if a request was made while the execution was running, in which case the
+     * caller must schedule the task for execution again; otherwise, {@code false}.
+     */
+    public boolean end() {
+        synchronized (this.lock) {
+            this.isRunning = false;
+            return this.isPending;
+        }
+    }
+
+    /**
+     * Returns a value indicating whether an execution is pending.
+     * @return {@code true} if an execution is pending; otherwise, {@code false}.
+     */
+    public boolean isPending() {
+        synchronized (this.lock) {
+            return this.isPending;
+        }
+    }
+
+    /**
+     * Returns a value indicating whether an execution is running.
+     * @return {@code true} if an execution is running; otherwise, {@code false}.
+     */
+    public boolean isRunning() {
+        synchronized (this.lock) {
+            return this.isRunning;
+        }
+    }
+}
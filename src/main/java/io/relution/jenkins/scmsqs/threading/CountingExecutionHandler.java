@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import io.relution.jenkins.scmsqs.metrics.ExecutorStatistics;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+
+
+/**
+ * A handler for tasks that cannot be executed by a {@link ThreadPoolExecutor}, which counts the
+ * rejected tasks before it passes them on to another handler.
+ */
+public class CountingExecutionHandler implements RejectedExecutionHandler {
+
+    private final RejectedExecutionHandler handler;
+    private final ExecutorStatistics       statistics;
+
+    /**
+     * Installs a new instance on the specified executor, which counts the rejected tasks before it
+     * passes them on to the handler currently installed on the executor.
+     * @param executor The {@link ThreadPoolExecutor} to monitor.
+     * @param name The name of the thread pool, used for display purposes.
+     * @return The {@link ExecutorStatistics} of the executor.
+     */
+    public static ExecutorStatistics install(final ThreadPoolExecutor executor, final String name) {
+        final ExecutorStatistics statistics = new ExecutorStatistics(name, executor);
+        final RejectedExecutionHandler handler = executor.getRejectedExecutionHandler();
+
+        executor.setRejectedExecutionHandler(new CountingExecutionHandler(handler, statistics));
+        return statistics;
+    }
+
+    public CountingExecutionHandler(final RejectedExecutionHandler handler, final ExecutorStatistics statistics) {
+        ThrowIf.isNull(handler, "handler");
+        ThrowIf.isNull(statistics, "statistics");
+
+        this.handler = handler;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void rejectedExecution(final Runnable task, final ThreadPoolExecutor executor) {
+        this.statistics.incrementRejectedTasks();
+        this.handler.rejectedExecution(task, executor);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+
+
+/**
+ * A handler for tasks that cannot be executed by a {@link ThreadPoolExecutor} because its work
+ * queue is full. Rejected tasks are not dropped; instead their execution is deferred and submitted
+ * to the executor again after a delay.
+ */
+public class DeferredExecutionHandler implements RejectedExecutionHandler {
+
+    private final ScheduledExecutorService scheduler;
+
+    private final long                     delay;
+    private final TimeUnit                 unit;
+
+    public DeferredExecutionHandler(final ScheduledExecutorService scheduler, final long delay, final TimeUnit unit) {
+        ThrowIf.isNull(scheduler, "scheduler");
+        ThrowIf.isNull(unit, "unit");
+
+        this.scheduler = scheduler;
+        this.delay = delay;
+        this.unit = unit;
+    }
+
+    @Override
+    public void rejectedExecution(final Runnable task, final ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            Log.warning("Executor is shut down, discard task %s", task);
+            return;
+        }
+
+        Log.fine("Work queue is full, defer execution of %s", task);
+        this.scheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                executor.execute(task);
+            }
+        }, this.delay, this.unit);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+
+
+/**
+ * Reassembles changes that were split into several parts, each delivered as separate events. Events
+ * of a change that was not split are passed through immediately. Events of a change that was split
+ * are buffered until all parts have been received, or until a timeout expires, in which case the
+ * parts received so far are released.
+ */
+public class EventAssembler {
+
+    /**
+     * Interface definition for a callback to be invoked when parts are released because the timeout
+     * for a change expired before all of its parts were received.
+     */
+    public interface Callback {
+
+        /**
+         * Called when the timeout for an incomplete change expired.
+         * @param events The collection of {@link Event}s received for the change.
+         */
+        void onExpired(List<Event> events);
+    }
+
+    private final ScheduledExecutorService timer;
+    private final long                     timeout;
+    private final TimeUnit                 unit;
+    private final Callback                 callback;
+
+    private final Map<String, Parts>       pending = new HashMap<>();
+
+    /**
+     * Creates a new assembler.
+     * @param timer The {@link ScheduledExecutorService} used to release incomplete changes.
+     * @param timeout The time to wait for the remaining parts of a change.
+     * @param unit The {@link TimeUnit} of the {@code timeout} argument.
+     * @param callback The {@link Callback} to invoke for incomplete changes.
+     */
+    public EventAssembler(final ScheduledExecutorService timer, final long timeout, final TimeUnit unit, final Callback callback) {
+        ThrowIf.isNull(timer, "timer");
+        ThrowIf.isNull(callback, "callback");
+
+        this.timer = timer;
+        this.timeout = timeout;
+        this.unit = unit;
+        this.callback = callback;
+    }
+
+    /**
+     * Adds the specified events to the assembler.
+     * @param events The collection of {@link Event}s to add.
+     * @return The collection of {@link Event}s that are ready to be processed. This includes events
+     * of changes that were not split and all events of changes that are complete with the events
+     * added.
+     */
+    public List<Event> add(final List<Event> events) {
+        final List<Event> ready = new ArrayList<>(events.size());
+
+        synchronized (this.pending) {
+            for (final Event event : events) {
+                if (event.getTotalParts() <= 1 || event.getId() == null) {
+                    ready.add(event);
+                } else {
+                    this.addPart(event, ready);
+                }
+            }
+        }
+
+        return ready;
+    }
+
+    /**
+     * Releases the parts of all incomplete changes without waiting for the remaining parts, e.g.
+     * once all events of a closed time range have been added.
+     * @return The collection of {@link Event}s of incomplete changes.
+     */
+    public List<Event> flush() {
+        final List<Event> events = new ArrayList<>();
+
+        synchronized (this.pending) {
+            for (final Parts parts : this.pending.values()) {
+                parts.future.cancel(false);
+                events.addAll(parts.events);
+            }
+            this.pending.clear();
+        }
+
+        return events;
+    }
+
+    /**
+     * Returns a value indicating whether the specified event is held back as a part of a change
+     * that is incomplete.
+     * @param event The {@link Event} to check.
+     * @return {@code true} if the event is held back; otherwise, {@code false}.
+     */
+    public boolean contains(final Event event) {
+        if (event.getId() == null) {
+            return false;
+        }
+
+        synchronized (this.pending) {
+            final Parts parts = this.pending.get(event.getId());
+            return parts != null && parts.contains(event);
+        }
+    }
+
+    /**
+     * Returns the number of changes for which parts are still missing.
+     * @return The number of incomplete changes.
+     */
+    public int getPendingCount() {
+        synchronized (this.pending) {
+            return this.pending.size();
+        }
+    }
+
+    private void addPart(final Event event, final List<Event> ready) {
+        final String id = event.getId();
+        Parts parts = this.pending.get(id);
+
+        if (parts == null) {
+            parts = new Parts(event.getTotalParts());
+            parts.future = this.timer.schedule(new Expiration(id), this.timeout, this.unit);
+            this.pending.put(id, parts);
+        }
+
+        parts.add(event);
+
+        if (parts.isComplete()) {
+            Log.fine("Received all %d parts of change %s", parts.totalParts, id);
+            this.pending.remove(id);
+            parts.future.cancel(false);
+            ready.addAll(parts.events);
+        }
+    }
+
+    private void expire(final String id) {
+        final Parts parts;
+
+        synchronized (this.pending) {
+            parts = this.pending.remove(id);
+        }
+
+        if (parts == null) {
+            return;
+        }
+
+        Log.warning("Received %d of %d parts of change %s, timeout expired", parts.numbers.size(), parts.totalParts, id);
+        this.callback.onExpired(parts.events);
+    }
+
+    private static class Parts {
+
+        private final int          totalParts;
+        private final Set<Integer> numbers = new HashSet<>();
+        private final List<Event>  events  = new ArrayList<>();
+
+        private ScheduledFuture<?> future;
+
+        public Parts(final int totalParts) {
+            this.totalParts = totalParts;
+        }
+
+        public void add(final Event event) {
+            this.numbers.add(event.getPartNumber());
+            this.events.add(event);
+        }
+
+        public boolean contains(final Event event) {
+            for (final Event part : this.events) {
+                if (part == event) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean isComplete() {
+            return this.numbers.size() >= this.totalParts;
+        }
+    }
+
+    private class Expiration implements Runnable {
+
+        private final String id;
+
+        public Expiration(final String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            EventAssembler.this.expire(this.id);
+        }
+    }
+}
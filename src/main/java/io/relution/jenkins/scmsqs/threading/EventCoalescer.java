@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+
+
+/**
+ * Collapses events for the same repository and branch that are received within a time window into
+ * a single event. The first event for a repository and branch opens the window; when the window
+ * closes, the most recent event received for the repository and branch is released.
+ */
+public class EventCoalescer {
+
+    /**
+     * Interface definition for a callback to be invoked when a window closes.
+     */
+    public interface Callback {
+
+        /**
+         * Called when the window for a repository and branch closed.
+         * @param events The collection of {@link Event}s released, one for each repository and
+         * branch.
+         */
+        void onReleased(List<Event> events);
+    }
+
+    private final ScheduledExecutorService timer;
+    private final Callback                 callback;
+
+    private final Map<String, Event>       pending = new HashMap<>();
+
+    /**
+     * Creates a new coalescer.
+     * @param timer The {@link ScheduledExecutorService} used to close windows.
+     * @param callback The {@link Callback} to invoke when a window closes.
+     */
+    public EventCoalescer(final ScheduledExecutorService timer, final Callback callback) {
+        ThrowIf.isNull(timer, "timer");
+        ThrowIf.isNull(callback, "callback");
+
+        this.timer = timer;
+        this.callback = callback;
+    }
+
+    /**
+     * Adds the specified events to the coalescer.
+     * @param events The collection of {@link Event}s to add.
+     * @param window The length of the window, in milliseconds. If {@code 0}, all events are released
+     * immediately.
+     * @return The collection of {@link Event}s that are released immediately.
+     */
+    public List<Event> add(final List<Event> events, final long window) {
+        if (window <= 0) {
+            return events;
+        }
+
+        synchronized (this.pending) {
+            for (final Event event : events) {
+                this.addEvent(event, window);
+            }
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns a value indicating whether the specified event is held back, i.e. whether it is the
+     * event that will be released when its window closes.
+     * @param event The {@link Event} to check.
+     * @return {@code true} if the event is held back; otherwise, {@code false}.
+     */
+    public boolean contains(final Event event) {
+        synchronized (this.pending) {
+            return this.pending.get(getKey(event)) == event;
+        }
+    }
+
+    /**
+     * Closes all open windows without releasing their events, e.g. because the events are
+     * delivered again once their messages are redelivered.
+     * @return The collection of {@link Event}s that were discarded.
+     */
+    public List<Event> clear() {
+        synchronized (this.pending) {
+            final List<Event> events = new ArrayList<>(this.pending.values());
+            this.pending.clear();
+            return events;
+        }
+    }
+
+    /**
+     * Returns the number of windows that are currently open.
+     * @return The number of repositories and branches for which an event is pending.
+     */
+    public int getPendingCount() {
+        synchronized (this.pending) {
+            return this.pending.size();
+        }
+    }
+
+    private void addEvent(final Event event, final long window) {
+        final String key = getKey(event);
+        final Event existing = this.pending.get(key);
+
+        if (existing == null) {
+            this.timer.schedule(new Release(key), window, TimeUnit.MILLISECONDS);
+            this.pending.put(key, event);
+
+        } else if (event.getTimestamp() >= existing.getTimestamp()) {
+            this.pending.put(key, event);
+
+        }
+    }
+
+    private static String getKey(final Event event) {
+        return event.getHost() + event.getPath() + '#' + event.getBranch();
+    }
+
+    private void release(final String key) {
+        final Event event;
+
+        synchronized (this.pending) {
+            event = this.pending.remove(key);
+        }
+
+        if (event == null) {
+            return;
+        }
+
+        final List<Event> events = new ArrayList<>(1);
+        events.add(event);
+        this.callback.onReleased(events);
+    }
+
+    private class Release implements Runnable {
+
+        private final String key;
+
+        public Release(final String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            EventCoalescer.this.release(this.key);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.metrics.QueueStatistics;
+import io.relution.jenkins.scmsqs.model.ParsedMessage;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+
+
+/**
+ * Prepares the events received from a single queue before they are handed to the listeners of the
+ * queue. Changes that were split into several parts are reassembled, and events for the same
+ * repository and branch are coalesced. Each event passes the pipeline once, regardless of the
+ * number of listeners registered for the queue.
+ */
+public class EventPipeline {
+
+    /**
+     * Interface definition for a callback to be invoked when events that were held back by the
+     * pipeline are released.
+     */
+    public interface Callback {
+
+        /**
+         * Called when events are released after an assembly timeout or a coalescing window expired.
+         * @param events The collection of {@link Event}s released.
+         */
+        void onReleased(List<Event> events);
+    }
+
+    private static final long         ASSEMBLY_TIMEOUT_SECONDS = 30;
+
+    private final SettingsProvider    settings;
+    private final QueueStatistics     statistics;
+
+    private final EventAssembler      assembler;
+    private final EventCoalescer      coalescer;
+
+    private final List<ParsedMessage> retained                 = new ArrayList<>();
+
+    private volatile Callback         callback;
+    private volatile boolean          isFlushed;
+
+    /**
+     * Creates a new pipeline.
+     * @param timer The {@link ScheduledExecutorService} used to release events that were held back.
+     * @param settings The {@link SettingsProvider} that provides the coalescing window, may be
+     * {@code null} if events are not coalesced.
+     * @param statistics The {@link QueueStatistics} of the queue the events are received from.
+     */
+    public EventPipeline(final ScheduledExecutorService timer, final SettingsProvider settings, final QueueStatistics statistics) {
+        ThrowIf.isNull(timer, "timer");
+        ThrowIf.isNull(statistics, "statistics");
+
+        this.settings = settings;
+        this.statistics = statistics;
+
+        this.assembler = new EventAssembler(timer, ASSEMBLY_TIMEOUT_SECONDS, TimeUnit.SECONDS, new EventAssembler.Callback() {
+
+            @Override
+            public void onExpired(final List<Event> events) {
+                final List<Event> released = EventPipeline.this.coalesce(events);
+
+                if (!released.isEmpty()) {
+                    EventPipeline.this.release(released);
+                }
+            }
+        });
+
+        this.coalescer = new EventCoalescer(timer, new EventCoalescer.Callback() {
+
+            @Override
+            public void onReleased(final List<Event> events) {
+                EventPipeline.this.statistics.addEventsOut(events.size());
+                EventPipeline.this.release(events);
+            }
+        });
+    }
+
+    /**
+     * Sets the callback to invoke when events that were held back are released.
+     * @param callback The {@link Callback} to invoke.
+     */
+    public void setCallback(final Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Returns the statistics of the queue the events are received from.
+     * @return The {@link QueueStatistics} of the queue.
+     */
+    public QueueStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Adds the events contained in the specified messages to the pipeline. Messages that do not
+     * contain any events are counted as parse errors.
+     * @param messages The collection of {@link ParsedMessage}s received from the queue.
+     * @return The collection of {@link Event}s that are released immediately.
+     */
+    public List<Event> add(final List<ParsedMessage> messages) {
+        final List<Event> events = new ArrayList<>();
+
+        for (final ParsedMessage message : messages) {
+            if (message.getEvents().isEmpty()) {
+                this.statistics.incrementParseErrors();
+                continue;
+            }
+
+            events.addAll(message.getEvents());
+        }
+
+        if (events.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<Event> assembled = this.isFlushed ? events : this.assembler.add(events);
+        return this.coalesce(assembled);
+    }
+
+    /**
+     * Retains those of the specified messages whose events are held back by the pipeline. Retained
+     * messages must not be deleted from the queue before their events are released, so they are
+     * redelivered if Jenkins stops in the meantime. They are returned by {@link #removeReleased()}
+     * once their events are no longer held back.
+     * @param messages The collection of {@link ParsedMessage}s that were added to the pipeline.
+     * @return The collection of {@link ParsedMessage}s that were retained.
+     */
+    public List<ParsedMessage> retainHeld(final List<ParsedMessage> messages) {
+        final List<ParsedMessage> held = new ArrayList<>();
+
+        synchronized (this.retained) {
+            for (final ParsedMessage message : messages) {
+                if (this.isHeld(message)) {
+                    held.add(message);
+                }
+            }
+            this.retained.addAll(held);
+        }
+
+        return held;
+    }
+
+    /**
+     * Removes the retained messages whose events are no longer held back, because the events were
+     * released, e.g. once all parts of a change were received or the assembly timed out, or because
+     * they were superseded by more recent events for the same repository and branch.
+     * @return The collection of {@link ParsedMessage}s that can be deleted from the queue.
+     */
+    public List<ParsedMessage> removeReleased() {
+        final List<ParsedMessage> released = new ArrayList<>();
+
+        synchronized (this.retained) {
+            final Iterator<ParsedMessage> iterator = this.retained.iterator();
+
+            while (iterator.hasNext()) {
+                final ParsedMessage message = iterator.next();
+
+                if (!this.isHeld(message)) {
+                    released.add(message);
+                    iterator.remove();
+                }
+            }
+        }
+
+        return released;
+    }
+
+    /**
+     * Discards the events that are held back, including the parts of incomplete changes, and stops
+     * holding back events, so events added afterwards are released immediately. The discarded events are not released; instead, the
+     * retained messages are returned, so they can be released back to the queue.
+     * @return The collection of retained {@link ParsedMessage}s.
+     */
+    public List<ParsedMessage> flush() {
+        this.isFlushed = true;
+        final List<Event> discarded = new ArrayList<>(this.assembler.flush());
+        discarded.addAll(this.coalescer.clear());
+
+        if (!discarded.isEmpty()) {
+            Log.info("Discarded %d held back event(s)", discarded.size());
+        }
+
+        synchronized (this.retained) {
+            final List<ParsedMessage> messages = new ArrayList<>(this.retained);
+            this.retained.clear();
+            return messages;
+        }
+    }
+
+    /**
+     * Returns a value indicating whether all events added to the pipeline were released. This is
+     * not the case while events are held back, or once events were discarded by {@link #flush()}.
+     * @return {@code true} if all events were released; otherwise, {@code false}.
+     */
+    public boolean isComplete() {
+        return !this.isFlushed && this.assembler.getPendingCount() == 0 && this.coalescer.getPendingCount() == 0;
+    }
+
+    /**
+     * Returns the maximum time for which the pipeline holds back an event.
+     * @return The maximum time an event is held back, in seconds.
+     */
+    public long getMaxHoldSeconds() {
+        return ASSEMBLY_TIMEOUT_SECONDS + TimeUnit.MILLISECONDS.toSeconds(this.getWindow());
+    }
+
+    private boolean isHeld(final ParsedMessage message) {
+        for (final Event event : message.getEvents()) {
+            if (this.assembler.contains(event) || this.coalescer.contains(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Event> coalesce(final List<Event> events) {
+        if (events.isEmpty()) {
+            return events;
+        }
+
+        this.statistics.addEventsIn(events.size());
+
+        final List<Event> released = this.coalescer.add(events, this.getWindow());
+        this.statistics.addEventsOut(released.size());
+        return released;
+    }
+
+    private void release(final List<Event> events) {
+        final Callback callback = this.callback;
+
+        if (callback == null) {
+            Log.warning("No callback set, dropped %d released event(s)", events.size());
+            return;
+        }
+
+        callback.onReleased(events);
+    }
+
+    private long getWindow() {
+        if (this.settings == null || this.isFlushed) {
+            return 0;
+        }
+        return TimeUnit.SECONDS.toMillis(this.settings.getCoalesceWindowSeconds());
+    }
+}
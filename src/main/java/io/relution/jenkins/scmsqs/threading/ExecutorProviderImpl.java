@@ -16,36 +16,143 @@
 
 package io.relution.jenkins.scmsqs.threading;
 
+import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import io.relution.jenkins.scmsqs.interfaces.ExecutorFactory;
 import io.relution.jenkins.scmsqs.interfaces.ExecutorProvider;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.metrics.ExecutorStatistics;
+import io.relution.jenkins.scmsqs.model.events.ConfigurationChangedEvent;
+import io.relution.jenkins.scmsqs.model.events.EventBroker;
 
 
 public class ExecutorProviderImpl implements ExecutorProvider {
 
-    private final ThreadPoolExecutor executor;
+    private final SettingsProvider                      settings;
+
+    private final Map<ExecutorRole, ThreadPoolExecutor> executors    = new EnumMap<>(ExecutorRole.class);
+    private final Map<ExecutorRole, ExecutorStatistics> statistics   = new EnumMap<>(ExecutorRole.class);
+    private final Set<ExecutorRole>                     virtualRoles = EnumSet.noneOf(ExecutorRole.class);
 
     @Inject
-    public ExecutorProviderImpl(final ExecutorFactory factory) {
-        this.executor = factory.createExecutor();
+    public ExecutorProviderImpl(final ExecutorFactory factory, final SettingsProvider settings) {
+        this.settings = settings;
+
+        final int queueSize = settings.getExecutorQueueSize();
+        final boolean useVirtualThreads = this.useVirtualThreads(settings);
+
+        for (final ExecutorRole role : ExecutorRole.values()) {
+            if (useVirtualThreads && role != ExecutorRole.CALLBACK) {
+                final ThreadPoolExecutor executor = factory.createVirtualExecutor();
+                this.executors.put(role, executor);
+                this.statistics.put(role, CountingExecutionHandler.install(executor, role.name() + " (virtual)"));
+                this.virtualRoles.add(role);
+                continue;
+            }
+
+            final ThreadPoolExecutor executor = factory.createExecutor(
+                    settings.getCorePoolSize(role),
+                    settings.getMaximumPoolSize(role),
+                    queueSize);
+
+            this.executors.put(role, executor);
+            this.statistics.put(role, CountingExecutionHandler.install(executor, role.name()));
+        }
+
+        EventBroker.getInstance().register(this);
+    }
+
+    @Override
+    public ExecutorService get() {
+        return this.get(ExecutorRole.RECEIVE);
+    }
+
+    @Override
+    public ExecutorService get(final ExecutorRole role) {
+        return this.executors.get(role);
     }
 
     @Override
     public int getCorePoolSize() {
-        return this.executor.getCorePoolSize();
+        return this.executors.get(ExecutorRole.RECEIVE).getCorePoolSize();
     }
 
     @Override
     public void setCorePoolSize(final int corePoolSize) throws IllegalArgumentException {
-        this.executor.setCorePoolSize(corePoolSize);
+        final ThreadPoolExecutor executor = this.executors.get(ExecutorRole.RECEIVE);
+        this.setPoolSize(ExecutorRole.RECEIVE, corePoolSize, executor.getMaximumPoolSize());
     }
 
     @Override
-    public ExecutorService get() {
-        return this.executor;
+    public void setPoolSize(final ExecutorRole role, final int corePoolSize, final int maximumPoolSize) throws IllegalArgumentException {
+        if (corePoolSize < 1) {
+            throw new IllegalArgumentException("The core pool size must be at least one: " + corePoolSize);
+        }
+
+        if (this.virtualRoles.contains(role)) {
+            Log.fine("Executor for %s uses virtual threads, pool size not changed", role);
+            return;
+        }
+
+        final ThreadPoolExecutor executor = this.executors.get(role);
+        final int maximum = Math.max(corePoolSize, maximumPoolSize);
+
+        synchronized (executor) {
+            if (maximum > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(maximum);
+                executor.setCorePoolSize(corePoolSize);
+            } else {
+                executor.setCorePoolSize(corePoolSize);
+                executor.setMaximumPoolSize(maximum);
+            }
+        }
+    }
+
+    @Override
+    public List<ExecutorStatistics> getStatistics() {
+        return new ArrayList<>(this.statistics.values());
+    }
+
+    @Subscribe
+    public void onConfigurationChanged(final ConfigurationChangedEvent event) {
+        for (final ExecutorRole role : ExecutorRole.values()) {
+            if (this.virtualRoles.contains(role)) {
+                continue;
+            }
+
+            final ThreadPoolExecutor executor = this.executors.get(role);
+            final int corePoolSize = this.settings.getCorePoolSize(role);
+            final int maximumPoolSize = Math.max(corePoolSize, this.settings.getMaximumPoolSize(role));
+
+            if (corePoolSize != executor.getCorePoolSize() || maximumPoolSize != executor.getMaximumPoolSize()) {
+                Log.info("Change number of %s threads to %d-%d", role, corePoolSize, maximumPoolSize);
+                this.setPoolSize(role, corePoolSize, maximumPoolSize);
+            }
+        }
+    }
+
+    private boolean useVirtualThreads(final SettingsProvider settings) {
+        if (!settings.isVirtualThreadsEnabled()) {
+            return false;
+        }
+
+        if (!VirtualThreads.isAvailable()) {
+            Log.info("Virtual threads are not supported by this Java runtime, use platform threads");
+            return false;
+        }
+
+        Log.info("Receive and dispatch messages on virtual threads");
+        return true;
     }
 }
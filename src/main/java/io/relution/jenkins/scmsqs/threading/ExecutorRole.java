@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+/**
+ * Defines the roles for which separate thread pools are maintained, so that a saturated pool of
+ * one role does not delay the tasks of another.
+ */
+public enum ExecutorRole {
+
+    /**
+     * Runs the monitors that receive messages from Amazon SQS queues. A monitor blocks its thread
+     * while it waits for messages.
+     */
+    RECEIVE,
+
+    /**
+     * Runs the requests and callbacks of the asynchronous Amazon SQS clients.
+     */
+    CALLBACK,
+
+    /**
+     * Dispatches journaled messages to the triggers listening on a queue.
+     */
+    DISPATCH
+}
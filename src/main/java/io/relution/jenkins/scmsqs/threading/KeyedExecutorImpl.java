@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import io.relution.jenkins.scmsqs.interfaces.ExecutorFactory;
+import io.relution.jenkins.scmsqs.interfaces.KeyedExecutor;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.metrics.ExecutorStatistics;
+import io.relution.jenkins.scmsqs.model.events.ConfigurationChangedEvent;
+import io.relution.jenkins.scmsqs.model.events.EventBroker;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+
+
+public class KeyedExecutorImpl implements KeyedExecutor {
+
+    private final ThreadPoolExecutor      executor;
+    private final SettingsProvider        settings;
+    private final ExecutorStatistics      statistics;
+
+    private final Object                  lock   = new Object();
+    private final Map<String, SerialTask> queues = new HashMap<>();
+
+    @Inject
+    public KeyedExecutorImpl(final ExecutorFactory factory, final SettingsProvider settings) {
+        this(factory.createPollingExecutor(settings.getMaxConcurrentPolls()), settings);
+
+        EventBroker.getInstance().register(this);
+    }
+
+    KeyedExecutorImpl(final ThreadPoolExecutor executor, final SettingsProvider settings) {
+        ThrowIf.isNull(executor, "executor");
+        ThrowIf.isNull(settings, "settings");
+
+        this.executor = executor;
+        this.settings = settings;
+        this.statistics = CountingExecutionHandler.install(executor, "POLL");
+    }
+
+    @Override
+    public void execute(final String key, final Runnable task) {
+        ThrowIf.isNull(key, "key");
+        ThrowIf.isNull(task, "task");
+
+        final SerialTask serialTask;
+
+        synchronized (this.lock) {
+            final SerialTask existing = this.queues.get(key);
+
+            if (existing != null) {
+                existing.tasks.add(task);
+                return;
+            }
+
+            serialTask = new SerialTask(key);
+            serialTask.tasks.add(task);
+            this.queues.put(key, serialTask);
+        }
+
+        this.executor.execute(serialTask);
+    }
+
+    @Override
+    public int getPoolSize() {
+        return this.executor.getMaximumPoolSize();
+    }
+
+    @Override
+    public void setPoolSize(final int poolSize) throws IllegalArgumentException {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("The pool size must be at least one: " + poolSize);
+        }
+
+        synchronized (this.executor) {
+            if (poolSize > this.executor.getMaximumPoolSize()) {
+                this.executor.setMaximumPoolSize(poolSize);
+                this.executor.setCorePoolSize(poolSize);
+            } else {
+                this.executor.setCorePoolSize(poolSize);
+                this.executor.setMaximumPoolSize(poolSize);
+            }
+        }
+    }
+
+    @Override
+    public ExecutorStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    @Subscribe
+    public void onConfigurationChanged(final ConfigurationChangedEvent event) {
+        final int poolSize = this.settings.getMaxConcurrentPolls();
+
+        if (poolSize != this.getPoolSize()) {
+            Log.info("Change number of concurrent SCM polls to %d", poolSize);
+            this.setPoolSize(poolSize);
+        }
+    }
+
+    /**
+     * Executes the tasks of a single key, one task at a time. After each task the instance submits
+     * itself to the executor again if more tasks are queued, so keys with many queued tasks do not
+     * block other keys from being processed.
+     */
+    private final class SerialTask implements Runnable {
+
+        private final String          key;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        public SerialTask(final String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            final Runnable task;
+
+            synchronized (KeyedExecutorImpl.this.lock) {
+                task = this.tasks.poll();
+            }
+
+            try {
+                if (task != null) {
+                    task.run();
+                }
+
+            } catch (final RuntimeException e) {
+                Log.severe(e, "Task for %s failed", this.key);
+
+            } finally {
+                this.next();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this.key;
+        }
+
+        private void next() {
+            synchronized (KeyedExecutorImpl.this.lock) {
+                if (this.tasks.isEmpty()) {
+                    KeyedExecutorImpl.this.queues.remove(this.key);
+                    return;
+                }
+            }
+
+            KeyedExecutorImpl.this.executor.execute(this);
+        }
+    }
+}
@@ -18,72 +18,149 @@ package io.relution.jenkins.scmsqs.threading;
 
 import com.amazonaws.services.sqs.model.Message;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.interfaces.MessageArchive;
+import io.relution.jenkins.scmsqs.interfaces.MessageDeduplicator;
+import io.relution.jenkins.scmsqs.interfaces.MessageJournal;
+import io.relution.jenkins.scmsqs.interfaces.MessageParserFactory;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueListener;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueMonitor;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.factories.MessageParserFactoryImpl;
 import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.metrics.QueueStatistics;
+import io.relution.jenkins.scmsqs.model.EventDispatch;
+import io.relution.jenkins.scmsqs.model.ParsedMessage;
 import io.relution.jenkins.scmsqs.net.SQSChannel;
 import io.relution.jenkins.scmsqs.util.ThrowIf;
+import jenkins.util.Timer;
 
 
 public class SQSQueueMonitorImpl implements SQSQueueMonitor {
 
-    private final static String          ERROR_WRONG_QUEUE = "The specified listener is associated with another queue.";
+    private final static int             DISPATCH_BATCH_SIZE = 100;
+    private final static int             HOLD_MARGIN_SECONDS = 30;
 
     private final ExecutorService        executor;
+    private final ExecutorService        dispatchExecutor;
 
-    private final SQSQueue               queue;
+    private volatile SQSQueue            queue;
     private final SQSChannel             channel;
 
-    private final Object                 listenersLock     = new Object();
+    private final SettingsProvider       settings;
+    private final MessageParserFactory   parsers;
+    private final EventPipeline          pipeline;
+    private final MessageDeduplicator    deduplicator;
+    private final MessageJournal         journal;
+    private final MessageArchive         archive;
+
+    private final Runnable               dispatcher          = new Dispatcher();
+
+    private final Object                 listenersLock       = new Object();
     private final List<SQSQueueListener> listeners;
 
-    private final AtomicBoolean          isRunning         = new AtomicBoolean();
+    private final Object                 runningLock         = new Object();
+    private final AtomicBoolean          isRunning           = new AtomicBoolean();
     private volatile boolean             isShutDown;
 
-    public SQSQueueMonitorImpl(final ExecutorService executor, final SQSQueue queue, final SQSChannel channel) {
-        ThrowIf.isNull(executor, "executor");
-        ThrowIf.isNull(channel, "channel");
-
-        this.executor = executor;
+    /**
+     * The time until which messages received while shut down are still handed off, see
+     * {@link System#nanoTime()}. Zero if the monitor is not being drained.
+     */
+    private volatile long                drainDeadline;
 
-        this.queue = queue;
-        this.channel = channel;
+    public SQSQueueMonitorImpl(final ExecutorService executor, final SQSQueue queue, final SQSChannel channel) {
+        this(executor, executor, queue, channel, null, new MessageParserFactoryImpl(), new EventPipeline(Timer.get(), null, new QueueStatistics()), null, null, null);
+    }
 
-        this.listeners = new ArrayList<>();
+    /**
+     * Creates a new monitor for the specified queue.
+     * @param executor The {@link ExecutorService} used to run the monitor.
+     * @param dispatchExecutor The {@link ExecutorService} used to dispatch journaled messages.
+     * @param queue The {@link SQSQueue} to monitor.
+     * @param channel The {@link SQSChannel} used to receive messages from the queue.
+     * @param settings The {@link SettingsProvider} that indicates whether received messages are
+     * journaled, may be {@code null} if messages are not journaled.
+     * @param parsers The {@link MessageParserFactory} used to parse received messages.
+     * @param pipeline The {@link EventPipeline} that prepares the events of the queue before they
+     * are handed to the listeners.
+     * @param deduplicator The {@link MessageDeduplicator} used to drop messages that were already
+     * received, may be {@code null}.
+     * @param journal The {@link MessageJournal} in which received messages are stored before they
+     * are deleted from the queue while journaling is enabled, may be {@code null}.
+     * @param archive The {@link MessageArchive} in which received messages are retained for replay,
+     * may be {@code null}.
+     */
+    public SQSQueueMonitorImpl(final ExecutorService executor,
+            final ExecutorService dispatchExecutor,
+            final SQSQueue queue,
+            final SQSChannel channel,
+            final SettingsProvider settings,
+            final MessageParserFactory parsers,
+            final EventPipeline pipeline,
+            final MessageDeduplicator deduplicator,
+            final MessageJournal journal,
+            final MessageArchive archive) {
+        this(executor, dispatchExecutor, queue, channel, settings, parsers, pipeline, deduplicator, journal, archive, new ArrayList<SQSQueueListener>());
     }
 
     private SQSQueueMonitorImpl(final ExecutorService executor,
+            final ExecutorService dispatchExecutor,
             final SQSQueue queue,
             final SQSChannel channel,
+            final SettingsProvider settings,
+            final MessageParserFactory parsers,
+            final EventPipeline pipeline,
+            final MessageDeduplicator deduplicator,
+            final MessageJournal journal,
+            final MessageArchive archive,
             final List<SQSQueueListener> listeners) {
         ThrowIf.isNull(executor, "executor");
+        ThrowIf.isNull(dispatchExecutor, "dispatchExecutor");
         ThrowIf.isNull(channel, "channel");
+        ThrowIf.isNull(parsers, "parsers");
+        ThrowIf.isNull(pipeline, "pipeline");
 
         this.executor = executor;
+        this.dispatchExecutor = dispatchExecutor;
 
         this.queue = queue;
         this.channel = channel;
 
+        this.settings = settings;
+        this.parsers = parsers;
+        this.pipeline = pipeline;
+        this.deduplicator = deduplicator;
+        this.journal = journal;
+        this.archive = archive;
+
         this.listeners = listeners;
+
+        this.pipeline.setCallback(new Releaser());
     }
 
     @Override
     public SQSQueueMonitor clone(final SQSQueue queue, final SQSChannel channel) {
         synchronized (this.listenersLock) {
-            return new SQSQueueMonitorImpl(this.executor, queue, channel, this.listeners);
+            return new SQSQueueMonitorImpl(this.executor, this.dispatchExecutor, queue, channel, this.settings, this.parsers, this.pipeline, this.deduplicator, this.journal, this.archive, new ArrayList<>(this.listeners));
         }
     }
 
     @Override
     public boolean add(final SQSQueueListener listener) {
         ThrowIf.isNull(listener, "listener");
-        ThrowIf.notEqual(listener.getQueueUuid(), this.channel.getQueueUuid(), ERROR_WRONG_QUEUE);
 
         synchronized (this.listenersLock) {
             if (this.listeners.add(listener) && this.listeners.size() == 1) {
@@ -110,6 +187,13 @@ public class SQSQueueMonitorImpl implements SQSQueueMonitor {
         return false;
     }
 
+    @Override
+    public List<SQSQueueListener> getListeners() {
+        synchronized (this.listenersLock) {
+            return new ArrayList<>(this.listeners);
+        }
+    }
+
     @Override
     public void run() {
         try {
@@ -140,7 +224,10 @@ public class SQSQueueMonitorImpl implements SQSQueueMonitor {
         } finally {
             if (!this.isRunning.compareAndSet(true, false)) {
                 Log.warning("Monitor for %s already stopped", this.channel);
+            } else if (this.isShutDown) {
+                this.channel.close();
             }
+            this.signalStopped();
             this.execute();
         }
     }
@@ -148,9 +235,61 @@ public class SQSQueueMonitorImpl implements SQSQueueMonitor {
     @Override
     public void shutDown() {
         Log.info("Shut down monitor for %s", this.channel);
+        this.drainDeadline = 0;
+        this.isShutDown = true;
+    }
+
+    @Override
+    public void drain(final long timeout, final TimeUnit unit) {
+        Log.info("Drain monitor for %s", this.channel);
+        this.drainDeadline = System.nanoTime() + unit.toNanos(timeout);
         this.isShutDown = true;
     }
 
+    @Override
+    public void flush() {
+        final List<ParsedMessage> held = this.pipeline.flush();
+
+        if (!held.isEmpty()) {
+            Log.info("Release %d held back message(s) to %s", held.size(), this.channel);
+            this.channel.releaseMessages(ParsedMessage.getMessages(held));
+        }
+
+        if (this.journal != null) {
+            this.journal.rollback();
+        }
+
+        if (this.isShutDown && !this.isRunning.get()) {
+            this.channel.close();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        synchronized (this.runningLock) {
+            while (this.isRunning.get()) {
+                final long remaining = deadline - System.nanoTime();
+
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                TimeUnit.NANOSECONDS.timedWait(this.runningLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void reconfigure(final SQSQueue queue) {
+        ThrowIf.isNull(queue, "queue");
+
+        this.queue = queue;
+        this.channel.reconfigure(queue);
+    }
+
     @Override
     public boolean isShutDown() {
         return this.isShutDown;
@@ -172,37 +311,359 @@ public class SQSQueueMonitorImpl implements SQSQueueMonitor {
         }
     }
 
+    private void signalStopped() {
+        synchronized (this.runningLock) {
+            this.runningLock.notifyAll();
+        }
+    }
+
+    private boolean canHandOff() {
+        if (!this.isShutDown) {
+            return true;
+        }
+
+        final long deadline = this.drainDeadline;
+        return deadline != 0 && deadline - System.nanoTime() > 0;
+    }
+
     private void processMessages() {
         final List<Message> messages = this.channel.getMessages();
 
-        if (this.isShutDown) {
+        if (!this.canHandOff()) {
+            if (!messages.isEmpty()) {
+                Log.info("Monitor for %s stopped, release %d message(s)", this.channel, messages.size());
+                this.channel.releaseMessages(messages);
+            }
             return;
         }
 
-        if (this.notifyListeners(messages)) {
-            this.channel.deleteMessages(messages);
+        if (this.isJournaling()) {
+            this.processJournaled(messages);
+        } else {
+            this.processDirectly(messages);
         }
+
+        this.requestDispatch();
     }
 
-    private boolean notifyListeners(final List<Message> messages) {
+    private void processDirectly(final List<Message> messages) {
         if (messages.isEmpty()) {
             Log.fine("Received no messages from %s", this.channel);
-            return false;
+            return;
+        }
+
+        Log.info("Received %d message(s) from %s", messages.size(), this.channel);
+        final List<ParsedMessage> unique = this.removeDuplicates(ParsedMessage.parse(this.parsers, messages));
+
+        this.dispatchDirectly(messages, unique);
+        this.complete(messages, unique);
+    }
+
+    /**
+     * Stores received messages in the journal before they are deleted from the queue. Duplicates
+     * are removed once, before the messages are journaled; messages read back from the journal,
+     * e.g. after a restart, are dispatched without being checked again, so a crash before dispatch
+     * does not cause journaled messages to be dropped as duplicates.
+     */
+    private void processJournaled(final List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
         }
 
         Log.info("Received %d message(s) from %s", messages.size(), this.channel);
+        final List<ParsedMessage> unique = this.removeDuplicates(ParsedMessage.parse(this.parsers, messages));
+
+        try {
+            this.journal.append(ParsedMessage.getMessages(unique));
+
+        } catch (final IOException e) {
+            Log.severe(e, "Failed to journal messages from %s, dispatch directly", this.channel);
+            this.dispatchDirectly(messages, unique);
+            this.complete(messages, unique);
+            return;
+
+        }
+        this.markProcessed(unique);
+        this.channel.deleteMessages(messages);
+    }
+
+    /**
+     * Deletes messages from the queue once they were handed off. Messages whose events are held
+     * back by the pipeline remain in flight until their events are released, so they are
+     * redelivered if Jenkins stops before that.
+     */
+    private void complete(final List<Message> messages, final List<ParsedMessage> unique) {
+        final List<ParsedMessage> held = this.pipeline.retainHeld(unique);
+
+        if (held.isEmpty()) {
+            this.markProcessed(unique);
+            this.channel.deleteMessages(messages);
+
+        } else {
+            final List<Message> heldMessages = ParsedMessage.getMessages(held);
+            this.channel.holdMessages(heldMessages, this.getHoldTimeout());
+            this.markProcessed(without(unique, held));
+            this.channel.deleteMessages(without(messages, heldMessages));
+
+        }
+        this.deleteReleased();
+    }
+
+    /**
+     * Deletes the messages retained by the pipeline whose events were released or superseded since
+     * they were received.
+     */
+    private void deleteReleased() {
+        final List<ParsedMessage> released = this.pipeline.removeReleased();
+
+        if (!released.isEmpty()) {
+            this.markProcessed(released);
+            this.channel.deleteMessages(ParsedMessage.getMessages(released));
+        }
+    }
+
+    /**
+     * Returns the visibility timeout of messages whose events are held back, which covers the time
+     * for which the pipeline holds back events and the time needed to hand them off.
+     */
+    private int getHoldTimeout() {
+        return (int) this.pipeline.getMaxHoldSeconds() + HOLD_MARGIN_SECONDS;
+    }
+
+    private static <T> List<T> without(final List<T> items, final List<T> removed) {
+        final Set<T> excluded = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+        excluded.addAll(removed);
+
+        final List<T> result = new ArrayList<>(items.size());
+
+        for (final T item : items) {
+            if (!excluded.contains(item)) {
+                result.add(item);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Requests the dispatch of messages pending in the journal. Pending messages are dispatched
+     * even if journaling was disabled after they were journaled, so they are not stranded.
+     */
+    private void requestDispatch() {
+        if (this.journal == null || !this.journal.hasPending()) {
+            return;
+        }
+
+        if (this.journal.getDispatchGate().request(null)) {
+            this.dispatchExecutor.execute(this.dispatcher);
+        }
+    }
+
+    /**
+     * Requests the journal to be committed once the pipeline released the events it held back, if
+     * the commit was deferred while the events were held back.
+     */
+    private void requestCommit() {
+        if (this.journal == null || !this.pipeline.isComplete()) {
+            return;
+        }
+
+        if (this.journal.getDispatchGate().request(null)) {
+            this.dispatchExecutor.execute(this.dispatcher);
+        }
+    }
+
+    /**
+     * Returns a value indicating whether received messages are journaled. The setting is read for
+     * each request, so changes take effect without restarting the monitor.
+     */
+    private boolean isJournaling() {
+        return this.journal != null && this.settings != null && this.settings.isJournalEnabled();
+    }
+
+    /**
+     * Dispatches the messages pending in the journal in batches. The journal is committed after each
+     * batch was handed off; if a batch cannot be handed off, the journal is rolled back, so the batch
+     * is dispatched again with the next request. While the pipeline holds back events, the commit is
+     * deferred until they are released, so the events are read again after a restart.
+     */
+    private void dispatchJournaled() {
+        if (this.getListeners().isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Message> messages;
+
+            while (!(messages = this.journal.read(DISPATCH_BATCH_SIZE)).isEmpty()) {
+                try {
+                    this.notifyListeners(ParsedMessage.parse(this.parsers, messages));
+
+                } catch (final RuntimeException e) {
+                    Log.severe(e, "Failed to dispatch %d journaled message(s) from %s, retry later", messages.size(), this.channel);
+                    this.journal.rollback();
+                    return;
+
+                }
+                this.commitJournal();
+            }
+
+            this.commitJournal();
+
+        } catch (final IOException e) {
+            Log.severe(e, "Failed to read journaled messages for %s", this.channel);
+
+        }
+    }
+
+    private void commitJournal() throws IOException {
+        if (this.pipeline.isComplete()) {
+            this.journal.commit();
+        }
+    }
+
+    private void dispatchDirectly(final List<Message> messages, final List<ParsedMessage> unique) {
+        try {
+            this.notifyListeners(unique);
+
+        } catch (final RuntimeException e) {
+            this.channel.releaseMessages(messages);
+            throw e;
+
+        }
+    }
+
+    private List<ParsedMessage> removeDuplicates(final List<ParsedMessage> messages) {
+        if (this.deduplicator == null) {
+            return messages;
+        }
+
+        final List<ParsedMessage> unique = this.deduplicator.removeDuplicates(this.channel.getQueueUuid(), messages);
+
+        if (unique.size() < messages.size()) {
+            Log.info("Dropped %d duplicate message(s) from %s", messages.size() - unique.size(), this.channel);
+        }
+
+        return unique;
+    }
+
+    /**
+     * Records the specified messages as processed once they were handed off to the listeners, so
+     * that messages that could not be handed off are not dropped as duplicates when redelivered.
+     */
+    private void markProcessed(final List<ParsedMessage> messages) {
+        if (this.deduplicator != null) {
+            this.deduplicator.markProcessed(this.channel.getQueueUuid(), messages);
+        }
+    }
+
+    /**
+     * Passes the events contained in the specified messages through the pipeline of the queue, and
+     * hands the events that are released immediately to the listeners.
+     */
+    private void notifyListeners(final List<ParsedMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
         final List<SQSQueueListener> listeners = this.getListeners();
 
+        if (this.archive != null) {
+            this.archiveMessages(listeners, ParsedMessage.getMessages(messages));
+        }
+
+        this.handOff(listeners, this.pipeline.add(messages));
+    }
+
+    /**
+     * Hands the events to the listeners. Events that are handed to several listeners are only
+     * counted once in the statistics of the queue.
+     */
+    private void handOff(final List<SQSQueueListener> listeners, final List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        final Set<Event> matches = Collections.newSetFromMap(new IdentityHashMap<Event, Boolean>());
+        final Set<Event> fresh = Collections.newSetFromMap(new IdentityHashMap<Event, Boolean>());
+        boolean isPollDispatched = false;
+        final long start = System.nanoTime();
+
         for (final SQSQueueListener listener : listeners) {
-            listener.handleMessages(messages);
+            final EventDispatch dispatch = listener.handleEvents(events);
+
+            if (dispatch != null) {
+                matches.addAll(dispatch.getMatches());
+                fresh.addAll(dispatch.getFresh());
+                isPollDispatched |= dispatch.isPollDispatched();
+            }
         }
 
-        return true;
+        final QueueStatistics statistics = this.pipeline.getStatistics();
+        statistics.recordMatcher(System.nanoTime() - start);
+        matches.removeAll(fresh);
+
+        if (!matches.isEmpty()) {
+            statistics.addStaleEvents(matches.size());
+        }
+
+        if (isPollDispatched) {
+            statistics.incrementDispatchedPolls();
+        }
     }
 
-    private List<SQSQueueListener> getListeners() {
-        synchronized (this.listenersLock) {
-            return new ArrayList<>(this.listeners);
+    /**
+     * Archives the messages for each queue configuration that the listeners are associated with,
+     * so they can be replayed for any of these configurations.
+     */
+    private void archiveMessages(final List<SQSQueueListener> listeners, final List<Message> messages) {
+        final Set<String> uuids = new LinkedHashSet<>();
+        uuids.add(this.channel.getQueueUuid());
+
+        for (final SQSQueueListener listener : listeners) {
+            uuids.add(listener.getQueueUuid());
+        }
+
+        for (final String uuid : uuids) {
+            this.archive.append(uuid, messages);
+        }
+    }
+
+    /**
+     * Hands events that were held back by the pipeline to the listeners once they are released, and
+     * deletes the messages that contained them.
+     */
+    private class Releaser implements EventPipeline.Callback {
+
+        @Override
+        public void onReleased(final List<Event> events) {
+            try {
+                SQSQueueMonitorImpl.this.handOff(SQSQueueMonitorImpl.this.getListeners(), events);
+                SQSQueueMonitorImpl.this.deleteReleased();
+                SQSQueueMonitorImpl.this.requestCommit();
+
+            } catch (final RuntimeException e) {
+                Log.severe(e, "Failed to dispatch %d released event(s) from %s", events.size(), SQSQueueMonitorImpl.this.channel);
+
+            }
+        }
+    }
+
+    private class Dispatcher implements Runnable {
+
+        @Override
+        public void run() {
+            final CoalescingGate<Void> gate = SQSQueueMonitorImpl.this.journal.getDispatchGate();
+            gate.begin();
+
+            try {
+                SQSQueueMonitorImpl.this.dispatchJournaled();
+
+            } finally {
+                if (gate.end()) {
+                    SQSQueueMonitorImpl.this.dispatchExecutor.execute(this);
+                }
+            }
         }
     }
 }
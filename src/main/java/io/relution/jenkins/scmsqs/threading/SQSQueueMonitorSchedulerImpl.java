@@ -21,11 +21,19 @@ import com.google.inject.Inject;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import io.relution.jenkins.scmsqs.interfaces.SQSFactory;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
@@ -34,18 +42,55 @@ import io.relution.jenkins.scmsqs.interfaces.SQSQueueMonitor;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueMonitorScheduler;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueProvider;
 import io.relution.jenkins.scmsqs.logging.Log;
+import io.relution.jenkins.scmsqs.model.QueueChange;
 import io.relution.jenkins.scmsqs.model.events.ConfigurationChangedEvent;
 import io.relution.jenkins.scmsqs.model.events.EventBroker;
 import io.relution.jenkins.scmsqs.util.ThrowIf;
+import jenkins.util.Timer;
+
+
+/**
+ * Schedules {@link SQSQueueMonitor} instances, using a single monitor per physical queue.
+ * <p>
+ * Queue configurations that resolve to the same queue URL and use the same access key share a
+ * monitor, so their listeners see every message received from the queue instead of competing for
+ * messages in separate receive loops. The configuration that created a monitor is the primary
+ * configuration of the monitor; listeners of other configurations are moved to another monitor if
+ * their configuration changes.
+ * <p>
+ * The registry of monitors is a concurrent map that is updated by atomic operations only, so
+ * registering a listener never waits for the registration of a listener of another queue. Adding a
+ * listener to a monitor, removing a listener from it and removing or replacing the monitor in the
+ * registry are serialized on the monitor, so a listener is never added to a monitor that was
+ * removed, e.g. because its last listener was removed concurrently.
+ * <p>
+ * The scheduler never resolves the URL of a queue. Queues whose URL is not known yet are identified
+ * by their name; once the URL is resolved, the monitor of the queue is replaced by a monitor that
+ * is identified by the URL, so that it can be shared with configurations that use the URL.
+ */
+public class SQSQueueMonitorSchedulerImpl implements SQSQueueMonitorScheduler {
 
+    /**
+     * The time a replaced monitor is given to hand off messages received by a request in flight.
+     * Exceeds the maximum wait time of a long poll request (20 seconds).
+     */
+    private static final long                            DRAIN_TIMEOUT = 30;
+    private static final TimeUnit                        DRAIN_UNIT    = TimeUnit.SECONDS;
 
-public class SQSQueueMonitorSchedulerImpl implements SQSQueueMonitorScheduler {
+    private final ExecutorService                        executor;
+    private final SQSQueueProvider                       provider;
+    private final SQSFactory                             factory;
 
-    private final ExecutorService              executor;
-    private final SQSQueueProvider             provider;
-    private final SQSFactory                   factory;
+    /**
+     * The monitors, keyed by the physical queue they receive messages from.
+     */
+    private final ConcurrentMap<String, SQSQueueMonitor> monitors      = new ConcurrentHashMap<>();
 
-    private final Map<String, SQSQueueMonitor> monitors = new HashMap<>();
+    /**
+     * The physical queue of each queue configuration for which a listener is registered, keyed by
+     * the UUID of the configuration.
+     */
+    private final ConcurrentMap<String, String>          queueKeys     = new ConcurrentHashMap<>();
 
     @Inject
     public SQSQueueMonitorSchedulerImpl(final ExecutorService executor, final SQSQueueProvider provider, final SQSFactory factory) {
@@ -74,14 +119,58 @@ public class SQSQueueMonitorSchedulerImpl implements SQSQueueMonitorScheduler {
     }
 
     @Override
-    public synchronized boolean unregister(final SQSQueueListener listener) {
+    public int registerAll(final Collection<? extends SQSQueueListener> listeners) throws InterruptedException {
+        final Map<String, List<SQSQueueListener>> groups = new HashMap<>();
+
+        for (final SQSQueueListener listener : listeners) {
+            List<SQSQueueListener> group = groups.get(listener.getQueueUuid());
+
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(listener.getQueueUuid(), group);
+            }
+
+            group.add(listener);
+        }
+
+        Log.info("Register %d SQS listener(s) for %d queue(s)", listeners.size(), groups.size());
+        final List<Callable<Integer>> tasks = new ArrayList<>(groups.size());
+
+        for (final Entry<String, List<SQSQueueListener>> group : groups.entrySet()) {
+            tasks.add(new Callable<Integer>() {
+
+                @Override
+                public Integer call() {
+                    return SQSQueueMonitorSchedulerImpl.this.register(group.getKey(), group.getValue());
+                }
+            });
+        }
+
+        int count = 0;
+
+        for (final Future<Integer> future : this.executor.invokeAll(tasks)) {
+            try {
+                count += future.get();
+
+            } catch (final ExecutionException e) {
+                Log.severe(e.getCause(), "Failed to register SQS listeners");
+
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public boolean unregister(final SQSQueueListener listener) {
         if (listener == null) {
             return false;
         }
 
         Log.info("Unregister SQS listener");
         final String uuid = listener.getQueueUuid();
-        final SQSQueueMonitor monitor = this.monitors.get(uuid);
+        final String key = this.queueKeys.get(uuid);
+        final SQSQueueMonitor monitor = key != null ? this.monitors.get(key) : null;
 
         if (monitor == null) {
             Log.warning("No monitor for {%s}, aborted", uuid);
@@ -89,13 +178,16 @@ public class SQSQueueMonitorSchedulerImpl implements SQSQueueMonitorScheduler {
         }
 
         Log.info("Remove listener from monitor for {%s}", uuid);
-        if (monitor.remove(listener)) {
-            monitor.shutDown();
-        }
 
-        if (monitor.isShutDown()) {
-            Log.info("Monitor is shut down, remove monitor for {%s}", uuid);
-            this.monitors.remove(uuid);
+        synchronized (monitor) {
+            if (monitor.remove(listener)) {
+                monitor.shutDown();
+            }
+
+            if (monitor.isShutDown() && this.removeMonitor(key, monitor)) {
+                Log.info("Monitor is shut down, removed monitor for {%s}", uuid);
+                monitor.flush();
+            }
         }
 
         return true;
@@ -103,75 +195,308 @@ public class SQSQueueMonitorSchedulerImpl implements SQSQueueMonitorScheduler {
 
     @Override
     @Subscribe
-    public synchronized void onConfigurationChanged(final ConfigurationChangedEvent event) {
-        final Iterator<Entry<String, SQSQueueMonitor>> entries = this.monitors.entrySet().iterator();
+    public void onConfigurationChanged(final ConfigurationChangedEvent event) {
+        for (final Entry<String, SQSQueueMonitor> entry : this.monitors.entrySet()) {
+            this.reconfigure(entry.getKey(), entry.getValue());
+        }
+    }
 
-        while (entries.hasNext()) {
-            final Entry<String, SQSQueueMonitor> entry = entries.next();
-            this.reconfigure(entries, entry);
+    @Override
+    public void flush() {
+        for (final SQSQueueMonitor monitor : this.monitors.values()) {
+            monitor.flush();
         }
     }
 
-    private synchronized void register(final SQSQueueListener listener, final String uuid, final SQSQueue queue) {
-        SQSQueueMonitor monitor = this.monitors.get(uuid);
+    @Override
+    public boolean shutDown(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final List<SQSQueueMonitor> monitors = new ArrayList<>();
+
+        for (final Entry<String, SQSQueueMonitor> entry : this.monitors.entrySet()) {
+            if (this.removeMonitor(entry.getKey(), entry.getValue())) {
+                monitors.add(entry.getValue());
+            }
+        }
 
-        if (monitor == null) {
-            Log.info("No monitor exists, creating new monitor for %s", queue);
-            monitor = this.factory.createMonitor(this.executor, queue);
-            this.monitors.put(uuid, monitor);
+        Log.info("Shut down %d monitor(s)", monitors.size());
+
+        for (final SQSQueueMonitor monitor : monitors) {
+            monitor.shutDown();
+        }
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean isTerminated = true;
+
+        for (final SQSQueueMonitor monitor : monitors) {
+            final long remaining = Math.max(0, deadline - System.nanoTime());
+
+            if (!monitor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                Log.warning("Monitor for %s did not stop in time", monitor.getChannel());
+                isTerminated = false;
+            }
         }
 
-        Log.info("Add listener to monitor for %s", queue);
-        monitor.add(listener);
+        return isTerminated;
     }
 
-    private void reconfigure(final Iterator<Entry<String, SQSQueueMonitor>> entries, final Entry<String, SQSQueueMonitor> entry) {
-        final String uuid = entry.getKey();
-        SQSQueueMonitor monitor = entry.getValue();
+    private int register(final String uuid, final List<SQSQueueListener> listeners) {
         final SQSQueue queue = this.provider.getSqsQueue(uuid);
 
         if (queue == null) {
-            Log.info("Queue {%s} removed, shut down monitor", uuid);
-            monitor.shutDown();
-            entries.remove();
-        } else if (monitor.isShutDown() || this.hasQueueChanged(monitor, queue)) {
-            Log.info("Queue {%s} changed or monitor stopped, create new monitor", uuid);
-            monitor = this.factory.createMonitor(monitor, queue);
-            entry.setValue(monitor).shutDown();
-            this.executor.execute(monitor);
+            Log.warning("No queue for {%s}, %d listener(s) not registered", uuid, listeners.size());
+            return 0;
         }
+
+        for (final SQSQueueListener listener : listeners) {
+            this.register(listener, uuid, queue);
+        }
+
+        return listeners.size();
     }
 
-    private boolean hasQueueChanged(final SQSQueueMonitor monitor, final SQSQueue queue) {
-        try {
-            final SQSQueue current = monitor.getQueue();
+    private void register(final SQSQueueListener listener, final String uuid, final SQSQueue queue) {
+        final String key = this.getRegisteredKey(uuid, queue);
 
-            if (!StringUtils.equals(current.getUrl(), queue.getUrl())) {
-                return true;
+        while (true) {
+            final SQSQueueMonitor monitor = this.getOrCreateMonitor(key, queue);
+
+            Log.info("Add listener to monitor for %s", queue);
+
+            synchronized (monitor) {
+                if (this.monitors.get(key) == monitor) {
+                    monitor.add(listener);
+                    this.queueKeys.put(uuid, key);
+                    return;
+                }
             }
 
-            if (!StringUtils.equals(current.getAWSAccessKeyId(), queue.getAWSAccessKeyId())) {
-                return true;
+            // The monitor was removed or replaced concurrently, add the listener to its successor
+            Log.fine("Monitor for %s was replaced, retry", queue);
+        }
+    }
+
+    /**
+     * Returns the key of the monitor the specified configuration is registered with, if any, so
+     * that listeners of a configuration are added to the same monitor until the configuration is
+     * reconfigured, even if the URL of its queue was resolved in the meantime.
+     */
+    private String getRegisteredKey(final String uuid, final SQSQueue queue) {
+        final String key = this.queueKeys.get(uuid);
+
+        if (key != null && this.monitors.containsKey(key)) {
+            return key;
+        }
+
+        return getQueueKey(queue);
+    }
+
+    private SQSQueueMonitor getOrCreateMonitor(final String key, final SQSQueue queue) {
+        final SQSQueueMonitor monitor = this.monitors.get(key);
+
+        if (monitor != null) {
+            return monitor;
+        }
+
+        Log.info("No monitor exists, creating new monitor for %s", queue);
+        final SQSQueueMonitor created = this.factory.createMonitor(this.executor, queue);
+        final SQSQueueMonitor existing = this.monitors.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    private boolean removeMonitor(final String key, final SQSQueueMonitor monitor) {
+        synchronized (monitor) {
+            if (!this.monitors.remove(key, monitor)) {
+                return false;
             }
+        }
 
-            if (!StringUtils.equals(current.getAWSSecretKey(), queue.getAWSSecretKey())) {
-                return true;
+        for (final Entry<String, String> entry : this.queueKeys.entrySet()) {
+            if (entry.getValue().equals(key) && !this.monitors.containsKey(key)) {
+                this.queueKeys.remove(entry.getKey(), key);
             }
+        }
 
-            if (current.getMaxNumberOfMessages() != queue.getMaxNumberOfMessages()) {
-                return true;
+        return true;
+    }
+
+    private void reconfigure(final String key, final SQSQueueMonitor monitor) {
+        final SQSQueue current = monitor.getQueue();
+        final String uuid = current.getUuid();
+        final SQSQueue queue = this.provider.getSqsQueue(uuid);
+        final boolean isShared = this.isShared(key, uuid);
+
+        if (queue == null) {
+            if (this.removeMonitor(key, monitor)) {
+                Log.info("Queue {%s} removed, drain monitor", uuid);
+                monitor.drain(DRAIN_TIMEOUT, DRAIN_UNIT);
+                monitor.flush();
+                this.releaseAfterDrain(current);
+
+                if (isShared) {
+                    this.reassignListeners(monitor, uuid, null);
+                }
             }
+            return;
+        }
 
-            if (current.getWaitTimeSeconds() != queue.getWaitTimeSeconds()) {
-                return true;
+        final QueueChange change = this.getChange(key, monitor, current, queue);
+
+        if (change == QueueChange.CONNECTION) {
+            final String newKey = getQueueKey(queue);
+            final SQSQueueMonitor replacement = this.factory.createMonitor(monitor, queue);
+
+            if (this.replaceMonitor(uuid, key, newKey, monitor, replacement)) {
+                Log.info("Queue {%s} changed or monitor stopped, created new monitor", uuid);
+                monitor.drain(DRAIN_TIMEOUT, DRAIN_UNIT);
+                this.executor.execute(replacement);
+
+                if (isShared) {
+                    this.reassignListeners(replacement, uuid, newKey);
+                }
+            }
+            return;
+        }
+
+        if (change == QueueChange.PARAMETERS) {
+            Log.info("Queue {%s} parameters changed, updated running monitor", uuid);
+            monitor.reconfigure(queue);
+        }
+
+        if (isShared) {
+            this.reassignListeners(monitor, uuid, key);
+        }
+    }
+
+    /**
+     * Returns the change between the configuration of a running monitor and the current
+     * configuration of its queue. Changed client settings, such as timeouts or the proxy, can only
+     * be applied by creating a new client, so they are treated like a change of the connection. The
+     * same applies if the key of the queue changed because its URL was resolved.
+     */
+    private QueueChange getChange(final String key, final SQSQueueMonitor monitor, final SQSQueue current, final SQSQueue queue) {
+        if (monitor.isShutDown()) {
+            return QueueChange.CONNECTION;
+        }
+
+        final QueueChange change = QueueChange.between(current, queue);
+
+        if (change != QueueChange.CONNECTION && !key.equals(getQueueKey(queue))) {
+            Log.info("URL of queue {%s} resolved, replace monitor", queue.getUuid());
+            return QueueChange.CONNECTION;
+        }
+
+        if (change != QueueChange.CONNECTION && !monitor.getChannel().isClientCurrent(queue)) {
+            Log.info("Client settings of queue {%s} changed", queue.getUuid());
+            return QueueChange.CONNECTION;
+        }
+
+        return change;
+    }
+
+    /**
+     * Releases the resources of a removed queue once its monitor no longer hands off messages.
+     */
+    private void releaseAfterDrain(final SQSQueue queue) {
+        Timer.get().schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                SQSQueueMonitorSchedulerImpl.this.factory.release(queue);
+            }
+        }, DRAIN_TIMEOUT, DRAIN_UNIT);
+    }
+
+    private boolean replaceMonitor(final String uuid, final String key, final String newKey, final SQSQueueMonitor monitor, final SQSQueueMonitor replacement) {
+        if (key.equals(newKey)) {
+            synchronized (monitor) {
+                return this.monitors.replace(key, monitor, replacement);
             }
+        }
 
+        if (!this.removeMonitor(key, monitor)) {
             return false;
-        } catch (final com.amazonaws.AmazonServiceException e) {
-            Log.warning("Cannot compare queues: %s", e.getMessage());
-        } catch (final Exception e) {
-            Log.severe(e, "Cannot compare queues, unknown error");
         }
-        return true;
+
+        final SQSQueueMonitor existing = this.monitors.putIfAbsent(newKey, replacement);
+
+        if (existing == null) {
+            this.queueKeys.put(uuid, newKey);
+            return true;
+        }
+
+        // Another configuration already resolves to the new queue, merge the listeners
+        Log.info("Queue {%s} now shares the monitor for %s", uuid, existing.getQueue());
+        monitor.drain(DRAIN_TIMEOUT, DRAIN_UNIT);
+        monitor.flush();
+        this.moveListeners(replacement.getListeners(), replacement);
+        return false;
+    }
+
+    /**
+     * Moves the listeners of a monitor that belong to queue configurations other than the primary
+     * configuration of the monitor, if these configurations no longer resolve to the queue of the
+     * monitor.
+     * @param monitor The monitor whose listeners to check.
+     * @param primaryUuid The UUID of the primary configuration of the monitor.
+     * @param key The key of the queue of the monitor, or {@code null} if the monitor was removed.
+     */
+    private void reassignListeners(final SQSQueueMonitor monitor, final String primaryUuid, final String key) {
+        final List<SQSQueueListener> moved = new ArrayList<>();
+
+        for (final SQSQueueListener listener : monitor.getListeners()) {
+            final String uuid = listener.getQueueUuid();
+
+            if (uuid.equals(primaryUuid)) {
+                continue;
+            }
+
+            final SQSQueue queue = this.provider.getSqsQueue(uuid);
+
+            if (key == null || queue == null || !key.equals(getQueueKey(queue))) {
+                moved.add(listener);
+            } else {
+                this.queueKeys.put(uuid, key);
+            }
+        }
+
+        this.moveListeners(moved, monitor);
+    }
+
+    /**
+     * Returns a value indicating whether listeners of configurations other than the specified
+     * primary configuration are registered with the monitor for the specified queue.
+     */
+    private boolean isShared(final String key, final String primaryUuid) {
+        for (final Entry<String, String> entry : this.queueKeys.entrySet()) {
+            if (entry.getValue().equals(key) && !entry.getKey().equals(primaryUuid)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void moveListeners(final List<SQSQueueListener> listeners, final SQSQueueMonitor from) {
+        for (final SQSQueueListener listener : listeners) {
+            from.remove(listener);
+            this.queueKeys.remove(listener.getQueueUuid());
+
+            if (!this.register(listener)) {
+                Log.warning("Queue {%s} removed, listener not moved", listener.getQueueUuid());
+            }
+        }
+    }
+
+    /**
+     * Returns a key that identifies the physical queue of the specified configuration. Queues whose
+     * URL has not been resolved yet are identified by their name, so that no network request is
+     * required; the monitor resolves the URL on its receive thread.
+     */
+    private static String getQueueKey(final SQSQueue queue) {
+        return StringUtils.defaultString(queue.getAddress())
+                + "|" + StringUtils.defaultString(queue.getEndpoint())
+                + "|" + StringUtils.defaultString(queue.getAWSAccessKeyId())
+                + "|" + StringUtils.defaultString(queue.getCredentialsId())
+                + "|" + StringUtils.defaultString(queue.getRoleArn());
     }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.RateLimiter;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.model.events.ConfigurationChangedEvent;
+import io.relution.jenkins.scmsqs.model.events.EventBroker;
+import io.relution.jenkins.scmsqs.util.ThrowIf;
+
+
+/**
+ * Rate limiter that uses a separate token bucket for each key. Each bucket holds up to
+ * {@code burst} tokens and is refilled at a constant rate. A caller that finds its bucket empty
+ * reserves the next token that becomes available and is told how long to defer, so callers are
+ * spread out evenly instead of being rejected.
+ * <p>
+ * A bucket that has been refilled completely is equivalent to a new bucket, so such buckets are
+ * removed periodically to keep the number of buckets proportional to the number of active keys.
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    private static final long         NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    private static final long         EVICT_INTERVAL   = TimeUnit.MINUTES.toNanos(1);
+
+    private final SettingsProvider    settings;
+
+    private final Map<String, Bucket> buckets          = new HashMap<>();
+    private long                      lastEviction     = System.nanoTime();
+
+    private volatile double           tokensPerNano;
+    private volatile int              burst;
+
+    @Inject
+    public TokenBucketRateLimiter(final SettingsProvider settings) {
+        this(settings, settings.getMaxPollsPerMinute(), settings.getPollBurst());
+
+        EventBroker.getInstance().register(this);
+    }
+
+    TokenBucketRateLimiter(final SettingsProvider settings, final int permitsPerMinute, final int burst) {
+        ThrowIf.isNull(settings, "settings");
+
+        this.settings = settings;
+        this.setRate(permitsPerMinute, burst);
+    }
+
+    @Override
+    public long reserve(final String key) {
+        return this.reserve(key, System.nanoTime());
+    }
+
+    @Override
+    public void setRate(final int permitsPerMinute, final int burst) {
+        this.tokensPerNano = Math.max(0, permitsPerMinute) / (double) NANOS_PER_MINUTE;
+        this.burst = Math.max(1, burst);
+    }
+
+    @Subscribe
+    public void onConfigurationChanged(final ConfigurationChangedEvent event) {
+        this.setRate(this.settings.getMaxPollsPerMinute(), this.settings.getPollBurst());
+    }
+
+    long reserve(final String key, final long now) {
+        ThrowIf.isNull(key, "key");
+
+        if (this.tokensPerNano <= 0) {
+            return 0;
+        }
+
+        final long delayNanos = this.getBucket(key, now).reserve(now);
+        return TimeUnit.NANOSECONDS.toMillis(delayNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+    }
+
+    int getBucketCount() {
+        synchronized (this.buckets) {
+            return this.buckets.size();
+        }
+    }
+
+    private Bucket getBucket(final String key, final long now) {
+        synchronized (this.buckets) {
+            if (now - this.lastEviction >= EVICT_INTERVAL) {
+                this.evictIdle(now);
+            }
+
+            Bucket bucket = this.buckets.get(key);
+
+            if (bucket == null) {
+                bucket = new Bucket(now, this.burst);
+                this.buckets.put(key, bucket);
+            }
+
+            return bucket;
+        }
+    }
+
+    private void evictIdle(final long now) {
+        final Iterator<Bucket> iterator = this.buckets.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().isFull(now)) {
+                iterator.remove();
+            }
+        }
+
+        this.lastEviction = now;
+    }
+
+    private final class Bucket {
+
+        private long   lastRefill;
+        private double tokens;
+
+        public Bucket(final long now, final double tokens) {
+            this.lastRefill = now;
+            this.tokens = tokens;
+        }
+
+        /**
+         * Takes a token from the bucket. If the bucket is empty the token is reserved, causing the
+         * bucket to go into debt that is paid back as the bucket refills.
+         * @param now The current value of {@link System#nanoTime()}.
+         * @return The time, in nanoseconds, the caller needs to wait for the reserved token.
+         */
+        public synchronized long reserve(final long now) {
+            final double rate = TokenBucketRateLimiter.this.tokensPerNano;
+            final int capacity = TokenBucketRateLimiter.this.burst;
+
+            this.tokens = Math.min(capacity, this.tokens + (now - this.lastRefill) * rate);
+            this.lastRefill = now;
+            this.tokens -= 1;
+
+            if (this.tokens >= 0 || rate <= 0) {
+                return 0;
+            }
+
+            return (long) Math.ceil(-this.tokens / rate);
+        }
+
+        /**
+         * Returns a value indicating whether the bucket has been refilled completely.
+         * @param now The current value of {@link System#nanoTime()}.
+         * @return {@code true} if the bucket holds {@code burst} tokens; otherwise, {@code false}.
+         */
+        public synchronized boolean isFull(final long now) {
+            final double rate = TokenBucketRateLimiter.this.tokensPerNano;
+            return rate <= 0 || this.tokens + (now - this.lastRefill) * rate >= TokenBucketRateLimiter.this.burst;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import io.relution.jenkins.scmsqs.logging.Log;
+
+
+/**
+ * Provides access to virtual threads on Java runtimes that support them. The plugin is compiled
+ * for older runtimes, so the API is accessed by reflection; on runtimes without virtual threads,
+ * {@link #isAvailable()} returns {@code false}.
+ */
+public final class VirtualThreads {
+
+    private static final ThreadFactory FACTORY = createFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Returns a value indicating whether the Java runtime supports virtual threads.
+     * @return {@code true} if virtual threads are supported; otherwise, {@code false}.
+     */
+    public static boolean isAvailable() {
+        return FACTORY != null;
+    }
+
+    /**
+     * Returns a {@link ThreadFactory} that creates virtual threads.
+     * @return A {@link ThreadFactory} that creates virtual threads.
+     * @throws UnsupportedOperationException The Java runtime does not support virtual threads.
+     */
+    public static ThreadFactory getFactory() {
+        if (FACTORY == null) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this Java runtime");
+        }
+        return FACTORY;
+    }
+
+    private static ThreadFactory createFactory() {
+        try {
+            final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+
+            final Object builder = ofVirtual.invoke(null);
+            return (ThreadFactory) factory.invoke(builder);
+
+        } catch (final NoSuchMethodException | ClassNotFoundException e) {
+            return null;
+
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            // Preview API on Java 19 and 20 without --enable-preview
+            Log.fine("Virtual threads are not available: %s", e);
+            return null;
+
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.util;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Provides static methods that can be used to identify secrets without retaining them as plain
+ * text, e.g. in the keys of a cache.
+ */
+public class Digests {
+
+    /**
+     * Returns the SHA-256 digest of the specified secret.
+     * @param secret The secret to digest, may be {@code null}.
+     * @return The digest, as a hexadecimal string, or {@code null} if the secret is {@code null}.
+     */
+    public static String sha256(final String secret) {
+        if (secret == null) {
+            return null;
+        }
+
+        return Hashing.sha256().hashString(secret, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.util;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.logging.Log;
+
+
+/**
+ * A {@link RotatingSet} of strings that is backed by an append-only journal, so its content
+ * survives a restart. Each item added to the set is appended to the journal, together with the
+ * time at which it was added. Once the journal contains more lines than the set can hold, it is
+ * compacted by rewriting it from the current content of the set.
+ * <p>
+ * If the journal cannot be read or written, the set continues to work in memory only.
+ */
+public class PersistentRotatingSet {
+
+    private static final Charset      CHARSET   = Charset.forName("UTF-8");
+    private static final char         SEPARATOR = ' ';
+
+    private final File                file;
+    private final RotatingSet<String> set;
+    private final long                window;
+    private final int                 maxLines;
+
+    private Writer                    writer;
+    private int                       lineCount;
+
+    /**
+     * Creates a new set that is backed by the specified journal file.
+     * @param file The journal file.
+     * @param window The time for which items are remembered.
+     * @param unit The {@link TimeUnit} of the {@code window} argument.
+     * @param maxSize The maximum number of items per generation.
+     */
+    public PersistentRotatingSet(final File file, final long window, final TimeUnit unit, final int maxSize) {
+        this.file = file;
+        this.set = new RotatingSet<>(window, unit, maxSize);
+        this.window = unit.toMillis(window);
+        this.maxLines = 2 * maxSize;
+    }
+
+    /**
+     * Restores the content of the set from the journal and compacts the journal. Items that are
+     * older than the window are discarded.
+     */
+    public synchronized void load() {
+        final long start = System.currentTimeMillis();
+        final long threshold = start - this.window;
+
+        if (this.file.isFile()) {
+            this.read(threshold);
+        }
+
+        this.compact();
+        Log.fine("Loaded %d item(s) from %s in %d ms", this.set.size(), this.file, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Adds the specified item to the set, if it is not already present.
+     * @param item The item to add. The item must not contain line breaks.
+     * @return {@code true} if the item was added; {@code false} if it was already present.
+     */
+    public synchronized boolean add(final String item) {
+        final long now = System.currentTimeMillis();
+
+        if (!this.set.add(item, now)) {
+            return false;
+        }
+
+        if (this.lineCount >= this.maxLines) {
+            this.compact();
+        } else {
+            this.append(item, now);
+        }
+        return true;
+    }
+
+    /**
+     * Returns a value indicating whether the specified item is currently remembered by the set.
+     * @param item The item to look up.
+     * @return {@code true} if the item is present; otherwise, {@code false}.
+     */
+    public boolean contains(final String item) {
+        return this.set.contains(item);
+    }
+
+    /**
+     * Returns the number of items currently remembered by the set.
+     * @return The number of items in the set.
+     */
+    public int size() {
+        return this.set.size();
+    }
+
+    /**
+     * Closes the journal. Items added afterwards are appended after reopening the journal.
+     */
+    public synchronized void close() {
+        IOUtils.closeQuietly(this.writer);
+        this.writer = null;
+    }
+
+    private void read(final long threshold) {
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(this.file), CHARSET))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                final int index = line.indexOf(SEPARATOR);
+
+                if (index <= 0 || index == line.length() - 1) {
+                    continue;
+                }
+
+                final long timestamp = Timestamps.parseMillis(line.substring(0, index));
+
+                if (timestamp >= threshold) {
+                    this.set.add(line.substring(index + 1), timestamp);
+                }
+            }
+
+        } catch (final IOException e) {
+            Log.warning("Failed to read %s: %s", this.file, e);
+
+        }
+    }
+
+    private void append(final String item, final long timestamp) {
+        if (StringUtils.containsAny(item, '\r', '\n')) {
+            return;
+        }
+
+        try {
+            if (this.writer == null) {
+                this.writer = this.open(true);
+            }
+
+            this.writeLine(this.writer, item, timestamp);
+            this.writer.flush();
+            this.lineCount++;
+
+        } catch (final IOException e) {
+            Log.warning("Failed to write %s: %s", this.file, e);
+            this.close();
+
+        }
+    }
+
+    private void compact() {
+        this.close();
+
+        final File temp = new File(this.file.getPath() + ".tmp");
+        final Map<String, Long> items = this.set.snapshot();
+
+        try {
+            try (final Writer writer = this.open(temp, false)) {
+                for (final Map.Entry<String, Long> entry : items.entrySet()) {
+                    this.writeLine(writer, entry.getKey(), entry.getValue());
+                }
+            }
+
+            if (this.file.exists() && !this.file.delete()) {
+                throw new IOException("Failed to delete " + this.file);
+            }
+
+            if (!temp.renameTo(this.file)) {
+                throw new IOException("Failed to rename " + temp);
+            }
+
+            this.lineCount = items.size();
+
+        } catch (final IOException e) {
+            Log.warning("Failed to compact %s: %s", this.file, e);
+
+        }
+    }
+
+    private Writer open(final boolean append) throws IOException {
+        return this.open(this.file, append);
+    }
+
+    private Writer open(final File file, final boolean append) throws IOException {
+        final File parent = file.getParentFile();
+
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory " + parent);
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), CHARSET));
+    }
+
+    private void writeLine(final Writer writer, final String item, final long timestamp) throws IOException {
+        writer.write(String.valueOf(timestamp));
+        writer.write(SEPARATOR);
+        writer.write(item);
+        writer.write('\n');
+    }
+}
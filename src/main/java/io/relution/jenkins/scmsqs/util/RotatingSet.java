@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.util;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A bounded set that remembers its items for a limited time. Items are stored in two generations;
+ * when the current generation is older than half the window, or when it reaches its maximum size,
+ * it replaces the previous generation and a new, empty generation is started.
+ * <p>
+ * An item is therefore remembered for at least half the window and at most the full window, unless
+ * the set reaches its maximum size earlier.
+ * @param <T> The type of the items in the set.
+ */
+public class RotatingSet<T> {
+
+    private final long interval;
+    private final int  maxSize;
+
+    private Set<T>     current  = new HashSet<>();
+    private Set<T>     previous = new HashSet<>();
+    private long       rotatedAt;
+    private long       previousRotatedAt;
+
+    /**
+     * Creates a new set that remembers items for the specified time.
+     * @param window The time for which items are remembered.
+     * @param unit The {@link TimeUnit} of the {@code window} argument.
+     * @param maxSize The maximum number of items per generation.
+     */
+    public RotatingSet(final long window, final TimeUnit unit, final int maxSize) {
+        this.interval = Math.max(1, unit.toMillis(window) / 2);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Adds the specified item to the set, if it is not already present.
+     * @param item The item to add.
+     * @return {@code true} if the item was added; {@code false} if it was already present.
+     */
+    public boolean add(final T item) {
+        return this.add(item, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns a value indicating whether the specified item is currently remembered by the set.
+     * @param item The item to look up.
+     * @return {@code true} if the item is present; otherwise, {@code false}.
+     */
+    public boolean contains(final T item) {
+        return this.contains(item, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns a value indicating whether the specified item is remembered by the set at the
+     * specified time.
+     * @param item The item to look up.
+     * @param now The time, in milliseconds since the epoch, at which the item is looked up.
+     * @return {@code true} if the item is present; otherwise, {@code false}.
+     */
+    public synchronized boolean contains(final T item, final long now) {
+        this.rotateIfRequired(now);
+        return this.previous.contains(item) || this.current.contains(item);
+    }
+
+    /**
+     * Returns the number of items currently remembered by the set.
+     * @return The number of items in both generations.
+     */
+    public synchronized int size() {
+        return this.current.size() + this.previous.size();
+    }
+
+    /**
+     * Returns the items currently remembered by the set, together with the time at which the
+     * generation that contains the item was started. Items of older generations are returned first.
+     * @return A map that associates each item with the start time of its generation, in
+     * milliseconds since the epoch.
+     */
+    public synchronized Map<T, Long> snapshot() {
+        final Map<T, Long> items = new LinkedHashMap<>(this.size());
+
+        for (final T item : this.previous) {
+            items.put(item, this.previousRotatedAt);
+        }
+
+        for (final T item : this.current) {
+            items.put(item, this.rotatedAt);
+        }
+
+        return items;
+    }
+
+    /**
+     * Adds the specified item to the set at the specified time, if it is not already present.
+     * @param item The item to add.
+     * @param now The time, in milliseconds since the epoch, at which the item is added.
+     * @return {@code true} if the item was added; {@code false} if it was already present.
+     */
+    public synchronized boolean add(final T item, final long now) {
+        this.rotateIfRequired(now);
+
+        if (this.previous.contains(item)) {
+            return false;
+        }
+
+        return this.current.add(item);
+    }
+
+    private void rotateIfRequired(final long now) {
+        final long age = now - this.rotatedAt;
+
+        if (age >= 2 * this.interval) {
+            this.previous = new HashSet<>();
+            this.current = new HashSet<>();
+            this.previousRotatedAt = now;
+            this.rotatedAt = now;
+
+        } else if (age >= this.interval || this.current.size() >= this.maxSize) {
+            this.previous = this.current;
+            this.current = new HashSet<>();
+            this.previousRotatedAt = this.rotatedAt;
+            this.rotatedAt = now;
+
+        }
+    }
+}
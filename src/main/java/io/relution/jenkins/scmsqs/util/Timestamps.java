@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+
+/**
+ * Provides static methods that can be used to parse timestamps contained in messages.
+ */
+public class Timestamps {
+
+    private static final String[] ISO_8601_PATTERNS = {
+            "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
+            "yyyy-MM-dd'T'HH:mm:ss.SSSXXX",
+            "yyyy-MM-dd'T'HH:mm:ssZ",
+            "yyyy-MM-dd'T'HH:mm:ssXXX"
+    };
+
+    private static final String   DATE_TIME_PATTERN = "yyyy-MM-dd HH:mm";
+
+    /**
+     * Parses the specified ISO 8601 date and time, as used by Amazon Web Services.
+     * @param value The value to parse, e.g. {@code 2016-02-09T12:49:16.493+0000}.
+     * @return The time, in milliseconds since the epoch, or {@code 0} if the value is empty or
+     * cannot be parsed.
+     */
+    public static long parseIso8601(final String value) {
+        if (StringUtils.isBlank(value)) {
+            return 0;
+        }
+
+        for (final String pattern : ISO_8601_PATTERNS) {
+            final DateFormat format = new SimpleDateFormat(pattern, Locale.ENGLISH);
+            format.setLenient(false);
+
+            try {
+                final Date date = format.parse(value);
+                return date.getTime();
+
+            } catch (final ParseException e) {
+                // Try next pattern
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Parses the specified local date and time, as entered by a user.
+     * @param value The value to parse, e.g. {@code 2016-02-09 12:49}.
+     * @return The time, in milliseconds since the epoch, or {@code 0} if the value is empty or
+     * cannot be parsed.
+     */
+    public static long parseDateTime(final String value) {
+        if (StringUtils.isBlank(value)) {
+            return 0;
+        }
+
+        final DateFormat format = new SimpleDateFormat(DATE_TIME_PATTERN, Locale.ENGLISH);
+        format.setLenient(false);
+
+        try {
+            final Date date = format.parse(value.trim());
+            return date.getTime();
+
+        } catch (final ParseException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Parses the specified number of milliseconds since the epoch.
+     * @param value The value to parse, e.g. {@code 1455022156493}.
+     * @return The time, in milliseconds since the epoch, or {@code 0} if the value is empty or
+     * cannot be parsed.
+     */
+    public static long parseMillis(final String value) {
+        if (StringUtils.isBlank(value)) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -18,7 +18,7 @@ package io.relution.jenkins.scmsqs;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.GetQueueUrlResult;
 
 import org.junit.Before;
@@ -28,38 +28,52 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
-import io.relution.jenkins.scmsqs.interfaces.SQSFactory;
+import java.util.concurrent.ScheduledExecutorService;
+
+import io.relution.jenkins.scmsqs.interfaces.QueueUrlCache;
+import io.relution.jenkins.scmsqs.interfaces.SQSClientPool;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.model.QueueUrlCacheImpl;
 
 
 public class SQSTriggerQueueTest {
 
     @Mock
-    private SQSFactory        sqsFactory;
+    private SQSClientPool            clientPool;
+
+    @Mock
+    private SettingsProvider         settings;
 
     @Mock
-    private AmazonSQSAsync    sqs;
+    private ScheduledExecutorService timer;
 
     @Mock
-    private GetQueueUrlResult getQueueUrlResult;
+    private AmazonSQS                sqs;
+
+    @Mock
+    private GetQueueUrlResult        getQueueUrlResult;
+
+    private QueueUrlCache            urlCache;
 
     @Before
     public void init() {
         MockitoAnnotations.initMocks(this);
 
-        Mockito.when(this.sqsFactory.createSQS(Matchers.any(SQSQueue.class))).thenReturn(this.sqs);
-        Mockito.when(this.sqsFactory.createSQSAsync(Matchers.any(SQSQueue.class))).thenReturn(this.sqs);
+        Mockito.when(this.clientPool.acquire(Matchers.any(SQSQueue.class))).thenReturn(this.sqs);
 
         Mockito.when(this.sqs.getQueueUrl(Matchers.anyString())).thenReturn(this.getQueueUrlResult);
 
         Mockito.when(this.getQueueUrlResult.getQueueUrl()).thenReturn("mock://sqs.url");
+
+        this.urlCache = new QueueUrlCacheImpl(this.clientPool, this.settings, this.timer);
     }
 
     @Test
     public void shouldSetDefaults() {
         // Cannot mock or create an instance of final hudson.util.Secret, so null it is
         final SQSTriggerQueue queue = new SQSTriggerQueue(null, "name", "accessKey", null, 0, 0);
-        queue.setFactory(this.sqsFactory);
+        queue.setUrlCache(this.urlCache);
 
         assertThat(queue.getUuid()).isNotEmpty();
 
@@ -81,7 +95,7 @@ public class SQSTriggerQueueTest {
     @Test
     public void shouldHaveNoExplicitEndpoint() {
         final SQSTriggerQueue queue = new SQSTriggerQueue(null, "test-queue", "accessKey", null, 0, 0);
-        queue.setFactory(this.sqsFactory);
+        queue.setUrlCache(this.urlCache);
 
         assertThat(queue.getUrl()).isEqualTo("mock://sqs.url");
         assertThat(queue.getName()).isEqualTo("test-queue");
@@ -98,7 +112,7 @@ public class SQSTriggerQueueTest {
                 null,
                 0,
                 0);
-        queue.setFactory(this.sqsFactory);
+        queue.setUrlCache(this.urlCache);
 
         assertThat(queue.getUrl()).isEqualTo("https://sqs.us-east-1.amazonaws.com/929548749884/test-queue");
         assertThat(queue.getName()).isEqualTo("test-queue");
@@ -115,7 +129,7 @@ public class SQSTriggerQueueTest {
                 null,
                 0,
                 0);
-        queue.setFactory(this.sqsFactory);
+        queue.setUrlCache(this.urlCache);
 
         assertThat(queue.getUrl()).isEqualTo("mock://sqs.url");
         assertThat(queue.getName()).isEqualTo("https://git-codecommit.us-east-1.amazonaws.com/v1/repos/test");
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.model.constants.AttributeName;
+
+
+public class MessageArchiveImplTest {
+
+    private static final String QUEUE_UUID = "queue-uuid";
+
+    @Rule
+    public TemporaryFolder      folder     = new TemporaryFolder();
+
+    @Mock
+    private SettingsProvider    settings;
+
+    private MessageArchiveImpl  archive;
+
+    @Before
+    public void init() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        this.archive = new MessageArchiveImpl(this.folder.newFolder(), this.settings);
+    }
+
+    @Test
+    public void shouldNotRetainMessagesIfDisabled() {
+        when(this.settings.getEventRetentionDays()).thenReturn(0);
+
+        this.archive.append(QUEUE_UUID, Arrays.asList(this.createMessage("1", System.currentTimeMillis())));
+
+        assertThat(this.archive.find(QUEUE_UUID, 0, Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    public void shouldFindMessagesWithinRange() {
+        when(this.settings.getEventRetentionDays()).thenReturn(1);
+        final long now = System.currentTimeMillis();
+
+        this.archive.append(QUEUE_UUID, Arrays.asList(
+                this.createMessage("1", now - 2000),
+                this.createMessage("2", now - 1000),
+                this.createMessage("3", now)));
+
+        final List<Message> messages = this.archive.find(QUEUE_UUID, now - 1500, now - 500);
+
+        assertThat(messages).hasSize(1);
+        assertThat(messages.get(0).getMessageId()).isEqualTo("2");
+        assertThat(messages.get(0).getBody()).isEqualTo("body-2");
+    }
+
+    @Test
+    public void shouldSeparateQueues() {
+        when(this.settings.getEventRetentionDays()).thenReturn(1);
+
+        this.archive.append(QUEUE_UUID, Arrays.asList(this.createMessage("1", System.currentTimeMillis())));
+
+        assertThat(this.archive.find("other-uuid", 0, Long.MAX_VALUE)).isEmpty();
+        assertThat(this.archive.find(QUEUE_UUID, 0, Long.MAX_VALUE)).hasSize(1);
+    }
+
+    private Message createMessage(final String id, final long sentTimestamp) {
+        final Message message = new Message()
+                .withMessageId(id)
+                .withBody("body-" + id);
+        message.addAttributesEntry(AttributeName.SENT_TIMESTAMP, String.valueOf(sentTimestamp));
+        return message;
+    }
+}
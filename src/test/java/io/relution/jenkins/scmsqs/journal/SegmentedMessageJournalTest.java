@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.interfaces.MessageJournal;
+
+
+public class SegmentedMessageJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File           directory;
+
+    @Before
+    public void init() {
+        this.directory = new File(this.folder.getRoot(), "journal");
+    }
+
+    @Test
+    public void shouldReadAppendedMessagesInOrder() throws IOException {
+        final MessageJournal journal = new SegmentedMessageJournal(this.directory);
+        journal.append(Arrays.asList(this.message("1"), this.message("2")));
+        journal.append(Arrays.asList(this.message("3")));
+
+        assertThat(journal.hasPending()).isTrue();
+        assertThat(this.ids(journal.read(2))).containsExactly("1", "2");
+        assertThat(this.ids(journal.read(2))).containsExactly("3");
+        assertThat(journal.read(2)).isEmpty();
+        assertThat(journal.hasPending()).isFalse();
+    }
+
+    @Test
+    public void shouldResumeAfterCheckpoint() throws IOException {
+        final MessageJournal journal = new SegmentedMessageJournal(this.directory);
+        journal.append(Arrays.asList(this.message("1"), this.message("2"), this.message("3")));
+
+        journal.read(1);
+        journal.commit();
+        journal.read(1);
+
+        final MessageJournal reopened = new SegmentedMessageJournal(this.directory);
+        assertThat(this.ids(reopened.read(10))).containsExactly("2", "3");
+    }
+
+    @Test
+    public void shouldPreserveMessageContent() throws IOException {
+        final Message message = this.message("1");
+        message.addAttributesEntry("SentTimestamp", "1455022156493");
+
+        final MessageJournal journal = new SegmentedMessageJournal(this.directory);
+        journal.append(Arrays.asList(message));
+
+        final Message read = journal.read(1).get(0);
+        assertThat(read.getBody()).isEqualTo(message.getBody());
+        assertThat(read.getAttributes()).isEqualTo(message.getAttributes());
+    }
+
+    @Test
+    public void shouldTruncateIncompleteRecord() throws IOException {
+        final MessageJournal journal = new SegmentedMessageJournal(this.directory);
+        journal.append(Arrays.asList(this.message("1"), this.message("2")));
+
+        final File segment = this.directory.listFiles()[0];
+
+        try (final RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        final MessageJournal reopened = new SegmentedMessageJournal(this.directory);
+        assertThat(this.ids(reopened.read(10))).containsExactly("1");
+
+        reopened.append(Arrays.asList(this.message("3")));
+        assertThat(this.ids(reopened.read(10))).containsExactly("3");
+    }
+
+    @Test
+    public void shouldReadAgainAfterRollback() throws IOException {
+        final MessageJournal journal = new SegmentedMessageJournal(this.directory);
+        journal.append(Arrays.asList(this.message("1"), this.message("2"), this.message("3")));
+
+        journal.read(1);
+        journal.commit();
+        journal.read(2);
+        journal.rollback();
+
+        assertThat(journal.hasPending()).isTrue();
+        assertThat(this.ids(journal.read(10))).containsExactly("2", "3");
+    }
+
+    @Test
+    public void shouldCreateDirectoryOnFirstAppend() throws IOException {
+        final MessageJournal journal = new SegmentedMessageJournal(this.directory);
+        assertThat(this.directory.exists()).isFalse();
+
+        journal.append(Arrays.asList(this.message("1")));
+        assertThat(this.directory.isDirectory()).isTrue();
+    }
+
+    @Test
+    public void shouldRejectAppendAfterClose() throws IOException {
+        final MessageJournal journal = new SegmentedMessageJournal(this.directory);
+        journal.append(Arrays.asList(this.message("1")));
+        journal.close();
+
+        assertThatThrownBy(new ThrowingCallable() {
+
+            @Override
+            public void call() throws Throwable {
+                journal.append(Arrays.asList(SegmentedMessageJournalTest.this.message("2")));
+            }
+
+        }).isInstanceOf(IOException.class);
+        assertThat(this.ids(journal.read(10))).containsExactly("1");
+    }
+
+    private Message message(final String id) {
+        final Message message = new Message();
+        message.setMessageId(id);
+        message.setBody("{\"Message\":\"body of " + id + "\"}");
+        return message;
+    }
+
+    private List<String> ids(final List<Message> messages) {
+        final String[] ids = new String[messages.size()];
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = messages.get(i).getMessageId();
+        }
+
+        return Arrays.asList(ids);
+    }
+}
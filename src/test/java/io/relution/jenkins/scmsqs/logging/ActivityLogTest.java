@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+
+public class ActivityLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReturnZeroIfNoPollRecorded() {
+        final ActivityLog log = new ActivityLog(this.folder.getRoot());
+
+        assertThat(log.getLastPollTime()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldPersistLastPollTime() throws IOException {
+        new ActivityLog(this.folder.getRoot()).setLastPollTime(1000);
+        new ActivityLog(this.folder.getRoot()).setLastPollTime(2000);
+
+        final ActivityLog log = new ActivityLog(this.folder.getRoot());
+
+        assertThat(log.getLastPollTime()).isEqualTo(2000);
+        assertThat(log.getEntries()).isEmpty();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+
+public class LatencyHistogramTest {
+
+    private LatencyHistogram histogram;
+
+    @Before
+    public void init() {
+        this.histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void shouldReturnZeroIfEmpty() {
+        assertThat(this.histogram.getCount()).isEqualTo(0);
+        assertThat(this.histogram.getMeanMillis()).isEqualTo(0);
+        assertThat(this.histogram.getPercentileMillis(99)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRecordMeanAndMax() {
+        this.histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        this.histogram.record(TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertThat(this.histogram.getCount()).isEqualTo(2);
+        assertThat(this.histogram.getMeanMillis()).isEqualTo(20);
+        assertThat(this.histogram.getMaxMillis()).isEqualTo(30);
+    }
+
+    @Test
+    public void shouldReturnUpperBoundOfBucket() {
+        for (int i = 0; i < 99; i++) {
+            this.histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        }
+        this.histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertThat(this.histogram.getPercentileMillis(50)).isEqualTo(4);
+        assertThat(this.histogram.getPercentileMillis(99)).isEqualTo(4);
+        assertThat(this.histogram.getPercentileMillis(100)).isEqualTo(128);
+    }
+
+    @Test
+    public void shouldReturnMaxForLastBucket() {
+        this.histogram.record(TimeUnit.MINUTES.toNanos(10));
+
+        assertThat(this.histogram.getPercentileMillis(50)).isEqualTo(TimeUnit.MINUTES.toMillis(10));
+    }
+}
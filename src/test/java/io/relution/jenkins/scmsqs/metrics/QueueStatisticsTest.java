@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class QueueStatisticsTest {
+
+    private QueueStatistics statistics;
+
+    @Before
+    public void init() {
+        this.statistics = new QueueStatistics();
+    }
+
+    @Test
+    public void shouldCountEmptyReceives() {
+        this.statistics.recordReceive(1000, 0);
+        this.statistics.recordReceive(1000, 0);
+        this.statistics.recordReceive(1000, 3);
+        this.statistics.recordReceive(1000, 0);
+
+        assertThat(this.statistics.getReceiveRequests()).isEqualTo(4);
+        assertThat(this.statistics.getEmptyReceives()).isEqualTo(3);
+        assertThat(this.statistics.getEmptyReceiveRate()).isEqualTo(75);
+        assertThat(this.statistics.getMessagesReceived()).isEqualTo(3);
+        assertThat(this.statistics.getReceiveLatency().getCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldCountDeletes() {
+        this.statistics.recordDelete(9, 1);
+        this.statistics.recordDelete(0, 2);
+
+        assertThat(this.statistics.getDeletedMessages()).isEqualTo(9);
+        assertThat(this.statistics.getDeleteFailures()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldReturnMeanMatcherTime() {
+        this.statistics.recordMatcher(1000000);
+        this.statistics.recordMatcher(3000000);
+
+        assertThat(this.statistics.getMatcherMeanMillis()).isEqualTo(2);
+    }
+}
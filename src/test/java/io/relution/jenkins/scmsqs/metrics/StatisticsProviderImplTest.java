@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import io.relution.jenkins.scmsqs.interfaces.StatisticsProvider;
+
+
+public class StatisticsProviderImplTest {
+
+    private static final String UUID = "uuid-statistics-test";
+
+    private StatisticsProvider  provider;
+
+    private MBeanServer         server;
+
+    private ObjectName          name;
+
+    @Before
+    public void init() throws Exception {
+        this.provider = new StatisticsProviderImpl();
+        this.server = ManagementFactory.getPlatformMBeanServer();
+        this.name = new ObjectName("io.relution.jenkins.scmsqs:type=QueueStatistics,queue=" + ObjectName.quote(UUID));
+    }
+
+    @Test
+    public void shouldRegisterStatisticsWithJmx() {
+        final QueueStatistics statistics = this.provider.getQueueStatistics(UUID);
+
+        assertThat(this.provider.getQueueStatistics(UUID)).isSameAs(statistics);
+        assertThat(this.server.isRegistered(this.name)).isTrue();
+
+        this.provider.remove(UUID);
+    }
+
+    @Test
+    public void shouldUnregisterStatisticsOfRemovedQueue() {
+        final QueueStatistics statistics = this.provider.getQueueStatistics(UUID);
+
+        this.provider.remove(UUID);
+
+        assertThat(this.server.isRegistered(this.name)).isFalse();
+        assertThat(this.provider.getQueueStatistics(UUID)).isNotSameAs(statistics);
+
+        this.provider.remove(UUID);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+
+
+public class BuiltCommitCacheImplTest {
+
+    private static final String JOB    = "folder/job";
+    private static final String COMMIT = "5e1d3c7f4a2b6d8e9f0a1b2c3d4e5f6a7b8c9d0e";
+
+    @Rule
+    public TemporaryFolder      folder = new TemporaryFolder();
+
+    private File                file;
+
+    @Before
+    public void init() {
+        this.file = new File(this.folder.getRoot(), "built-commits.properties");
+    }
+
+    @Test
+    public void shouldMatchBuiltCommit() {
+        final BuiltCommitCacheImpl cache = new BuiltCommitCacheImpl(this.file);
+        cache.setBuilt(JOB, "origin/master", COMMIT);
+
+        assertThat(cache.isBuilt(JOB, this.createEvent("heads/master", COMMIT))).isTrue();
+        assertThat(cache.isBuilt(JOB, this.createEvent("heads/master", "other"))).isFalse();
+        assertThat(cache.isBuilt(JOB, this.createEvent("heads/develop", COMMIT))).isFalse();
+        assertThat(cache.isBuilt("other", this.createEvent("heads/master", COMMIT))).isFalse();
+    }
+
+    @Test
+    public void shouldNotMatchEventWithoutCommitOrBranch() {
+        final BuiltCommitCacheImpl cache = new BuiltCommitCacheImpl(this.file);
+        cache.setBuilt(JOB, "origin/master", COMMIT);
+
+        assertThat(cache.isBuilt(JOB, this.createEvent("heads/master", null))).isFalse();
+        assertThat(cache.isBuilt(JOB, this.createEvent("tags/master", COMMIT))).isFalse();
+    }
+
+    @Test
+    public void shouldStripRemoteFromBranchName() {
+        final BuiltCommitCacheImpl cache = new BuiltCommitCacheImpl(this.file);
+        cache.setBuilt(JOB, "refs/remotes/origin/feature/x", COMMIT);
+
+        assertThat(cache.isBuilt(JOB, this.createEvent("heads/feature/x", COMMIT))).isTrue();
+    }
+
+    @Test
+    public void shouldRestoreCommitsAfterRestart() {
+        new BuiltCommitCacheImpl(this.file).setBuilt(JOB, "origin/master", COMMIT);
+
+        final BuiltCommitCacheImpl cache = new BuiltCommitCacheImpl(this.file);
+
+        assertThat(cache.isBuilt(JOB, this.createEvent("heads/master", COMMIT))).isTrue();
+    }
+
+    @Test
+    public void shouldRemoveCommitsOfJob() {
+        final BuiltCommitCacheImpl cache = new BuiltCommitCacheImpl(this.file);
+        cache.setBuilt(JOB, "origin/master", COMMIT);
+        cache.remove(JOB);
+
+        assertThat(cache.isBuilt(JOB, this.createEvent("heads/master", COMMIT))).isFalse();
+        assertThat(new BuiltCommitCacheImpl(this.file).isBuilt(JOB, this.createEvent("heads/master", COMMIT))).isFalse();
+    }
+
+    private Event createEvent(final String branch, final String commit) {
+        final Event event = mock(Event.class);
+        when(event.getBranch()).thenReturn(branch);
+        when(event.getCommit()).thenReturn(commit);
+        return event;
+    }
+}
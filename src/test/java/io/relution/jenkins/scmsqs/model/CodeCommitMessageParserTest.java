@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+
+
+public class CodeCommitMessageParserTest {
+
+    private static final String    ARN = "arn:aws:codecommit:us-east-1:123456789012:repo";
+
+    private CodeCommitMessageParser parser;
+
+    @Before
+    public void init() {
+        this.parser = new CodeCommitMessageParser();
+    }
+
+    @Test
+    public void shouldParseEventPerReference() {
+        final Message message = message(record("e1", 0, 0, "refs/heads/master", "refs/heads/develop"));
+
+        final List<Event> events = this.parser.parseMessage(message);
+
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getHost()).isEqualTo("git-codecommit.us-east-1.amazonaws.com");
+        assertThat(events.get(0).getPath()).isEqualTo("/v1/repos/repo");
+        assertThat(events.get(0).getBranch()).isEqualTo("heads/master");
+        assertThat(events.get(1).getBranch()).isEqualTo("heads/develop");
+    }
+
+    @Test
+    public void shouldReturnEventIdOncePerRecord() {
+        final List<Event> events = this.parser.parseMessage(message(record("e1", 0, 0, "refs/heads/a", "refs/heads/b")));
+
+        assertThat(this.parser.getEventId(events)).isEqualTo("e1");
+    }
+
+    @Test
+    public void shouldIncludePartNumberInEventId() {
+        final List<Event> events = this.parser.parseMessage(message(record("e1", 2, 3, "refs/heads/a")));
+
+        assertThat(this.parser.getEventId(events)).isEqualTo("e1/2");
+    }
+
+    @Test
+    public void shouldReturnNullEventIdWithoutEvents() {
+        assertThat(this.parser.getEventId(Collections.<Event> emptyList())).isNull();
+    }
+
+    @Test
+    public void shouldReturnNoEventsIfRecordsMissing() {
+        assertThat(this.parser.parseMessage(body("{}"))).isEmpty();
+        assertThat(this.parser.parseMessage(body("{\\\"Records\\\":null}"))).isEmpty();
+    }
+
+    @Test
+    public void shouldReturnNoEventsIfBodyInvalid() {
+        assertThat(this.parser.parseMessage(new Message())).isEmpty();
+        assertThat(this.parser.parseMessage(new Message().withBody("{"))).isEmpty();
+        assertThat(this.parser.parseMessage(new Message().withBody("{\"Message\":\"text\"}"))).isEmpty();
+    }
+
+    private static Message message(final String record) {
+        return body("{\\\"Records\\\":[" + record + "]}");
+    }
+
+    private static Message body(final String json) {
+        return new Message().withBody("{\"Subject\":\"test\",\"Message\":\"" + json + "\"}");
+    }
+
+    private static String record(final String eventId, final int partNumber, final int totalParts, final String... refs) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\\\"eventId\\\":\\\"").append(eventId).append("\\\"");
+        sb.append(",\\\"eventSource\\\":\\\"aws:codecommit\\\"");
+        sb.append(",\\\"eventSourceARN\\\":\\\"").append(ARN).append("\\\"");
+        sb.append(",\\\"eventPartNumber\\\":").append(partNumber);
+        sb.append(",\\\"eventTotalParts\\\":").append(totalParts);
+        sb.append(",\\\"codecommit\\\":{\\\"references\\\":[");
+
+        for (int i = 0; i < refs.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\\\"commit\\\":\\\"c").append(i).append("\\\",\\\"ref\\\":\\\"").append(refs[i]).append("\\\"}");
+        }
+
+        sb.append("]}}");
+        return sb.toString();
+    }
+}
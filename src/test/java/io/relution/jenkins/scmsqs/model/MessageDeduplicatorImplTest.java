@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.interfaces.StatisticsProvider;
+import io.relution.jenkins.scmsqs.metrics.QueueStatistics;
+
+
+public class MessageDeduplicatorImplTest {
+
+    private static final String     UUID_A = "uuid-a";
+    private static final String     UUID_B = "uuid-b";
+
+    @Rule
+    public TemporaryFolder          folder = new TemporaryFolder();
+
+    @Mock
+    private StatisticsProvider      statistics;
+
+    private File                    file;
+    private MessageDeduplicatorImpl deduplicator;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(this.statistics.getQueueStatistics(Matchers.anyString())).thenReturn(new QueueStatistics());
+
+        this.file = new File(this.folder.getRoot(), "event-ids.log");
+        this.deduplicator = new MessageDeduplicatorImpl(this.statistics, this.file);
+    }
+
+    @Test
+    public void shouldNotDropMessagesUntilMarked() {
+        final List<ParsedMessage> messages = Arrays.asList(message("m1", "e1"));
+
+        assertThat(this.deduplicator.removeDuplicates(UUID_A, messages)).hasSize(1);
+        assertThat(this.deduplicator.removeDuplicates(UUID_A, messages)).hasSize(1);
+
+        this.deduplicator.markProcessed(UUID_A, messages);
+        assertThat(this.deduplicator.removeDuplicates(UUID_A, messages)).isEmpty();
+    }
+
+    @Test
+    public void shouldDropDuplicatesWithinBatch() {
+        final ParsedMessage first = message("m1", "e1");
+        final ParsedMessage second = message("m2", "e1");
+
+        assertThat(this.deduplicator.removeDuplicates(UUID_A, Arrays.asList(first, second))).containsExactly(first);
+    }
+
+    @Test
+    public void shouldUseMessageIdIfEventIdMissing() {
+        final List<ParsedMessage> messages = Arrays.asList(message("m1", null));
+        this.deduplicator.markProcessed(UUID_A, messages);
+
+        assertThat(this.deduplicator.removeDuplicates(UUID_A, messages)).isEmpty();
+        assertThat(this.deduplicator.removeDuplicates(UUID_A, Arrays.asList(message("m2", null)))).hasSize(1);
+    }
+
+    @Test
+    public void shouldTrackQueuesSeparately() {
+        final List<ParsedMessage> messages = Arrays.asList(message("m1", "e1"));
+        this.deduplicator.markProcessed(UUID_A, messages);
+
+        assertThat(this.deduplicator.removeDuplicates(UUID_B, messages)).hasSize(1);
+    }
+
+    @Test
+    public void shouldRestoreMarkedMessagesAfterRestart() {
+        final List<ParsedMessage> messages = Arrays.asList(message("m1", "e1"));
+        this.deduplicator.markProcessed(UUID_A, messages);
+
+        final MessageDeduplicatorImpl restarted = new MessageDeduplicatorImpl(this.statistics, this.file);
+        assertThat(restarted.removeDuplicates(UUID_A, messages)).isEmpty();
+    }
+
+    private static ParsedMessage message(final String messageId, final String eventId) {
+        final Message message = new Message().withMessageId(messageId);
+        return new ParsedMessage(message, Collections.<Event> emptyList(), eventId);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+
+
+public class QueueChangeTest {
+
+    @Mock
+    private SQSQueue current;
+
+    @Mock
+    private SQSQueue queue;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+
+        this.mockQueue(this.current);
+        this.mockQueue(this.queue);
+    }
+
+    @Test
+    public void shouldDetectNoChange() {
+        assertThat(QueueChange.between(this.current, this.queue)).isEqualTo(QueueChange.NONE);
+    }
+
+    @Test
+    public void shouldDetectParameterChange() {
+        Mockito.when(this.queue.getWaitTimeSeconds()).thenReturn(10);
+        Mockito.when(this.queue.getMaxNumberOfMessages()).thenReturn(1);
+
+        assertThat(QueueChange.between(this.current, this.queue)).isEqualTo(QueueChange.PARAMETERS);
+    }
+
+    @Test
+    public void shouldDetectConnectionChange() {
+        Mockito.when(this.queue.getRoleArn()).thenReturn("arn:aws:iam::123456789012:role/jenkins");
+        Mockito.when(this.queue.getWaitTimeSeconds()).thenReturn(10);
+
+        assertThat(QueueChange.between(this.current, this.queue)).isEqualTo(QueueChange.CONNECTION);
+    }
+
+    @Test
+    public void shouldAssumeConnectionChangeIfQueuesCannotBeCompared() {
+        Mockito.when(this.queue.getAddress()).thenThrow(new IllegalStateException());
+
+        assertThat(QueueChange.between(this.current, this.queue)).isEqualTo(QueueChange.CONNECTION);
+    }
+
+    private void mockQueue(final SQSQueue queue) {
+        Mockito.when(queue.getAddress()).thenReturn("https://sqs.us-east-1.amazonaws.com/123456789012/queue");
+        Mockito.when(queue.getAWSAccessKeyId()).thenReturn("access-key");
+        Mockito.when(queue.getAWSSecretKey()).thenReturn("secret-key");
+        Mockito.when(queue.getWaitTimeSeconds()).thenReturn(20);
+        Mockito.when(queue.getMaxNumberOfMessages()).thenReturn(10);
+    }
+}
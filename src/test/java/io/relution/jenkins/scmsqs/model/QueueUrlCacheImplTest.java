@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import io.relution.jenkins.scmsqs.interfaces.QueueUrlCache;
+import io.relution.jenkins.scmsqs.interfaces.SQSClientPool;
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+
+
+public class QueueUrlCacheImplTest {
+
+    private static final String      URL_A = "https://sqs.us-east-1.amazonaws.com/123456789012/queue-a";
+
+    @Mock
+    private SQSClientPool            clientPool;
+
+    @Mock
+    private SettingsProvider         settings;
+
+    @Mock
+    private ScheduledExecutorService timer;
+
+    @Mock
+    private AmazonSQS                sqs;
+
+    @Mock
+    private SQSQueue                 queueA;
+
+    @Mock
+    private SQSQueue                 queueB;
+
+    private QueueUrlCache            cache;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+
+        Mockito.when(this.clientPool.acquire(Matchers.any(SQSQueue.class))).thenReturn(this.sqs);
+        Mockito.when(this.sqs.getQueueUrl("queue-a")).thenReturn(new GetQueueUrlResult().withQueueUrl(URL_A));
+
+        Mockito.when(this.queueA.getName()).thenReturn("queue-a");
+        Mockito.when(this.queueA.getAWSAccessKeyId()).thenReturn("access-key-a");
+        Mockito.when(this.queueB.getName()).thenReturn("queue-a");
+        Mockito.when(this.queueB.getAWSAccessKeyId()).thenReturn("access-key-b");
+
+        this.cache = new QueueUrlCacheImpl(this.clientPool, this.settings, this.timer);
+    }
+
+    @Test
+    public void shouldResolveUrlOnce() {
+        assertThat(this.cache.getUrl(this.queueA)).isEqualTo(URL_A);
+        assertThat(this.cache.getUrl(this.queueA)).isEqualTo(URL_A);
+
+        Mockito.verify(this.sqs, Mockito.times(1)).getQueueUrl("queue-a");
+        Mockito.verify(this.clientPool).release(this.sqs);
+        Mockito.verify(this.settings, Mockito.times(1)).saveQueueUrls(Matchers.<Map<String, String>> any());
+    }
+
+    @Test
+    public void shouldResolveUrlPerAccount() {
+        this.cache.getUrl(this.queueA);
+        this.cache.getUrl(this.queueB);
+
+        Mockito.verify(this.sqs, Mockito.times(2)).getQueueUrl("queue-a");
+    }
+
+    @Test
+    public void shouldUsePersistedUrlWithoutRequest() {
+        this.cache.getUrl(this.queueA);
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<Map<String, String>> urls = ArgumentCaptor.forClass((Class<Map<String, String>>) (Class<?>) Map.class);
+        Mockito.verify(this.settings).saveQueueUrls(urls.capture());
+        Mockito.when(this.settings.getQueueUrls()).thenReturn(urls.getValue());
+
+        final QueueUrlCache restored = new QueueUrlCacheImpl(this.clientPool, this.settings, this.timer);
+
+        assertThat(restored.getUrl(this.queueA)).isEqualTo(URL_A);
+        Mockito.verify(this.sqs, Mockito.times(1)).getQueueUrl("queue-a");
+        Mockito.verify(this.timer).execute(Matchers.any(Runnable.class));
+    }
+
+    @Test
+    public void shouldPrefetchUrlInBackground() {
+        this.cache.prefetch(this.queueA);
+
+        final ArgumentCaptor<Runnable> resolve = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.timer).execute(resolve.capture());
+        Mockito.verify(this.sqs, Mockito.never()).getQueueUrl(Matchers.anyString());
+
+        resolve.getValue().run();
+
+        assertThat(this.cache.getUrl(this.queueA)).isEqualTo(URL_A);
+        Mockito.verify(this.sqs, Mockito.times(1)).getQueueUrl("queue-a");
+    }
+
+    @Test
+    public void shouldNotResolveCachedUrlSynchronously() {
+        assertThat(this.cache.getCachedUrl(this.queueA)).isNull();
+
+        final ArgumentCaptor<Runnable> resolve = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.timer).execute(resolve.capture());
+        Mockito.verify(this.sqs, Mockito.never()).getQueueUrl(Matchers.anyString());
+
+        resolve.getValue().run();
+
+        assertThat(this.cache.getCachedUrl(this.queueA)).isEqualTo(URL_A);
+        Mockito.verify(this.sqs, Mockito.times(1)).getQueueUrl("queue-a");
+    }
+}
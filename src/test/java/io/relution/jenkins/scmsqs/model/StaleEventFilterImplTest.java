@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.interfaces.StaleEventFilter;
+
+
+public class StaleEventFilterImplTest {
+
+    private static final long COVERED_SINCE = 1455022156493L;
+    private static final long ONE_HOUR      = 60 * 60 * 1000L;
+
+    private StaleEventFilter  filter;
+
+    @Before
+    public void init() {
+        this.filter = new StaleEventFilterImpl();
+    }
+
+    @Test
+    public void shouldKeepAllEventsIfCoverageUnknown() {
+        final List<Event> events = Arrays.asList(this.event(COVERED_SINCE - ONE_HOUR));
+
+        assertThat(this.filter.getFresh(events, 0)).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    public void shouldDropEventsRaisedBeforeCoverage() {
+        final Event stale = this.event(COVERED_SINCE - ONE_HOUR);
+        final Event fresh = this.event(COVERED_SINCE + ONE_HOUR);
+
+        assertThat(this.filter.getFresh(Arrays.asList(stale, fresh), COVERED_SINCE)).containsExactly(fresh);
+    }
+
+    @Test
+    public void shouldKeepEventsWithinClockSkewTolerance() {
+        final Event event = this.event(COVERED_SINCE - 1000);
+
+        assertThat(this.filter.getFresh(Arrays.asList(event), COVERED_SINCE)).containsExactly(event);
+    }
+
+    @Test
+    public void shouldKeepEventsWithoutTimestamp() {
+        final Event event = this.event(0);
+
+        assertThat(this.filter.getFresh(Arrays.asList(event), COVERED_SINCE)).containsExactly(event);
+    }
+
+    private Event event(final long timestamp) {
+        final Event event = Mockito.mock(Event.class);
+        Mockito.when(event.getTimestamp()).thenReturn(timestamp);
+        return event;
+    }
+}
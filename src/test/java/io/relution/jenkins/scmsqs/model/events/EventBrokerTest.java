@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.model.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.eventbus.Subscribe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+
+public class EventBrokerTest {
+
+    private static final String  REPOST = "repost";
+
+    private final List<Runnable> tasks  = new ArrayList<>();
+    private final List<Object>   events = new ArrayList<>();
+
+    private EventBroker          broker;
+
+    @Before
+    public void init() {
+        this.broker = new EventBroker(new Executor() {
+
+            @Override
+            public void execute(final Runnable command) {
+                EventBrokerTest.this.tasks.add(command);
+            }
+        });
+
+        this.broker.register(this);
+    }
+
+    @Subscribe
+    public void onEvent(final Object event) {
+        this.events.add(event);
+
+        if (event == REPOST) {
+            this.broker.post("reposted");
+        }
+    }
+
+    @Test
+    public void shouldDeliverAsynchronously() {
+        final ConfigurationChangedEvent event = new ConfigurationChangedEvent();
+        this.broker.post(event);
+
+        assertThat(this.events).isEmpty();
+        assertThat(this.broker.isDelivering()).isTrue();
+
+        this.runTasks();
+
+        assertThat(this.events).containsExactly(event);
+        assertThat(this.broker.isDelivering()).isFalse();
+        assertThat(this.broker.getLastDelivered()).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldMergeEventsOfSameType() {
+        final ConfigurationChangedEvent first = new ConfigurationChangedEvent();
+        final ConfigurationChangedEvent second = new ConfigurationChangedEvent();
+        this.broker.post(first);
+        this.broker.post("other");
+        this.broker.post(second);
+
+        assertThat(this.tasks).hasSize(1);
+        this.runTasks();
+
+        assertThat(this.events).containsExactly(second, "other");
+    }
+
+    @Test
+    public void shouldDeliverAgainIfPostedDuringDelivery() {
+        this.broker.post(REPOST);
+        this.tasks.remove(0).run();
+
+        assertThat(this.events).containsExactly(REPOST);
+        assertThat(this.tasks).hasSize(1);
+
+        this.runTasks();
+
+        assertThat(this.events).containsExactly(REPOST, "reposted");
+    }
+
+    private void runTasks() {
+        while (!this.tasks.isEmpty()) {
+            this.tasks.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.net;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+
+
+public class ClientSettingsTest {
+
+    @Mock
+    private SQSQueue queue;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void shouldUseDefaultHostIfEndpointNotSet() {
+        Mockito.when(this.queue.getEndpoint()).thenReturn(" ");
+
+        assertThat(ClientSettings.getHost(this.queue)).isEqualTo("sqs.us-east-1.amazonaws.com");
+    }
+
+    @Test
+    public void shouldUseEndpointAsHost() {
+        Mockito.when(this.queue.getEndpoint()).thenReturn("sqs.eu-west-1.amazonaws.com");
+
+        assertThat(ClientSettings.getHost(this.queue)).isEqualTo("sqs.eu-west-1.amazonaws.com");
+    }
+
+    @Test
+    public void shouldStripSchemePortAndPathFromEndpoint() {
+        Mockito.when(this.queue.getEndpoint()).thenReturn("https://sqs.eu-west-1.amazonaws.com:443/123456789012/queue");
+
+        assertThat(ClientSettings.getHost(this.queue)).isEqualTo("sqs.eu-west-1.amazonaws.com");
+    }
+
+    @Test
+    public void shouldStripPortFromEndpointWithoutScheme() {
+        Mockito.when(this.queue.getEndpoint()).thenReturn("localhost:9324");
+
+        assertThat(ClientSettings.getHost(this.queue)).isEqualTo("localhost");
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.net;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import io.relution.jenkins.scmsqs.interfaces.CredentialsProviderFactory;
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+
+
+public class CredentialsProviderFactoryImplTest {
+
+    @Mock
+    private SettingsProvider           settings;
+
+    @Mock
+    private SQSQueue                   queueA;
+
+    @Mock
+    private SQSQueue                   queueB;
+
+    private CredentialsProviderFactory factory;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+
+        Mockito.when(this.queueA.getAWSAccessKeyId()).thenReturn("access-key-a");
+        Mockito.when(this.queueA.getAWSSecretKey()).thenReturn("secret-key-a");
+        Mockito.when(this.queueB.getAWSAccessKeyId()).thenReturn("access-key-a");
+        Mockito.when(this.queueB.getAWSSecretKey()).thenReturn("secret-key-b");
+
+        this.factory = new CredentialsProviderFactoryImpl(this.settings);
+    }
+
+    @Test
+    public void shouldShareProviderForSameCredentials() {
+        final AWSCredentialsProvider first = this.factory.getProvider(this.queueA);
+        final AWSCredentialsProvider second = this.factory.getProvider(this.queueA);
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void shouldUseSeparateProviderForOtherSecretKey() {
+        final AWSCredentialsProvider providerA = this.factory.getProvider(this.queueA);
+        final AWSCredentialsProvider providerB = this.factory.getProvider(this.queueB);
+
+        assertThat(providerB).isNotSameAs(providerA);
+        assertThat(providerB.getCredentials().getAWSSecretKey()).isEqualTo("secret-key-b");
+    }
+
+    @Test
+    public void shouldEvictProviderReleasedByLastUser() {
+        final AWSCredentialsProvider first = this.factory.getProvider(this.queueA);
+        this.factory.getProvider(this.queueA);
+
+        this.factory.release(first);
+        assertThat(this.factory.getProvider(this.queueA)).isSameAs(first);
+
+        this.factory.release(first);
+        this.factory.release(first);
+        assertThat(this.factory.getProvider(this.queueA)).isNotSameAs(first);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.net;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.services.securitytoken.model.Credentials;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Date;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+public class RefreshingCredentialsProviderTest {
+
+    private static final long                    HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Mock
+    private ScheduledExecutorService             timer;
+
+    @Mock
+    private RefreshingCredentialsProvider.Loader loader;
+
+    private RefreshingCredentialsProvider        provider;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+
+        Mockito.when(this.loader.load()).thenReturn(
+                this.createCredentials("key-1", HOUR_MILLIS),
+                this.createCredentials("key-2", HOUR_MILLIS));
+
+        this.provider = new RefreshingCredentialsProvider(this.timer, this.loader);
+    }
+
+    @Test
+    public void shouldLoadCredentialsOnce() {
+        final AWSCredentials first = this.provider.getCredentials();
+        final AWSCredentials second = this.provider.getCredentials();
+
+        assertThat(first.getAWSAccessKeyId()).isEqualTo("key-1");
+        assertThat(second).isSameAs(first);
+        Mockito.verify(this.loader, Mockito.times(1)).load();
+    }
+
+    @Test
+    public void shouldScheduleRefreshBeforeExpiration() {
+        this.provider.getCredentials();
+
+        final ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(this.timer).schedule(Mockito.any(Runnable.class), delay.capture(), Mockito.eq(TimeUnit.MILLISECONDS));
+
+        assertThat(delay.getValue()).isGreaterThan(0L).isLessThan(HOUR_MILLIS);
+    }
+
+    @Test
+    public void shouldRefreshInBackgroundIfUsed() {
+        this.provider.getCredentials();
+        this.runScheduledRefresh();
+
+        Mockito.verify(this.loader, Mockito.times(2)).load();
+        assertThat(this.provider.getCredentials().getAWSAccessKeyId()).isEqualTo("key-2");
+    }
+
+    @Test
+    public void shouldNotRefreshInBackgroundIfUnused() {
+        this.provider.getCredentials();
+        this.runScheduledRefresh();
+        this.runScheduledRefresh();
+
+        Mockito.verify(this.loader, Mockito.times(2)).load();
+    }
+
+    @Test
+    public void shouldRetryIfRefreshFails() {
+        Mockito.when(this.loader.load()).thenReturn(this.createCredentials("key-1", HOUR_MILLIS))
+                .thenThrow(new AmazonClientException("Service unavailable"))
+                .thenReturn(this.createCredentials("key-2", HOUR_MILLIS));
+
+        this.provider.getCredentials();
+        this.runScheduledRefresh();
+
+        assertThat(this.provider.getCredentials().getAWSAccessKeyId()).isEqualTo("key-1");
+
+        this.runScheduledRefresh();
+
+        assertThat(this.provider.getCredentials().getAWSAccessKeyId()).isEqualTo("key-2");
+    }
+
+    @Test
+    public void shouldLoadExpiredCredentials() {
+        Mockito.when(this.loader.load()).thenReturn(
+                this.createCredentials("key-1", 0),
+                this.createCredentials("key-2", HOUR_MILLIS));
+
+        assertThat(this.provider.getCredentials().getAWSAccessKeyId()).isEqualTo("key-1");
+        assertThat(this.provider.getCredentials().getAWSAccessKeyId()).isEqualTo("key-2");
+    }
+
+    @Test
+    public void shouldNotRefreshInBackgroundAfterShutDown() {
+        this.provider.getCredentials();
+        this.provider.getCredentials();
+        this.provider.shutDown();
+        this.runScheduledRefresh();
+
+        Mockito.verify(this.loader, Mockito.times(1)).load();
+    }
+
+    private void runScheduledRefresh() {
+        final ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.timer, Mockito.atLeastOnce()).schedule(refresh.capture(), Mockito.anyLong(), Mockito.any(TimeUnit.class));
+        refresh.getValue().run();
+    }
+
+    private Credentials createCredentials(final String accessKeyId, final long validMillis) {
+        return new Credentials()
+                .withAccessKeyId(accessKeyId)
+                .withSecretAccessKey("secret-" + accessKeyId)
+                .withSessionToken("token-" + accessKeyId)
+                .withExpiration(new Date(System.currentTimeMillis() + validMillis));
+    }
+}
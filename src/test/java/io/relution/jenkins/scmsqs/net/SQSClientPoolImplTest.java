@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.net;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.google.inject.Provider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import io.relution.jenkins.scmsqs.interfaces.SQSClientPool;
+import io.relution.jenkins.scmsqs.interfaces.SQSFactory;
+import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+
+
+public class SQSClientPoolImplTest {
+
+    @Mock
+    private SQSFactory       factory;
+
+    @Mock
+    private SettingsProvider settings;
+
+    @Mock
+    private SQSQueue         queueA;
+
+    @Mock
+    private SQSQueue         queueB;
+
+    @Mock
+    private SQSQueue         queueC;
+
+    private SQSClientPool    pool;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+
+        Mockito.when(this.factory.createSQS(Mockito.any(SQSQueue.class))).thenAnswer(new Answer<AmazonSQS>() {
+
+            @Override
+            public AmazonSQS answer(final InvocationOnMock invocation) throws Throwable {
+                return Mockito.mock(AmazonSQS.class);
+            }
+        });
+
+        this.mockQueue(this.queueA, "access-key-a", "sqs.eu-west-1.amazonaws.com");
+        this.mockQueue(this.queueB, "access-key-a", "sqs.eu-west-1.amazonaws.com");
+        this.mockQueue(this.queueC, "access-key-c", "sqs.eu-west-1.amazonaws.com");
+
+        Mockito.when(this.settings.getSocketTimeoutSeconds()).thenReturn(50);
+
+        this.pool = new SQSClientPoolImpl(new Provider<SQSFactory>() {
+
+            @Override
+            public SQSFactory get() {
+                return SQSClientPoolImplTest.this.factory;
+            }
+        }, this.settings);
+    }
+
+    @Test
+    public void shouldShareClientForSameCredentials() {
+        final AmazonSQS clientA = this.pool.acquire(this.queueA);
+        final AmazonSQS clientB = this.pool.acquire(this.queueB);
+
+        assertThat(clientB).isSameAs(clientA);
+        assertThat(this.pool.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldUseSeparateClientForOtherCredentials() {
+        final AmazonSQS clientA = this.pool.acquire(this.queueA);
+        final AmazonSQS clientC = this.pool.acquire(this.queueC);
+
+        assertThat(clientC).isNotSameAs(clientA);
+        assertThat(this.pool.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldShutDownClientReleasedByLastUser() {
+        final AmazonSQS client = this.pool.acquire(this.queueA);
+        this.pool.acquire(this.queueB);
+
+        this.pool.release(client);
+        Mockito.verify(client, Mockito.never()).shutdown();
+
+        this.pool.release(client);
+        Mockito.verify(client).shutdown();
+        assertThat(this.pool.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldUseSeparateClientForOtherSettings() {
+        final AmazonSQS clientA = this.pool.acquire(this.queueA);
+        Mockito.when(this.settings.getSocketTimeoutSeconds()).thenReturn(60);
+        final AmazonSQS clientB = this.pool.acquire(this.queueB);
+
+        assertThat(clientB).isNotSameAs(clientA);
+    }
+
+    @Test
+    public void shouldDetectOutdatedClientIfSettingsChanged() {
+        final AmazonSQS client = this.pool.acquire(this.queueA);
+        assertThat(this.pool.isCurrent(client, this.queueA)).isTrue();
+
+        Mockito.when(this.settings.getSocketTimeoutSeconds()).thenReturn(60);
+
+        assertThat(this.pool.isCurrent(client, this.queueA)).isFalse();
+    }
+
+    private void mockQueue(final SQSQueue queue, final String accessKey, final String endpoint) {
+        Mockito.when(queue.getAWSAccessKeyId()).thenReturn(accessKey);
+        Mockito.when(queue.getAWSSecretKey()).thenReturn("secret-" + accessKey);
+        Mockito.when(queue.getEndpoint()).thenReturn(endpoint);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class CoalescingGateTest {
+
+    private CoalescingGate<String> gate;
+
+    @Before
+    public void init() {
+        this.gate = new CoalescingGate<>();
+    }
+
+    @Test
+    public void shouldScheduleFirstRequest() {
+        assertThat(this.gate.request("a")).isTrue();
+        assertThat(this.gate.isPending()).isTrue();
+        assertThat(this.gate.isRunning()).isFalse();
+    }
+
+    @Test
+    public void shouldMergeRequestsIntoPendingExecution() {
+        assertThat(this.gate.request("a")).isTrue();
+        assertThat(this.gate.request("b")).isFalse();
+        assertThat(this.gate.request("c")).isFalse();
+
+        assertThat(this.gate.begin()).containsExactly("a", "b", "c");
+        assertThat(this.gate.isPending()).isFalse();
+        assertThat(this.gate.isRunning()).isTrue();
+
+        assertThat(this.gate.end()).isFalse();
+        assertThat(this.gate.isRunning()).isFalse();
+    }
+
+    @Test
+    public void shouldNotScheduleWhileRunning() {
+        this.gate.request("a");
+        this.gate.begin();
+
+        assertThat(this.gate.request("b")).isFalse();
+        assertThat(this.gate.request("c")).isFalse();
+
+        assertThat(this.gate.end()).isTrue();
+        assertThat(this.gate.begin()).containsExactly("b", "c");
+        assertThat(this.gate.end()).isFalse();
+    }
+
+    @Test
+    public void shouldScheduleAgainAfterExecutionCompleted() {
+        this.gate.request("a");
+        this.gate.begin();
+        this.gate.end();
+
+        assertThat(this.gate.request("b")).isTrue();
+    }
+}
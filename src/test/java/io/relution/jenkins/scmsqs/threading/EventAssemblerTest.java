@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+
+
+public class EventAssemblerTest {
+
+    private ScheduledExecutorService timer;
+
+    private final List<Event>        expired = Collections.synchronizedList(new ArrayList<Event>());
+    private final CountDownLatch     latch   = new CountDownLatch(1);
+
+    private EventAssembler           assembler;
+
+    @Before
+    public void init() {
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.assembler = new EventAssembler(this.timer, 200, TimeUnit.MILLISECONDS, new EventAssembler.Callback() {
+
+            @Override
+            public void onExpired(final List<Event> events) {
+                EventAssemblerTest.this.expired.addAll(events);
+                EventAssemblerTest.this.latch.countDown();
+            }
+        });
+    }
+
+    @After
+    public void dispose() {
+        this.timer.shutdownNow();
+    }
+
+    @Test
+    public void shouldPassThroughSinglePartEvents() {
+        final Event event = this.event("push-1", 1, 1);
+
+        assertThat(this.assembler.add(Arrays.asList(event))).containsExactly(event);
+        assertThat(this.assembler.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReleaseAllPartsWhenComplete() {
+        final Event part1 = this.event("push-1", 1, 2);
+        final Event part2 = this.event("push-1", 2, 2);
+
+        assertThat(this.assembler.add(Arrays.asList(part1))).isEmpty();
+        assertThat(this.assembler.getPendingCount()).isEqualTo(1);
+
+        assertThat(this.assembler.add(Arrays.asList(part2))).containsExactly(part1, part2);
+        assertThat(this.assembler.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReleasePartialSetOnTimeout() throws InterruptedException {
+        final Event part1 = this.event("push-1", 1, 3);
+
+        assertThat(this.assembler.add(Arrays.asList(part1))).isEmpty();
+
+        assertThat(this.latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.expired).containsExactly(part1);
+        assertThat(this.assembler.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReleaseIncompletePartsOnFlush() throws InterruptedException {
+        final Event part1 = this.event("push-1", 1, 3);
+
+        assertThat(this.assembler.add(Arrays.asList(part1))).isEmpty();
+
+        assertThat(this.assembler.flush()).containsExactly(part1);
+        assertThat(this.assembler.getPendingCount()).isEqualTo(0);
+        assertThat(this.latch.await(400, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    @Test
+    public void shouldContainPartsOfIncompleteChangesOnly() {
+        final Event part1 = this.event("push-1", 1, 2);
+        final Event part2 = this.event("push-1", 2, 2);
+
+        this.assembler.add(Arrays.asList(part1));
+
+        assertThat(this.assembler.contains(part1)).isTrue();
+        assertThat(this.assembler.contains(part2)).isFalse();
+
+        this.assembler.add(Arrays.asList(part2));
+
+        assertThat(this.assembler.contains(part1)).isFalse();
+        assertThat(this.assembler.contains(part2)).isFalse();
+    }
+
+    private Event event(final String id, final int partNumber, final int totalParts) {
+        final Event event = Mockito.mock(Event.class);
+        Mockito.when(event.getId()).thenReturn(id);
+        Mockito.when(event.getPartNumber()).thenReturn(partNumber);
+        Mockito.when(event.getTotalParts()).thenReturn(totalParts);
+        return event;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+
+
+public class EventCoalescerTest {
+
+    private static final long        WINDOW   = 200;
+
+    private ScheduledExecutorService timer;
+
+    private final List<Event>        released = Collections.synchronizedList(new ArrayList<Event>());
+    private final CountDownLatch     latch    = new CountDownLatch(1);
+
+    private EventCoalescer           coalescer;
+
+    @Before
+    public void init() {
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.coalescer = new EventCoalescer(this.timer, new EventCoalescer.Callback() {
+
+            @Override
+            public void onReleased(final List<Event> events) {
+                EventCoalescerTest.this.released.addAll(events);
+                EventCoalescerTest.this.latch.countDown();
+            }
+        });
+    }
+
+    @After
+    public void dispose() {
+        this.timer.shutdownNow();
+    }
+
+    @Test
+    public void shouldReleaseImmediatelyIfDisabled() {
+        final Event event = this.event("master", 1);
+
+        assertThat(this.coalescer.add(Arrays.asList(event), 0)).containsExactly(event);
+        assertThat(this.coalescer.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReleaseNewestEventOfBranch() throws InterruptedException {
+        final Event first = this.event("master", 1);
+        final Event second = this.event("master", 3);
+        final Event third = this.event("master", 2);
+
+        assertThat(this.coalescer.add(Arrays.asList(first, second), WINDOW)).isEmpty();
+        assertThat(this.coalescer.add(Arrays.asList(third), WINDOW)).isEmpty();
+        assertThat(this.coalescer.getPendingCount()).isEqualTo(1);
+
+        assertThat(this.latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.released).containsExactly(second);
+    }
+
+    @Test
+    public void shouldKeepBranchesSeparate() {
+        this.coalescer.add(Arrays.asList(this.event("master", 1), this.event("develop", 1)), WINDOW);
+
+        assertThat(this.coalescer.getPendingCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldContainNewestEventOnly() {
+        final Event first = this.event("master", 1);
+        final Event second = this.event("master", 2);
+
+        this.coalescer.add(Arrays.asList(first, second), WINDOW);
+
+        assertThat(this.coalescer.contains(first)).isFalse();
+        assertThat(this.coalescer.contains(second)).isTrue();
+    }
+
+    @Test
+    public void shouldNotReleaseClearedEvents() throws InterruptedException {
+        final Event event = this.event("master", 1);
+        this.coalescer.add(Arrays.asList(event), WINDOW);
+
+        assertThat(this.coalescer.clear()).containsExactly(event);
+        assertThat(this.coalescer.contains(event)).isFalse();
+
+        assertThat(this.latch.await(WINDOW * 3, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(this.released).isEmpty();
+    }
+
+    private Event event(final String branch, final long timestamp) {
+        final Event event = Mockito.mock(Event.class);
+        Mockito.when(event.getHost()).thenReturn("git-codecommit.us-east-1.amazonaws.com");
+        Mockito.when(event.getPath()).thenReturn("/v1/repos/a");
+        Mockito.when(event.getBranch()).thenReturn(branch);
+        Mockito.when(event.getTimestamp()).thenReturn(timestamp);
+        return event;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.Event;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.metrics.QueueStatistics;
+import io.relution.jenkins.scmsqs.model.ParsedMessage;
+
+
+public class EventPipelineTest {
+
+    private ScheduledExecutorService timer;
+
+    private SettingsProvider         settings;
+    private QueueStatistics          statistics;
+
+    private final List<Event>        released = Collections.synchronizedList(new ArrayList<Event>());
+    private final CountDownLatch     latch    = new CountDownLatch(1);
+
+    private EventPipeline            pipeline;
+
+    @Before
+    public void init() {
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.settings = Mockito.mock(SettingsProvider.class);
+        this.statistics = new QueueStatistics();
+
+        this.pipeline = new EventPipeline(this.timer, this.settings, this.statistics);
+        this.pipeline.setCallback(new EventPipeline.Callback() {
+
+            @Override
+            public void onReleased(final List<Event> events) {
+                EventPipelineTest.this.released.addAll(events);
+                EventPipelineTest.this.latch.countDown();
+            }
+        });
+    }
+
+    @After
+    public void dispose() {
+        this.timer.shutdownNow();
+    }
+
+    @Test
+    public void shouldReleaseImmediatelyIfNotCoalesced() {
+        final Event event = this.event("e1", "master", 1);
+
+        final List<Event> result = this.pipeline.add(Arrays.asList(this.message(event)));
+
+        assertThat(result).containsExactly(event);
+        assertThat(this.statistics.getEventsIn()).isEqualTo(1);
+        assertThat(this.statistics.getEventsOut()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCountMessagesWithoutEventsAsParseErrors() {
+        final List<Event> result = this.pipeline.add(Arrays.asList(this.message(), this.message()));
+
+        assertThat(result).isEmpty();
+        assertThat(this.statistics.getParseErrors()).isEqualTo(2);
+        assertThat(this.statistics.getEventsIn()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReleaseCoalescedEventsToCallback() throws InterruptedException {
+        Mockito.when(this.settings.getCoalesceWindowSeconds()).thenReturn(1);
+        final Event first = this.event("e1", "master", 1);
+        final Event second = this.event("e2", "master", 2);
+
+        final List<Event> result = this.pipeline.add(Arrays.asList(this.message(first), this.message(second)));
+
+        assertThat(result).isEmpty();
+        assertThat(this.latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.released).containsExactly(second);
+        assertThat(this.statistics.getEventsIn()).isEqualTo(2);
+        assertThat(this.statistics.getEventsOut()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRetainMessagesUntilEventsAreReleased() throws InterruptedException {
+        Mockito.when(this.settings.getCoalesceWindowSeconds()).thenReturn(1);
+        final ParsedMessage first = this.message(this.event("e1", "master", 1));
+        final ParsedMessage second = this.message(this.event("e2", "master", 2));
+        final List<ParsedMessage> messages = Arrays.asList(first, second);
+
+        this.pipeline.add(messages);
+
+        assertThat(this.pipeline.retainHeld(messages)).containsExactly(second);
+        assertThat(this.pipeline.isComplete()).isFalse();
+        assertThat(this.pipeline.removeReleased()).isEmpty();
+
+        assertThat(this.latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.pipeline.removeReleased()).containsExactly(second);
+        assertThat(this.pipeline.isComplete()).isTrue();
+    }
+
+    @Test
+    public void shouldReturnRetainedMessagesWhenFlushed() {
+        Mockito.when(this.settings.getCoalesceWindowSeconds()).thenReturn(60);
+        final ParsedMessage message = this.message(this.event("e1", "master", 1));
+        final Event event = this.event("e2", "master", 2);
+
+        this.pipeline.add(Arrays.asList(message));
+        this.pipeline.retainHeld(Arrays.asList(message));
+
+        assertThat(this.pipeline.flush()).containsExactly(message);
+        assertThat(this.pipeline.isComplete()).isFalse();
+        assertThat(this.pipeline.add(Arrays.asList(this.message(event)))).containsExactly(event);
+    }
+
+    @Test
+    public void shouldRetainMessagesOfIncompleteChanges() {
+        final Event part1 = this.event("e1", "master", 1);
+        final Event part2 = this.event("e1", "master", 1);
+        Mockito.when(part1.getPartNumber()).thenReturn(1);
+        Mockito.when(part1.getTotalParts()).thenReturn(2);
+        Mockito.when(part2.getPartNumber()).thenReturn(2);
+        Mockito.when(part2.getTotalParts()).thenReturn(2);
+        final ParsedMessage first = this.message(part1);
+
+        assertThat(this.pipeline.add(Arrays.asList(first))).isEmpty();
+        assertThat(this.pipeline.retainHeld(Arrays.asList(first))).containsExactly(first);
+        assertThat(this.pipeline.isComplete()).isFalse();
+
+        assertThat(this.pipeline.add(Arrays.asList(this.message(part2)))).containsExactly(part1, part2);
+        assertThat(this.pipeline.removeReleased()).containsExactly(first);
+        assertThat(this.pipeline.isComplete()).isTrue();
+    }
+
+    @Test
+    public void shouldReturnMessagesOfIncompleteChangesWhenFlushed() {
+        final Event part = this.event("e1", "master", 1);
+        Mockito.when(part.getPartNumber()).thenReturn(1);
+        Mockito.when(part.getTotalParts()).thenReturn(2);
+        final ParsedMessage message = this.message(part);
+
+        this.pipeline.add(Arrays.asList(message));
+        this.pipeline.retainHeld(Arrays.asList(message));
+
+        assertThat(this.pipeline.flush()).containsExactly(message);
+        assertThat(this.pipeline.add(Arrays.asList(message))).containsExactly(part);
+    }
+
+    private ParsedMessage message(final Event... events) {
+        return new ParsedMessage(new Message().withMessageId("m"), Arrays.asList(events), null);
+    }
+
+    private Event event(final String id, final String branch, final long timestamp) {
+        final Event event = Mockito.mock(Event.class);
+        Mockito.when(event.getId()).thenReturn(id);
+        Mockito.when(event.getHost()).thenReturn("git-codecommit.us-east-1.amazonaws.com");
+        Mockito.when(event.getPath()).thenReturn("/v1/repos/a");
+        Mockito.when(event.getBranch()).thenReturn(branch);
+        Mockito.when(event.getTimestamp()).thenReturn(timestamp);
+        return event;
+    }
+}
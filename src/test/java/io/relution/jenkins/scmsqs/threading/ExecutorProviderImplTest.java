@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.ExecutorFactory;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.metrics.ExecutorStatistics;
+import io.relution.jenkins.scmsqs.model.events.ConfigurationChangedEvent;
+
+
+public class ExecutorProviderImplTest {
+
+    @Mock
+    private ExecutorFactory      factory;
+
+    @Mock
+    private SettingsProvider     settings;
+
+    private ExecutorProviderImpl provider;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+
+        when(this.settings.getCorePoolSize(ExecutorRole.RECEIVE)).thenReturn(1);
+        when(this.settings.getMaximumPoolSize(ExecutorRole.RECEIVE)).thenReturn(1);
+        when(this.settings.getCorePoolSize(ExecutorRole.CALLBACK)).thenReturn(2);
+        when(this.settings.getMaximumPoolSize(ExecutorRole.CALLBACK)).thenReturn(4);
+        when(this.settings.getCorePoolSize(ExecutorRole.DISPATCH)).thenReturn(1);
+        when(this.settings.getMaximumPoolSize(ExecutorRole.DISPATCH)).thenReturn(2);
+        when(this.settings.getExecutorQueueSize()).thenReturn(1);
+
+        when(this.factory.createVirtualExecutor()).thenAnswer(new Answer<ThreadPoolExecutor>() {
+
+            @Override
+            public ThreadPoolExecutor answer(final InvocationOnMock invocation) throws Throwable {
+                return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1, TimeUnit.MINUTES, new SynchronousQueue<Runnable>());
+            }
+        });
+
+        when(this.factory.createExecutor(anyInt(), anyInt(), anyInt())).thenAnswer(new Answer<ThreadPoolExecutor>() {
+
+            @Override
+            public ThreadPoolExecutor answer(final InvocationOnMock invocation) throws Throwable {
+                final Object[] args = invocation.getArguments();
+                return new ThreadPoolExecutor(
+                        (Integer) args[0],
+                        (Integer) args[1],
+                        1,
+                        TimeUnit.MINUTES,
+                        new ArrayBlockingQueue<Runnable>((Integer) args[2]),
+                        new ThreadPoolExecutor.DiscardPolicy());
+            }
+        });
+
+        this.provider = new ExecutorProviderImpl(this.factory, this.settings);
+    }
+
+    @After
+    public void dispose() {
+        for (final ExecutorRole role : ExecutorRole.values()) {
+            this.provider.get(role).shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCreateSeparateExecutorPerRole() {
+        final ExecutorService receive = this.provider.get(ExecutorRole.RECEIVE);
+        final ExecutorService callback = this.provider.get(ExecutorRole.CALLBACK);
+        final ExecutorService dispatch = this.provider.get(ExecutorRole.DISPATCH);
+
+        assertThat(this.provider.get()).isSameAs(receive);
+        assertThat(receive).isNotSameAs(callback).isNotSameAs(dispatch);
+        assertThat(callback).isNotSameAs(dispatch);
+
+        assertThat(this.provider.getStatistics()).hasSize(ExecutorRole.values().length);
+    }
+
+    @Test
+    public void shouldResizeExecutor() {
+        this.provider.setPoolSize(ExecutorRole.CALLBACK, 8, 16);
+
+        final ThreadPoolExecutor executor = (ThreadPoolExecutor) this.provider.get(ExecutorRole.CALLBACK);
+        assertThat(executor.getCorePoolSize()).isEqualTo(8);
+        assertThat(executor.getMaximumPoolSize()).isEqualTo(16);
+
+        this.provider.setPoolSize(ExecutorRole.CALLBACK, 3, 1);
+        assertThat(executor.getCorePoolSize()).isEqualTo(3);
+        assertThat(executor.getMaximumPoolSize()).isEqualTo(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidPoolSize() {
+        this.provider.setPoolSize(ExecutorRole.RECEIVE, 0, 1);
+    }
+
+    @Test
+    public void shouldApplyChangedConfiguration() {
+        when(this.settings.getCorePoolSize(ExecutorRole.DISPATCH)).thenReturn(5);
+        when(this.settings.getMaximumPoolSize(ExecutorRole.DISPATCH)).thenReturn(10);
+
+        this.provider.onConfigurationChanged(new ConfigurationChangedEvent());
+
+        final ThreadPoolExecutor executor = (ThreadPoolExecutor) this.provider.get(ExecutorRole.DISPATCH);
+        assertThat(executor.getCorePoolSize()).isEqualTo(5);
+        assertThat(executor.getMaximumPoolSize()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldUseVirtualThreadsIfEnabledAndAvailable() {
+        when(this.settings.isVirtualThreadsEnabled()).thenReturn(true);
+        this.dispose();
+        this.provider = new ExecutorProviderImpl(this.factory, this.settings);
+
+        final int expected = VirtualThreads.isAvailable() ? 2 : 0;
+        verify(this.factory, times(expected)).createVirtualExecutor();
+
+        this.provider.setPoolSize(ExecutorRole.CALLBACK, 3, 3);
+        assertThat(((ThreadPoolExecutor) this.provider.get(ExecutorRole.CALLBACK)).getCorePoolSize()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldCountRejectedTasks() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = this.provider.get(ExecutorRole.RECEIVE);
+
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        final Runnable noop = new Runnable() {
+
+            @Override
+            public void run() {
+            }
+        };
+
+        executor.execute(noop);
+        executor.execute(noop);
+        executor.execute(noop);
+
+        final ExecutorStatistics statistics = this.provider.getStatistics().get(ExecutorRole.RECEIVE.ordinal());
+        assertThat(statistics.getActiveCount()).isEqualTo(1);
+        assertThat(statistics.getQueueLength()).isEqualTo(1);
+        assertThat(statistics.getRejectedTasks()).isEqualTo(2);
+
+        release.countDown();
+    }
+}
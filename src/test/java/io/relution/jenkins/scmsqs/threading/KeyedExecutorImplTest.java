@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.relution.jenkins.scmsqs.interfaces.KeyedExecutor;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+
+
+public class KeyedExecutorImplTest {
+
+    private static final String KEY_A = "job-a";
+    private static final String KEY_B = "job-b";
+
+    @Mock
+    private SettingsProvider    settings;
+
+    private ThreadPoolExecutor  pool;
+
+    private KeyedExecutor       executor;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+
+        Mockito.when(this.settings.getMaxConcurrentPolls()).thenReturn(4);
+
+        this.pool = new ThreadPoolExecutor(4, 4, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>());
+        this.executor = new KeyedExecutorImpl(this.pool, this.settings);
+    }
+
+    @After
+    public void dispose() {
+        this.pool.shutdownNow();
+    }
+
+    @Test
+    public void shouldExecuteTasksWithSameKeySequentially() throws InterruptedException {
+        final int count = 50;
+        final CountDownLatch done = new CountDownLatch(count);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            this.executor.execute(KEY_A, new Runnable() {
+
+                @Override
+                public void run() {
+                    final int current = running.incrementAndGet();
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                    order.add(index);
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(1);
+        assertThat(order).isSorted().hasSize(count);
+    }
+
+    @Test
+    public void shouldExecuteTasksWithDifferentKeysConcurrently() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        this.executor.execute(KEY_A, task);
+        this.executor.execute(KEY_B, task);
+
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    public void shouldResizePool() {
+        this.executor.setPoolSize(8);
+        assertThat(this.executor.getPoolSize()).isEqualTo(8);
+        assertThat(this.pool.getCorePoolSize()).isEqualTo(8);
+
+        this.executor.setPoolSize(2);
+        assertThat(this.executor.getPoolSize()).isEqualTo(2);
+        assertThat(this.pool.getCorePoolSize()).isEqualTo(2);
+    }
+}
@@ -24,19 +24,30 @@ import com.amazonaws.services.sqs.model.Message;
 import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import io.relution.jenkins.scmsqs.factories.MessageParserFactoryImpl;
+import io.relution.jenkins.scmsqs.interfaces.Event;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueListener;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueMonitor;
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+import io.relution.jenkins.scmsqs.metrics.QueueStatistics;
+import io.relution.jenkins.scmsqs.model.EventDispatch;
 import io.relution.jenkins.scmsqs.net.SQSChannel;
+import jenkins.util.Timer;
 
 
 public class SQSQueueMonitorImplTest {
@@ -44,6 +55,12 @@ public class SQSQueueMonitorImplTest {
     private static final String UUID_A   = "uuid-a";
     private static final String UUID_B   = "uuid-b";
 
+    private static final String BODY     = "{\"Subject\":\"test\",\"Message\":\"{\\\"Records\\\":[{"
+            + "\\\"eventId\\\":\\\"e1\\\",\\\"eventSource\\\":\\\"aws:codecommit\\\","
+            + "\\\"eventSourceARN\\\":\\\"arn:aws:codecommit:us-east-1:123456789012:repo\\\","
+            + "\\\"codecommit\\\":{\\\"references\\\":[{\\\"commit\\\":\\\"c0\\\","
+            + "\\\"ref\\\":\\\"refs/heads/master\\\"}]}}]}\"}";
+
     @Mock
     private ExecutorService     executor;
 
@@ -56,6 +73,9 @@ public class SQSQueueMonitorImplTest {
     @Mock
     private SQSQueueListener    listener;
 
+    @Mock
+    private SQSQueueListener    other;
+
     private SQSQueueMonitor     monitor;
 
     private final List<Message> messages = new ArrayList<>();
@@ -64,7 +84,7 @@ public class SQSQueueMonitorImplTest {
     public void init() {
         MockitoAnnotations.initMocks(this);
 
-        final Message message = new Message();
+        final Message message = new Message().withMessageId("m1").withBody(BODY);
         this.messages.add(message);
 
         Mockito.when(this.channel.getMessages()).thenReturn(this.messages);
@@ -100,18 +120,12 @@ public class SQSQueueMonitorImplTest {
     }
 
     @Test
-    public void shouldThrowIfWrongQueue() {
+    public void shouldAcceptListenerOfOtherQueueConfiguration() {
         Mockito.when(this.listener.getQueueUuid()).thenReturn(UUID_A);
         Mockito.when(this.channel.getQueueUuid()).thenReturn(UUID_B);
 
-        assertThatThrownBy(new ThrowingCallable() {
-
-            @Override
-            public void call() throws Throwable {
-                SQSQueueMonitorImplTest.this.monitor.add(SQSQueueMonitorImplTest.this.listener);
-            }
-
-        }).isInstanceOf(IllegalArgumentException.class);
+        assertThat(this.monitor.add(this.listener)).isTrue();
+        assertThat(this.monitor.getListeners()).containsExactly(this.listener);
     }
 
     @Test
@@ -171,7 +185,7 @@ public class SQSQueueMonitorImplTest {
         this.monitor.run();
 
         Mockito.verify(this.channel).getMessages();
-        Mockito.verify(this.listener).handleMessages(this.messages);
+        Mockito.verify(this.listener).handleEvents(Matchers.<List<Event>> any());
         Mockito.verifyNoMoreInteractions(this.listener);
         Mockito.verify(this.channel).deleteMessages(this.messages);
         Mockito.verifyNoMoreInteractions(this.channel);
@@ -210,4 +224,173 @@ public class SQSQueueMonitorImplTest {
         Mockito.verifyNoMoreInteractions(this.listener);
         Mockito.verifyNoMoreInteractions(this.executor);
     }
+
+    @Test
+    public void shouldReleaseMessagesReceivedAfterShutDown() {
+        this.monitor.add(this.listener);
+        Mockito.when(this.channel.getMessages()).thenAnswer(new Answer<List<Message>>() {
+
+            @Override
+            public List<Message> answer(final InvocationOnMock invocation) throws Throwable {
+                SQSQueueMonitorImplTest.this.monitor.shutDown();
+                return SQSQueueMonitorImplTest.this.messages;
+            }
+        });
+
+        this.monitor.run();
+
+        Mockito.verify(this.channel).releaseMessages(this.messages);
+        Mockito.verify(this.channel, Mockito.never()).deleteMessages(Matchers.<List<Message>> any());
+        Mockito.verify(this.listener, Mockito.never()).handleEvents(Matchers.<List<Event>> any());
+    }
+
+    @Test
+    public void shouldHandOffMessagesReceivedWhileDraining() throws InterruptedException {
+        this.monitor.add(this.listener);
+        Mockito.when(this.channel.getMessages()).thenAnswer(new Answer<List<Message>>() {
+
+            @Override
+            public List<Message> answer(final InvocationOnMock invocation) throws Throwable {
+                SQSQueueMonitorImplTest.this.monitor.drain(1, TimeUnit.MINUTES);
+                return SQSQueueMonitorImplTest.this.messages;
+            }
+        });
+
+        this.monitor.run();
+
+        Mockito.verify(this.listener).handleEvents(Matchers.<List<Event>> any());
+        Mockito.verify(this.channel).deleteMessages(this.messages);
+        Mockito.verify(this.channel, Mockito.never()).releaseMessages(Matchers.<List<Message>> any());
+        Mockito.verify(this.executor, Mockito.times(1)).execute(this.monitor);
+        assertThat(this.monitor.awaitTermination(0, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void shouldReleaseMessagesIfHandOffFails() {
+        this.monitor.add(this.listener);
+        Mockito.doThrow(new IllegalStateException()).when(this.listener).handleEvents(Matchers.<List<Event>> any());
+
+        this.monitor.run();
+
+        Mockito.verify(this.channel).releaseMessages(this.messages);
+        Mockito.verify(this.channel, Mockito.never()).deleteMessages(Matchers.<List<Message>> any());
+    }
+
+    @Test
+    public void shouldHandOffSameEventsToAllListeners() {
+        Mockito.when(this.other.getQueueUuid()).thenReturn(UUID_A);
+        this.monitor.add(this.listener);
+        this.monitor.add(this.other);
+
+        this.monitor.run();
+
+        final ArgumentCaptor<List> first = ArgumentCaptor.forClass(List.class);
+        final ArgumentCaptor<List> second = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(this.listener).handleEvents(first.capture());
+        Mockito.verify(this.other).handleEvents(second.capture());
+        assertThat(first.getValue()).hasSize(1);
+        assertThat(second.getValue()).isSameAs(first.getValue());
+    }
+
+    @Test
+    public void shouldNotHandOffMessagesWithoutEvents() {
+        this.messages.set(0, new Message().withMessageId("m1").withBody("{"));
+        this.monitor.add(this.listener);
+
+        this.monitor.run();
+
+        Mockito.verify(this.listener, Mockito.never()).handleEvents(Matchers.<List<Event>> any());
+        Mockito.verify(this.channel).deleteMessages(this.messages);
+    }
+
+    @Test
+    public void shouldNotShareListenersWithClone() {
+        this.monitor.add(this.listener);
+        final SQSQueueMonitor clone = this.monitor.clone(this.queue, this.channel);
+
+        clone.add(this.other);
+        this.monitor.remove(this.listener);
+
+        assertThat(clone.getListeners()).containsExactly(this.listener, this.other);
+        assertThat(this.monitor.getListeners()).isEmpty();
+    }
+
+    @Test
+    public void shouldCountStaleEventsOfAllListenersOnce() {
+        final QueueStatistics statistics = new QueueStatistics();
+        this.monitor = this.createMonitor(statistics);
+        Mockito.when(this.other.getQueueUuid()).thenReturn(UUID_A);
+        Mockito.when(this.listener.handleEvents(Matchers.<List<Event>> any())).thenAnswer(new Dispatch(false, false));
+        Mockito.when(this.other.handleEvents(Matchers.<List<Event>> any())).thenAnswer(new Dispatch(false, false));
+        this.monitor.add(this.listener);
+        this.monitor.add(this.other);
+
+        this.monitor.run();
+
+        assertThat(statistics.getStaleEvents()).isEqualTo(1);
+        assertThat(statistics.getDispatchedPolls()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCountPollsDispatchedForAllListenersOnce() {
+        final QueueStatistics statistics = new QueueStatistics();
+        this.monitor = this.createMonitor(statistics);
+        Mockito.when(this.other.getQueueUuid()).thenReturn(UUID_A);
+        Mockito.when(this.listener.handleEvents(Matchers.<List<Event>> any())).thenAnswer(new Dispatch(true, true));
+        Mockito.when(this.other.handleEvents(Matchers.<List<Event>> any())).thenAnswer(new Dispatch(false, false));
+        this.monitor.add(this.listener);
+        this.monitor.add(this.other);
+
+        this.monitor.run();
+
+        assertThat(statistics.getStaleEvents()).isEqualTo(0);
+        assertThat(statistics.getDispatchedPolls()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotDeleteMessagesWhoseEventsAreHeldBack() {
+        final SettingsProvider settings = Mockito.mock(SettingsProvider.class);
+        Mockito.when(settings.getCoalesceWindowSeconds()).thenReturn(60);
+        final EventPipeline pipeline = new EventPipeline(Timer.get(), settings, new QueueStatistics());
+        this.monitor = new SQSQueueMonitorImpl(this.executor, this.executor, this.queue, this.channel, null, new MessageParserFactoryImpl(), pipeline, null, null, null);
+        this.monitor.add(this.listener);
+
+        this.monitor.run();
+
+        Mockito.verify(this.listener, Mockito.never()).handleEvents(Matchers.<List<Event>> any());
+        Mockito.verify(this.channel).holdMessages(this.messages, 120);
+        Mockito.verify(this.channel, Mockito.never()).deleteMessages(this.messages);
+
+        this.monitor.flush();
+
+        Mockito.verify(this.channel).releaseMessages(this.messages);
+        Mockito.verify(this.channel, Mockito.never()).deleteMessages(this.messages);
+    }
+
+    private SQSQueueMonitor createMonitor(final QueueStatistics statistics) {
+        final EventPipeline pipeline = new EventPipeline(Timer.get(), null, statistics);
+        return new SQSQueueMonitorImpl(this.executor, this.executor, this.queue, this.channel, null, new MessageParserFactoryImpl(), pipeline, null, null, null);
+    }
+
+    /**
+     * Answers a hand-off with a dispatch in which all events matched the listener.
+     */
+    private static class Dispatch implements Answer<EventDispatch> {
+
+        private final boolean isFresh;
+        private final boolean isPollDispatched;
+
+        private Dispatch(final boolean isFresh, final boolean isPollDispatched) {
+            this.isFresh = isFresh;
+            this.isPollDispatched = isPollDispatched;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public EventDispatch answer(final InvocationOnMock invocation) throws Throwable {
+            final List<Event> events = (List<Event>) invocation.getArguments()[0];
+            final List<Event> fresh = this.isFresh ? events : Collections.<Event> emptyList();
+            return new EventDispatch(events, fresh, this.isPollDispatched);
+        }
+    }
 }
@@ -23,11 +23,21 @@ import static org.mockito.Mockito.times;
 import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
-
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import io.relution.jenkins.scmsqs.interfaces.SQSFactory;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueue;
@@ -36,6 +46,7 @@ import io.relution.jenkins.scmsqs.interfaces.SQSQueueMonitor;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueMonitorScheduler;
 import io.relution.jenkins.scmsqs.interfaces.SQSQueueProvider;
 import io.relution.jenkins.scmsqs.model.events.ConfigurationChangedEvent;
+import io.relution.jenkins.scmsqs.net.SQSChannel;
 
 
 public class SQSQueueMonitorSchedulerImplTest {
@@ -73,6 +84,9 @@ public class SQSQueueMonitorSchedulerImplTest {
     @Mock
     private SQSQueue                 queueB;
 
+    @Mock
+    private SQSChannel               channel;
+
     private SQSQueueMonitorScheduler scheduler;
 
     @Before
@@ -86,20 +100,23 @@ public class SQSQueueMonitorSchedulerImplTest {
 
         Mockito.when(this.monitorA.getQueue()).thenReturn(this.queueA);
         Mockito.when(this.monitorB.getQueue()).thenReturn(this.queueB);
+        Mockito.when(this.monitorA.getChannel()).thenReturn(this.channel);
+        Mockito.when(this.monitorB.getChannel()).thenReturn(this.channel);
+        Mockito.when(this.channel.isClientCurrent(Matchers.any(SQSQueue.class))).thenReturn(true);
 
         Mockito.when(this.listenerA1.getQueueUuid()).thenReturn(UUID_A);
         Mockito.when(this.listenerA2.getQueueUuid()).thenReturn(UUID_A);
         Mockito.when(this.listenerB1.getQueueUuid()).thenReturn(UUID_B);
 
         Mockito.when(this.queueA.getUuid()).thenReturn(UUID_A);
-        Mockito.when(this.queueA.getUrl()).thenReturn("url-a");
+        Mockito.when(this.queueA.getAddress()).thenReturn("url-a");
         Mockito.when(this.queueA.getAWSAccessKeyId()).thenReturn("access-key-a");
         Mockito.when(this.queueA.getAWSSecretKey()).thenReturn("secret-key-a");
         Mockito.when(this.queueA.getMaxNumberOfMessages()).thenReturn(20);
         Mockito.when(this.queueA.getWaitTimeSeconds()).thenReturn(10);
 
         Mockito.when(this.queueB.getUuid()).thenReturn(UUID_B);
-        Mockito.when(this.queueB.getUrl()).thenReturn("url-b");
+        Mockito.when(this.queueB.getAddress()).thenReturn("url-b");
         Mockito.when(this.queueB.getAWSAccessKeyId()).thenReturn("access-key-b");
         Mockito.when(this.queueB.getAWSSecretKey()).thenReturn("secret-key-b");
         Mockito.when(this.queueB.getMaxNumberOfMessages()).thenReturn(20);
@@ -229,6 +246,28 @@ public class SQSQueueMonitorSchedulerImplTest {
         Mockito.verify(this.monitorA).add(this.listenerA2);
     }
 
+    @Test
+    public void shouldFlushMonitorRemovedOnUnregisterLast() {
+        Mockito.when(this.monitorA.remove(this.listenerA1)).thenReturn(true);
+        Mockito.when(this.monitorA.isShutDown()).thenReturn(true);
+        this.scheduler.register(this.listenerA1);
+
+        this.scheduler.unregister(this.listenerA1);
+
+        Mockito.verify(this.monitorA).shutDown();
+        Mockito.verify(this.monitorA).flush();
+    }
+
+    @Test
+    public void shouldNotFlushMonitorIfMoreListenersOnUnregister() {
+        this.scheduler.register(this.listenerA1);
+        this.scheduler.register(this.listenerA2);
+
+        this.scheduler.unregister(this.listenerA1);
+
+        Mockito.verify(this.monitorA, Mockito.never()).flush();
+    }
+
     @Test
     public void shouldNotCreateNewMonitorIfMoreListenersOnUnregister() {
         this.scheduler.register(this.listenerA1);
@@ -262,6 +301,8 @@ public class SQSQueueMonitorSchedulerImplTest {
         Mockito.verify(this.monitorB).getQueue();
         Mockito.verify(this.monitorA).isShutDown();
         Mockito.verify(this.monitorB).isShutDown();
+        Mockito.verify(this.monitorA).getChannel();
+        Mockito.verify(this.monitorB).getChannel();
         Mockito.verifyNoMoreInteractions(this.monitorA);
         Mockito.verifyNoMoreInteractions(this.monitorB);
     }
@@ -283,7 +324,7 @@ public class SQSQueueMonitorSchedulerImplTest {
 
         Mockito.verify(this.factory).createMonitor(this.monitorA, queueA_);
         Mockito.verify(this.monitorA).getQueue();
-        Mockito.verify(this.monitorA).shutDown();
+        Mockito.verify(this.monitorA).drain(Matchers.anyLong(), Matchers.any(TimeUnit.class));
         Mockito.verify(this.monitorA).isShutDown();
         Mockito.verifyNoMoreInteractions(this.monitorA);
         Mockito.verifyNoMoreInteractions(monitorA_);
@@ -302,7 +343,7 @@ public class SQSQueueMonitorSchedulerImplTest {
         Mockito.when(this.provider.getSqsQueue(UUID_A)).thenReturn(queueA_);
         Mockito.when(this.factory.createMonitor(this.monitorA, queueA_)).thenReturn(monitorA_);
         Mockito.when(queueA_.getUuid()).thenReturn(UUID_A);
-        Mockito.when(queueA_.getUrl()).thenReturn("url-a");
+        Mockito.when(queueA_.getAddress()).thenReturn("url-a");
         Mockito.when(queueA_.getAWSAccessKeyId()).thenReturn("access-key-a");
         Mockito.when(queueA_.getAWSSecretKey()).thenReturn("secret-key-a");
         Mockito.when(queueA_.getMaxNumberOfMessages()).thenReturn(20);
@@ -313,9 +354,47 @@ public class SQSQueueMonitorSchedulerImplTest {
         Mockito.verifyNoMoreInteractions(this.factory);
         Mockito.verify(this.monitorA).getQueue();
         Mockito.verify(this.monitorA).isShutDown();
+        Mockito.verify(this.monitorA).getChannel();
         Mockito.verifyNoMoreInteractions(this.monitorA);
     }
 
+    @Test
+    public void shouldStartNewMonitorOnConfigurationChangedIfClientSettingsChanged() {
+        final SQSQueueMonitor monitorA_ = Mockito.mock(SQSQueueMonitor.class);
+        this.scheduler.register(this.listenerA1);
+        Mockito.verify(this.factory).createMonitor(this.executor, this.queueA);
+        Mockito.when(this.factory.createMonitor(this.monitorA, this.queueA)).thenReturn(monitorA_);
+        Mockito.when(this.channel.isClientCurrent(this.queueA)).thenReturn(false);
+
+        this.scheduler.onConfigurationChanged(new ConfigurationChangedEvent());
+
+        Mockito.verify(this.factory).createMonitor(this.monitorA, this.queueA);
+        Mockito.verify(this.monitorA).drain(Matchers.anyLong(), Matchers.any(TimeUnit.class));
+        Mockito.verify(this.monitorA, Mockito.never()).reconfigure(Matchers.any(SQSQueue.class));
+        Mockito.verify(this.executor).execute(monitorA_);
+    }
+
+    @Test
+    public void shouldUpdateMonitorOnConfigurationChangedIfParametersChanged() {
+        final SQSQueue queueA_ = Mockito.mock(SQSQueue.class);
+        this.scheduler.register(this.listenerA1);
+        Mockito.verify(this.factory).createMonitor(this.executor, this.queueA);
+        Mockito.when(this.monitorA.getQueue()).thenReturn(this.queueA);
+        Mockito.when(this.provider.getSqsQueue(UUID_A)).thenReturn(queueA_);
+        Mockito.when(queueA_.getUuid()).thenReturn(UUID_A);
+        Mockito.when(queueA_.getAddress()).thenReturn("url-a");
+        Mockito.when(queueA_.getAWSAccessKeyId()).thenReturn("access-key-a");
+        Mockito.when(queueA_.getAWSSecretKey()).thenReturn("secret-key-a");
+        Mockito.when(queueA_.getMaxNumberOfMessages()).thenReturn(5);
+        Mockito.when(queueA_.getWaitTimeSeconds()).thenReturn(20);
+
+        this.scheduler.onConfigurationChanged(new ConfigurationChangedEvent());
+
+        Mockito.verifyNoMoreInteractions(this.factory);
+        Mockito.verify(this.monitorA).reconfigure(queueA_);
+        Mockito.verify(this.monitorA, Mockito.never()).drain(Matchers.anyLong(), Matchers.any(TimeUnit.class));
+    }
+
     @Test
     public void shouldStopMonitorOnConfigurationChangedIfQueueRemoved() {
         this.scheduler.register(this.listenerA1);
@@ -331,8 +410,181 @@ public class SQSQueueMonitorSchedulerImplTest {
         Mockito.verifyNoMoreInteractions(this.factory);
         Mockito.verify(this.monitorA).getQueue();
         Mockito.verify(this.monitorA).isShutDown();
-        Mockito.verify(this.monitorB).shutDown();
+        Mockito.verify(this.monitorB).drain(Matchers.anyLong(), Matchers.any(TimeUnit.class));
         Mockito.verifyNoMoreInteractions(this.monitorA);
         Mockito.verifyNoMoreInteractions(this.monitorB);
     }
+
+    @Test
+    public void shouldShutDownAllMonitors() throws InterruptedException {
+        this.scheduler.register(this.listenerA1);
+        this.scheduler.register(this.listenerB1);
+        Mockito.when(this.monitorA.awaitTermination(Matchers.anyLong(), Matchers.any(TimeUnit.class))).thenReturn(true);
+        Mockito.when(this.monitorB.awaitTermination(Matchers.anyLong(), Matchers.any(TimeUnit.class))).thenReturn(false);
+
+        assertThat(this.scheduler.shutDown(1, TimeUnit.SECONDS)).isFalse();
+
+        Mockito.verify(this.monitorA).shutDown();
+        Mockito.verify(this.monitorB).shutDown();
+        Mockito.verify(this.monitorA, Mockito.never()).drain(Matchers.anyLong(), Matchers.any(TimeUnit.class));
+        assertThat(this.scheduler.unregister(this.listenerA1)).isFalse();
+    }
+
+    @Test
+    public void shouldUseSingleMonitorForConcurrentRegistrations() throws InterruptedException {
+        final List<SQSQueueMonitor> created = new CopyOnWriteArrayList<>();
+        Mockito.when(this.factory.createMonitor(this.executor, this.queueA)).thenAnswer(new Answer<SQSQueueMonitor>() {
+
+            @Override
+            public SQSQueueMonitor answer(final InvocationOnMock invocation) throws Throwable {
+                final SQSQueueMonitor monitor = Mockito.mock(SQSQueueMonitor.class);
+                created.add(monitor);
+                return monitor;
+            }
+        });
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            final Thread thread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        SQSQueueMonitorSchedulerImplTest.this.scheduler.register(SQSQueueMonitorSchedulerImplTest.this.listenerA1);
+
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        int used = 0;
+
+        for (final SQSQueueMonitor monitor : created) {
+            if (!Mockito.mockingDetails(monitor).getInvocations().isEmpty()) {
+                Mockito.verify(monitor, times(8)).add(this.listenerA1);
+                used++;
+            }
+        }
+
+        assertThat(used).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotStrandListenerOnMonitorRemovedConcurrently() throws InterruptedException {
+        final List<SQSQueueMonitor> created = new CopyOnWriteArrayList<>();
+        final SQSChannel channel = Mockito.mock(SQSChannel.class);
+        Mockito.when(this.factory.createMonitor(this.executor, this.queueA)).thenAnswer(new Answer<SQSQueueMonitor>() {
+
+            @Override
+            public SQSQueueMonitor answer(final InvocationOnMock invocation) throws Throwable {
+                final SQSQueueMonitor monitor = new SQSQueueMonitorImpl(SQSQueueMonitorSchedulerImplTest.this.executor, SQSQueueMonitorSchedulerImplTest.this.queueA, channel);
+                created.add(monitor);
+                return monitor;
+            }
+        });
+
+        final Thread toggling = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (int i = 0; i < 2000; i++) {
+                    SQSQueueMonitorSchedulerImplTest.this.scheduler.register(SQSQueueMonitorSchedulerImplTest.this.listenerA1);
+                    SQSQueueMonitorSchedulerImplTest.this.scheduler.unregister(SQSQueueMonitorSchedulerImplTest.this.listenerA1);
+                }
+            }
+        });
+        toggling.start();
+
+        for (int i = 0; i < 2000; i++) {
+            this.scheduler.register(this.listenerA2);
+            this.scheduler.unregister(this.listenerA2);
+        }
+        this.scheduler.register(this.listenerA2);
+        toggling.join();
+
+        int active = 0;
+
+        for (final SQSQueueMonitor monitor : created) {
+            if (!monitor.getListeners().isEmpty()) {
+                assertThat(monitor.getListeners()).containsExactly(this.listenerA2);
+                assertThat(monitor.isShutDown()).isFalse();
+                active++;
+            }
+        }
+
+        assertThat(active).isEqualTo(1);
+        assertThat(this.scheduler.unregister(this.listenerA2)).isTrue();
+
+        for (final SQSQueueMonitor monitor : created) {
+            assertThat(monitor.getListeners()).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldRegisterAllListenersGroupedByQueue() throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            final SQSQueueMonitorScheduler scheduler = new SQSQueueMonitorSchedulerImpl(executor, this.provider, this.factory);
+            Mockito.when(this.factory.createMonitor(executor, this.queueA)).thenReturn(this.monitorA);
+            Mockito.when(this.factory.createMonitor(executor, this.queueB)).thenReturn(this.monitorB);
+            Mockito.when(this.listenerB1.getQueueUuid()).thenReturn("uuid-unknown");
+
+            final int count = scheduler.registerAll(Arrays.asList(this.listenerA1, this.listenerA2, this.listenerB1));
+
+            assertThat(count).isEqualTo(2);
+            Mockito.verify(this.factory, times(1)).createMonitor(executor, this.queueA);
+            Mockito.verify(this.monitorA).add(this.listenerA1);
+            Mockito.verify(this.monitorA).add(this.listenerA2);
+            Mockito.verifyZeroInteractions(this.monitorB);
+
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldShareMonitorBetweenConfigurationsOfSameQueue() {
+        Mockito.when(this.queueB.getAddress()).thenReturn("url-a");
+        Mockito.when(this.queueB.getAWSAccessKeyId()).thenReturn("access-key-a");
+
+        this.scheduler.register(this.listenerA1);
+        this.scheduler.register(this.listenerB1);
+
+        Mockito.verify(this.factory).createMonitor(this.executor, this.queueA);
+        Mockito.verify(this.factory, Mockito.never()).createMonitor(this.executor, this.queueB);
+        Mockito.verify(this.monitorA).add(this.listenerA1);
+        Mockito.verify(this.monitorA).add(this.listenerB1);
+        Mockito.verifyZeroInteractions(this.monitorB);
+    }
+
+    @Test
+    public void shouldMoveListenerIfConfigurationNoLongerSharesQueue() {
+        Mockito.when(this.queueB.getAddress()).thenReturn("url-a");
+        Mockito.when(this.queueB.getAWSAccessKeyId()).thenReturn("access-key-a");
+        Mockito.when(this.monitorA.getListeners()).thenReturn(Arrays.asList(this.listenerA1, this.listenerB1));
+        this.scheduler.register(this.listenerA1);
+        this.scheduler.register(this.listenerB1);
+        Mockito.when(this.queueB.getAddress()).thenReturn("url-b");
+
+        this.scheduler.onConfigurationChanged(new ConfigurationChangedEvent());
+
+        Mockito.verify(this.monitorA).remove(this.listenerB1);
+        Mockito.verify(this.factory).createMonitor(this.executor, this.queueB);
+        Mockito.verify(this.monitorB).add(this.listenerB1);
+    }
 }
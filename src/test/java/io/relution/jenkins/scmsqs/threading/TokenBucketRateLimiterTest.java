@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.threading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.TimeUnit;
+
+import io.relution.jenkins.scmsqs.interfaces.SettingsProvider;
+
+
+public class TokenBucketRateLimiterTest {
+
+    private static final String REPO_A = "git-codecommit.us-east-1.amazonaws.com/v1/repos/a";
+    private static final String REPO_B = "git-codecommit.us-east-1.amazonaws.com/v1/repos/b";
+
+    @Mock
+    private SettingsProvider    settings;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void shouldNotDelayIfDisabled() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(this.settings, 0, 1);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.reserve(REPO_A)).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void shouldNotDelayWithinBurst() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(this.settings, 60, 5);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.reserve(REPO_A)).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void shouldDelayIfBurstExceeded() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(this.settings, 6000, 1);
+
+        assertThat(limiter.reserve(REPO_A)).isEqualTo(0);
+        assertThat(limiter.reserve(REPO_A)).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldUseSeparateBucketPerKey() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(this.settings, 1, 1);
+
+        assertThat(limiter.reserve(REPO_A)).isEqualTo(0);
+        assertThat(limiter.reserve(REPO_B)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldEvictRefilledBuckets() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(this.settings, 60, 1);
+        final long now = System.nanoTime();
+
+        limiter.reserve(REPO_A, now);
+        assertThat(limiter.getBucketCount()).isEqualTo(1);
+
+        limiter.reserve(REPO_B, now + TimeUnit.SECONDS.toNanos(30));
+        assertThat(limiter.getBucketCount()).isEqualTo(2);
+
+        limiter.reserve(REPO_B, now + TimeUnit.MINUTES.toNanos(2));
+        assertThat(limiter.getBucketCount()).isEqualTo(1);
+    }
+}
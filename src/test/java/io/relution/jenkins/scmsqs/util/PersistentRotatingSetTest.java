@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+public class PersistentRotatingSetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File           file;
+
+    @Before
+    public void init() throws IOException {
+        this.file = new File(this.folder.getRoot(), "event-ids.log");
+    }
+
+    @Test
+    public void shouldRestoreItemsAfterReload() {
+        final PersistentRotatingSet set = this.createSet(100);
+        assertThat(set.add("a")).isTrue();
+        assertThat(set.add("b")).isTrue();
+        set.close();
+
+        final PersistentRotatingSet reloaded = this.createSet(100);
+        assertThat(reloaded.size()).isEqualTo(2);
+        assertThat(reloaded.add("a")).isFalse();
+        assertThat(reloaded.add("c")).isTrue();
+    }
+
+    @Test
+    public void shouldIgnoreExpiredAndMalformedLines() throws IOException {
+        final long now = System.currentTimeMillis();
+        final long expired = now - TimeUnit.HOURS.toMillis(2);
+        final String content = expired + " old\nmalformed\n" + now + " new\n";
+        Files.write(this.file.toPath(), content.getBytes(Charset.forName("UTF-8")));
+
+        final PersistentRotatingSet set = this.createSet(100);
+        assertThat(set.size()).isEqualTo(1);
+        assertThat(set.add("new")).isFalse();
+        assertThat(set.add("old")).isTrue();
+    }
+
+    @Test
+    public void shouldCompactJournal() throws IOException {
+        final PersistentRotatingSet set = this.createSet(2);
+
+        for (int i = 0; i < 10; i++) {
+            set.add("item-" + i);
+        }
+        set.close();
+
+        final List<String> lines = Files.readAllLines(this.file.toPath(), Charset.forName("UTF-8"));
+        assertThat(lines.size()).isLessThanOrEqualTo(4);
+    }
+
+    private PersistentRotatingSet createSet(final int maxSize) {
+        final PersistentRotatingSet set = new PersistentRotatingSet(this.file, 1, TimeUnit.HOURS, maxSize);
+        set.load();
+        return set;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.relution.jenkins.scmsqs.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+
+public class RotatingSetTest {
+
+    private static final long   MINUTE = 60 * 1000L;
+
+    private RotatingSet<String> set;
+
+    @Before
+    public void init() {
+        this.set = new RotatingSet<>(10, TimeUnit.MINUTES, 3);
+    }
+
+    @Test
+    public void shouldRejectItemWithinWindow() {
+        assertThat(this.set.add("a", MINUTE)).isTrue();
+        assertThat(this.set.add("a", 2 * MINUTE)).isFalse();
+    }
+
+    @Test
+    public void shouldRememberItemAfterRotation() {
+        assertThat(this.set.add("a", MINUTE)).isTrue();
+        assertThat(this.set.add("b", 7 * MINUTE)).isTrue();
+        assertThat(this.set.add("a", 8 * MINUTE)).isFalse();
+    }
+
+    @Test
+    public void shouldForgetItemAfterWindow() {
+        assertThat(this.set.add("a", MINUTE)).isTrue();
+        assertThat(this.set.add("a", 12 * MINUTE)).isTrue();
+    }
+
+    @Test
+    public void shouldRotateIfMaxSizeReached() {
+        this.set.add("a", MINUTE);
+        this.set.add("b", MINUTE);
+        this.set.add("c", MINUTE);
+        this.set.add("d", MINUTE);
+        this.set.add("e", MINUTE);
+        this.set.add("f", MINUTE);
+        this.set.add("g", MINUTE);
+
+        assertThat(this.set.size()).isLessThanOrEqualTo(6);
+        assertThat(this.set.add("a", MINUTE)).isTrue();
+    }
+}